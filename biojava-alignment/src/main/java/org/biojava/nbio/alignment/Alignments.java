@@ -23,6 +23,7 @@
 
 package org.biojava.nbio.alignment;
 
+import org.biojava.nbio.alignment.routines.MyersMiller;
 import org.biojava.nbio.core.alignment.template.ProfilePair;
 import org.biojava.nbio.core.alignment.template.SequencePair;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
@@ -35,6 +36,7 @@ import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.core.util.ConcurrencyTools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,7 +49,9 @@ import java.util.concurrent.Future;
 /**
  * Static utility to easily run alignment routines.  To exit cleanly after running any parallel method that mentions
  * use of the {@link ConcurrencyTools} utility, {@link ConcurrencyTools#shutdown()} or
- * {@link ConcurrencyTools#shutdownAndAwaitTermination()} must be called.
+ * {@link ConcurrencyTools#shutdownAndAwaitTermination()} must be called.  Each parallel method also has an overload
+ * which takes a {@link BioJavaExecutor}, so that the caller controls, and is responsible for shutting down, the
+ * threads which run the alignments.
  *
  * @author Mark Chapman
  */
@@ -68,9 +72,11 @@ public class Alignments {
 	 */
 	public static enum PairwiseSequenceAlignerType {
 		GLOBAL,              // Needleman-Wunsch/Gotoh
-		GLOBAL_LINEAR_SPACE, // Guan-Uberbacher
+		GLOBAL_LINEAR_SPACE, // Myers-Miller
 		LOCAL,               // Smith-Waterman/Gotoh
-		LOCAL_LINEAR_SPACE   // Smith-Waterman/Gotoh with smart traceback at each maximum
+		LOCAL_LINEAR_SPACE,  // Smith-Waterman/Gotoh with striped score passes and Myers-Miller traceback
+		GLOBAL_STRIPED,      // Needleman-Wunsch/Gotoh with striped score-only pass (Farrar)
+		LOCAL_STRIPED        // Smith-Waterman/Gotoh with striped score-only pass (Farrar)
 	}
 
 	/**
@@ -83,6 +89,8 @@ public class Alignments {
 		LOCAL,
 		LOCAL_IDENTITIES,
 		LOCAL_SIMILARITIES,
+		GLOBAL_STRIPED,      // score only, in linear memory
+		LOCAL_STRIPED,       // score only, in linear memory
 		KMERS,               // similar to CLUSTAL and MUSCLE
 		WU_MANBER            // similar to KALIGN
 	}
@@ -132,7 +140,26 @@ public class Alignments {
 	public static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>> getAllPairsAlignments(
 			List<S> sequences, PairwiseSequenceAlignerType type, GapPenalty gapPenalty,
 			SubstitutionMatrix<C> subMatrix) {
-		return runPairwiseAligners(getAllPairsAligners(sequences, type, gapPenalty, subMatrix));
+		return getAllPairsAlignments(sequences, type, gapPenalty, subMatrix, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Factory method which computes a sequence alignment for all {@link Sequence} pairs in the given {@link List}.
+	 * This method runs the alignments in parallel by submitting all of the alignments to the given executor.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of a sequence is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type chosen type from list of pairwise sequence alignment routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param executor the executor which runs the alignments
+	 * @return list of sequence alignment pairs
+	 */
+	public static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>> getAllPairsAlignments(
+			List<S> sequences, PairwiseSequenceAlignerType type, GapPenalty gapPenalty,
+			SubstitutionMatrix<C> subMatrix, BioJavaExecutor executor) {
+		return runPairwiseAligners(getAllPairsAligners(sequences, type, gapPenalty, subMatrix), executor);
 	}
 
 	/**
@@ -141,7 +168,9 @@ public class Alignments {
 	 * @param <S> each {@link Sequence} of the {@link List} is of type S
 	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
 	 * @param sequences the {@link List} of {@link Sequence}s to align
-	 * @param settings optional settings that adjust the alignment
+	 * @param settings optional settings that adjust the alignment: a {@link PairwiseSequenceScorerType},
+	 * {@link GapPenalty}, {@link SubstitutionMatrix}, {@link ProfileProfileAlignerType} or the
+	 * {@link BioJavaExecutor} which runs the alignments in parallel
 	 * @return multiple sequence alignment {@link Profile}
 	 */
 	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getMultipleSequenceAlignment(
@@ -166,6 +195,7 @@ public class Alignments {
 
 		}
 		ProfileProfileAlignerType pa = ProfileProfileAlignerType.GLOBAL;
+		BioJavaExecutor executor = BioJavaExecutor.getDefault();
 		for (Object o : settings) {
 			if (o instanceof PairwiseSequenceScorerType) {
 				ps = (PairwiseSequenceScorerType) o;
@@ -181,19 +211,21 @@ public class Alignments {
 				subMatrix = temp;
 			} else if (o instanceof ProfileProfileAlignerType) {
 				pa = (ProfileProfileAlignerType) o;
+			} else if (o instanceof BioJavaExecutor) {
+				executor = (BioJavaExecutor) o;
 			}
 		}
 
-		// stage 1: pairwise similarity calculation
+		// stage 1: pairwise similarity calculation, run by the guide tree on the executor so that each pair is
+		// aligned once
 		List<PairwiseSequenceScorer<S, C>> scorers = getAllPairsScorers(sequences, ps, gapPenalty, subMatrix);
-		runPairwiseScorers(scorers);
 
 		// stage 2: hierarchical clustering into a guide tree
-		GuideTree<S, C> tree = new GuideTree<>(sequences, scorers);
+		GuideTree<S, C> tree = new GuideTree<>(sequences, scorers, executor);
 		scorers = null;
 
 		// stage 3: progressive alignment
-		Profile<S, C> msa = getProgressiveAlignment(tree, pa, gapPenalty, subMatrix);
+		Profile<S, C> msa = getProgressiveAlignment(tree, pa, gapPenalty, subMatrix, executor);
 
 		// TODO stage 4: refinement
 		return msa;
@@ -280,7 +312,26 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> double[] getAllPairsScores( List<S> sequences,
 			PairwiseSequenceScorerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
-		return runPairwiseScorers(getAllPairsScorers(sequences, type, gapPenalty, subMatrix));
+		return getAllPairsScores(sequences, type, gapPenalty, subMatrix, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Factory method which computes a sequence pair score for all {@link Sequence} pairs in the given {@link List}.
+	 * This method runs the scorings in parallel by submitting all of the scorings to the given executor.
+	 *
+	 * @param <S> each {@link Sequence} of a pair is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type chosen type from list of pairwise sequence scoring routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param executor the executor which runs the scorings
+	 * @return list of sequence pair scores
+	 */
+	public static <S extends Sequence<C>, C extends Compound> double[] getAllPairsScores(List<S> sequences,
+			PairwiseSequenceScorerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			BioJavaExecutor executor) {
+		return runPairwiseScorers(getAllPairsScorers(sequences, type, gapPenalty, subMatrix), executor);
 	}
 
 	/**
@@ -329,11 +380,13 @@ public class Alignments {
 			return new NeedlemanWunsch<>(query, target, gapPenalty, subMatrix);
 		case LOCAL:
 			return new SmithWaterman<>(query, target, gapPenalty, subMatrix);
+		case GLOBAL_STRIPED:
+			return new StripedNeedlemanWunsch<>(query, target, gapPenalty, subMatrix);
 		case GLOBAL_LINEAR_SPACE:
+			return new MyersMiller<>(query, target, gapPenalty, subMatrix);
 		case LOCAL_LINEAR_SPACE:
-			// TODO other alignment options (Myers-Miller, Thompson)
-			throw new UnsupportedOperationException(Alignments.class.getSimpleName() + " does not yet support " +
-					type + " alignment");
+		case LOCAL_STRIPED:
+			return new StripedSmithWaterman<>(query, target, gapPenalty, subMatrix);
 		}
 	}
 
@@ -387,6 +440,12 @@ public class Alignments {
 		case LOCAL_SIMILARITIES:
 			return new FractionalSimilarityScorer<>(getPairwiseAligner(query, target,
 					PairwiseSequenceAlignerType.LOCAL, gapPenalty, subMatrix));
+		case GLOBAL_STRIPED:
+			return getPairwiseAligner(query, target, PairwiseSequenceAlignerType.GLOBAL_STRIPED, gapPenalty,
+					subMatrix);
+		case LOCAL_STRIPED:
+			return getPairwiseAligner(query, target, PairwiseSequenceAlignerType.LOCAL_STRIPED, gapPenalty,
+					subMatrix);
 		case KMERS:
 		case WU_MANBER:
 			// TODO other scoring options
@@ -548,6 +607,26 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getProgressiveAlignment(GuideTree<S, C> tree,
 			ProfileProfileAlignerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		return getProgressiveAlignment(tree, type, gapPenalty, subMatrix, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Factory method to run the profile-profile alignments of a progressive multiple sequence alignment concurrently.
+	 * This method runs the alignments in parallel by submitting all of the alignment tasks to the given executor.
+	 * Tasks wait for the alignments of their child nodes, which are always submitted first.
+	 *
+	 * @param <S> each {@link Sequence} of the {@link Profile} pair is of type S
+	 * @param <C> each element of a sequence is a {@link Compound} of type C
+	 * @param tree guide tree to follow aligning profiles from leaves to root
+	 * @param type chosen type from list of profile-profile alignment routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param executor the executor which runs the alignments
+	 * @return multiple sequence alignment
+	 */
+	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getProgressiveAlignment(GuideTree<S, C> tree,
+			ProfileProfileAlignerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			BioJavaExecutor executor) {
 
 		// find inner nodes in post-order traversal of tree (each leaf node has a single sequence profile)
 		List<GuideTreeNode<S, C>> innerNodes = new ArrayList<>();
@@ -557,7 +636,7 @@ public class Alignments {
 			}
 		}
 
-		// submit alignment tasks to the shared thread pool
+		// submit alignment tasks to the executor
 		int i = 1, all = innerNodes.size();
 		for (GuideTreeNode<S, C> n : innerNodes) {
 			Profile<S, C> p1 = n.getChild1().getProfile(), p2 = n.getChild2().getProfile();
@@ -567,7 +646,7 @@ public class Alignments {
 							getProfileProfileAligner(p1, pf2, type, gapPenalty, subMatrix)) :
 					((p2 != null) ? getProfileProfileAligner(pf1, p2, type, gapPenalty, subMatrix) :
 							getProfileProfileAligner(pf1, pf2, type, gapPenalty, subMatrix));
-			n.setProfileFuture(ConcurrencyTools.submit(new CallableProfileProfileAligner<S, C>(aligner), String.format(
+			n.setProfileFuture(executor.submit(new CallableProfileProfileAligner<S, C>(aligner), String.format(
 					"Aligning pair %d of %d", i++, all)));
 		}
 
@@ -598,10 +677,24 @@ public class Alignments {
 	 */
 	static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>>
 			runPairwiseAligners(List<PairwiseSequenceAligner<S, C>> aligners) {
+		return runPairwiseAligners(aligners, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Factory method to run a list of alignments concurrently on the given executor.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of a sequence is a {@link Compound} of type C
+	 * @param aligners list of alignments to run
+	 * @param executor the executor which runs the alignments
+	 * @return list of {@link SequencePair} results from running alignments
+	 */
+	static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>>
+			runPairwiseAligners(List<PairwiseSequenceAligner<S, C>> aligners, BioJavaExecutor executor) {
 		int n = 1, all = aligners.size();
 		List<Future<SequencePair<S, C>>> futures = new ArrayList<>();
 		for (PairwiseSequenceAligner<S, C> aligner : aligners) {
-			futures.add(ConcurrencyTools.submit(new CallablePairwiseSequenceAligner<S, C>(aligner),
+			futures.add(executor.submit(new CallablePairwiseSequenceAligner<S, C>(aligner),
 					String.format("Aligning pair %d of %d", n++, all)));
 		}
 		return getListFromFutures(futures);
@@ -618,10 +711,24 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> double[] runPairwiseScorers(
 			List<PairwiseSequenceScorer<S, C>> scorers) {
+		return runPairwiseScorers(scorers, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Factory method to run a list of scorers concurrently on the given executor.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of a sequence is a {@link Compound} of type C
+	 * @param scorers list of scorers to run
+	 * @param executor the executor which runs the scorers
+	 * @return list of score results from running scorers
+	 */
+	public static <S extends Sequence<C>, C extends Compound> double[] runPairwiseScorers(
+			List<PairwiseSequenceScorer<S, C>> scorers, BioJavaExecutor executor) {
 		int n = 1, all = scorers.size();
 		List<Future<Double>> futures = new ArrayList<>();
 		for (PairwiseSequenceScorer<S, C> scorer : scorers) {
-			futures.add(ConcurrencyTools.submit(new CallablePairwiseSequenceScorer<S, C>(scorer),
+			futures.add(executor.submit(new CallablePairwiseSequenceScorer<S, C>(scorer),
 					String.format("Scoring pair %d of %d", n++, all)));
 		}
 		List<Double> results = getListFromFutures(futures);
@@ -643,10 +750,24 @@ public class Alignments {
 	 */
 	static <S extends Sequence<C>, C extends Compound> List<ProfilePair<S, C>>
 			runProfileAligners(List<ProfileProfileAligner<S, C>> aligners) {
+		return runProfileAligners(aligners, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Factory method to run a list of alignments concurrently on the given executor.
+	 *
+	 * @param <S> each {@link Sequence} of the {@link Profile} pair is of type S
+	 * @param <C> each element of a sequence is a {@link Compound} of type C
+	 * @param aligners list of alignments to run
+	 * @param executor the executor which runs the alignments
+	 * @return list of {@link ProfilePair} results from running alignments
+	 */
+	static <S extends Sequence<C>, C extends Compound> List<ProfilePair<S, C>>
+			runProfileAligners(List<ProfileProfileAligner<S, C>> aligners, BioJavaExecutor executor) {
 		int n = 1, all = aligners.size();
 		List<Future<ProfilePair<S, C>>> futures = new ArrayList<>();
 		for (ProfileProfileAligner<S, C> aligner : aligners) {
-			futures.add(ConcurrencyTools.submit(new CallableProfileProfileAligner<S, C>(aligner),
+			futures.add(executor.submit(new CallableProfileProfileAligner<S, C>(aligner),
 					String.format("Aligning pair %d of %d", n++, all)));
 		}
 		return getListFromFutures(futures);
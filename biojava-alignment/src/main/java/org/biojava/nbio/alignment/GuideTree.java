@@ -31,6 +31,7 @@ import org.biojava.nbio.core.alignment.template.ProfilePair;
 import org.biojava.nbio.core.sequence.AccessionID;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.phylo.ForesterWrapper;
 import org.biojava.nbio.phylo.TreeConstructor;
 import org.biojava.nbio.phylo.TreeConstructorType;
@@ -67,15 +68,30 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 	 * @param scorers list of sequence pair scorers, one for each pair of sequences given
 	 */
 	public GuideTree(List<S> sequences, List<PairwiseSequenceScorer<S, C>> scorers) {
+		this(sequences, scorers, null);
+	}
+
+	/**
+	 * Creates a guide tree for use during progressive multiple sequence alignment.  The distance of each pair of
+	 * sequences is computed by a task submitted to the given executor, so the scorers need not have been run
+	 * before.  Each scorer is asked for its distance once.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param scorers list of sequence pair scorers, one for each pair of sequences given
+	 * @param executor the executor which computes the pair distances, or null to compute them in the calling thread
+	 * @since 7.2.3
+	 */
+	public GuideTree(List<S> sequences, List<PairwiseSequenceScorer<S, C>> scorers, BioJavaExecutor executor) {
 		this.sequences = Collections.unmodifiableList(sequences);
 		this.scorers = Collections.unmodifiableList(scorers);
+		double[] dists = (executor == null) ? null : getDistances(scorers, executor);
 		distances = new BasicSymmetricalDistanceMatrix(sequences.size());
 		for (int i = 0, n = 0; i < sequences.size(); i++) {
 			AccessionID id = sequences.get(i).getAccession();
 			String str = (id == null) ? Integer.toString(i + 1) : id.getID();
 			distances.setIdentifier(i, str);
-			for (int j = i+1; j < sequences.size(); j++) {
-				double dist = scorers.get(n++).getDistance();
+			for (int j = i+1; j < sequences.size(); j++, n++) {
+				double dist = (dists == null) ? scorers.get(n).getDistance() : dists[n];
 				distances.setValue(i, j, dist);
 			}
 		}
@@ -165,6 +181,25 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 		return newick;
 	}
 
+	// computes the distance of each pair on the executor
+	private static <S extends Sequence<C>, C extends Compound> double[] getDistances(
+			List<PairwiseSequenceScorer<S, C>> scorers, BioJavaExecutor executor) {
+		int n = 1, all = scorers.size();
+		List<Future<Double>> futures = new ArrayList<>();
+		for (PairwiseSequenceScorer<S, C> scorer : scorers) {
+			futures.add(executor.submit(scorer::getDistance, String.format("Measuring distance %d of %d", n++, all)));
+		}
+		List<Double> results = Alignments.getListFromFutures(futures);
+		if (results.size() != all) {
+			throw new IllegalStateException("Distances of " + (all - results.size()) + " pairs could not be computed");
+		}
+		double[] dists = new double[all];
+		for (int i = 0; i < all; i++) {
+			dists[i] = results.get(i);
+		}
+		return dists;
+	}
+
 	/**
 	 * Implements a data structure for the node in a guide tree used during progressive multiple sequence alignment.
 	 */
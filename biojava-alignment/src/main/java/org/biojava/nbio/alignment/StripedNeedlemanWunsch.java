@@ -0,0 +1,116 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.StripedQueryProfile;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+/**
+ * A {@link NeedlemanWunsch} aligner which computes scores with a striped query profile (see
+ * {@link StripedQueryProfile}). Calls to {@link #getScore()}, {@link #getMaxScore()} and {@link #getMinScore()} run
+ * in linear memory without any traceback, which makes this aligner suited to all-vs-all scoring. The first request
+ * for the alignment itself ({@link #getPair()} or {@link #getProfile()}) runs the full dynamic programming of the
+ * superclass, as do alignments with anchors.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ * @since 7.2.3
+ */
+public class StripedNeedlemanWunsch<S extends Sequence<C>, C extends Compound> extends NeedlemanWunsch<S, C> {
+
+	private StripedQueryProfile<C> queryProfile;
+	private boolean scored;
+
+	/**
+	 * Before running a pairwise global sequence alignment, data must be sent in via calls to
+	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+	 */
+	public StripedNeedlemanWunsch() {
+	}
+
+	/**
+	 * Prepares for a pairwise global sequence alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 */
+	public StripedNeedlemanWunsch(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		super(query, target, gapPenalty, subMatrix);
+	}
+
+	@Override
+	public void setQuery(S query) {
+		queryProfile = null;
+		super.setQuery(query);
+	}
+
+	@Override
+	public void setSubstitutionMatrix(SubstitutionMatrix<C> subMatrix) {
+		queryProfile = null;
+		super.setSubstitutionMatrix(subMatrix);
+	}
+
+	// methods for Scorer
+
+	@Override
+	public double getMaxScore() {
+		return (profile == null && anchors.isEmpty()) ? max : super.getMaxScore();
+	}
+
+	@Override
+	public double getMinScore() {
+		return (profile == null && anchors.isEmpty()) ? min : super.getMinScore();
+	}
+
+	@Override
+	public double getScore() {
+		if (profile != null || !anchors.isEmpty()) {
+			return super.getScore();
+		}
+		if (!scored && isReady()) {
+			long timeStart = System.nanoTime();
+			if (queryProfile == null) {
+				queryProfile = new StripedQueryProfile<>(getQuery().getAsList(), getSubstitutionMatrix());
+			}
+			score = queryProfile.score(getTarget().getAsList(), getGapPenalty(), StripedQueryProfile.Mode.GLOBAL)[0];
+			time = System.nanoTime() - timeStart;
+			scored = true;
+		}
+		return score;
+	}
+
+	// method for AbstractMatrixAligner
+
+	@Override
+	protected void reset() {
+		super.reset();
+		scored = false;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.MyersMiller;
+import org.biojava.nbio.alignment.routines.StripedQueryProfile;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link SmithWaterman} aligner which computes scores with a striped query profile (see
+ * {@link StripedQueryProfile}) instead of filling the full dynamic programming matrix.
+ * <p>
+ * {@link #getScore()} only runs a forward pass over the striped profile, in linear memory. When the alignment
+ * itself is requested, a second striped pass over the reversed prefixes finds where the best region starts, and
+ * only that region is aligned globally in linear space by {@link MyersMiller}. Memory use is thus linear in the
+ * sequence lengths. The score matrix is never stored, so {@link #getScoreMatrix()} returns null.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ * @since 7.2.3
+ */
+public class StripedSmithWaterman<S extends Sequence<C>, C extends Compound> extends SmithWaterman<S, C> {
+
+	private StripedQueryProfile<C> queryProfile;
+	private boolean scored;
+
+	/**
+	 * Before running a pairwise local sequence alignment, data must be sent in via calls to
+	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+	 */
+	public StripedSmithWaterman() {
+	}
+
+	/**
+	 * Prepares for a pairwise local sequence alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 */
+	public StripedSmithWaterman(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		super(query, target, gapPenalty, subMatrix);
+	}
+
+	@Override
+	public void setQuery(S query) {
+		queryProfile = null;
+		super.setQuery(query);
+	}
+
+	@Override
+	public void setSubstitutionMatrix(SubstitutionMatrix<C> subMatrix) {
+		queryProfile = null;
+		super.setSubstitutionMatrix(subMatrix);
+	}
+
+	// methods for Scorer
+
+	@Override
+	public double getMaxScore() {
+		return max;
+	}
+
+	@Override
+	public double getMinScore() {
+		return min;
+	}
+
+	@Override
+	public double getScore() {
+		if (!scored) {
+			scoreForward();
+		}
+		return score;
+	}
+
+	// methods for AbstractMatrixAligner
+
+	@Override
+	protected void align() {
+		if (!isReady()) {
+			return;
+		}
+		long timeStart = System.nanoTime();
+		if (!scored) {
+			scoreForward();
+		}
+
+		List<Step> sx = new ArrayList<>(), sy = new ArrayList<>();
+		if (score > 0) {
+			// the best alignment ending at xyMax starts where the reversed prefixes score best from their start
+			List<C> query = new ArrayList<>(getCompoundsOfQuery().subList(0, xyMax[0]));
+			List<C> target = new ArrayList<>(getCompoundsOfTarget().subList(0, xyMax[1]));
+			Collections.reverse(query);
+			Collections.reverse(target);
+			int[] start = new StripedQueryProfile<>(query, getSubstitutionMatrix()).score(target, getGapPenalty(),
+					StripedQueryProfile.Mode.START_ANCHORED);
+			assert start[0] == score;
+			xyStart = new int[] { xyMax[0] - 1 - start[1], xyMax[1] - 1 - start[2] };
+
+			// any global alignment of the region is an optimal local alignment
+			MyersMiller<Sequence<C>, C> region = new MyersMiller<>(
+					getQuery().getSubSequence(xyStart[0] + 1, xyMax[0]),
+					getTarget().getSubSequence(xyStart[1] + 1, xyMax[1]), getGapPenalty(), getSubstitutionMatrix());
+			SequencePair<Sequence<C>, C> regionPair = region.getPair();
+			for (int i = 1; i <= regionPair.getLength(); i++) {
+				sx.add(regionPair.getQuery().isGap(i) ? Step.GAP : Step.COMPOUND);
+				sy.add(regionPair.getTarget().isGap(i) ? Step.GAP : Step.COMPOUND);
+			}
+		}
+		setProfile(sx, sy);
+		time = System.nanoTime() - timeStart;
+	}
+
+	@Override
+	protected void reset() {
+		super.reset();
+		scored = false;
+	}
+
+	// helper methods
+
+	// finds the best score and the cell where it is reached, without traceback
+	private void scoreForward() {
+		if (!isReady()) {
+			return;
+		}
+		long timeStart = System.nanoTime();
+		if (queryProfile == null) {
+			queryProfile = new StripedQueryProfile<>(getCompoundsOfQuery(), getSubstitutionMatrix());
+		}
+		int[] result = queryProfile.score(getCompoundsOfTarget(), getGapPenalty(), StripedQueryProfile.Mode.LOCAL);
+		score = result[0];
+		xyMax = new int[] { result[1] + 1, result[2] + 1 };
+		time = System.nanoTime() - timeStart;
+		scored = true;
+	}
+
+}
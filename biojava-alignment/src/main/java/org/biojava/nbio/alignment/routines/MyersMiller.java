@@ -0,0 +1,321 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment.routines;
+
+import org.biojava.nbio.alignment.template.AbstractPairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.SimpleSequencePair;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Myers and Miller defined an algorithm for pairwise global sequence alignments with affine gap penalties in linear
+ * space (CABIOS 4:11-17, 1988), extending the divide and conquer approach of Hirschberg.  Each section of the
+ * dynamic programming matrix is split at its middle query row: a forward pass from the start and a backward pass from
+ * the end meet on that row, which gives a cell and a state the optimal alignment passes through.  Both halves are then
+ * aligned recursively, until a section is small enough to be aligned directly.
+ * <p>
+ * The recurrences are those of {@link AlignerHelper}, so the alignment score is identical to
+ * {@link org.biojava.nbio.alignment.NeedlemanWunsch}.  Memory is linear in the target length (plus a bounded number
+ * of cells for the small sections), at the cost of about twice the time.  No score matrix is stored, so
+ * {@link #getScoreMatrix()} returns null.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ * @since 7.2.3
+ */
+public class MyersMiller<S extends Sequence<C>, C extends Compound> extends AbstractPairwiseSequenceAligner<S, C> {
+
+	// sections with at most this many cells are aligned directly
+	private static final int MAX_SECTION_CELLS = 1 << 16;
+
+	private static final int NEG_INF = Integer.MIN_VALUE / 4;
+
+	// states of a cell, as in AlignerHelper
+	private static final int SUBSTITUTION = 0, DELETION = 1, INSERTION = 2, ANY = -1;
+
+	// input of the current alignment
+	private List<C> queryCompounds, targetCompounds;
+	private int gop, gep;
+	private boolean linear;
+
+	/**
+	 * Before running a pairwise global sequence alignment, data must be sent in via calls to
+	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+	 */
+	public MyersMiller() {
+	}
+
+	/**
+	 * Prepares for a pairwise global sequence alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 */
+	public MyersMiller(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		super(query, target, gapPenalty, subMatrix);
+	}
+
+	// methods for AbstractMatrixAligner
+
+	@Override
+	protected void align() {
+		if (!isReady()) {
+			return;
+		}
+
+		long timeStart = System.nanoTime();
+
+		queryCompounds = getCompoundsOfQuery();
+		targetCompounds = getCompoundsOfTarget();
+		gop = -Math.abs(getGapPenalty().getOpenPenalty());
+		gep = -Math.abs(getGapPenalty().getExtensionPenalty());
+		linear = getGapPenalty().getType() == GapPenalty.Type.LINEAR;
+
+		List<Step> sx = new ArrayList<>(), sy = new ArrayList<>();
+		xyStart = new int[] { 0, 0 };
+		xyMax = new int[] { queryCompounds.size(), targetCompounds.size() };
+		score = align(0, 0, SUBSTITUTION, xyMax[0], xyMax[1], ANY, sx, sy);
+		setProfile(sx, sy);
+
+		queryCompounds = targetCompounds = null;
+		time = System.nanoTime() - timeStart;
+	}
+
+	@Override
+	protected void setProfile(List<Step> sx, List<Step> sy) {
+		profile = pair = new SimpleSequencePair<>(getQuery(), getTarget(), sx, sy);
+	}
+
+	// helper methods
+
+	/**
+	 * Aligns the section from cell (xb, yb), entered in state sb, to cell (xe, ye), left in state se (or in any
+	 * state). Appends the steps and returns the score of the section.
+	 */
+	private int align(int xb, int yb, int sb, int xe, int ye, int se, List<Step> sx, List<Step> sy) {
+		if (xe - xb < 2 || (long) (xe - xb + 1) * (ye - yb + 1) <= MAX_SECTION_CELLS) {
+			return alignSection(xb, yb, sb, xe, ye, se, sx, sy);
+		}
+
+		int xm = (xb + xe) / 2, width = ye - yb + 1;
+		int[][] forward = forward(xb, yb, sb, xm, ye);
+		int[][] backward = backward(xm, yb, xe, ye, se);
+
+		int best = NEG_INF, ym = yb, sm = SUBSTITUTION;
+		for (int y = 0; y < width; y++) {
+			for (int s = 0; s < 3; s++) {
+				int total = forward[s][y] + backward[s][y];
+				if (total > best) {
+					best = total;
+					ym = yb + y;
+					sm = s;
+				}
+			}
+		}
+
+		int first = align(xb, yb, sb, xm, ym, sm, sx, sy);
+		int second = align(xm, ym, sm, xe, ye, se, sx, sy);
+		assert first + second == best;
+		return best;
+	}
+
+	/**
+	 * Scores all paths from cell (xb, yb) in state sb to each cell of query row xe.
+	 * Returns the scores by state, indexed by target column starting at yb.
+	 */
+	private int[][] forward(int xb, int yb, int sb, int xe, int ye) {
+		int width = ye - yb + 1;
+		int[][] previous = new int[3][width], current = new int[3][width];
+		initialRow(yb, sb, ye, current);
+		for (int x = xb + 1; x <= xe; x++) {
+			int[][] swap = previous;
+			previous = current;
+			current = swap;
+			nextRow(x, yb, ye, previous, current);
+		}
+		return current;
+	}
+
+	/**
+	 * Scores all paths from each cell of query row xb, by the state of that cell, to cell (xe, ye) left in state se.
+	 * Returns the scores by state, indexed by target column starting at yb.
+	 */
+	private int[][] backward(int xb, int yb, int xe, int ye, int se) {
+		int width = ye - yb + 1;
+		int[][] next = new int[3][width], current = new int[3][width];
+		int[] m = current[SUBSTITUTION], d = current[DELETION], i = current[INSERTION];
+
+		// last row: only insertions to the end cell
+		for (int s = 0; s < 3; s++) {
+			current[s][width - 1] = (se == ANY || se == s) ? 0 : NEG_INF;
+		}
+		for (int y = width - 2; y >= 0; y--) {
+			int right = i[y + 1];
+			m[y] = right + gop + gep;
+			d[y] = linear ? right + gep : NEG_INF;
+			i[y] = right + gep;
+		}
+
+		for (int x = xe - 1; x >= xb; x--) {
+			int[][] swap = next;
+			next = current;
+			current = swap;
+			m = current[SUBSTITUTION];
+			d = current[DELETION];
+			i = current[INSERTION];
+			int[] nm = next[SUBSTITUTION], nd = next[DELETION];
+			C q = queryCompounds.get(x);
+
+			int down = nd[width - 1];
+			m[width - 1] = down + gop + gep;
+			d[width - 1] = down + gep;
+			i[width - 1] = linear ? down + gep : NEG_INF;
+			for (int y = width - 2; y >= 0; y--) {
+				int diagonal = nm[y + 1] + getSubstitutionMatrix().getValue(q, targetCompounds.get(yb + y));
+				down = nd[y];
+				int right = i[y + 1];
+				m[y] = Math.max(diagonal, Math.max(down, right) + gop + gep);
+				d[y] = Math.max(diagonal, Math.max(down + gep, linear ? right + gep : NEG_INF));
+				i[y] = Math.max(diagonal, Math.max(right + gep, linear ? down + gep : NEG_INF));
+			}
+		}
+		return current;
+	}
+
+	// scores the first row of a section, which only has insertions from the start cell
+	private void initialRow(int yb, int sb, int ye, int[][] row) {
+		int width = ye - yb + 1;
+		for (int s = 0; s < 3; s++) {
+			Arrays.fill(row[s], NEG_INF);
+			row[s][0] = (s == sb) ? 0 : NEG_INF;
+		}
+		int[] m = row[SUBSTITUTION], d = row[DELETION], i = row[INSERTION];
+		for (int y = 1; y < width; y++) {
+			i[y] = Math.max(i[y - 1] + gep, gapSource(m[y - 1], d[y - 1], i[y - 1], INSERTION) + gop + gep);
+		}
+	}
+
+	// scores query row x from the previous row, as in AlignerHelper.setScorePoint
+	private void nextRow(int x, int yb, int ye, int[][] previous, int[][] row) {
+		int width = ye - yb + 1;
+		int[] pm = previous[SUBSTITUTION], pd = previous[DELETION], pi = previous[INSERTION];
+		int[] m = row[SUBSTITUTION], d = row[DELETION], i = row[INSERTION];
+		C q = queryCompounds.get(x - 1);
+
+		m[0] = i[0] = NEG_INF;
+		d[0] = Math.max(pd[0] + gep, gapSource(pm[0], pd[0], pi[0], DELETION) + gop + gep);
+		for (int y = 1; y < width; y++) {
+			m[y] = Math.max(pm[y - 1], Math.max(pd[y - 1], pi[y - 1])) +
+					getSubstitutionMatrix().getValue(q, targetCompounds.get(yb + y - 1));
+			d[y] = Math.max(pd[y] + gep, gapSource(pm[y], pd[y], pi[y], DELETION) + gop + gep);
+			i[y] = Math.max(i[y - 1] + gep, gapSource(m[y - 1], d[y - 1], i[y - 1], INSERTION) + gop + gep);
+		}
+	}
+
+	// with affine penalties a gap only opens after a substitution, with linear penalties after any state
+	private int gapSource(int m, int d, int i, int gap) {
+		if (!linear) {
+			return m;
+		}
+		return Math.max(m, (gap == DELETION) ? i : d);
+	}
+
+	/**
+	 * Aligns a small section with the full dynamic programming matrix and traces back from the end cell.
+	 */
+	private int alignSection(int xb, int yb, int sb, int xe, int ye, int se, List<Step> sx, List<Step> sy) {
+		int height = xe - xb + 1, width = ye - yb + 1;
+		int[][][] rows = new int[height][3][width];
+		initialRow(yb, sb, ye, rows[0]);
+		for (int x = 1; x < height; x++) {
+			nextRow(xb + x, yb, ye, rows[x - 1], rows[x]);
+		}
+
+		int x = height - 1, y = width - 1, s = se;
+		if (s == ANY) {
+			s = SUBSTITUTION;
+			for (int t = 1; t < 3; t++) {
+				if (rows[x][t][y] > rows[x][s][y]) {
+					s = t;
+				}
+			}
+		}
+		int sectionScore = rows[x][s][y];
+
+		List<Step> tx = new ArrayList<>(), ty = new ArrayList<>();
+		while (x > 0 || y > 0) {
+			int value = rows[x][s][y];
+			if (s == SUBSTITUTION) {
+				int sub = value - getSubstitutionMatrix().getValue(queryCompounds.get(xb + x - 1),
+						targetCompounds.get(yb + y - 1));
+				tx.add(Step.COMPOUND);
+				ty.add(Step.COMPOUND);
+				x--;
+				y--;
+				s = (rows[x][DELETION][y] == sub) ? DELETION : (rows[x][SUBSTITUTION][y] == sub) ? SUBSTITUTION :
+						INSERTION;
+			} else if (s == DELETION) {
+				tx.add(Step.COMPOUND);
+				ty.add(Step.GAP);
+				x--;
+				s = (rows[x][DELETION][y] + gep == value) ? DELETION : openingState(rows[x], y, value, DELETION);
+			} else {
+				tx.add(Step.GAP);
+				ty.add(Step.COMPOUND);
+				y--;
+				int opening = openingState(rows[x], y, value, INSERTION);
+				s = (opening == ANY) ? INSERTION : opening;
+			}
+		}
+		assert s == sb;
+
+		for (int k = tx.size() - 1; k >= 0; k--) {
+			sx.add(tx.get(k));
+			sy.add(ty.get(k));
+		}
+		return sectionScore;
+	}
+
+	// finds the state a gap was opened from, or ANY if the gap was extended
+	private int openingState(int[][] row, int y, int value, int gap) {
+		if (row[SUBSTITUTION][y] + gop + gep == value) {
+			return SUBSTITUTION;
+		}
+		int other = (gap == DELETION) ? INSERTION : DELETION;
+		if (linear && row[other][y] + gep == value) {
+			return other;
+		}
+		return ANY;
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment.routines;
+
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A striped query profile and score-only dynamic programming kernel, after Farrar (Bioinformatics 23:156-161,
+ * 2007). The query is split into {@link #LANES} interleaved segments so that the inner loop of each target column
+ * runs over independent lanes, which the JIT compiler can turn into SIMD instructions. Dependencies within a column
+ * (gaps in the target) are resolved by the lazy F loop, which in practice rarely runs more than once.
+ * <p>
+ * The recurrences are the same as those of {@link AlignerHelper}, so scores are identical to
+ * {@link org.biojava.nbio.alignment.NeedlemanWunsch} and {@link org.biojava.nbio.alignment.SmithWaterman}. Only
+ * the score and the cell where it is reached are computed, no traceback is stored, so memory use is linear in the
+ * query length.
+ * <p>
+ * A profile caches one striped row of substitution scores per target compound. It can be reused against many
+ * targets, but it is not thread-safe.
+ *
+ * @param <C> each element of a sequence is a {@link Compound} of type C
+ * @since 7.2.3
+ */
+public class StripedQueryProfile<C extends Compound> {
+
+	/**
+	 * Kind of dynamic programming boundaries and result
+	 */
+	public enum Mode {
+		/** aligns every compound of both sequences, the score is reached at the last cell */
+		GLOBAL,
+		/** finds the best region of similarity, all scores are at least 0 */
+		LOCAL,
+		/** alignments start at the first compound of both sequences and end anywhere */
+		START_ANCHORED
+	}
+
+	/** Number of independent lanes in each segment of the profile */
+	public static final int LANES = 8;
+
+	// low enough to never win a comparison, high enough to never overflow when penalties are added
+	private static final int NEG_INF = Integer.MIN_VALUE / 4;
+	private static final int PADDING = Short.MIN_VALUE;
+
+	private final List<C> query;
+	private final SubstitutionMatrix<C> subMatrix;
+	private final int length, segments;
+	private final Map<C, int[]> rows = new HashMap<>();
+
+	/**
+	 * Prepares a striped profile of the given query.
+	 *
+	 * @param query the compounds of the query sequence
+	 * @param subMatrix the set of substitution scores used during alignment
+	 */
+	public StripedQueryProfile(List<C> query, SubstitutionMatrix<C> subMatrix) {
+		this.query = query;
+		this.subMatrix = subMatrix;
+		length = query.size();
+		segments = (length + LANES - 1) / LANES;
+	}
+
+	/**
+	 * Returns the length of the query.
+	 *
+	 * @return the number of compounds in the query
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the striped substitution scores of every query compound against the given target compound. Query
+	 * position i is stored at index (i % segments) * LANES + i / segments.
+	 *
+	 * @param compound a target compound
+	 * @return the striped row of substitution scores, padded to a multiple of {@link #LANES}
+	 */
+	public int[] getRow(C compound) {
+		int[] row = rows.get(compound);
+		if (row == null) {
+			row = new int[segments * LANES];
+			for (int seg = 0; seg < segments; seg++) {
+				for (int k = 0; k < LANES; k++) {
+					int i = k * segments + seg;
+					row[seg * LANES + k] = (i < length) ? subMatrix.getValue(query.get(i), compound) : PADDING;
+				}
+			}
+			rows.put(compound, row);
+		}
+		return row;
+	}
+
+	/**
+	 * Computes the optimal alignment score of the query against the given target.
+	 *
+	 * @param target the compounds of the target sequence
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param mode the kind of alignment
+	 * @return an array of {score, query index, target index}, where the indices (starting at 0) give the last
+	 * aligned pair of compounds; the indices are -1 if no pair is aligned
+	 */
+	public int[] score(List<C> target, GapPenalty gapPenalty, Mode mode) {
+		int gop = -Math.abs(gapPenalty.getOpenPenalty()), gep = -Math.abs(gapPenalty.getExtensionPenalty());
+		boolean linear = gapPenalty.getType() == GapPenalty.Type.LINEAR;
+		boolean local = mode == Mode.LOCAL;
+		int open = gop + gep, cols = target.size(), n = segments * LANES;
+
+		if (length == 0 || cols == 0) {
+			int gaps = length + cols;
+			return new int[] { (local || gaps == 0) ? 0 : gop + gaps * gep, -1, -1 };
+		}
+
+		int[] hLoad = new int[n], hStore = new int[n], e = new int[n], f = new int[n], m = new int[n];
+		int[] vH = new int[LANES], vF = new int[LANES];
+		Arrays.fill(e, NEG_INF);
+		if (!local) {
+			for (int seg = 0; seg < segments; seg++) {
+				for (int k = 0; k < LANES; k++) {
+					hLoad[seg * LANES + k] = gop + (k * segments + seg + 1) * gep;
+				}
+			}
+		}
+
+		int best = local ? 0 : NEG_INF, bestQuery = -1, bestTarget = -1;
+		int last = (length - 1) % segments * LANES + (length - 1) / segments;
+
+		for (int j = 0; j < cols; j++) {
+			int[] row = getRow(target.get(j));
+
+			// diagonal values come from the last segment of the previous column, shifted by one lane
+			int base = (segments - 1) * LANES;
+			vH[0] = (local || j == 0) ? 0 : gop + j * gep;
+			for (int k = 1; k < LANES; k++) {
+				vH[k] = hLoad[base + k - 1];
+			}
+			Arrays.fill(vF, NEG_INF);
+
+			int colMax = NEG_INF;
+			for (int seg = 0; seg < segments; seg++) {
+				int o = seg * LANES;
+				for (int k = 0; k < LANES; k++) {
+					int mv = vH[k] + row[o + k];
+					if (local && mv < 0) {
+						mv = 0;
+					}
+					m[o + k] = mv;
+					colMax = Math.max(colMax, mv);
+					int ev = e[o + k], fv = vF[k];
+					f[o + k] = fv;
+					int h = Math.max(mv, Math.max(ev, fv));
+					hStore[o + k] = h;
+					vH[k] = hLoad[o + k];
+					int source = linear ? h : mv;
+					e[o + k] = Math.max(ev + gep, source + open);
+					vF[k] = Math.max(fv + gep, source + open);
+				}
+			}
+
+			// lazy F loop: carry gaps across segment boundaries until no lane improves
+			lazy:
+			for (int pass = 0; pass < LANES; pass++) {
+				for (int k = LANES - 1; k > 0; k--) {
+					vF[k] = vF[k - 1];
+				}
+				vF[0] = NEG_INF;
+				for (int seg = 0; seg < segments; seg++) {
+					int o = seg * LANES;
+					boolean improves = false;
+					for (int k = 0; k < LANES; k++) {
+						improves |= vF[k] > f[o + k];
+					}
+					if (!improves) {
+						break lazy;
+					}
+					for (int k = 0; k < LANES; k++) {
+						int fv = Math.max(f[o + k], vF[k]);
+						f[o + k] = fv;
+						int h = Math.max(hStore[o + k], fv);
+						hStore[o + k] = h;
+						int source = m[o + k];
+						if (linear) {
+							source = h;
+							e[o + k] = Math.max(e[o + k], h + open);
+						}
+						vF[k] = Math.max(fv + gep, source + open);
+					}
+				}
+			}
+
+			if (mode != Mode.GLOBAL && colMax > best) {
+				best = colMax;
+				bestTarget = j;
+				for (int i = 0; i < length; i++) {
+					if (m[i % segments * LANES + i / segments] == colMax) {
+						bestQuery = i;
+						break;
+					}
+				}
+			}
+
+			int[] swap = hLoad;
+			hLoad = hStore;
+			hStore = swap;
+		}
+
+		if (mode == Mode.GLOBAL) {
+			return new int[] { hLoad[last], length - 1, cols - 1 };
+		}
+		return new int[] { best, bestQuery, bestTarget };
+	}
+
+}
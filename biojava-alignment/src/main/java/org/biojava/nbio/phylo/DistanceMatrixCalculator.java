@@ -21,17 +21,15 @@
 package org.biojava.nbio.phylo;
 
 import java.io.IOException;
-import java.util.List;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.sequence.MultipleSequenceAlignment;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.forester.evoinference.distance.PairwiseDistanceCalculator;
 import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
 import org.forester.evoinference.matrix.distance.DistanceMatrix;
 import org.forester.msa.Msa;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * The DistanceMatrixCalculator methods generate a {@link DistanceMatrix} from a
@@ -43,8 +41,8 @@ import org.slf4j.LoggerFactory;
  */
 public class DistanceMatrixCalculator {
 
-	private static final Logger logger = LoggerFactory
-			.getLogger(DistanceMatrixCalculator.class);
+	/** Distance of sequences too dissimilar for the Poisson formula */
+	private static final double TOO_LARGE_DISTANCE = 10.0;
 
 	/** Prevent instantiation */
 	private DistanceMatrixCalculator() {}
@@ -77,6 +75,31 @@ public class DistanceMatrixCalculator {
 		return DM;
 	}
 
+	/**
+	 * The fractional dissimilarity (D), as in
+	 * {@link #fractionalDissimilarity(MultipleSequenceAlignment)}, calculated
+	 * for all pairs of sequences in parallel.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @param executor
+	 *            executor to run the calculation
+	 * @return PackedDistanceMatrix
+	 * @since 7.2.3
+	 */
+	public static <C extends Sequence<D>, D extends Compound> PackedDistanceMatrix fractionalDissimilarity(
+			MultipleSequenceAlignment<C, D> msa, BioJavaExecutor executor) {
+
+		EncodedAlignment<D> encoded = EncodedAlignment.encode(msa);
+		double[] table = encoded.table((a, b) -> symbol(a).equals(symbol(b)) ? 0 : 1);
+		double[] values = encoded.pairSums(table, executor);
+		int L = encoded.getLength();
+		for (int k = 0; k < values.length; k++)
+			values[k] /= L;
+
+		return new PackedDistanceMatrix(encoded.getIdentifiers(), values);
+	}
+
 	/**
 	 * The Poisson (correction) evolutionary distance (d) is a function of the
 	 * fractional dissimilarity (D), given by:
@@ -104,6 +127,29 @@ public class DistanceMatrixCalculator {
 		return DM;
 	}
 
+	/**
+	 * The Poisson evolutionary distance (d), as in
+	 * {@link #poissonDistance(MultipleSequenceAlignment)}, calculated for all
+	 * pairs of sequences in parallel.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @param executor
+	 *            executor to run the calculation
+	 * @return PackedDistanceMatrix
+	 * @since 7.2.3
+	 */
+	public static <C extends Sequence<D>, D extends Compound> PackedDistanceMatrix poissonDistance(
+			MultipleSequenceAlignment<C, D> msa, BioJavaExecutor executor) {
+
+		PackedDistanceMatrix DM = fractionalDissimilarity(msa, executor);
+		double[] d = DM.values();
+		for (int k = 0; k < d.length; k++)
+			d[k] = logDistance(1 - d[k]);
+
+		return DM;
+	}
+
 	/**
 	 * The Kimura evolutionary distance (d) is a correction of the fractional
 	 * dissimilarity (D) specially needed for large evolutionary distances. It
@@ -136,6 +182,24 @@ public class DistanceMatrixCalculator {
 		return DM;
 	}
 
+	/**
+	 * The Kimura evolutionary distance (d), as in
+	 * {@link #kimuraDistance(MultipleSequenceAlignment)}, calculated for all
+	 * pairs of sequences in parallel.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @param executor
+	 *            executor to run the calculation
+	 * @return PackedDistanceMatrix
+	 * @since 7.2.3
+	 */
+	public static <C extends Sequence<D>, D extends Compound> PackedDistanceMatrix kimuraDistance(
+			MultipleSequenceAlignment<C, D> msa, BioJavaExecutor executor) {
+		// the same values as the forester wrapper, which calculates the Poisson distances
+		return poissonDistance(msa, executor);
+	}
+
 	/**
 	 * BioJava implementation for percentage of identity (PID). Although the
 	 * name of the method is percentage of identity, the DistanceMatrix contains
@@ -151,39 +215,35 @@ public class DistanceMatrixCalculator {
 	 */
 	public static <C extends Sequence<D>, D extends Compound> DistanceMatrix percentageIdentity(
 			MultipleSequenceAlignment<C, D> msa) {
+		return percentageIdentity(msa, BioJavaExecutor.getDefault())
+				.toBasicSymmetricalDistanceMatrix();
+	}
 
-		logger.info("{}:{}", "Determing Distances", 0);
-		int n = msa.getSize();
-		String[] sequenceString = new String[n];
-		for (int i = 0; i < n; i++) {
-			sequenceString[i] = msa.getAlignedSequence(i + 1)
-					.getSequenceAsString();
-		}
-
-		DistanceMatrix distance = new BasicSymmetricalDistanceMatrix(n);
-		int totalloopcount = (n / 2) * (n + 1);
-
-		int loopcount = 0;
-		for (int i = 0; i < (n - 1); i++) {
-			logger.info("{}:{}", "Determining Distances", (loopcount * 100)
-					/ totalloopcount);
-			distance.setIdentifier(i, msa.getAlignedSequence(i + 1)
-					.getAccession().getID());
-
-			for (int j = i; j < n; j++) {
-				loopcount++;
-				if (j == i) {
-					distance.setValue(i, j, 0);
-				} else {
-					distance.setValue(i, j, 100 - Comparison.PID(
-							sequenceString[i], sequenceString[j]));
-					distance.setValue(j, i, distance.getValue(i, j));
-				}
-			}
-		}
-		logger.info("{}:{}", "Determining Distances", 100);
-
-		return distance;
+	/**
+	 * The percentage of identity, as in
+	 * {@link #percentageIdentity(MultipleSequenceAlignment)}, calculated for
+	 * all pairs of sequences in parallel.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @param executor
+	 *            executor to run the calculation
+	 * @return PackedDistanceMatrix
+	 * @since 7.2.3
+	 */
+	public static <C extends Sequence<D>, D extends Compound> PackedDistanceMatrix percentageIdentity(
+			MultipleSequenceAlignment<C, D> msa, BioJavaExecutor executor) {
+
+		// count the mismatches as Comparison.PID does
+		EncodedAlignment<D> encoded = EncodedAlignment.encode(msa);
+		double[] table = encoded.table((a, b) -> isGap(a) || isGap(b)
+				|| symbol(a).equalsIgnoreCase(symbol(b)) ? 0 : 1);
+		double[] values = encoded.pairSums(table, executor);
+		int L = encoded.getLength();
+		for (int k = 0; k < values.length; k++)
+			values[k] = 100 - ((float) 100 * (L - (int) values[k])) / L;
+
+		return new PackedDistanceMatrix(encoded.getIdentifiers(), values);
 	}
 
 	/**
@@ -213,54 +273,38 @@ public class DistanceMatrixCalculator {
 	 */
 	public static <C extends Sequence<D>, D extends Compound> DistanceMatrix fractionalDissimilarityScore(
 			MultipleSequenceAlignment<C, D> msa, SubstitutionMatrix<D> M) {
+		return fractionalDissimilarityScore(msa, M, BioJavaExecutor.getDefault())
+				.toBasicSymmetricalDistanceMatrix();
+	}
 
-		// Calculate the similarity scores using the alignment package
-		logger.info("{}:{}", "Determing Distances", 0);
-
-		int n = msa.getSize();
-		DistanceMatrix DM = new BasicSymmetricalDistanceMatrix(n);
-		int totalloopcount = (n / 2) * (n + 1);
-		int end = msa.getLength();
-
-		String[] sequenceString = new String[n];
-		for (int i = 0; i < n; i++) {
-			sequenceString[i] = msa.getAlignedSequence(i + 1)
-					.getSequenceAsString();
-		}
-		List<C> seqs = msa.getAlignedSequences();
-
-		int loopcount = 0;
-		for (int i = 0; i < (n - 1); i++) {
-			logger.info("{}:{}", "Determining Distances", (loopcount * 100)
-					/ totalloopcount);
-
-			// Obtain the similarity scores
-			for (int j = i; j < n; j++) {
-
-				double score = 0;
-				loopcount++;
-
-				for (int k = 0; k < end; k++) {
-					if (Comparison.isGap(sequenceString[i].charAt(k))
-							|| Comparison.isGap(sequenceString[j].charAt(k)))
-						continue;
-					score += M.getValue(seqs.get(i).getCompoundAt(k + 1), seqs
-							.get(j).getCompoundAt(k + 1));
-				}
-
-				if (i == j)
-					DM.setValue(i, j, 0.0);
-				else {
-					double dS = (M.getMaxValue() - score / msa.getLength())
-							/ (M.getMaxValue() - M.getMinValue());
-
-					DM.setValue(i, j, dS);
-					DM.setValue(j, i, dS);
-				}
-			}
-		}
-
-		return DM;
+	/**
+	 * The fractional dissimilarity score (Ds), as in
+	 * {@link #fractionalDissimilarityScore(MultipleSequenceAlignment, SubstitutionMatrix)},
+	 * calculated for all pairs of sequences in parallel.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @param M
+	 *            SubstitutionMatrix for similarity scoring
+	 * @param executor
+	 *            executor to run the calculation
+	 * @return PackedDistanceMatrix
+	 * @since 7.2.3
+	 */
+	public static <C extends Sequence<D>, D extends Compound> PackedDistanceMatrix fractionalDissimilarityScore(
+			MultipleSequenceAlignment<C, D> msa, SubstitutionMatrix<D> M,
+			BioJavaExecutor executor) {
+
+		EncodedAlignment<D> encoded = EncodedAlignment.encode(msa);
+		double[] table = encoded.table((a, b) -> isGap(a) || isGap(b) ? 0
+				: M.getValue(a, b));
+		double[] dS = encoded.pairSums(table, executor);
+		int L = encoded.getLength();
+		for (int k = 0; k < dS.length; k++)
+			dS[k] = (M.getMaxValue() - dS[k] / L)
+					/ (M.getMaxValue() - M.getMinValue());
+
+		return new PackedDistanceMatrix(encoded.getIdentifiers(), dS);
 	}
 
 	/**
@@ -291,69 +335,46 @@ public class DistanceMatrixCalculator {
 	 */
 	public static <C extends Sequence<D>, D extends Compound> DistanceMatrix dissimilarityScore(
 			MultipleSequenceAlignment<C, D> msa, SubstitutionMatrix<D> M) {
+		return dissimilarityScore(msa, M, BioJavaExecutor.getDefault())
+				.toBasicSymmetricalDistanceMatrix();
+	}
 
-		logger.info("{}:{}", "Determing Distances", 0);
-
-		int n = msa.getSize();
-		String[] sequenceString = new String[n];
-		for (int i = 0; i < n; i++) {
-			sequenceString[i] = msa.getAlignedSequence(i + 1)
-					.getSequenceAsString();
-		}
-		List<C> seqs = msa.getAlignedSequences();
+	/**
+	 * The dissimilarity score, as in
+	 * {@link #dissimilarityScore(MultipleSequenceAlignment, SubstitutionMatrix)},
+	 * calculated for all pairs of sequences in parallel.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @param M
+	 *            SubstitutionMatrix for similarity scoring
+	 * @param executor
+	 *            executor to run the calculation
+	 * @return PackedDistanceMatrix
+	 * @since 7.2.3
+	 */
+	public static <C extends Sequence<D>, D extends Compound> PackedDistanceMatrix dissimilarityScore(
+			MultipleSequenceAlignment<C, D> msa, SubstitutionMatrix<D> M,
+			BioJavaExecutor executor) {
 
-		DistanceMatrix DM = new BasicSymmetricalDistanceMatrix(n);
-		int totalloopcount = (n / 2) * (n + 1);
+		EncodedAlignment<D> encoded = EncodedAlignment.encode(msa);
+		double[] table = encoded.table((a, b) -> isGap(a) || isGap(b) ? 0
+				: M.getValue(a, b));
+		double[] dS = encoded.pairSums(table, executor);
 
+		// the self-score of the last sequence is not taken into account
 		double maxscore = 0;
-		int end = msa.getLength();
-		int loopcount = 0;
-
-		for (int i = 0; i < (n - 1); i++) {
-			logger.info("{}:{}", "Determining Distances", (loopcount * 100)
-					/ totalloopcount);
-
-			// Obtain the similarity scores
-			for (int j = i; j < n; j++) {
-
-				double score = 0;
-				loopcount++;
-
-				for (int k = 0; k < end; k++) {
-					if (Comparison.isGap(sequenceString[i].charAt(k))
-							|| Comparison.isGap(sequenceString[j].charAt(k)))
-						continue;
-					score += M.getValue(seqs.get(i).getCompoundAt(k + 1), seqs
-							.get(j).getCompoundAt(k + 1));
-				}
-
-				if (i != j){
-					score = Math.max(score, 0.0);
-					DM.setValue(i, j, score);
-				}
-
-				if (score > maxscore)
-					maxscore = score;
-			}
-		}
-
-		for (int i = 0; i < n; i++) {
-			DM.setIdentifier(i, msa.getAlignedSequence(i + 1).getAccession()
-					.getID());
-
-			for (int j = i; j < n; j++) {
-				if (i == j)
-					DM.setValue(i, j, 0.0);
-				else {
-					double dS = Math.max(maxscore - DM.getValue(i, j), 0);
-					DM.setValue(i, j, dS);
-					DM.setValue(j, i, dS);
-				}
-			}
+		double[] selfScores = encoded.selfSums(table);
+		for (int i = 0; i < selfScores.length - 1; i++)
+			maxscore = Math.max(maxscore, selfScores[i]);
+		for (int k = 0; k < dS.length; k++) {
+			dS[k] = Math.max(dS[k], 0.0);
+			maxscore = Math.max(maxscore, dS[k]);
 		}
+		for (int k = 0; k < dS.length; k++)
+			dS[k] = Math.max(maxscore - dS[k], 0);
 
-		logger.info("{}:{}", "Determining Distances", 100);
-		return DM;
+		return new PackedDistanceMatrix(encoded.getIdentifiers(), dS);
 	}
 
 	/**
@@ -447,4 +468,25 @@ public class DistanceMatrixCalculator {
 		return DM;
 	}
 
+	/**
+	 * -log(dd), or {@value #TOO_LARGE_DISTANCE} when dd &lt;= 0, as forester
+	 * does.
+	 */
+	private static double logDistance(double dd) {
+		if (dd <= 0)
+			return TOO_LARGE_DISTANCE;
+		if (dd == 1)
+			return 0;
+		return -Math.log(dd);
+	}
+
+	private static String symbol(Compound c) {
+		return c.toString();
+	}
+
+	private static boolean isGap(Compound c) {
+		String s = symbol(c);
+		return s.length() == 1 && Comparison.isGap(s.charAt(0));
+	}
+
 }
@@ -0,0 +1,239 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+
+import org.biojava.nbio.core.sequence.MultipleSequenceAlignment;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.util.BioJavaExecutor;
+
+/**
+ * A {@link MultipleSequenceAlignment} encoded as one byte per position, for
+ * the all-vs-all distance calculations of {@link DistanceMatrixCalculator}.
+ * Each distinct compound of the alignment gets a code, and a pairwise measure
+ * is given as a table of the contribution of each pair of codes.
+ * <p>
+ * Pairs are summed in tiles of {@value #TILE}&times;{@value #TILE} sequences,
+ * over blocks of {@value #COLUMN_BLOCK} columns, so that the rows of a tile
+ * stay in cache while all of its pairs are computed. Tiles run in parallel.
+ *
+ * @since 7.2.3
+ *
+ */
+final class EncodedAlignment<D extends Compound> {
+
+	static final int TILE = 64;
+	static final int COLUMN_BLOCK = 4096;
+
+	/** The code of each position of each sequence */
+	private final byte[][] rows;
+	/** The compound of each code */
+	private final List<D> compounds;
+	private final String[] identifiers;
+	private final int length;
+	/** Table rows are 1 &lt;&lt; bits wide */
+	private final int bits;
+
+	private EncodedAlignment(byte[][] rows, List<D> compounds,
+			String[] identifiers, int length) {
+		this.rows = rows;
+		this.compounds = compounds;
+		this.identifiers = identifiers;
+		this.length = length;
+		this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(compounds.size() - 1));
+	}
+
+	/**
+	 * Encode the aligned sequences of an alignment.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the alignment has more than 256 distinct compounds
+	 */
+	static <C extends Sequence<D>, D extends Compound> EncodedAlignment<D> encode(
+			MultipleSequenceAlignment<C, D> msa) {
+
+		int n = msa.getSize();
+		int length = msa.getLength();
+		Map<D, Integer> codes = new HashMap<>();
+		List<D> compounds = new ArrayList<>();
+		byte[][] rows = new byte[n][];
+		String[] identifiers = new String[n];
+
+		List<C> seqs = msa.getAlignedSequences();
+		for (int i = 0; i < n; i++) {
+			C seq = seqs.get(i);
+			identifiers[i] = seq.getAccession().getID();
+			byte[] row = new byte[length];
+			int k = 0;
+			for (D compound : seq) {
+				Integer code = codes.get(compound);
+				if (code == null) {
+					if (compounds.size() == 256)
+						throw new IllegalArgumentException(
+								"Alignments with more than 256 distinct compounds are not supported");
+					code = compounds.size();
+					codes.put(compound, code);
+					compounds.add(compound);
+				}
+				row[k++] = (byte) code.intValue();
+			}
+			rows[i] = row;
+		}
+		if (compounds.isEmpty())
+			compounds.add(null);
+		return new EncodedAlignment<>(rows, compounds, identifiers, length);
+	}
+
+	int getSize() {
+		return rows.length;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	String[] getIdentifiers() {
+		return identifiers.clone();
+	}
+
+	/**
+	 * Tabulate a pairwise measure over all pairs of codes.
+	 *
+	 * @param contribution
+	 *            the contribution of one alignment column to the sum of a pair
+	 *            of sequences, given the compounds of both
+	 */
+	double[] table(ToDoubleBiFunction<D, D> contribution) {
+		int size = compounds.size();
+		double[] table = new double[size << bits];
+		for (int a = 0; a < size; a++) {
+			for (int b = 0; b < size; b++) {
+				table[a << bits | b] = contribution.applyAsDouble(
+						compounds.get(a), compounds.get(b));
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * The sum of the table over the columns of each sequence with itself.
+	 */
+	double[] selfSums(double[] table) {
+		double[] sums = new double[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			byte[] a = rows[i];
+			double sum = 0;
+			for (int c = 0; c < length; c++) {
+				int code = a[c] & 0xff;
+				sum += table[code << bits | code];
+			}
+			sums[i] = sum;
+		}
+		return sums;
+	}
+
+	/**
+	 * The sum of the table over the columns of each pair of distinct
+	 * sequences, packed as in {@link PackedDistanceMatrix}. Integer tables are
+	 * summed with integer arithmetic.
+	 */
+	double[] pairSums(double[] table, BioJavaExecutor executor) {
+		int n = rows.length;
+		double[] sums = new double[(int) ((long) n * (n - 1) / 2)];
+
+		int[] counts = new int[table.length];
+		for (int t = 0; t < table.length; t++) {
+			counts[t] = (int) table[t];
+			if (counts[t] != table[t]) {
+				counts = null;
+				break;
+			}
+		}
+		int[] countTable = counts;
+
+		// tiles (bi, bj) with bi <= bj, numbered row by row
+		int blocks = (n + TILE - 1) / TILE;
+		int[] tileRows = new int[blocks * (blocks + 1) / 2];
+		int[] tileCols = new int[tileRows.length];
+		for (int bi = 0, t = 0; bi < blocks; bi++) {
+			for (int bj = bi; bj < blocks; bj++, t++) {
+				tileRows[t] = bi;
+				tileCols[t] = bj;
+			}
+		}
+		if (tileRows.length <= 1 || executor == null) {
+			for (int t = 0; t < tileRows.length; t++)
+				tile(tileRows[t], tileCols[t], countTable, table, sums);
+		} else {
+			executor.parallelFor(tileRows.length,
+					t -> tile(tileRows[t], tileCols[t], countTable, table, sums));
+		}
+		return sums;
+	}
+
+	private void tile(int bi, int bj, int[] counts, double[] table, double[] sums) {
+		int n = rows.length;
+		int i0 = bi * TILE, i1 = Math.min(n, i0 + TILE);
+		int j0 = bj * TILE, j1 = Math.min(n, j0 + TILE);
+		double[] acc = new double[TILE * TILE];
+
+		for (int c0 = 0; c0 < length; c0 += COLUMN_BLOCK) {
+			int c1 = Math.min(length, c0 + COLUMN_BLOCK);
+			for (int j = j0; j < j1; j++) {
+				byte[] b = rows[j];
+				int end = Math.min(i1, j);
+				for (int i = i0; i < end; i++) {
+					byte[] a = rows[i];
+					acc[(j - j0) * TILE + i - i0] += counts != null
+							? count(a, b, c0, c1, counts)
+							: score(a, b, c0, c1, table);
+				}
+			}
+		}
+
+		for (int j = j0; j < j1; j++) {
+			int row = PackedDistanceMatrix.index(j, 0);
+			int end = Math.min(i1, j);
+			for (int i = i0; i < end; i++)
+				sums[row + i] = acc[(j - j0) * TILE + i - i0];
+		}
+	}
+
+	private int count(byte[] a, byte[] b, int from, int to, int[] counts) {
+		int sum = 0;
+		for (int c = from; c < to; c++)
+			sum += counts[(a[c] & 0xff) << bits | (b[c] & 0xff)];
+		return sum;
+	}
+
+	private double score(byte[] a, byte[] b, int from, int to, double[] table) {
+		double sum = 0;
+		for (int c = from; c < to; c++)
+			sum += table[(a[c] & 0xff) << bits | (b[c] & 0xff)];
+		return sum;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
+import org.forester.evoinference.matrix.distance.DistanceMatrix;
+
+/**
+ * A symmetric {@link DistanceMatrix} with a zero diagonal, which stores only
+ * the n(n-1)/2 values below the diagonal in a single array. It takes half the
+ * memory of a {@link BasicSymmetricalDistanceMatrix}, which allocates the full
+ * n&times;n square.
+ * <p>
+ * It is returned by the parallel methods of {@link DistanceMatrixCalculator},
+ * and neighbor-joining trees can be built from it with
+ * {@link TreeConstructor#distanceTree(PackedDistanceMatrix, TreeConstructorType)}.
+ *
+ * @since 7.2.3
+ *
+ */
+public class PackedDistanceMatrix implements DistanceMatrix {
+
+	/** The largest matrix size whose values fit in one array */
+	public static final int MAX_SIZE = 65535;
+
+	private final String[] identifiers;
+	private final double[] values;
+
+	/**
+	 * Create a matrix of the given size, with all distances 0.
+	 *
+	 * @param size
+	 *            number of rows (and columns)
+	 */
+	public PackedDistanceMatrix(int size) {
+		this(new String[checkSize(size)], new double[(int) ((long) size * (size - 1) / 2)]);
+	}
+
+	/**
+	 * Wrap arrays without copying them.
+	 */
+	PackedDistanceMatrix(String[] identifiers, double[] values) {
+		this.identifiers = identifiers;
+		this.values = values;
+	}
+
+	private static int checkSize(int size) {
+		if (size < 0 || size > MAX_SIZE)
+			throw new IllegalArgumentException("Matrix size must be between 0 and "
+					+ MAX_SIZE + ": " + size);
+		return size;
+	}
+
+	/**
+	 * The position of the value of row i and column j (i != j) in the
+	 * packed array: the rows below the diagonal follow each other.
+	 */
+	static int index(int i, int j) {
+		return i > j ? (int) ((long) i * (i - 1) / 2) + j : (int) ((long) j * (j - 1) / 2) + i;
+	}
+
+	/**
+	 * The packed values, in the order given by {@link #index(int, int)}.
+	 */
+	double[] values() {
+		return values;
+	}
+
+	String[] identifiers() {
+		return identifiers;
+	}
+
+	@Override
+	public String getIdentifier(int i) {
+		return identifiers[i];
+	}
+
+	@Override
+	public int getIndex(String identifier) {
+		for (int i = 0; i < identifiers.length; i++) {
+			if (identifier.equals(identifiers[i]))
+				return i;
+		}
+		throw new IllegalArgumentException("Identifier " + identifier
+				+ " not found in distance matrix");
+	}
+
+	@Override
+	public int getSize() {
+		return identifiers.length;
+	}
+
+	@Override
+	public double getValue(int col, int row) {
+		if (col == row) {
+			checkBounds(col);
+			return 0;
+		}
+		return values[index(col, row)];
+	}
+
+	@Override
+	public void setIdentifier(int i, String identifier) {
+		identifiers[i] = identifier;
+	}
+
+	/**
+	 * Set the distance between two elements, in both directions. The
+	 * diagonal is always 0.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a non-zero value is set on the diagonal
+	 */
+	@Override
+	public void setValue(int col, int row, double d) {
+		if (col == row) {
+			checkBounds(col);
+			if (d != 0)
+				throw new IllegalArgumentException(
+						"Distance of an element to itself must be 0: " + d);
+			return;
+		}
+		values[index(col, row)] = d;
+	}
+
+	private void checkBounds(int i) {
+		if (i < 0 || i >= identifiers.length)
+			throw new IndexOutOfBoundsException("Index " + i
+					+ " out of bounds for matrix size " + identifiers.length);
+	}
+
+	/**
+	 * Copy this matrix into a forester {@link BasicSymmetricalDistanceMatrix},
+	 * for the methods that require one.
+	 *
+	 * @return a full n&times;n copy
+	 */
+	public BasicSymmetricalDistanceMatrix toBasicSymmetricalDistanceMatrix() {
+		int n = getSize();
+		BasicSymmetricalDistanceMatrix DM = new BasicSymmetricalDistanceMatrix(n);
+		double[][] square = DM.getValues();
+		for (int i = 0; i < n; i++) {
+			DM.setIdentifier(i, identifiers[i]);
+			int row = (int) ((long) i * (i - 1) / 2);
+			for (int j = 0; j < i; j++) {
+				square[i][j] = values[row + j];
+				square[j][i] = values[row + j];
+			}
+		}
+		return DM;
+	}
+
+	/**
+	 * Formats the matrix through a {@link BasicSymmetricalDistanceMatrix}
+	 * copy, so it is only meant for small matrices.
+	 */
+	@Override
+	public StringBuffer toStringBuffer(Format format) {
+		return toBasicSymmetricalDistanceMatrix().toStringBuffer(format);
+	}
+
+	@Override
+	public String toString() {
+		return toStringBuffer(Format.PHYLIP).toString();
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.forester.phylogeny.Phylogeny;
+import org.forester.phylogeny.PhylogenyNode;
+
+/**
+ * Neighbor-joining (Saitou and Nei 1987) over a {@link PackedDistanceMatrix}.
+ * It builds the same trees as the forester
+ * {@link org.forester.evoinference.distance.NeighborJoining}, but works on a
+ * packed copy of the distances, which is compacted as nodes are joined, and
+ * keeps the row sums up to date instead of recomputing them. The search for
+ * the pair to join, the O(n<sup>2</sup>) step of each iteration, is split
+ * over rows in parallel for large matrices.
+ * <p>
+ * Of the pairs with the smallest Q value, the first one in row order is
+ * joined, so the result does not depend on the number of threads.
+ *
+ * @since 7.2.3
+ *
+ */
+final class PackedNeighborJoining {
+
+	/** Below this number of nodes, pairs are searched in the calling thread */
+	private static final int PARALLEL_THRESHOLD = 512;
+	private static final int CHUNKS = 64;
+
+	private final double[] d;
+	private final double[] r;
+	private final PhylogenyNode[] nodes;
+	private final BioJavaExecutor executor;
+
+	// best pair of each chunk of the parallel search
+	private final double[] chunkQ = new double[CHUNKS];
+	private final int[] chunkI = new int[CHUNKS];
+	private final int[] chunkJ = new int[CHUNKS];
+
+	private int m;
+
+	private PackedNeighborJoining(PackedDistanceMatrix dm,
+			BioJavaExecutor executor) {
+		this.d = dm.values().clone();
+		this.m = dm.getSize();
+		this.r = new double[m];
+		this.nodes = new PhylogenyNode[m];
+		this.executor = executor;
+
+		for (int i = 0; i < m; i++) {
+			nodes[i] = new PhylogenyNode();
+			String name = dm.getIdentifier(i);
+			nodes[i].setName(name != null ? name : Integer.toString(i));
+			int row = PackedDistanceMatrix.index(i, 0);
+			for (int j = 0; j < i; j++) {
+				r[i] += d[row + j];
+				r[j] += d[row + j];
+			}
+		}
+	}
+
+	/**
+	 * Build the neighbor-joining tree of a distance matrix.
+	 *
+	 * @param dm
+	 *            distances, which are not modified
+	 * @param executor
+	 *            runs the pair search of large matrices, or null to use only
+	 *            the calling thread
+	 * @return the unrooted tree
+	 * @throws IllegalArgumentException
+	 *             if the matrix has less than two elements
+	 */
+	static Phylogeny execute(PackedDistanceMatrix dm, BioJavaExecutor executor) {
+		if (dm.getSize() < 2)
+			throw new IllegalArgumentException(
+					"Neighbor-joining needs at least two elements: " + dm.getSize());
+		return new PackedNeighborJoining(dm, executor).execute();
+	}
+
+	private Phylogeny execute() {
+		while (m > 2) {
+			long pair = executor != null && m >= PARALLEL_THRESHOLD
+					? parallelMinimum() : minimum(1, 1);
+			join((int) (pair >>> 32), (int) pair);
+		}
+
+		double half = d[0] / 2;
+		nodes[0].setDistanceToParent(half);
+		nodes[1].setDistanceToParent(half);
+		PhylogenyNode root = new PhylogenyNode();
+		root.addAsChild(nodes[0]);
+		root.addAsChild(nodes[1]);
+
+		Phylogeny phylogeny = new Phylogeny();
+		phylogeny.setRoot(root);
+		phylogeny.setRooted(false);
+		return phylogeny;
+	}
+
+	/**
+	 * The pair i &gt; j with the smallest Q of rows from, from + step, ...
+	 * packed as i &lt;&lt; 32 | j.
+	 */
+	private long minimum(int from, int step) {
+		double best = Double.POSITIVE_INFINITY;
+		int bestI = -1, bestJ = -1;
+		double k = m - 2;
+		for (int i = from; i < m; i += step) {
+			int row = PackedDistanceMatrix.index(i, 0);
+			double ri = r[i];
+			for (int j = 0; j < i; j++) {
+				double q = k * d[row + j] - ri - r[j];
+				if (q < best) {
+					best = q;
+					bestI = i;
+					bestJ = j;
+				}
+			}
+		}
+		if (bestI < 0) {
+			// no rows, or only NaN distances: take the first pair of the rows
+			if (from >= m)
+				return -1;
+			bestI = from;
+			bestJ = 0;
+		}
+		return (long) bestI << 32 | bestJ;
+	}
+
+	private long parallelMinimum() {
+		// rows are dealt out in turn, so that all chunks get similar work
+		executor.parallelFor(CHUNKS, c -> {
+			long pair = minimum(1 + c, CHUNKS);
+			if (pair < 0) {
+				chunkI[c] = -1;
+				return;
+			}
+			int i = (int) (pair >>> 32), j = (int) pair;
+			chunkI[c] = i;
+			chunkJ[c] = j;
+			chunkQ[c] = q(i, j);
+		});
+
+		int bestI = -1, bestJ = -1;
+		double best = Double.POSITIVE_INFINITY;
+		for (int c = 0; c < CHUNKS; c++) {
+			int i = chunkI[c];
+			if (i < 0)
+				continue;
+			int j = chunkJ[c];
+			double q = chunkQ[c];
+			if (bestI < 0 || q < best
+					|| (q == best && (i < bestI || (i == bestI && j < bestJ)))) {
+				best = q;
+				bestI = i;
+				bestJ = j;
+			}
+		}
+		return (long) bestI << 32 | bestJ;
+	}
+
+	private double q(int i, int j) {
+		return (m - 2) * d[PackedDistanceMatrix.index(i, j)] - r[i] - r[j];
+	}
+
+	/**
+	 * Join nodes i &gt; j into a new node, which takes the place of j. The last
+	 * node takes the place of i.
+	 */
+	private void join(int i, int j) {
+		double dij = d[PackedDistanceMatrix.index(i, j)];
+		double li = dij / 2 + (r[i] - r[j]) / (2 * (m - 2));
+		nodes[i].setDistanceToParent(li);
+		nodes[j].setDistanceToParent(dij - li);
+		PhylogenyNode node = new PhylogenyNode();
+		node.addAsChild(nodes[i]);
+		node.addAsChild(nodes[j]);
+		nodes[j] = node;
+
+		double rj = 0;
+		for (int k = 0; k < m; k++) {
+			if (k == i || k == j)
+				continue;
+			int ik = PackedDistanceMatrix.index(i, k);
+			int jk = PackedDistanceMatrix.index(j, k);
+			double dk = (d[ik] + d[jk] - dij) / 2;
+			r[k] += dk - d[ik] - d[jk];
+			d[jk] = dk;
+			rj += dk;
+		}
+		r[j] = rj;
+
+		int last = m - 1;
+		if (i != last) {
+			for (int k = 0; k < last; k++) {
+				if (k != i)
+					d[PackedDistanceMatrix.index(i, k)] = d[PackedDistanceMatrix.index(last, k)];
+			}
+			nodes[i] = nodes[last];
+			r[i] = r[last];
+		}
+		nodes[last] = null;
+		m--;
+	}
+}
@@ -20,6 +20,7 @@
  */
 package org.biojava.nbio.phylo;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.forester.evoinference.distance.NeighborJoining;
 import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
 import org.forester.phylogeny.Phylogeny;
@@ -59,4 +60,46 @@ public class TreeConstructor {
 		logger.info("Tree Completed");
 		return p;
 	}
+	/**
+	 * Build a tree from a {@link PackedDistanceMatrix}, using the
+	 * {@link BioJavaExecutor#getDefault() default executor} for large
+	 * matrices.
+	 *
+	 * @since 7.2.3
+	 */
+	public static Phylogeny distanceTree(PackedDistanceMatrix distM,
+			TreeConstructorType constructor) {
+		return distanceTree(distM, constructor, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Build a tree from a {@link PackedDistanceMatrix}. Neighbor-joining
+	 * works on the packed distances, so the full square matrix is never
+	 * allocated, and searches the pair to join in parallel.
+	 *
+	 * @param distM
+	 *            distances, which are not modified
+	 * @param constructor
+	 *            tree building method; only NJ is supported
+	 * @param executor
+	 *            executor to run the calculation
+	 * @since 7.2.3
+	 */
+	public static Phylogeny distanceTree(PackedDistanceMatrix distM,
+			TreeConstructorType constructor, BioJavaExecutor executor) {
+
+		Phylogeny p = null;
+		switch (constructor) {
+		case NJ:
+			p = PackedNeighborJoining.execute(distM, executor);
+			p.setType(TreeType.DISTANCE.name);
+			break;
+		default:
+			logger.warn("Only NJ Tree Constructor Supported!");
+			break;
+		}
+		logger.info("Tree Completed");
+		return p;
+	}
+
 }
@@ -26,17 +26,22 @@ package org.biojava.nbio.alignment;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
 import org.biojava.nbio.alignment.Alignments.PairwiseSequenceScorerType;
 import org.biojava.nbio.alignment.Alignments.ProfileProfileAlignerType;
+import org.biojava.nbio.alignment.template.AbstractScorer;
 import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.alignment.template.GuideTreeNode;
+import org.biojava.nbio.alignment.template.PairwiseSequenceScorer;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.ProteinSequence;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -86,6 +91,81 @@ public class GuideTreeTest {
 				"--A-NDR"));
 	}
 
+	@Test
+	public void testExecutor() {
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("guide-tree", 2, 4)) {
+			GuideTree<ProteinSequence, AminoAcidCompound> other = new GuideTree<>(proteins,
+					Alignments.getAllPairsScorers(proteins, PairwiseSequenceScorerType.GLOBAL_IDENTITIES, gaps,
+					blosum62), executor);
+			assertArrayEquals(other.getDistanceMatrix(), tree.getDistanceMatrix());
+			assertEquals(6, executor.getMetrics().getCompleted());
+			assertEquals(Alignments.getProgressiveAlignment(other, ProfileProfileAlignerType.GLOBAL, gaps, blosum62,
+					executor).toString(), Alignments.getMultipleSequenceAlignment(proteins, gaps, executor).toString());
+			assertEquals(0, executor.getMetrics().getFailed());
+		}
+	}
+
+	@Test
+	public void testEachPairAlignedOnce() {
+		AtomicInteger alignments = new AtomicInteger();
+		List<PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound>> scorers = new ArrayList<>();
+		for (int i = 0; i < proteins.size(); i++) {
+			for (int j = i + 1; j < proteins.size(); j++) {
+				scorers.add(new CountingScorer(proteins.get(i), proteins.get(j), alignments));
+			}
+		}
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("guide-tree", 2, 4)) {
+			new GuideTree<>(proteins, scorers, executor);
+			assertEquals(6, alignments.get());
+		}
+
+		// 6 pairs and 3 profile-profile alignments
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("guide-tree", 2, 4)) {
+			Alignments.getMultipleSequenceAlignment(proteins, gaps, executor);
+			assertEquals(9, executor.getMetrics().getCompleted());
+		}
+	}
+
+	// counts every score computation as an alignment
+	private static class CountingScorer extends AbstractScorer
+			implements PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound> {
+
+		private final ProteinSequence query, target;
+		private final AtomicInteger alignments;
+
+		CountingScorer(ProteinSequence query, ProteinSequence target, AtomicInteger alignments) {
+			this.query = query;
+			this.target = target;
+			this.alignments = alignments;
+		}
+
+		@Override
+		public double getMaxScore() {
+			return 10;
+		}
+
+		@Override
+		public double getMinScore() {
+			return 0;
+		}
+
+		@Override
+		public double getScore() {
+			alignments.incrementAndGet();
+			return query.equals(target) ? 10 : 5;
+		}
+
+		@Override
+		public ProteinSequence getQuery() {
+			return query;
+		}
+
+		@Override
+		public ProteinSequence getTarget() {
+			return target;
+		}
+	}
+
 	@Test
 	public void testGetScoreMatrix() {
 		assertArrayEquals(tree.getScoreMatrix(), new double[][] {
@@ -0,0 +1,103 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StripedNeedlemanWunschTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private ProteinSequence query, target;
+	private GapPenalty gaps;
+	private SubstitutionMatrix<AminoAcidCompound> blosum62;
+	private StripedNeedlemanWunsch<ProteinSequence, AminoAcidCompound> alignment, self;
+
+	@Before
+	public void setup() throws CompoundNotFoundException {
+		query = new ProteinSequence("ARND");
+		target = new ProteinSequence("RDG");
+		gaps = new SimpleGapPenalty((short) 10, (short) 1);
+		blosum62 = SubstitutionMatrixHelper.getBlosum62();
+		alignment = new StripedNeedlemanWunsch<>(query, target, gaps, blosum62);
+		self = new StripedNeedlemanWunsch<>(query, query, gaps, blosum62);
+	}
+
+	@Test
+	public void testGetScore() {
+		NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw = new NeedlemanWunsch<>(query, target, gaps, blosum62);
+		assertEquals(nw.getScore(), alignment.getScore(), PRECISION);
+		assertEquals(21, self.getScore(), PRECISION);
+	}
+
+	@Test
+	public void testGetPair() {
+		assertEquals(String.format("ARND%n-RDG%n"), alignment.getPair().toString());
+		assertEquals(String.format("ARND%nARND%n"), self.getPair().toString());
+	}
+
+	@Test
+	public void testGetMaxMinScore() {
+		NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw = new NeedlemanWunsch<>(query, target, gaps, blosum62);
+		assertEquals(nw.getMaxScore(), alignment.getMaxScore(), PRECISION);
+		assertEquals(nw.getMinScore(), alignment.getMinScore(), PRECISION);
+	}
+
+	@Test
+	public void testGetPairwiseAligner() {
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner = Alignments.getPairwiseAligner(query,
+				target, PairwiseSequenceAlignerType.GLOBAL_STRIPED, gaps, blosum62);
+		assertTrue(aligner instanceof StripedNeedlemanWunsch);
+		aligner = Alignments.getPairwiseAligner(query, target, PairwiseSequenceAlignerType.LOCAL_STRIPED, gaps,
+				blosum62);
+		assertTrue(aligner instanceof StripedSmithWaterman);
+	}
+
+	@Test
+	public void testRandomAgainstNeedlemanWunsch() throws CompoundNotFoundException {
+		Random random = new Random(7);
+		GapPenalty[] penalties = { gaps, new SimpleGapPenalty(2, 1), new SimpleGapPenalty(0, 3) };
+		for (int n = 0; n < 200; n++) {
+			ProteinSequence q = StripedSmithWatermanTest.randomProtein(random, 1 + random.nextInt(70));
+			ProteinSequence t = StripedSmithWatermanTest.randomProtein(random, 1 + random.nextInt(70));
+			GapPenalty penalty = penalties[n % penalties.length];
+			NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw = new NeedlemanWunsch<>(q, t, penalty, blosum62);
+			StripedNeedlemanWunsch<ProteinSequence, AminoAcidCompound> striped =
+					new StripedNeedlemanWunsch<>(q, t, penalty, blosum62);
+			assertEquals(nw.getScore(), striped.getScore(), PRECISION);
+		}
+	}
+
+}
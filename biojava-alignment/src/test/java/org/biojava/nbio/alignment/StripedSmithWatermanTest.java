@@ -0,0 +1,172 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StripedSmithWatermanTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private ProteinSequence query, target;
+	private GapPenalty gaps;
+	private SubstitutionMatrix<AminoAcidCompound> blosum62;
+	private StripedSmithWaterman<ProteinSequence, AminoAcidCompound> alignment, self;
+
+	@Before
+	public void setup() throws CompoundNotFoundException {
+		query = new ProteinSequence("AERNDKK");
+		target = new ProteinSequence("ERDNKGFPS");
+		gaps = new SimpleGapPenalty((short) 2, (short) 1);
+		blosum62 = SubstitutionMatrixHelper.getBlosum62();
+		alignment = new StripedSmithWaterman<>(query, target, gaps, blosum62);
+		self = new StripedSmithWaterman<>(query, query, gaps, blosum62);
+	}
+
+	@Test
+	public void testStripedSmithWaterman() {
+		StripedSmithWaterman<ProteinSequence, AminoAcidCompound> alig = new StripedSmithWaterman<>();
+		alig.setQuery(query);
+		alig.setTarget(target);
+		alig.setGapPenalty(gaps);
+		alig.setSubstitutionMatrix(blosum62);
+		assertEquals(String.format("ERNDKK%nER-DNK%n"), alig.getPair().toString());
+	}
+
+	@Test
+	public void testGetScore() {
+		assertEquals(18, alignment.getScore(), PRECISION);
+		assertEquals(36, self.getScore(), PRECISION);
+	}
+
+	@Test
+	public void testGetMaxMinScore() {
+		assertEquals(50, alignment.getMaxScore(), PRECISION);
+		assertEquals(0, alignment.getMinScore(), PRECISION);
+		assertEquals(36, self.getMaxScore(), PRECISION);
+	}
+
+	@Test
+	public void testGetPair() {
+		assertEquals(String.format("ERNDKK%nER-DNK%n"), alignment.getPair().toString());
+		assertEquals(String.format("AERNDKK%nAERNDKK%n"), self.getPair().toString());
+	}
+
+	@Test
+	public void testGetScoreMatrix() {
+		assertNull(alignment.getScoreMatrix());
+	}
+
+	@Test
+	public void testSetQuery() throws CompoundNotFoundException {
+		assertEquals(18, alignment.getScore(), PRECISION);
+		alignment.setQuery(new ProteinSequence("CCCC"));
+		assertEquals(0, alignment.getScore(), PRECISION);
+		assertEquals(0, alignment.getPair().getLength());
+	}
+
+	@Test
+	public void testRandomAgainstSmithWaterman() throws CompoundNotFoundException {
+		Random random = new Random(42);
+		GapPenalty[] penalties = { gaps, new SimpleGapPenalty(10, 1) };
+		for (int n = 0; n < 200; n++) {
+			ProteinSequence q = randomProtein(random, 1 + random.nextInt(70));
+			ProteinSequence t = randomProtein(random, 1 + random.nextInt(70));
+			GapPenalty penalty = penalties[n % penalties.length];
+			SmithWaterman<ProteinSequence, AminoAcidCompound> sw = new SmithWaterman<>(q, t, penalty, blosum62);
+			StripedSmithWaterman<ProteinSequence, AminoAcidCompound> striped =
+					new StripedSmithWaterman<>(q, t, penalty, blosum62);
+			assertEquals(sw.getScore(), striped.getScore(), PRECISION);
+			assertEquals(sw.getScore(), score(striped.getPair(), penalty), PRECISION);
+		}
+	}
+
+	@Test
+	public void testRandomLinearGaps() throws CompoundNotFoundException {
+		// SmithWaterman fails on traceback with linear gaps, so compare to a plain dynamic programming score
+		Random random = new Random(11);
+		GapPenalty penalty = new SimpleGapPenalty(0, 3);
+		for (int n = 0; n < 100; n++) {
+			ProteinSequence q = randomProtein(random, 1 + random.nextInt(70));
+			ProteinSequence t = randomProtein(random, 1 + random.nextInt(70));
+			StripedSmithWaterman<ProteinSequence, AminoAcidCompound> striped =
+					new StripedSmithWaterman<>(q, t, penalty, blosum62);
+			int[] previous = new int[t.getLength() + 1], current = new int[t.getLength() + 1];
+			int best = 0;
+			for (int x = 1; x <= q.getLength(); x++) {
+				for (int y = 1; y <= t.getLength(); y++) {
+					int sub = previous[y - 1] + blosum62.getValue(q.getCompoundAt(x), t.getCompoundAt(y));
+					current[y] = Math.max(0, Math.max(sub, Math.max(previous[y], current[y - 1]) - 3));
+					best = Math.max(best, current[y]);
+				}
+				int[] swap = previous;
+				previous = current;
+				current = swap;
+			}
+			assertEquals(best, striped.getScore(), PRECISION);
+			assertEquals(best, score(striped.getPair(), penalty), PRECISION);
+		}
+	}
+
+	static ProteinSequence randomProtein(Random random, int length) throws CompoundNotFoundException {
+		String residues = "ACDEFGHIKLMNPQRSTVWY";
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(residues.charAt(random.nextInt(residues.length())));
+		}
+		return new ProteinSequence(sb.toString());
+	}
+
+	// rescores an alignment column by column
+	static int score(SequencePair<ProteinSequence, AminoAcidCompound> pair, GapPenalty penalty) {
+		SubstitutionMatrix<AminoAcidCompound> matrix = SubstitutionMatrixHelper.getBlosum62();
+		int score = 0;
+		boolean queryGap = false, targetGap = false;
+		for (int i = 1; i <= pair.getLength(); i++) {
+			boolean qg = pair.getQuery().isGap(i), tg = pair.getTarget().isGap(i);
+			if (qg || tg) {
+				if ((qg && !queryGap) || (tg && !targetGap)) {
+					score += penalty.getOpenPenalty();
+				}
+				score += penalty.getExtensionPenalty();
+			} else {
+				score += matrix.getValue(pair.getCompoundInQueryAt(i), pair.getCompoundInTargetAt(i));
+			}
+			queryGap = qg;
+			targetGap = tg;
+		}
+		return score;
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment.routines;
+
+import org.biojava.nbio.alignment.Alignments;
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.NeedlemanWunsch;
+import org.biojava.nbio.alignment.SimpleGapPenalty;
+import org.biojava.nbio.alignment.SmithWaterman;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MyersMillerTest {
+
+	private static final double PRECISION = 0.00000001;
+	private static final String RESIDUES = "ACDEFGHIKLMNPQRSTVWY";
+
+	private ProteinSequence query, target;
+	private GapPenalty gaps;
+	private SubstitutionMatrix<AminoAcidCompound> blosum62;
+	private MyersMiller<ProteinSequence, AminoAcidCompound> alignment, self;
+
+	@Before
+	public void setup() throws CompoundNotFoundException {
+		query = new ProteinSequence("ARND");
+		target = new ProteinSequence("RDG");
+		gaps = new SimpleGapPenalty(10, 1);
+		blosum62 = SubstitutionMatrixHelper.getBlosum62();
+		alignment = new MyersMiller<>(query, target, gaps, blosum62);
+		self = new MyersMiller<>(query, query, gaps, blosum62);
+	}
+
+	@Test
+	public void testMyersMiller() {
+		MyersMiller<ProteinSequence, AminoAcidCompound> mm = new MyersMiller<>();
+		mm.setQuery(query);
+		mm.setTarget(target);
+		mm.setGapPenalty(gaps);
+		mm.setSubstitutionMatrix(blosum62);
+		assertEquals(alignment.getScore(), mm.getScore(), PRECISION);
+	}
+
+	@Test
+	public void testGetScore() {
+		NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw = new NeedlemanWunsch<>(query, target, gaps, blosum62);
+		assertEquals(nw.getScore(), alignment.getScore(), PRECISION);
+		assertEquals(21, self.getScore(), PRECISION);
+	}
+
+	@Test
+	public void testGetPair() {
+		assertEquals(String.format("ARND%n-RDG%n"), alignment.getPair().toString());
+		assertEquals(String.format("ARND%nARND%n"), self.getPair().toString());
+	}
+
+	@Test
+	public void testGetScoreMatrix() {
+		assertNull(alignment.getScoreMatrix());
+	}
+
+	@Test
+	public void testGetPairwiseAligner() {
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner = Alignments.getPairwiseAligner(query,
+				target, PairwiseSequenceAlignerType.GLOBAL_LINEAR_SPACE, gaps, blosum62);
+		assertTrue(aligner instanceof MyersMiller);
+		aligner = Alignments.getPairwiseAligner(query, target, PairwiseSequenceAlignerType.LOCAL_LINEAR_SPACE, gaps,
+				blosum62);
+		SmithWaterman<ProteinSequence, AminoAcidCompound> sw = new SmithWaterman<>(query, target, gaps, blosum62);
+		assertEquals(sw.getPair().toString(), aligner.getPair().toString());
+	}
+
+	@Test
+	public void testLongSequences() throws CompoundNotFoundException {
+		// long enough to be split several times before sections are aligned directly
+		Random random = new Random(3);
+		GapPenalty[] penalties = { gaps, new SimpleGapPenalty(2, 1), new SimpleGapPenalty(0, 2) };
+		for (int n = 0; n < 6; n++) {
+			String a = randomResidues(random, 300 + random.nextInt(300));
+			ProteinSequence q = new ProteinSequence(a), t = new ProteinSequence(mutate(random, a));
+			GapPenalty penalty = penalties[n % penalties.length];
+			NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw = new NeedlemanWunsch<>(q, t, penalty, blosum62);
+			MyersMiller<ProteinSequence, AminoAcidCompound> mm = new MyersMiller<>(q, t, penalty, blosum62);
+			assertEquals(nw.getScore(), mm.getScore(), PRECISION);
+			assertEquals(nw.getScore(), score(mm.getPair(), penalty), PRECISION);
+		}
+	}
+
+	@Test
+	public void testLocalLinearSpace() throws CompoundNotFoundException {
+		Random random = new Random(5);
+		for (int n = 0; n < 4; n++) {
+			String a = randomResidues(random, 400), b = randomResidues(random, 300);
+			ProteinSequence q = new ProteinSequence(randomResidues(random, 100) + a + randomResidues(random, 50));
+			ProteinSequence t = new ProteinSequence(b + mutate(random, a));
+			SmithWaterman<ProteinSequence, AminoAcidCompound> sw = new SmithWaterman<>(q, t, gaps, blosum62);
+			PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner = Alignments.getPairwiseAligner(q, t,
+					PairwiseSequenceAlignerType.LOCAL_LINEAR_SPACE, gaps, blosum62);
+			assertEquals(sw.getScore(), aligner.getScore(), PRECISION);
+			assertEquals(sw.getScore(), score(aligner.getPair(), gaps), PRECISION);
+		}
+	}
+
+	private static String randomResidues(Random random, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(RESIDUES.charAt(random.nextInt(RESIDUES.length())));
+		}
+		return sb.toString();
+	}
+
+	// applies point substitutions and a few longer insertions and deletions
+	private static String mutate(Random random, String s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			int r = random.nextInt(100);
+			if (r < 2) {
+				i += random.nextInt(12);
+			} else if (r < 4) {
+				sb.append(randomResidues(random, 1 + random.nextInt(12)));
+			} else if (r < 20) {
+				sb.append(RESIDUES.charAt(random.nextInt(RESIDUES.length())));
+			} else {
+				sb.append(s.charAt(i));
+			}
+		}
+		return sb.toString();
+	}
+
+	// rescores an alignment column by column
+	private int score(SequencePair<ProteinSequence, AminoAcidCompound> pair, GapPenalty penalty) {
+		int score = 0;
+		boolean queryGap = false, targetGap = false;
+		for (int i = 1; i <= pair.getLength(); i++) {
+			boolean qg = pair.getQuery().isGap(i), tg = pair.getTarget().isGap(i);
+			if (qg || tg) {
+				if ((qg && !queryGap) || (tg && !targetGap)) {
+					score += penalty.getOpenPenalty();
+				}
+				score += penalty.getExtensionPenalty();
+			} else {
+				score += blosum62.getValue(pair.getCompoundInQueryAt(i), pair.getCompoundInTargetAt(i));
+			}
+			queryGap = qg;
+			targetGap = tg;
+		}
+		return score;
+	}
+
+}
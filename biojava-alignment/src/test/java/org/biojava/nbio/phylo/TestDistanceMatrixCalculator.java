@@ -0,0 +1,257 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import java.util.Random;
+
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.MultipleSequenceAlignment;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.forester.evoinference.distance.NeighborJoining;
+import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
+import org.forester.evoinference.matrix.distance.DistanceMatrix;
+import org.forester.phylogeny.Phylogeny;
+import org.forester.phylogeny.PhylogenyMethods;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the parallel distance calculations and the packed neighbor-joining
+ * against the forester and the original BioJava implementations.
+ *
+ */
+public class TestDistanceMatrixCalculator {
+
+	private static final String RESIDUES = "ACDEFGHIKLMNPQRSTVWY";
+
+	@Test
+	public void testForesterDistances() throws Exception {
+
+		MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa = randomMsa(
+				new Random(7), 150, 300);
+		BioJavaExecutor executor = BioJavaExecutor.getDefault();
+
+		assertSameValues(DistanceMatrixCalculator.fractionalDissimilarity(msa),
+				DistanceMatrixCalculator.fractionalDissimilarity(msa, executor));
+		assertSameValues(DistanceMatrixCalculator.poissonDistance(msa),
+				DistanceMatrixCalculator.poissonDistance(msa, executor));
+		assertSameValues(DistanceMatrixCalculator.kimuraDistance(msa),
+				DistanceMatrixCalculator.kimuraDistance(msa, executor));
+		assertSameValues(DistanceMatrixCalculator.poissonDistance(msa),
+				DistanceMatrixCalculator.kimuraDistance(msa, executor));
+	}
+
+	@Test
+	public void testScores() throws Exception {
+
+		MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa = randomMsa(
+				new Random(11), 70, 120);
+		SubstitutionMatrix<AminoAcidCompound> M = SubstitutionMatrixHelper
+				.getBlosum62();
+		int n = msa.getSize();
+		int L = msa.getLength();
+
+		DistanceMatrix pid = DistanceMatrixCalculator.percentageIdentity(msa);
+		DistanceMatrix fds = DistanceMatrixCalculator
+				.fractionalDissimilarityScore(msa, M);
+		DistanceMatrix ds = DistanceMatrixCalculator.dissimilarityScore(msa, M);
+
+		double[][] scores = new double[n][n];
+		double maxscore = 0;
+		for (int i = 0; i < n; i++) {
+			String a = msa.getAlignedSequence(i + 1).getSequenceAsString();
+			assertEquals(a.substring(0, 3), pid.getIdentifier(i));
+			assertEquals(a.substring(0, 3), fds.getIdentifier(i));
+			for (int j = i; j < n; j++) {
+				String b = msa.getAlignedSequence(j + 1).getSequenceAsString();
+				for (int k = 0; k < L; k++) {
+					if (!Comparison.isGap(a.charAt(k))
+							&& !Comparison.isGap(b.charAt(k)))
+						scores[i][j] += M.getValue(
+								msa.getAlignedSequence(i + 1).getCompoundAt(k + 1),
+								msa.getAlignedSequence(j + 1).getCompoundAt(k + 1));
+				}
+				if (i != j) {
+					assertEquals(100 - Comparison.PID(a, b), pid.getValue(i, j), 0);
+					assertEquals((M.getMaxValue() - scores[i][j] / L)
+							/ (M.getMaxValue() - M.getMinValue()),
+							fds.getValue(j, i), 1e-12);
+					scores[i][j] = Math.max(scores[i][j], 0);
+				}
+				// without the self-score of the last sequence
+				if (i < n - 1)
+					maxscore = Math.max(maxscore, scores[i][j]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			assertEquals(0, ds.getValue(i, i), 0);
+			for (int j = i + 1; j < n; j++)
+				assertEquals(maxscore - scores[i][j], ds.getValue(i, j), 1e-9);
+		}
+	}
+
+	@Test
+	public void testDissimilarityScoreMaximum() throws Exception {
+
+		MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa =
+				new MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound>();
+		for (String seq : new String[] {"AAAA", "AAAC", "WWWW"}) {
+			ProteinSequence sequence = new ProteinSequence(seq);
+			sequence.setAccession(new AccessionID(seq));
+			msa.addAlignedSequence(sequence);
+		}
+		SubstitutionMatrix<AminoAcidCompound> M = SubstitutionMatrixHelper
+				.getBlosum62();
+
+		// the maximum is the self-score of AAAC (21), not of WWWW (44)
+		DistanceMatrix ds = DistanceMatrixCalculator.dissimilarityScore(msa, M);
+		assertEquals(9, ds.getValue(0, 1), 0);
+		assertEquals(21, ds.getValue(0, 2), 0);
+		assertEquals(21, ds.getValue(1, 2), 0);
+		assertSameValues(ds, DistanceMatrixCalculator.dissimilarityScore(msa,
+				M, BioJavaExecutor.getDefault()));
+	}
+
+	@Test
+	public void testPackedMatrix() {
+
+		PackedDistanceMatrix DM = new PackedDistanceMatrix(4);
+		for (int i = 0; i < 4; i++) {
+			DM.setIdentifier(i, "s" + i);
+			for (int j = 0; j < i; j++)
+				DM.setValue(j, i, i * 10 + j);
+		}
+
+		assertEquals(6, DM.values().length);
+		assertEquals(21, DM.getValue(2, 1), 0);
+		assertEquals(21, DM.getValue(1, 2), 0);
+		assertEquals(0, DM.getValue(3, 3), 0);
+		assertEquals(2, DM.getIndex("s2"));
+
+		BasicSymmetricalDistanceMatrix basic = DM.toBasicSymmetricalDistanceMatrix();
+		assertEquals(DM.toString(), basic.toString());
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++)
+				assertEquals(DM.getValue(i, j), basic.getValue(i, j), 0);
+		}
+
+		try {
+			DM.setValue(1, 1, 0.5);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testNeighborJoining() throws Exception {
+
+		MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa = randomMsa(
+				new Random(3), 100, 200);
+		PackedDistanceMatrix DM = DistanceMatrixCalculator.kimuraDistance(msa,
+				BioJavaExecutor.getDefault());
+		assertSameTree(DM, TreeConstructor.distanceTree(DM, TreeConstructorType.NJ));
+
+		// large enough to search the pairs in parallel
+		Random random = new Random(5);
+		PackedDistanceMatrix large = new PackedDistanceMatrix(600);
+		for (int i = 0; i < large.getSize(); i++) {
+			large.setIdentifier(i, "n" + i);
+			for (int j = 0; j < i; j++)
+				large.setValue(i, j, 0.1 + random.nextDouble());
+		}
+		Phylogeny tree = TreeConstructor.distanceTree(large,
+				TreeConstructorType.NJ);
+		assertSameTree(large, tree);
+		assertEquals(TreeType.DISTANCE.name, tree.getType());
+	}
+
+	/**
+	 * Compare the leaf-to-leaf distances of a tree to those of the forester
+	 * neighbor-joining tree of the same distances.
+	 */
+	private static void assertSameTree(PackedDistanceMatrix DM, Phylogeny tree) {
+
+		Phylogeny expected = NeighborJoining.createInstance().execute(
+				DM.toBasicSymmetricalDistanceMatrix());
+		assertEquals(expected.getNumberOfExternalNodes(),
+				tree.getNumberOfExternalNodes());
+
+		Random random = new Random(1);
+		for (int k = 0; k < 2000; k++) {
+			String a = DM.getIdentifier(random.nextInt(DM.getSize()));
+			String b = DM.getIdentifier(random.nextInt(DM.getSize()));
+			assertEquals(PhylogenyMethods.calculateDistance(
+					expected.getNode(a), expected.getNode(b)),
+					PhylogenyMethods.calculateDistance(tree.getNode(a),
+							tree.getNode(b)), 1e-9);
+		}
+	}
+
+	private static void assertSameValues(DistanceMatrix expected,
+			PackedDistanceMatrix actual) {
+		assertEquals(expected.getSize(), actual.getSize());
+		for (int i = 0; i < expected.getSize(); i++) {
+			assertEquals(expected.getIdentifier(i), actual.getIdentifier(i));
+			for (int j = 0; j < expected.getSize(); j++)
+				assertEquals(expected.getValue(i, j), actual.getValue(i, j),
+						1e-12);
+		}
+	}
+
+	/**
+	 * Sequences mutated from a common ancestor, with gaps. Identifiers are the
+	 * first residues of each sequence.
+	 */
+	private static MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> randomMsa(
+			Random random, int n, int length) throws Exception {
+
+		char[] ancestor = new char[length];
+		for (int k = 0; k < length; k++)
+			ancestor[k] = RESIDUES.charAt(random.nextInt(RESIDUES.length()));
+
+		MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa =
+				new MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound>();
+		for (int i = 0; i < n; i++) {
+			char[] seq = ancestor.clone();
+			double rate = random.nextDouble() * 0.6;
+			for (int k = 3; k < length; k++) {
+				double p = random.nextDouble();
+				if (p < 0.05)
+					seq[k] = '-';
+				else if (p < rate)
+					seq[k] = RESIDUES.charAt(random.nextInt(RESIDUES.length()));
+			}
+			// unique identifiers
+			for (int k = 0; k < 3; k++)
+				seq[k] = RESIDUES.charAt(i / (k == 0 ? 400 : k == 1 ? 20 : 1) % 20);
+			ProteinSequence sequence = new ProteinSequence(new String(seq));
+			sequence.setAccession(new AccessionID(new String(seq, 0, 3)));
+			msa.addAlignedSequence(sequence);
+		}
+		return msa;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.io.PDBFileParser;
+
+/**
+ * Access to the fixtures bundled with the benchmarks. Fixtures are read
+ * fully into memory so that the benchmarks measure parsing and computation,
+ * not disk or network access.
+ */
+final class BenchmarkFixtures {
+
+	/** Human deoxyhaemoglobin, 4 chains, PDB format (gzipped) */
+	static final String PDB_4HHB = "4hhb.pdb.gz";
+	/** Human deoxyhaemoglobin, 4 chains, mmCIF format (gzipped) */
+	static final String CIF_4HHB = "4hhb.cif.gz";
+	/** Bovine pancreatic trypsin inhibitor, BinaryCIF format */
+	static final String BCIF_5PTI = "5pti.bcif";
+	/** MMTF format */
+	static final String MMTF_4CUP = "4CUP.mmtf";
+	/** Pfam PF00104 protein family, a few hundred sequences, FASTA format */
+	static final String FASTA_PF00104 = "PF00104_small.fasta";
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Makes sure that no chemical component definitions are downloaded while
+	 * benchmarking.
+	 */
+	static void useLocalChemComps() {
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+	}
+
+	/**
+	 * Reads a bundled fixture into memory, decompressing it if its name ends
+	 * with .gz
+	 */
+	static byte[] read(String name) {
+		try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(name)) {
+			if (in == null)
+				throw new IllegalArgumentException("No benchmark fixture named " + name);
+			InputStream is = name.endsWith(".gz") ? new GZIPInputStream(in) : in;
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int n;
+			while ((n = is.read(buf)) != -1) {
+				out.write(buf, 0, n);
+			}
+			return out.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static InputStream stream(byte[] data) {
+		return new ByteArrayInputStream(data);
+	}
+
+	/**
+	 * @return 4hhb, parsed from the bundled PDB file
+	 */
+	static Structure load4hhb() {
+		useLocalChemComps();
+		try {
+			return new PDBFileParser().parsePDBFile(stream(read(PDB_4HHB)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.genome.io.fastq.FastqRecordReader;
+import org.biojava.nbio.genome.io.fastq.FastqRecordView;
+import org.biojava.nbio.genome.io.fastq.FastqTools;
+import org.biojava.nbio.genome.io.fastq.FastqVariant;
+import org.biojava.nbio.genome.io.fastq.SangerFastqReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sums the quality scores of 100,000 synthetic 150 bp reads, with the String based streaming parser and with
+ * {@link FastqRecordReader}, sequentially and as a parallel stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastqBenchmark {
+
+	private static final int READS = 100_000;
+	private static final int LENGTH = 150;
+
+	private byte[] fastq;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < READS; i++) {
+			sb.append("@read").append(i).append('\n');
+			for (int j = 0; j < LENGTH; j++) {
+				sb.append("ACGT".charAt(random.nextInt(4)));
+			}
+			sb.append("\n+\n");
+			for (int j = 0; j < LENGTH; j++) {
+				sb.append((char) ('!' + random.nextInt(42)));
+			}
+			sb.append('\n');
+		}
+		fastq = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	@Benchmark
+	public long streamingParser() throws IOException {
+		long[] sum = new long[1];
+		int[] scores = new int[LENGTH];
+		new SangerFastqReader().stream(new InputStreamReader(new ByteArrayInputStream(fastq), StandardCharsets.ISO_8859_1),
+				f -> sum[0] += sum(FastqTools.qualityScores(f, scores)));
+		return sum[0];
+	}
+
+	@Benchmark
+	public long recordReader() throws IOException {
+		long sum = 0;
+		int[] scores = new int[LENGTH];
+		try (FastqRecordReader reader = new FastqRecordReader(new ByteArrayInputStream(fastq), FastqVariant.FASTQ_SANGER)) {
+			FastqRecordView record = new FastqRecordView();
+			while (reader.next(record)) {
+				sum += sum(FastqTools.qualityScores(record, scores));
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long recordStreamParallel() throws IOException {
+		try (FastqRecordReader reader = new FastqRecordReader(new ByteArrayInputStream(fastq), FastqVariant.FASTQ_SANGER)) {
+			return reader.stream().parallel()
+					.mapToLong(record -> sum(FastqTools.qualityScores(record, new int[record.length()])))
+					.sum();
+		}
+	}
+
+	private static long sum(int[] scores) {
+		long sum = 0;
+		for (int score : scores) {
+			sum += score;
+		}
+		return sum;
+	}
+}
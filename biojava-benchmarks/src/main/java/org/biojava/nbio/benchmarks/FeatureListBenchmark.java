@@ -0,0 +1,109 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.genome.parsers.gff.Feature;
+import org.biojava.nbio.genome.parsers.gff.FeatureI;
+import org.biojava.nbio.genome.parsers.gff.FeatureList;
+import org.biojava.nbio.genome.parsers.gff.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overlap queries of random 1 kbp windows against 500,000 features on 10 sequences, with the
+ * {@link FeatureList} interval index and with the linear scan it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeatureListBenchmark {
+
+	private static final int FEATURES = 500_000;
+	private static final int SEQUENCES = 10;
+	private static final int SEQUENCE_LENGTH = 50_000_000;
+
+	private FeatureList features;
+
+	@Setup
+	public void setup() throws Exception {
+		Random random = new Random(42);
+		features = new FeatureList();
+		for (int i = 0; i < FEATURES; i++) {
+			int start = random.nextInt(SEQUENCE_LENGTH);
+			int end = start + 1 + random.nextInt(random.nextInt(10) == 0 ? 100_000 : 2_000);
+			Location location = random.nextBoolean() ? new Location(start, end) : new Location(-end, -start);
+			features.add(new Feature("chr" + random.nextInt(SEQUENCES), "bench", "exon", location, 0.0, 0, "gene_id \"g\";"));
+		}
+		// builds the index
+		features.selectOverlapping("chr0", new Location(0, 1), true);
+	}
+
+	@Benchmark
+	public int indexed() throws Exception {
+		return features.selectOverlapping(randomSeqname(), randomWindow(), true).size();
+	}
+
+	@Benchmark
+	public FeatureI nearest() {
+		return features.nearest(randomSeqname(), randomWindow(), false);
+	}
+
+	@Benchmark
+	public int scan() {
+		String seqname = randomSeqname();
+		Location location = randomWindow();
+		int count = 0;
+		for (FeatureI feature : features) {
+			if (feature.seqname().equals(seqname)) {
+				if (location.isSameStrand(feature.location())) {
+					count += feature.location().overlaps(location) ? 1 : 0;
+				} else {
+					count += feature.location().overlaps(location.opposite()) ? 1 : 0;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static String randomSeqname() {
+		return "chr" + ThreadLocalRandom.current().nextInt(SEQUENCES);
+	}
+
+	private static Location randomWindow() {
+		int start = ThreadLocalRandom.current().nextInt(SEQUENCE_LENGTH);
+		return new Location(start, start + 1000);
+	}
+}
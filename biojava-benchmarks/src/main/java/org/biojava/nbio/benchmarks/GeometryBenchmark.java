@@ -0,0 +1,140 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.asa.AsaCalculator;
+import org.biojava.nbio.structure.contact.AtomContactSet;
+import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.geometry.CalcPoint;
+import org.biojava.nbio.structure.geometry.SuperPositionQCP;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
+import org.biojava.nbio.structure.secstruc.SecStrucState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Geometry hot paths on haemoglobin (4hhb): QCP superposition and batched RMSDs, solvent
+ * accessible surface areas, DSSP secondary structure assignment and
+ * grid-based contact calculation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeometryBenchmark {
+
+	private static final int MODELS = 1000;
+
+	private Structure structure;
+	private Atom[] allAtoms;
+	private Point3d[] fixed;
+	private Point3d[] moved;
+	private SuperPositionQCP batch;
+	private double[] models;
+	private double[] rmsds;
+
+	@Setup
+	public void setup() throws StructureException {
+		structure = BenchmarkFixtures.load4hhb();
+		allAtoms = StructureTools.getAllNonHAtomArray(structure, false);
+
+		// all C-alpha atoms of 4hhb and a rotated, translated copy
+		fixed = Calc.atomsToPoints(StructureTools.getRepresentativeAtomArray(structure));
+		moved = CalcPoint.clonePoint3dArray(fixed);
+		Matrix4d transform = new Matrix4d();
+		transform.set(new AxisAngle4d(0.440, 0.302, 0.845, 1.570));
+		transform.setTranslation(new Vector3d(0.345, 2.453, 5.324));
+		CalcPoint.transform(transform, moved);
+
+		// 1000 noisy copies of the C-alpha atoms, as decoys of one reference
+		double[] reference = new double[3 * fixed.length];
+		for (int i = 0; i < fixed.length; i++) {
+			reference[3 * i] = fixed[i].x;
+			reference[3 * i + 1] = fixed[i].y;
+			reference[3 * i + 2] = fixed[i].z;
+		}
+		Random random = new Random(0);
+		models = new double[MODELS * reference.length];
+		for (int i = 0; i < models.length; i++)
+			models[i] = reference[i % reference.length] + random.nextGaussian();
+		rmsds = new double[MODELS];
+		batch = new SuperPositionQCP(false);
+		batch.setReference(reference);
+	}
+
+	@Benchmark
+	public double superPositionQcpRmsd() {
+		return new SuperPositionQCP(false).getRmsd(fixed, moved);
+	}
+
+	@Benchmark
+	public Matrix4d superPositionQcpSuperpose() {
+		return new SuperPositionQCP(false).superpose(fixed, moved);
+	}
+
+	@Benchmark
+	public double[] superPositionQcpBatchRmsd() {
+		batch.getRmsds(models, MODELS, rmsds);
+		return rmsds;
+	}
+
+	@Benchmark
+	public double[] asaCalculator() {
+		return new AsaCalculator(allAtoms, AsaCalculator.DEFAULT_PROBE_SIZE,
+				AsaCalculator.DEFAULT_N_SPHERE_POINTS, 1).calculateAsas();
+	}
+
+	@Benchmark
+	public List<SecStrucState> secStrucCalc() throws StructureException {
+		return new SecStrucCalc().calculate(structure, false);
+	}
+
+	@Benchmark
+	public AtomContactSet gridAtomContacts() {
+		Grid grid = new Grid(6.0);
+		grid.addAtoms(allAtoms);
+		return grid.getAtomContacts();
+	}
+}
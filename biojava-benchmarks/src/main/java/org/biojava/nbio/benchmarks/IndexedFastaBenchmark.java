@@ -0,0 +1,97 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.io.IndexedFastaSequenceFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random 100 bp windows of a synthetic 10 Mbp chromosome with {@link IndexedFastaSequenceFile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexedFastaBenchmark {
+
+	private static final int LENGTH = 10_000_000;
+	private static final int WINDOW = 100;
+
+	private Path path;
+	private IndexedFastaSequenceFile fasta;
+	private DNASequence chromosome;
+	private final Random random = new Random(42);
+
+	@Setup
+	public void setup() throws IOException {
+		path = Files.createTempFile("biojava-benchmark", ".fa");
+		Random bases = new Random(1);
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+			writer.write(">chr1\n");
+			for (int i = 0; i < LENGTH; i++) {
+				writer.write("ACGT".charAt(bases.nextInt(4)));
+				if (i % 60 == 59) writer.write('\n');
+			}
+			writer.write('\n');
+		}
+		fasta = new IndexedFastaSequenceFile(path);
+		chromosome = fasta.getDNASequence("chr1");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		fasta.close();
+		Files.deleteIfExists(path);
+	}
+
+	@Benchmark
+	public String region() {
+		int start = 1 + random.nextInt(LENGTH - WINDOW);
+		return fasta.getSubsequenceAt("chr1", start, start + WINDOW - 1);
+	}
+
+	@Benchmark
+	public String subSequence() {
+		int start = 1 + random.nextInt(LENGTH - WINDOW);
+		return chromosome.getSubSequence(start, start + WINDOW - 1).getSequenceAsString();
+	}
+}
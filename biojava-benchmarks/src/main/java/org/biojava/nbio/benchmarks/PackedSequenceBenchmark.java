@@ -0,0 +1,102 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.AmbiguityDNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.io.DNASequenceCreator;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A soft-masked 1 Mbp sequence with N runs, stored packed or as a list of compounds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackedSequenceBenchmark {
+
+	private static final int LENGTH = 1_000_000;
+
+	@Param({"packed", "list"})
+	public String storage;
+
+	private String text;
+	private DNASequenceCreator creator;
+	private DNASequence sequence;
+	private NucleotideCompound g, c;
+
+	@Setup
+	public void setup() throws CompoundNotFoundException {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder(LENGTH);
+		while (sb.length() < LENGTH) {
+			String run = random.nextInt(50) == 0 ? "NNNNNNNNNN" : "ACGT".charAt(random.nextInt(4)) + "";
+			sb.append(sb.length() / 300 % 2 == 0 ? run : run.toLowerCase());
+		}
+		sb.setLength(LENGTH);
+		text = sb.toString();
+
+		CompoundSet<NucleotideCompound> cs = AmbiguityDNACompoundSet.getDNACompoundSet();
+		creator = new DNASequenceCreator(cs, "packed".equals(storage) ? 0 : Integer.MAX_VALUE);
+		sequence = (DNASequence) creator.getSequence(text, 0);
+		g = cs.getCompoundForString("G");
+		c = cs.getCompoundForString("C");
+	}
+
+	@Benchmark
+	public DNASequence create() throws CompoundNotFoundException {
+		return (DNASequence) creator.getSequence(text, 0);
+	}
+
+	@Benchmark
+	public String sequenceAsString() {
+		return sequence.getSequenceAsString();
+	}
+
+	@Benchmark
+	public String subSequence() {
+		return sequence.getSubSequence(250_001, 260_000).getSequenceAsString();
+	}
+
+	@Benchmark
+	public int countCompounds() {
+		return sequence.countCompounds(g, c);
+	}
+}
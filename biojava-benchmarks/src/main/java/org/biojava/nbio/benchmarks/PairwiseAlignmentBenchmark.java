@@ -0,0 +1,90 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.alignment.Alignments;
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.SimpleGapPenalty;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.io.FastaReaderHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pairwise protein sequence alignment through
+ * {@link Alignments#getPairwiseAligner}: GLOBAL is NeedlemanWunsch, LOCAL is
+ * SmithWaterman.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PairwiseAlignmentBenchmark {
+
+	@Param({ "GLOBAL", "LOCAL", "GLOBAL_STRIPED", "LOCAL_STRIPED", "GLOBAL_LINEAR_SPACE", "LOCAL_LINEAR_SPACE" })
+	private PairwiseSequenceAlignerType type;
+
+	private ProteinSequence query;
+	private ProteinSequence target;
+	private GapPenalty gapPenalty;
+	private SubstitutionMatrix<AminoAcidCompound> matrix;
+
+	@Setup
+	public void setup() throws IOException {
+		List<ProteinSequence> sequences = new ArrayList<>(FastaReaderHelper.readFastaProteinSequence(
+				BenchmarkFixtures.stream(BenchmarkFixtures.read(BenchmarkFixtures.FASTA_PF00104))).values());
+		query = sequences.get(0);
+		target = sequences.get(1);
+		gapPenalty = new SimpleGapPenalty(10, 1);
+		matrix = SubstitutionMatrixHelper.getBlosum62();
+	}
+
+	@Benchmark
+	public SequencePair<ProteinSequence, AminoAcidCompound> align() {
+		return Alignments.getPairwiseAligner(query, target, type, gapPenalty, matrix).getPair();
+	}
+
+	@Benchmark
+	public double score() {
+		return Alignments.getPairwiseAligner(query, target, type, gapPenalty, matrix).getScore();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.StructureAlignment;
+import org.biojava.nbio.structure.align.StructureAlignmentFactory;
+import org.biojava.nbio.structure.align.ce.CeMain;
+import org.biojava.nbio.structure.align.fatcat.FatCatRigid;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pairwise structure alignment of the alpha and beta chains of haemoglobin
+ * (4hhb.A vs 4hhb.B) with CE and rigid FATCAT.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StructureAlignmentBenchmark {
+
+	@Param({ CeMain.algorithmName, FatCatRigid.algorithmName })
+	private String algorithm;
+
+	private Atom[] ca1;
+	private Atom[] ca2;
+
+	@Setup
+	public void setup() throws StructureException {
+		Structure s = BenchmarkFixtures.load4hhb();
+		ca1 = StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB("A"));
+		ca2 = StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB("B"));
+	}
+
+	@Benchmark
+	public AFPChain align() throws StructureException {
+		StructureAlignment aligner = StructureAlignmentFactory.getAlgorithm(algorithm);
+		// the aligners may modify the atoms (e.g. for the superposition), so align clones
+		return aligner.align(StructureTools.cloneAtomArray(ca1), StructureTools.cloneAtomArray(ca2));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.BcifFileReader;
+import org.biojava.nbio.structure.io.CifFileReader;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.io.mmtf.MmtfActions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the structure file formats, from in-memory data (MMTF from a
+ * temporary file, as {@link MmtfActions#readFromFile(Path)} needs a path).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StructureParsingBenchmark {
+
+	private byte[] pdb;
+	private byte[] cif;
+	private byte[] bcif;
+	private Path mmtf;
+	private FileParsingParameters columnar;
+
+	@Setup
+	public void setup() throws IOException {
+		BenchmarkFixtures.useLocalChemComps();
+		pdb = BenchmarkFixtures.read(BenchmarkFixtures.PDB_4HHB);
+		cif = BenchmarkFixtures.read(BenchmarkFixtures.CIF_4HHB);
+		bcif = BenchmarkFixtures.read(BenchmarkFixtures.BCIF_5PTI);
+		mmtf = Files.createTempFile("biojava-benchmark", ".mmtf");
+		Files.write(mmtf, BenchmarkFixtures.read(BenchmarkFixtures.MMTF_4CUP));
+		columnar = new FileParsingParameters();
+		columnar.setColumnarIngest(true);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(mmtf);
+	}
+
+	@Benchmark
+	public Structure pdbFileParser() throws IOException {
+		return new PDBFileParser().parsePDBFile(BenchmarkFixtures.stream(pdb));
+	}
+
+	@Benchmark
+	public Structure cifFileReader() throws IOException {
+		return new CifFileReader().getStructure(BenchmarkFixtures.stream(cif));
+	}
+
+	@Benchmark
+	public Structure bcifFileReader() throws IOException {
+		return new BcifFileReader().getStructure(BenchmarkFixtures.stream(bcif));
+	}
+
+	@Benchmark
+	public Structure bcifFileReaderColumnar() throws IOException {
+		BcifFileReader reader = new BcifFileReader();
+		reader.setFileParsingParameters(columnar);
+		return reader.getStructure(BenchmarkFixtures.stream(bcif));
+	}
+
+	@Benchmark
+	public Structure mmtfReadFromFile() throws IOException {
+		return MmtfActions.readFromFile(mmtf);
+	}
+}
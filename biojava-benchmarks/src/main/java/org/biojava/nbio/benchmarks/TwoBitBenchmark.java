@@ -0,0 +1,118 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.genome.parsers.twobit.TwoBitFile;
+import org.biojava.nbio.genome.parsers.twobit.TwoBitParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random 100 bp windows of a synthetic 10 Mbp .2bit chromosome, with the stream parser and with
+ * {@link TwoBitFile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TwoBitBenchmark {
+
+	private static final int LENGTH = 10_000_000;
+	private static final int WINDOW = 100;
+
+	private Path path;
+	private TwoBitParser parser;
+	private TwoBitFile twoBit;
+
+	@Setup
+	public void setup() throws Exception {
+		path = Files.createTempFile("biojava-benchmark", ".2bit");
+		Random bases = new Random(1);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			// header, one sequence "chr1" and its record without N or mask blocks
+			for (int value : new int[] {0x1A412743, 0, 1, 0}) {
+				out.writeInt(Integer.reverseBytes(value));
+			}
+			out.writeByte(4);
+			out.writeBytes("chr1");
+			out.writeInt(Integer.reverseBytes(16 + 9));
+			for (int value : new int[] {LENGTH, 0, 0, 0}) {
+				out.writeInt(Integer.reverseBytes(value));
+			}
+			byte[] packed = new byte[LENGTH / 4];
+			bases.nextBytes(packed);
+			out.write(packed);
+		}
+		parser = new TwoBitParser(path.toFile());
+		parser.setCurrentSequence("chr1");
+		twoBit = new TwoBitFile(path);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		parser.close();
+		parser.closeParser();
+		twoBit.close();
+		Files.deleteIfExists(path);
+	}
+
+	@Benchmark
+	public String parser() throws IOException {
+		int start = ThreadLocalRandom.current().nextInt(LENGTH - WINDOW);
+		synchronized (parser) {
+			return parser.loadFragment(start, WINDOW);
+		}
+	}
+
+	@Benchmark
+	public String twoBitFile() {
+		int start = ThreadLocalRandom.current().nextInt(LENGTH - WINDOW);
+		return twoBit.fetch("chr1", start, start + WINDOW);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String twoBitFile4Threads() {
+		int start = ThreadLocalRandom.current().nextInt(LENGTH - WINDOW);
+		return twoBit.fetch("chr1", start, start + WINDOW);
+	}
+}
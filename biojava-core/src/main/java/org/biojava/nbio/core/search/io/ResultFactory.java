@@ -23,6 +23,7 @@ package org.biojava.nbio.core.search.io;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.Iterator;
 import java.util.List;
 import org.biojava.nbio.core.sequence.template.Sequence;
 
@@ -52,6 +53,42 @@ public interface ResultFactory {
 	 * @throws ParseException
 	 */
 	List<Result> createObjects(double maxEScore) throws IOException, ParseException;
+	/**
+	 * Launch the parsing and get back the Result objects one at a time, so that
+	 * reports larger than memory can be processed.
+	 * Hsp with an e-value above maxEScore are left out, as in {@link #createObjects(double)}.
+	 * The parsing of each result happens while iterating: I/O and format errors met
+	 * then are thrown as {@link java.io.UncheckedIOException}.
+	 * <p>
+	 * The default implementation collects all the results with {@link #createObjects(double)};
+	 * factories that can parse incrementally override it. The file is closed once the
+	 * iterator is exhausted; an iterator that may be left before that must be closed,
+	 * see {@link ResultIterator}.
+	 *
+	 * @param maxEScore
+	 * @return
+	 * @throws IOException
+	 * @throws ParseException
+	 * @since 7.2.3
+	 */
+	default ResultIterator createIterator(double maxEScore) throws IOException, ParseException {
+		Iterator<Result> results = createObjects(maxEScore).iterator();
+		return new ResultIterator() {
+			@Override
+			public boolean hasNext() {
+				return results.hasNext();
+			}
+
+			@Override
+			public Result next() {
+				return results.next();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
 	/**
 	 * The factory that implements this method will be able to save the Search results
 	 * to a file in the same format that it is able to read.
@@ -0,0 +1,47 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.search.io;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * An iterator over the results of a search report, which keeps the report open until the last result has
+ * been returned, an error was met or it is closed. An iterator that may be left before it is exhausted
+ * should be closed, with a try-with-resources statement:
+ * <pre>
+ * try (ResultIterator results = factory.createIterator(1e-10)) {
+ *     Result first = results.next();
+ * }
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public interface ResultIterator extends Iterator<Result>, AutoCloseable {
+
+	/**
+	 * Closes the report. Does nothing if it is already closed.
+	 *
+	 * @throws UncheckedIOException if the report cannot be closed
+	 */
+	@Override
+	void close();
+}
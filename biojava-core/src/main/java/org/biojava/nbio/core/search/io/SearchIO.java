@@ -22,12 +22,11 @@ package org.biojava.nbio.core.search.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.ParseException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
-import java.util.NoSuchElementException;
 import java.util.Map;
 
 /**
@@ -50,11 +49,6 @@ public class SearchIO implements Iterable<Result>{
 	 * will not be loaded.
 	 */
 	private double evalueThreshold = Double.MAX_VALUE;
-	/**
-	 * contains one object per query sequence describing search results.
-	 * Sometime also referred as Iterations.
-	 */
-	private List<Result> results;
 
 	private final String NOT_SUPPORTED_FILE_EXCEPTION =
 			"This extension is not associated with any parser. You can try to specify a ResultFactory object.";
@@ -62,13 +56,13 @@ public class SearchIO implements Iterable<Result>{
 	/**
 	 * Build a SearchIO reader and tries to select the appropriate parser inspecting
 	 * file extension.
+	 * Results are parsed while iterating, one query at a time, see {@link #iterator()}.
 	 *
 	 * @param f
 	 */
 	public SearchIO (File f)  throws IOException, ParseException{
 		factory = guessFactory(f);
 		file = f;
-		if (file.exists()) readResults();
 	}
 
 	/**
@@ -84,7 +78,6 @@ public class SearchIO implements Iterable<Result>{
 	public SearchIO (File f, ResultFactory factory) throws IOException, ParseException{
 		file = f;
 		this.factory = factory;
-		if (file.exists()) readResults();
 	}
 	/**
 	 * Build a SearchIO reader, specify a ResultFactory object to be used for parsing
@@ -101,19 +94,6 @@ public class SearchIO implements Iterable<Result>{
 		file = f;
 		this.factory = factory;
 		this.evalueThreshold = maxEvalue;
-		if (file.exists()) readResults();
-	}
-
-	/**
-	 * This method is declared private because it is the default action of constructor
-	 * when file exists
-	 *
-	 * @throws java.io.IOException for file access related issues
-	 * @throws java.text.ParseException for file format related issues
-	 */
-	private void readResults() throws IOException, ParseException {
-		factory.setFile(file);
-		results = factory.createObjects(evalueThreshold);
 	}
 
 	/**
@@ -162,27 +142,33 @@ public class SearchIO implements Iterable<Result>{
 		return evalueThreshold;
 	}
 
+	/**
+	 * Iterates over the results, one object per query sequence (sometime also referred
+	 * as Iterations). Each call parses the file again, through
+	 * {@link ResultFactory#createIterator(double)}: with factories that parse incrementally,
+	 * such as the BLAST tabular and XML parsers, only the current result is held in memory.
+	 * I/O and file format errors are thrown as {@link UncheckedIOException}.
+	 * <p>
+	 * The file stays open until the last result has been returned. An iteration that may stop
+	 * early, e.g. on a break, should close the iterator in a try-with-resources statement:
+	 * <pre>
+	 * try (ResultIterator results = searchIO.iterator()) {
+	 *     ...
+	 * }
+	 * </pre>
+	 */
 	@Override
-	public Iterator<Result> iterator() {
-		return new Iterator<Result>() {
-			int currentResult = 0;
-			@Override
-			public boolean hasNext() {
-				return currentResult < results.size();
-			}
-
-			@Override
-			public Result next() {
-				if(!hasNext()){
-					throw new NoSuchElementException();
-				}
-				return results.get(currentResult++);
-			}
-
-			@Override
-			public void remove() {
-				throw new UnsupportedOperationException("The remove operation is not supported by this iterator");
+	public ResultIterator iterator() {
+		try {
+			// factories guessed from the extension are shared
+			synchronized (factory) {
+				factory.setFile(file);
+				return factory.createIterator(evalueThreshold);
 			}
-		};
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ParseException e) {
+			throw new UncheckedIOException(new IOException(e.getMessage(), e));
+		}
 	}
 }
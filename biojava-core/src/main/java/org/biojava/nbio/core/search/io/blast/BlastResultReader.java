@@ -0,0 +1,121 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.search.io.blast;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.biojava.nbio.core.search.io.Result;
+import org.biojava.nbio.core.search.io.ResultIterator;
+
+/**
+ * Reads the results of a BLAST report one query at a time.
+ * <p>
+ * As an {@link Iterator}, I/O and parse errors are thrown as {@link UncheckedIOException}s, and the report
+ * is closed once the last result has been returned, an error was met or {@link #close()} is called.
+ *
+ * @since 7.2.3
+ */
+abstract class BlastResultReader implements ResultIterator {
+
+	private Result next;
+	private boolean done;
+
+	/**
+	 * Read the result of the next query.
+	 *
+	 * @return the result, or null at the end of the report
+	 */
+	abstract Result read() throws IOException, ParseException;
+
+	/**
+	 * Close the report; may be called more than once.
+	 */
+	abstract void closeReport() throws IOException;
+
+	/**
+	 * Read the remaining results and close the report.
+	 */
+	List<Result> readAll() throws IOException, ParseException {
+		try {
+			List<Result> results = new ArrayList<>();
+			for (Result result = read(); result != null; result = read()) {
+				results.add(result);
+			}
+			return results;
+		} finally {
+			done = true;
+			closeReport();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !done) {
+			try {
+				next = read();
+			} catch (IOException e) {
+				throw failed(e);
+			} catch (ParseException e) {
+				throw failed(new IOException(e.getMessage(), e));
+			}
+			if (next == null) {
+				close();
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Result next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Result result = next;
+		next = null;
+		return result;
+	}
+
+	@Override
+	public void close() {
+		done = true;
+		next = null;
+		try {
+			closeReport();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private UncheckedIOException failed(IOException e) {
+		done = true;
+		try {
+			closeReport();
+		} catch (IOException suppressed) {
+			e.addSuppressed(suppressed);
+		}
+		return new UncheckedIOException(e);
+	}
+}
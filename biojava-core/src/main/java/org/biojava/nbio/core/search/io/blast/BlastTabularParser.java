@@ -20,23 +20,20 @@
  */
 package org.biojava.nbio.core.search.io.blast;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
 import org.biojava.nbio.core.search.io.Hit;
 import org.biojava.nbio.core.search.io.Hsp;
 import org.biojava.nbio.core.search.io.Result;
 import org.biojava.nbio.core.search.io.ResultFactory;
+import org.biojava.nbio.core.search.io.ResultIterator;
 import org.biojava.nbio.core.sequence.template.Sequence;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import java.util.Map;
 
 /**
@@ -62,32 +59,11 @@ public class BlastTabularParser implements ResultFactory {
 		IMPROVED,
 		LITERAL
 	}
-	private static final Logger log = LoggerFactory.getLogger(BlastTabularParser.class);
-
 
 	private File targetFile;
-	private int fileLinesCount;
 	private PARSING_CONSISTENCY parsingConsistency = PARSING_CONSISTENCY.IMPROVED;
 
 
-	// data imported private:
-	int queryIdNumber = 0;
-	Map<String, String> queryIdMapping = new HashMap<>();
-	String programName=null, queryName = null, databaseFile = null;
-	private String queryId      ;
-	private String subjectId    ;
-	private String percIdentity ;
-	private String alnLength    ;
-	private String mismatchCount;
-	private String gapOpenCount ;
-	private String queryStart   ;
-	private String queryEnd     ;
-	private String subjectStart ;
-	private String subjectEnd   ;
-	private String evalue       ;
-	private String bitScore     ;
-
-
 	@Override
 	public List<String> getFileExtensions() {
 		List<String> l = new ArrayList<>();
@@ -103,118 +79,143 @@ public class BlastTabularParser implements ResultFactory {
 
 	@Override
 	public List<Result> createObjects(double maxEScore) throws IOException, ParseException {
-		List<Result> results = new ArrayList<>();
+		return new TabularResultReader(maxEScore).readAll();
+	}
 
-		log.info("Query for hits");
-		LineNumberReader  lnr = new LineNumberReader(new FileReader(targetFile));
-		lnr.skip(Long.MAX_VALUE);
-		fileLinesCount = lnr.getLineNumber();
-		log.info(fileLinesCount + " hits approximately in all results");
-		lnr.close();
+	/**
+	 * Parses the report one query at a time: only the hits of the current query are held in memory.
+	 * Each line is split into its fields, and hsp above the e-value threshold are dropped before
+	 * their other fields are converted.
+	 */
+	@Override
+	public ResultIterator createIterator(double maxEScore) throws IOException, ParseException {
+		return new TabularResultReader(maxEScore);
+	}
+
+	private class TabularResultReader extends BlastResultReader {
+		private final BufferedReader reader;
+		private final double maxEScore;
+		private final PARSING_CONSISTENCY parsingConsistency = BlastTabularParser.this.parsingConsistency;
 
-		FileInputStream fileInputStream = new FileInputStream(targetFile);
-		Scanner scanner = new Scanner(fileInputStream);
+		// data imported private:
+		private int queryIdNumber = 0;
+		private final Map<String, String> queryIdMapping = new HashMap<>();
+		private String programName = null, queryName = null, databaseFile = null;
+		private String queryId;
+		// the current line split in fields, null at the end of the report
+		private String[] fields;
+		private String line;
+		private int lineNumber;
 
-		String line = fetchData(scanner);
-		int lineNumber=0;
-		while (lineNumber < fileLinesCount){
+		TabularResultReader(double maxEScore) throws IOException, ParseException {
+			if (targetFile == null) throw new IllegalStateException("File to be parsed not specified.");
+			this.maxEScore = maxEScore;
+			reader = new BufferedReader(new FileReader(targetFile), 1 << 16);
 			try {
-				BlastResultBuilder resultBuilder = new BlastResultBuilder();
-				resultBuilder
-						.setQueryID(queryId)
-						.setDbFile(databaseFile)
-						.setProgram(programName)
-						.setQueryDef(queryName)
-						.setReference(blastReference);
+				fetchData();
+			} catch (IOException | ParseException | RuntimeException e) {
+				reader.close();
+				throw e;
+			}
+		}
 
-				List<Hit> hits = new ArrayList<>();
+		@Override
+		Result read() throws IOException, ParseException {
+			if (fields == null) return null;
 
-				String currentQueryId = queryId;
-				while (currentQueryId.equals(queryId) && lineNumber < fileLinesCount){
-					BlastHitBuilder hitBuilder = new BlastHitBuilder();
+			BlastResultBuilder resultBuilder = new BlastResultBuilder();
+			resultBuilder
+					.setQueryID(queryId)
+					.setDbFile(databaseFile)
+					.setProgram(programName)
+					.setQueryDef(queryName)
+					.setReference(blastReference);
 
-					List<Hsp> hsps = new ArrayList<>();
+			List<Hit> hits = new ArrayList<>();
 
-					String currentSubjectId=subjectId;
-					while (currentSubjectId.equals(subjectId) && lineNumber < fileLinesCount){
-						if (Double.valueOf(evalue) > maxEScore) {
-							line = fetchData(scanner);
-							lineNumber++;
-							continue;
+			String currentQueryId = queryId;
+			while (fields != null && currentQueryId.equals(queryId)) {
+				BlastHitBuilder hitBuilder = new BlastHitBuilder();
+
+				List<Hsp> hsps = new ArrayList<>();
+
+				String currentSubjectId = fields[1];
+				while (fields != null && currentQueryId.equals(queryId) && currentSubjectId.equals(fields[1])) {
+					try {
+						double evalue = Double.parseDouble(fields[10]);
+						if (evalue <= maxEScore) {
+							BlastHspBuilder hspBuilder = new BlastHspBuilder();
+							hspBuilder
+								.setHspAlignLen(Integer.valueOf(fields[3]))
+								.setHspGaps(Integer.valueOf(fields[5]))
+								.setHspQueryFrom(Integer.valueOf(fields[6]))
+								.setHspQueryTo(Integer.valueOf(fields[7]))
+								.setHspHitFrom(Integer.valueOf(fields[8]))
+								.setHspHitTo(Integer.valueOf(fields[9]))
+								.setHspEvalue(evalue)
+								.setHspBitScore(Double.valueOf(fields[11]))
+								.setPercentageIdentity(Double.valueOf(fields[2])/100)
+								.setMismatchCount(Integer.valueOf(fields[4]));
+							hsps.add(hspBuilder.createBlastHsp());
 						}
-						BlastHspBuilder hspBuilder = new BlastHspBuilder();
-						hspBuilder
-							.setHspAlignLen(Integer.valueOf(alnLength))
-							.setHspGaps(Integer.valueOf(gapOpenCount))
-							.setHspQueryFrom(Integer.valueOf(queryStart))
-							.setHspQueryTo(Integer.valueOf(queryEnd))
-							.setHspHitFrom(Integer.valueOf(subjectStart))
-							.setHspHitTo(Integer.valueOf(subjectEnd))
-							.setHspEvalue(Double.valueOf(evalue))
-							.setHspBitScore(Double.valueOf(bitScore))
-							.setPercentageIdentity(Double.valueOf(percIdentity)/100)
-							.setMismatchCount(Integer.valueOf(mismatchCount));
-						hsps.add(hspBuilder.createBlastHsp());
-						if (scanner.hasNext()) line = fetchData(scanner);
-						lineNumber++;
+					} catch (NumberFormatException e) {
+						throw new ParseException("Invalid numeric value met at line "+ lineNumber+" in:\n"+line,0);
 					}
-					hits.add(hitBuilder.setHsps(hsps).createBlastHit());
+					fetchData();
 				}
-				results.add(resultBuilder.setHits(hits).createBlastResult());
-			} catch (NumberFormatException e) {
-				throw new ParseException("Invalid numeric value met at line "+ lineNumber+" in:\n"+line,0);
+				hits.add(hitBuilder.setHsps(hsps).createBlastHit());
 			}
+			return resultBuilder.setHits(hits).createBlastResult();
 		}
-		return results;
-	}
 
-	private String fetchData(Scanner scanner){
-		String line;
-		String[] split;
+		/**
+		 * Moves to the next hsp line, reading the header comments before it.
+		 */
+		private void fetchData() throws IOException, ParseException {
+			line = reader.readLine();
+			lineNumber++;
+			while (line != null && (line.startsWith("#") || line.trim().isEmpty())) {
+				// blast tabular with header options contains some more informations
+				if (line.matches("#\\s.?BLAST.+")) programName = line.replace("#\\s","");
+				if (line.startsWith("# Query:")) queryName = line.replace("# Query: ","");
+				if (line.startsWith("# Database:")) databaseFile = line.replace("# Database: ","");
 
-		line = scanner.nextLine();
-		while (line.startsWith("#")){
-			// blast tabular with header options contains some more informations
-			if (line.matches("#\\s.?BLAST.+")) programName = line.replace("#\\s","");
-			if (line.startsWith("# Query:")) queryName = line.replace("# Query: ","");
-			if (line.startsWith("# Database:")) databaseFile = line.replace("# Database: ","");
-
-			// needed because blast report can end with a comment...
-			if (!scanner.hasNext()) return null;
-			line = scanner.nextLine();
-		}
+				// needed because blast report can end with a comment...
+				line = reader.readLine();
+				lineNumber++;
+			}
+			if (line == null) {
+				fields = null;
+				return;
+			}
 
-		// Here, programName != null checks if there was a header in the file
-		boolean headerFound = programName != null;
+			// Here, programName != null checks if there was a header in the file
+			boolean headerFound = programName != null;
 
-		split = line.split("\\t");
-		queryId      =split[0];
-		subjectId    =split[1];
-		percIdentity =split[2];
-		alnLength    =split[3];
-		mismatchCount=split[4];
-		gapOpenCount =split[5];
-		queryStart   =split[6];
-		queryEnd     =split[7];
-		subjectStart =split[8];
-		subjectEnd   =split[9];
-		evalue       =split[10];
-		bitScore     =split[11];
+			fields = line.split("\\t");
+			if (fields.length < 12) {
+				throw new ParseException("Expected 12 tab separated fields at line "+ lineNumber+" in:\n"+line,0);
+			}
+			queryId = fields[0];
 
-		// blast tabular reports only the first word of the query name.
-		// If it was specified in the header it is better to use that definition
-		if (parsingConsistency == PARSING_CONSISTENCY.IMPROVED && headerFound) {
-			if (queryIdMapping.get(queryId)==null) {
-				queryIdNumber ++;
-				queryIdMapping.put(queryId,"Query_" + queryIdNumber);
+			// blast tabular reports only the first word of the query name.
+			// If it was specified in the header it is better to use that definition
+			if (parsingConsistency == PARSING_CONSISTENCY.IMPROVED && headerFound) {
+				if (queryIdMapping.get(queryId)==null) {
+					queryIdNumber ++;
+					queryIdMapping.put(queryId,"Query_" + queryIdNumber);
+				}
+				// If a complete definition of the query name was readed, than we can use
+				// a queryID schema that is consistent with blast xml report
+				queryId = queryIdMapping.get(queryId);
 			}
-			// If a complete definition of the query name was readed, than we can use
-			// a queryID schema that is consistent with blast xml report
-			queryId = queryIdMapping.get(queryId);
+			if (!headerFound) queryName = queryId;
 		}
-		if (!headerFound) queryName = queryId;
 
-		return line;
+		@Override
+		void closeReport() throws IOException {
+			reader.close();
+		}
 	}
 
 	@Override
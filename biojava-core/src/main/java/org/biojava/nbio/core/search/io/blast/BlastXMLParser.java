@@ -25,21 +25,23 @@ import org.biojava.nbio.core.search.io.Hit;
 import org.biojava.nbio.core.search.io.Hsp;
 import org.biojava.nbio.core.search.io.Result;
 import org.biojava.nbio.core.search.io.ResultFactory;
+import org.biojava.nbio.core.search.io.ResultIterator;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPathException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.biojava.nbio.core.sequence.template.Sequence;
-import org.biojava.nbio.core.util.XMLHelper;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
 
 /**
  * Re-designed by Paolo Pavan on the footprint of:
@@ -54,7 +56,6 @@ import org.xml.sax.SAXException;
  */
 public class BlastXMLParser implements ResultFactory {
 	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(Hsp.class);
-	Document blastDoc = null;
 	private File targetFile;
 	private List<Sequence> queryReferences, databaseReferences;
 	private Map<String,Sequence> queryReferencesMap, databaseReferencesMap;
@@ -67,130 +68,253 @@ public class BlastXMLParser implements ResultFactory {
 		targetFile = f;
 	}
 
-	private void readFile(String blastFile) throws IOException, ParseException{
-		logger.info("Start reading " + blastFile);
-		try {
-			blastDoc = XMLHelper.loadXML(blastFile);
-		} catch (SAXException ex) {
-			logger.error("A parsing error has occurred while reading XML blast file");
-			throw new ParseException(ex.getMessage(),0);
-		} catch (ParserConfigurationException ex) {
-			logger.error("Internal XML parser non properly configured");
-			throw new ParseException(ex.getMessage(),0);
-		}
-		logger.info("Read finished");
+	@Override
+	public List<Result> createObjects(double maxEScore) throws IOException, ParseException {
+		List<Result> results = new XmlResultReader(maxEScore).readAll();
+		logger.info("Parsing of "+targetFile+" finished.");
+		return results;
 	}
 
+	/**
+	 * Parses the report one Iteration at a time with a StAX reader: only the hits of the
+	 * current query are held in memory, and the rest of an hsp is skipped as soon as its
+	 * e-value is found above the threshold.
+	 */
 	@Override
-	public List<Result> createObjects(double maxEScore) throws IOException, ParseException {
-		if (targetFile == null) throw new IllegalStateException("File to be parsed not specified.");
-
-		// getAbsolutePath throws SecurityException
-		readFile(targetFile.getAbsolutePath());
-		// create mappings between sequences and blast id
-		mapIds();
-
-		List<Result> resultsCollection;
-		List<Hit> hitsCollection;
-		List<Hsp> hspsCollection;
-
-		try {
-			// select top level elements
-			String program = XMLHelper.selectSingleElement(blastDoc.getDocumentElement(),"BlastOutput_program").getTextContent();
-			String version = XMLHelper.selectSingleElement(blastDoc.getDocumentElement(),"BlastOutput_version").getTextContent();
-			String reference = XMLHelper.selectSingleElement(blastDoc.getDocumentElement(),"BlastOutput_reference").getTextContent();
-			String dbFile = XMLHelper.selectSingleElement(blastDoc.getDocumentElement(),"BlastOutput_db").getTextContent();
-
-			logger.info("Query for hits in "+ targetFile);
-			List<Element> IterationsList = XMLHelper.selectElements(blastDoc.getDocumentElement(), "BlastOutput_iterations/Iteration[Iteration_hits]");
-			logger.info(IterationsList.size() + " results");
-
-			resultsCollection = new ArrayList<>();
-			for (Element element : IterationsList) {
-				BlastResultBuilder resultBuilder = new BlastResultBuilder();
-				// will add BlastOutput* key sections in the result object
-				resultBuilder
-					.setProgram(program)
-					.setVersion(version)
-					.setReference(reference)
-					.setDbFile(dbFile);
+	public ResultIterator createIterator(double maxEScore) throws IOException, ParseException {
+		return new XmlResultReader(maxEScore);
+	}
+
+	private class XmlResultReader extends BlastResultReader {
+		private final InputStream in;
+		private final XMLStreamReader reader;
+		private final double maxEScore;
+		private final Map<String,Sequence> queryReferencesMap, databaseReferencesMap;
+		// BlastOutput* key sections, copied in each result
+		private String program, version, reference, dbFile;
+
+		XmlResultReader(double maxEScore) throws IOException, ParseException {
+			if (targetFile == null) throw new IllegalStateException("File to be parsed not specified.");
+			this.maxEScore = maxEScore;
+			// create mappings between sequences and blast id
+			mapIds();
+			this.queryReferencesMap = BlastXMLParser.this.queryReferencesMap;
+			this.databaseReferencesMap = BlastXMLParser.this.databaseReferencesMap;
+
+			logger.info("Start reading " + targetFile);
+			in = new BufferedInputStream(new FileInputStream(targetFile), 1 << 16);
+			try {
+				XMLInputFactory factory = XMLInputFactory.newInstance();
+				// the NCBI DTD is not needed to parse the report, and must not be downloaded
+				factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+				factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+				factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+				reader = factory.createXMLStreamReader(in);
+			} catch (XMLStreamException e) {
+				in.close();
+				logger.error("A parsing error has occurred while reading XML blast file");
+				throw new ParseException(e.getMessage(), 0);
+			}
+		}
 
+		@Override
+		Result read() throws IOException, ParseException {
+			try {
+				while (nextIteration()) {
+					Result result = readIteration();
+					if (result != null) return result;
+				}
+				return null;
+			} catch (XMLStreamException e) {
+				logger.error("A parsing error has occurred while reading XML blast file");
+				throw new ParseException(e.getMessage(), 0);
+			}
+		}
+
+		/**
+		 * Moves to the start tag of the next Iteration, reading the BlastOutput* sections before it.
+		 * @return false at the end of the report
+		 */
+		private boolean nextIteration() throws XMLStreamException {
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+				switch (reader.getLocalName()) {
+				case "BlastOutput_program": program = reader.getElementText(); break;
+				case "BlastOutput_version": version = reader.getElementText(); break;
+				case "BlastOutput_reference": reference = reader.getElementText(); break;
+				case "BlastOutput_db": dbFile = reader.getElementText(); break;
+				case "Iteration": return true;
+				default: break;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the result, or null for an Iteration without Iteration_hits
+		 */
+		private Result readIteration() throws XMLStreamException, ParseException {
+			BlastResultBuilder resultBuilder = new BlastResultBuilder();
+			// will add BlastOutput* key sections in the result object
+			resultBuilder
+				.setProgram(program)
+				.setVersion(version)
+				.setReference(reference)
+				.setDbFile(dbFile);
+
+			List<Hit> hitsCollection = null;
+			while (nextChild()) {
 				// Iteration* section keys:
-				resultBuilder
-					.setIterationNumber(Integer.valueOf(XMLHelper.selectSingleElement(element,"Iteration_iter-num").getTextContent()))
-					.setQueryID(XMLHelper.selectSingleElement(element,"Iteration_query-ID").getTextContent())
-					.setQueryDef(XMLHelper.selectSingleElement(element, "Iteration_query-def").getTextContent())
-					.setQueryLength(Integer.valueOf(XMLHelper.selectSingleElement(element,"Iteration_query-len").getTextContent()));
-
-				if (queryReferences != null) resultBuilder.setQuerySequence(queryReferencesMap.get(
-						XMLHelper.selectSingleElement(element,"Iteration_query-ID").getTextContent()
-				));
-
-
-
-				Element iterationHitsElement = XMLHelper.selectSingleElement(element, "Iteration_hits");
-				List<Element> hitList = XMLHelper.selectElements(iterationHitsElement, "Hit");
-
-				hitsCollection = new ArrayList<>();
-				for (Element hitElement : hitList) {
-					BlastHitBuilder blastHitBuilder = new BlastHitBuilder();
-					blastHitBuilder
-						.setHitNum(Integer.valueOf(XMLHelper.selectSingleElement(hitElement, "Hit_num").getTextContent()))
-						.setHitId(XMLHelper.selectSingleElement(hitElement, "Hit_id").getTextContent())
-						.setHitDef(XMLHelper.selectSingleElement(hitElement, "Hit_def").getTextContent())
-						.setHitAccession(XMLHelper.selectSingleElement(hitElement, "Hit_accession").getTextContent())
-						.setHitLen(Integer.valueOf(XMLHelper.selectSingleElement(hitElement, "Hit_len").getTextContent()));
-
-					if (databaseReferences != null) blastHitBuilder.setHitSequence(databaseReferencesMap.get(
-						XMLHelper.selectSingleElement(hitElement, "Hit_id").getTextContent()
-					));
-
-					Element hithspsElement = XMLHelper.selectSingleElement(hitElement, "Hit_hsps");
-					List<Element> hspList = XMLHelper.selectElements(hithspsElement, "Hsp");
-
-					hspsCollection = new ArrayList<>();
-					for (Element hspElement : hspList) {
-						Double evalue = Double.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_evalue").getTextContent());
-
-						// add the new hsp only if it pass the specified threshold. It can save lot of memory and some parsing time
-						if (evalue <= maxEScore) {
-							BlastHspBuilder blastHspBuilder = new BlastHspBuilder();
-							blastHspBuilder
-								.setHspNum(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_num").getTextContent()))
-								.setHspBitScore(Double.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_bit-score").getTextContent()))
-								.setHspScore(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_score").getTextContent()))
-								.setHspEvalue(evalue)
-								.setHspQueryFrom(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_query-from").getTextContent()))
-								.setHspQueryTo(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_query-to").getTextContent()))
-								.setHspHitFrom(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_hit-from").getTextContent()))
-								.setHspHitTo(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_hit-to").getTextContent()))
-								.setHspQueryFrame(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_query-frame").getTextContent()))
-								.setHspHitFrame(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_hit-frame").getTextContent()))
-								.setHspIdentity(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_identity").getTextContent()))
-								.setHspPositive(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_positive").getTextContent()))
-								.setHspGaps(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_gaps").getTextContent()))
-								.setHspAlignLen(Integer.valueOf(XMLHelper.selectSingleElement(hspElement, "Hsp_align-len").getTextContent()))
-								.setHspQseq(XMLHelper.selectSingleElement(hspElement, "Hsp_qseq").getTextContent())
-								.setHspHseq(XMLHelper.selectSingleElement(hspElement, "Hsp_hseq").getTextContent())
-								.setHspIdentityString(XMLHelper.selectSingleElement(hspElement, "Hsp_midline").getTextContent());
-
-							hspsCollection.add(blastHspBuilder.createBlastHsp());
+				switch (reader.getLocalName()) {
+				case "Iteration_iter-num": resultBuilder.setIterationNumber(integer()); break;
+				case "Iteration_query-ID":
+					String queryId = reader.getElementText();
+					resultBuilder.setQueryID(queryId);
+					if (queryReferencesMap != null) resultBuilder.setQuerySequence(queryReferencesMap.get(queryId));
+					break;
+				case "Iteration_query-def": resultBuilder.setQueryDef(reader.getElementText()); break;
+				case "Iteration_query-len": resultBuilder.setQueryLength(integer()); break;
+				case "Iteration_hits":
+					hitsCollection = new ArrayList<>();
+					while (nextChild()) {
+						if (reader.getLocalName().equals("Hit")) hitsCollection.add(readHit());
+						else skip();
+					}
+					break;
+				default: skip();
+				}
+			}
+			if (hitsCollection == null) return null;
+			// finally set the computed Hit collection to the result
+			resultBuilder.setHits(hitsCollection);
+			return resultBuilder.createBlastResult();
+		}
+
+		private Hit readHit() throws XMLStreamException, ParseException {
+			BlastHitBuilder blastHitBuilder = new BlastHitBuilder();
+			List<Hsp> hspsCollection = new ArrayList<>();
+			while (nextChild()) {
+				switch (reader.getLocalName()) {
+				case "Hit_num": blastHitBuilder.setHitNum(integer()); break;
+				case "Hit_id":
+					String hitId = reader.getElementText();
+					blastHitBuilder.setHitId(hitId);
+					if (databaseReferencesMap != null) blastHitBuilder.setHitSequence(databaseReferencesMap.get(hitId));
+					break;
+				case "Hit_def": blastHitBuilder.setHitDef(reader.getElementText()); break;
+				case "Hit_accession": blastHitBuilder.setHitAccession(reader.getElementText()); break;
+				case "Hit_len": blastHitBuilder.setHitLen(integer()); break;
+				case "Hit_hsps":
+					while (nextChild()) {
+						if (!reader.getLocalName().equals("Hsp")) {
+							skip();
+							continue;
 						}
+						Hsp hsp = readHsp();
+						if (hsp != null) hspsCollection.add(hsp);
 					}
-					// finally set the computed hsp collection and create Hit object
-					blastHitBuilder.setHsps(hspsCollection);
-					hitsCollection.add(blastHitBuilder.createBlastHit());
+					break;
+				default: skip();
 				}
-				// finally set the computed Hit collection to the result
-				resultBuilder.setHits(hitsCollection);
-				resultsCollection.add(resultBuilder.createBlastResult());
 			}
-		} catch (XPathException e) {
-			throw new ParseException(e.getMessage(),0);
+			// finally set the computed hsp collection and create Hit object
+			blastHitBuilder.setHsps(hspsCollection);
+			return blastHitBuilder.createBlastHit();
+		}
+
+		/**
+		 * @return the hsp, or null if it does not pass the e-value threshold
+		 */
+		private Hsp readHsp() throws XMLStreamException, ParseException {
+			BlastHspBuilder blastHspBuilder = new BlastHspBuilder();
+			while (nextChild()) {
+				switch (reader.getLocalName()) {
+				case "Hsp_num": blastHspBuilder.setHspNum(integer()); break;
+				case "Hsp_bit-score": blastHspBuilder.setHspBitScore(decimal()); break;
+				case "Hsp_score": blastHspBuilder.setHspScore(integer()); break;
+				case "Hsp_evalue":
+					double evalue = decimal();
+					// add the new hsp only if it pass the specified threshold. It can save lot of memory and some parsing time
+					if (evalue > maxEScore) {
+						while (nextChild()) skip();
+						return null;
+					}
+					blastHspBuilder.setHspEvalue(evalue);
+					break;
+				case "Hsp_query-from": blastHspBuilder.setHspQueryFrom(integer()); break;
+				case "Hsp_query-to": blastHspBuilder.setHspQueryTo(integer()); break;
+				case "Hsp_hit-from": blastHspBuilder.setHspHitFrom(integer()); break;
+				case "Hsp_hit-to": blastHspBuilder.setHspHitTo(integer()); break;
+				case "Hsp_query-frame": blastHspBuilder.setHspQueryFrame(integer()); break;
+				case "Hsp_hit-frame": blastHspBuilder.setHspHitFrame(integer()); break;
+				case "Hsp_identity": blastHspBuilder.setHspIdentity(integer()); break;
+				case "Hsp_positive": blastHspBuilder.setHspPositive(integer()); break;
+				case "Hsp_gaps": blastHspBuilder.setHspGaps(integer()); break;
+				case "Hsp_align-len": blastHspBuilder.setHspAlignLen(integer()); break;
+				case "Hsp_qseq": blastHspBuilder.setHspQseq(reader.getElementText()); break;
+				case "Hsp_hseq": blastHspBuilder.setHspHseq(reader.getElementText()); break;
+				case "Hsp_midline": blastHspBuilder.setHspIdentityString(reader.getElementText()); break;
+				default: skip();
+				}
+			}
+			return blastHspBuilder.createBlastHsp();
+		}
+
+		/**
+		 * Moves to the start tag of the next child of the current element.
+		 * @return false when the end tag of the current element is reached instead
+		 */
+		private boolean nextChild() throws XMLStreamException {
+			while (true) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) return true;
+				if (event == XMLStreamConstants.END_ELEMENT) return false;
+			}
 		}
-		logger.info("Parsing of "+targetFile+" finished.");
 
-		return resultsCollection;
+		/**
+		 * Moves to the end tag of the current element, skipping its content.
+		 */
+		private void skip() throws XMLStreamException {
+			for (int depth = 1; depth > 0; ) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) depth++;
+				else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+			}
+		}
+
+		private int integer() throws XMLStreamException, ParseException {
+			String element = reader.getLocalName();
+			String text = reader.getElementText().trim();
+			try {
+				return Integer.parseInt(text);
+			} catch (NumberFormatException e) {
+				throw new ParseException("Invalid numeric value in " + element + " at line "
+						+ reader.getLocation().getLineNumber() + ": " + text, 0);
+			}
+		}
+
+		private double decimal() throws XMLStreamException, ParseException {
+			String element = reader.getLocalName();
+			String text = reader.getElementText().trim();
+			try {
+				return Double.parseDouble(text);
+			} catch (NumberFormatException e) {
+				throw new ParseException("Invalid numeric value in " + element + " at line "
+						+ reader.getLocation().getLineNumber() + ": " + text, 0);
+			}
+		}
+
+		@Override
+		void closeReport() throws IOException {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			} finally {
+				in.close();
+			}
+		}
 	}
 
 	@Override
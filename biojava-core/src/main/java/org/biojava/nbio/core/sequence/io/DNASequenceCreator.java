@@ -27,6 +27,7 @@ import org.biojava.nbio.core.sequence.DNASequence;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.biojava.nbio.core.sequence.io.template.SequenceCreatorInterface;
 import org.biojava.nbio.core.sequence.loader.ArrayListProxySequenceReader;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
 import org.biojava.nbio.core.sequence.template.AbstractSequence;
 import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.ProxySequenceReader;
@@ -35,21 +36,43 @@ import java.util.List;
 
 /**
  * A helper class that allows different ways to read a string and create a DNA sequence. Used in FastaReaderHelper
- * and probably a layer that isn't needed
+ * and probably a layer that isn't needed. Sequences of {@link #RECOMMENDED_PACKED_THRESHOLD} or more bases are
+ * stored 2 bits per base in a {@link PackedNucleotideSequenceReader}, which takes a fraction of the memory of the
+ * list storage; {@link #DNASequenceCreator(CompoundSet, int)} sets another threshold or turns packing off.
  *
  * @author Scooter Willis 
  */
 public class DNASequenceCreator implements
 		SequenceCreatorInterface<NucleotideCompound> {
 
+	/**
+	 * Sequences of at least this length are stored 2 bits per base by default, see
+	 * {@link PackedNucleotideSequenceReader}
+	 */
+	public static final int RECOMMENDED_PACKED_THRESHOLD = 16384;
+
 	private final CompoundSet<NucleotideCompound> compoundSet;
+	private final int packedThreshold;
 
 	/**
-	 *
+	 * Packs sequences of {@link #RECOMMENDED_PACKED_THRESHOLD} or more bases.
 	 * @param compoundSet
 	 */
 	public DNASequenceCreator(CompoundSet<NucleotideCompound> compoundSet) {
+		this(compoundSet, RECOMMENDED_PACKED_THRESHOLD);
+	}
+
+	/**
+	 *
+	 * @param compoundSet
+	 * @param packedThreshold sequences of at least this length are stored in a
+	 * {@link PackedNucleotideSequenceReader}, by default {@link #RECOMMENDED_PACKED_THRESHOLD}; 0 to pack all sequences,
+	 * {@link Integer#MAX_VALUE} to pack none
+	 * @since 7.2.3
+	 */
+	public DNASequenceCreator(CompoundSet<NucleotideCompound> compoundSet, int packedThreshold) {
 		this.compoundSet = compoundSet;
+		this.packedThreshold = packedThreshold;
 	}
 
 /**
@@ -61,6 +84,9 @@ public class DNASequenceCreator implements
 	@Override
 public AbstractSequence<NucleotideCompound> getSequence(String sequence,
 			long index) throws CompoundNotFoundException {
+		if (sequence.length() >= packedThreshold && PackedNucleotideSequenceReader.canPack(compoundSet)) {
+			return new DNASequence(new PackedNucleotideSequenceReader<>(sequence, compoundSet), compoundSet);
+		}
 		return new DNASequence(sequence, compoundSet);
 	}
 /**
@@ -0,0 +1,605 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.ProxySequenceReader;
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+import org.biojava.nbio.core.sequence.template.SequenceProxyView;
+import org.biojava.nbio.core.sequence.template.SequenceView;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random access to the sequences of a FASTA file through a samtools-compatible <code>.fai</code> index.
+ * <p>
+ * Unlike {@link FastaReader}, which parses every record, the sequences are memory-mapped with NIO and only
+ * the bytes of the requested region are read. The index is read from the <code>.fai</code> file next to the
+ * FASTA file if there is one, or built with a single pass over the file otherwise, and can be saved with
+ * {@link #writeIndex(List, Path)}. As with samtools, all lines of a record but the last must have the same
+ * length.
+ * <p>
+ * The sequences returned by {@link #getDNASequence(String)} and {@link #getProteinSequence(String)} are
+ * backed by a {@link ProxySequenceReader} over the mapped file, so that sub-sequences and single compounds
+ * are decoded on demand. Methods that need the whole sequence, such as {@link DNASequence#getAsList()},
+ * still decode all of it.
+ * <p>
+ * Instances are thread-safe.
+ * <p>
+ * Usage:
+ * <pre>
+ *    try (IndexedFastaSequenceFile fasta = new IndexedFastaSequenceFile(Paths.get("hg38.fa"))) {
+ *        String region = fasta.getSubsequenceAt("chr7", 55019017, 55019365);
+ *        DNASequence chr7 = fasta.getDNASequence("chr7");
+ *    }
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class IndexedFastaSequenceFile implements Closeable {
+
+	/**
+	 * The extension appended to the FASTA file name to find its index
+	 */
+	public static final String INDEX_EXTENSION = ".fai";
+
+	private final Path path;
+	private final FileChannel channel;
+	private final Map<String, IndexEntry> index;
+	private final Map<String, MappedByteBuffer> buffers = new ConcurrentHashMap<>();
+
+	/**
+	 * Opens a FASTA file, reading its index from the file of the same name with the extension
+	 * {@link #INDEX_EXTENSION} if it exists, or indexing the FASTA file otherwise.
+	 *
+	 * @param path the FASTA file, which must not be compressed
+	 * @throws IOException if the file or its index can't be read, or if its lines have uneven lengths
+	 */
+	public IndexedFastaSequenceFile(Path path) throws IOException {
+		this(path, indexOf(path, Paths.get(path.toString() + INDEX_EXTENSION)));
+	}
+
+	/**
+	 * Opens a FASTA file with the given index.
+	 *
+	 * @param path the FASTA file, which must not be compressed
+	 * @param entries the index of the file
+	 * @throws IOException if the file can't be opened
+	 */
+	public IndexedFastaSequenceFile(Path path, List<IndexEntry> entries) throws IOException {
+		this.path = path;
+		Map<String, IndexEntry> map = new LinkedHashMap<>();
+		for (IndexEntry entry : entries) {
+			map.put(entry.getName(), entry);
+		}
+		this.index = Collections.unmodifiableMap(map);
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+	}
+
+	private static List<IndexEntry> indexOf(Path path, Path indexPath) throws IOException {
+		return Files.exists(indexPath) ? readIndex(indexPath) : createIndex(path);
+	}
+
+	/**
+	 * Builds the index of a FASTA file in a single pass.
+	 *
+	 * @param path the FASTA file, which must not be compressed
+	 * @return one entry per record, in file order
+	 * @throws IOException if the file can't be read, or if the lines of a record have uneven lengths
+	 */
+	public static List<IndexEntry> createIndex(Path path) throws IOException {
+		List<IndexEntry> entries = new ArrayList<>();
+		try (InputStream in = Files.newInputStream(path)) {
+			byte[] buffer = new byte[1 << 16];
+			long offset = 0, lineStart = 0;
+			int content = 0;
+			boolean header = false, lineStarted = false;
+			StringBuilder name = new StringBuilder();
+			IndexBuilder record = null;
+
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				for (int k = 0; k < n; k++, offset++) {
+					byte b = buffer[k];
+					if (b == '\n') {
+						long width = offset + 1 - lineStart;
+						if (header) {
+							if (record != null) entries.add(record.build());
+							record = new IndexBuilder(firstWord(name), offset + 1);
+						} else if (record != null) {
+							record.addLine(content, width);
+						} else if (content > 0) {
+							throw new IOException("Sequence data before the first header in " + path);
+						}
+						lineStart = offset + 1;
+						content = 0;
+						header = lineStarted = false;
+						name.setLength(0);
+					} else if (b == '\r') {
+						// part of the line width, but not of the sequence
+					} else if (!lineStarted && b == '>') {
+						header = lineStarted = true;
+					} else if (header) {
+						name.append((char) (b & 0xff));
+					} else {
+						lineStarted = true;
+						content++;
+					}
+				}
+			}
+
+			// last line without line break
+			if (header) {
+				if (record != null) entries.add(record.build());
+				record = new IndexBuilder(firstWord(name), offset);
+			} else if (record != null && offset > lineStart) {
+				record.addLine(content, offset - lineStart);
+			}
+			if (record != null) entries.add(record.build());
+		}
+		return entries;
+	}
+
+	/**
+	 * Reads an index in the <code>.fai</code> format of samtools.
+	 *
+	 * @param indexPath the index file
+	 * @return one entry per line
+	 * @throws IOException if the file can't be read or is not a valid index
+	 */
+	public static List<IndexEntry> readIndex(Path indexPath) throws IOException {
+		List<IndexEntry> entries = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) continue;
+				String[] fields = line.split("\t");
+				if (fields.length < 5) {
+					throw new IOException("Invalid line in FASTA index " + indexPath + ": " + line);
+				}
+				try {
+					entries.add(new IndexEntry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+							Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid line in FASTA index " + indexPath + ": " + line, e);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Writes an index in the <code>.fai</code> format of samtools.
+	 *
+	 * @param entries the index entries
+	 * @param indexPath the index file
+	 * @throws IOException if the file can't be written
+	 */
+	public static void writeIndex(List<IndexEntry> entries, Path indexPath) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8)) {
+			for (IndexEntry entry : entries) {
+				writer.write(entry.toString());
+				writer.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Returns the FASTA file.
+	 *
+	 * @return the path of the FASTA file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the index entries of all sequences, in file order.
+	 *
+	 * @return the index of the file
+	 */
+	public List<IndexEntry> getIndex() {
+		return new ArrayList<>(index.values());
+	}
+
+	/**
+	 * Returns the names of all sequences, in file order.
+	 *
+	 * @return the sequence names, i.e. the first word of each header
+	 */
+	public List<String> getSequenceNames() {
+		return new ArrayList<>(index.keySet());
+	}
+
+	/**
+	 * Returns the length of a sequence.
+	 *
+	 * @param name the sequence name
+	 * @return the number of compounds in the sequence
+	 * @throws IllegalArgumentException if there is no sequence of that name
+	 */
+	public int getLength(String name) {
+		return getEntry(name).getIntLength();
+	}
+
+	/**
+	 * Reads a region of a sequence as it is written in the file.
+	 *
+	 * @param name the sequence name
+	 * @param bioBegin the first position of the region, starting at 1
+	 * @param bioEnd the last position of the region, inclusive
+	 * @return the region as a string
+	 * @throws IllegalArgumentException if there is no sequence of that name
+	 * @throws IndexOutOfBoundsException if the region is not within the sequence
+	 * @throws UncheckedIOException if the sequence can't be mapped, e.g. because its record spans more than 2 GB
+	 */
+	public String getSubsequenceAt(String name, int bioBegin, int bioEnd) {
+		IndexEntry entry = getEntry(name);
+		checkRegion(entry, bioBegin, bioEnd);
+		ByteBuffer buffer = getBuffer(entry).duplicate();
+		byte[] bytes = new byte[bioEnd - bioBegin + 1];
+		int lineBases = entry.getLineBases(), lineWidth = entry.getLineWidth();
+		int i = bioBegin - 1, copied = 0;
+		while (copied < bytes.length) {
+			int column = i % lineBases;
+			int count = Math.min(lineBases - column, bytes.length - copied);
+			buffer.position(bufferIndex(entry, i));
+			buffer.get(bytes, copied, count);
+			copied += count;
+			i += count;
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Returns a sequence whose compounds are read from the mapped file on demand.
+	 *
+	 * @param <C> the compound type
+	 * @param name the sequence name
+	 * @param compoundSet the compounds of the sequence
+	 * @return a reader over the sequence in the file
+	 * @throws IllegalArgumentException if there is no sequence of that name
+	 */
+	public <C extends Compound> ProxySequenceReader<C> getProxySequenceReader(String name,
+			CompoundSet<C> compoundSet) {
+		return new IndexedSequenceReader<>(getEntry(name), compoundSet);
+	}
+
+	/**
+	 * Returns a DNA sequence backed by the mapped file.
+	 *
+	 * @param name the sequence name
+	 * @return the sequence, with its name as accession
+	 * @throws IllegalArgumentException if there is no sequence of that name
+	 */
+	public DNASequence getDNASequence(String name) {
+		DNASequence sequence = new DNASequence(getProxySequenceReader(name, DNACompoundSet.getDNACompoundSet()),
+				DNACompoundSet.getDNACompoundSet());
+		sequence.setAccession(new AccessionID(name));
+		return sequence;
+	}
+
+	/**
+	 * Returns a protein sequence backed by the mapped file.
+	 *
+	 * @param name the sequence name
+	 * @return the sequence, with its name as accession
+	 * @throws IllegalArgumentException if there is no sequence of that name
+	 */
+	public ProteinSequence getProteinSequence(String name) {
+		ProteinSequence sequence = new ProteinSequence(
+				getProxySequenceReader(name, AminoAcidCompoundSet.getAminoAcidCompoundSet()),
+				AminoAcidCompoundSet.getAminoAcidCompoundSet());
+		sequence.setAccession(new AccessionID(name));
+		return sequence;
+	}
+
+	/**
+	 * Closes the file. Mapped regions stay valid until they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		buffers.clear();
+		channel.close();
+	}
+
+	private IndexEntry getEntry(String name) {
+		IndexEntry entry = index.get(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("No sequence " + name + " in " + path);
+		}
+		return entry;
+	}
+
+	private static void checkRegion(IndexEntry entry, int bioBegin, int bioEnd) {
+		if (bioBegin < 1 || bioEnd > entry.getLength() || bioBegin > bioEnd + 1) {
+			throw new IndexOutOfBoundsException("Region " + bioBegin + "-" + bioEnd + " is not within "
+					+ entry.getName() + " of length " + entry.getLength());
+		}
+	}
+
+	// position in the record of compound i (starting at 0)
+	private static long recordIndex(IndexEntry entry, long i) {
+		return (i / entry.getLineBases()) * entry.getLineWidth() + i % entry.getLineBases();
+	}
+
+	// position in the mapped buffer of the record of compound i, which getBuffer has checked to fit in an int
+	private static int bufferIndex(IndexEntry entry, int i) {
+		return (int) recordIndex(entry, i);
+	}
+
+	private MappedByteBuffer getBuffer(IndexEntry entry) {
+		return buffers.computeIfAbsent(entry.getName(), name -> {
+			long size = entry.getLength() == 0 ? 0 : recordIndex(entry, entry.getLength() - 1) + 1;
+			try {
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException("Sequence " + name + " spans " + size + " bytes of " + path
+							+ ", more than the " + Integer.MAX_VALUE + " bytes that can be mapped");
+				}
+				return channel.map(FileChannel.MapMode.READ_ONLY, entry.getOffset(), size);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not map sequence " + name + " of " + path, e);
+			}
+		});
+	}
+
+	private static String firstWord(CharSequence header) {
+		int end = 0;
+		while (end < header.length() && !Character.isWhitespace(header.charAt(end))) {
+			end++;
+		}
+		return header.subSequence(0, end).toString();
+	}
+
+	/**
+	 * An entry of a <code>.fai</code> index: the location of one sequence in a FASTA file.
+	 */
+	public static class IndexEntry {
+
+		private final String name;
+		private final long length, offset;
+		private final int lineBases, lineWidth;
+
+		/**
+		 * @param name the sequence name
+		 * @param length the number of compounds in the sequence
+		 * @param offset the file offset of the first compound
+		 * @param lineBases the number of compounds per line
+		 * @param lineWidth the number of bytes per line, including the line break
+		 */
+		public IndexEntry(String name, long length, long offset, int lineBases, int lineWidth) {
+			this.name = name;
+			this.length = length;
+			this.offset = offset;
+			this.lineBases = lineBases;
+			this.lineWidth = lineWidth;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public int getLineBases() {
+			return lineBases;
+		}
+
+		public int getLineWidth() {
+			return lineWidth;
+		}
+
+		private int getIntLength() {
+			if (length > Integer.MAX_VALUE) {
+				throw new UnsupportedOperationException("Sequence " + name + " is too long: " + length);
+			}
+			return (int) length;
+		}
+
+		/**
+		 * Returns the entry as a line of a <code>.fai</code> file, without line break.
+		 */
+		@Override
+		public String toString() {
+			return name + "\t" + length + "\t" + offset + "\t" + lineBases + "\t" + lineWidth;
+		}
+	}
+
+	// accumulates the lines of one record while indexing
+	private static class IndexBuilder {
+
+		private final String name;
+		private final long offset;
+		private long length;
+		private int lineBases = -1, lineWidth = -1;
+		private boolean lastLine;
+
+		private IndexBuilder(String name, long offset) {
+			this.name = name;
+			this.offset = offset;
+		}
+
+		private void addLine(int bases, long width) throws IOException {
+			if (bases == 0) {
+				// blank lines are only allowed at the end of a record
+				lastLine = true;
+				return;
+			}
+			if (lastLine) {
+				throw new IOException("Different line lengths in sequence " + name);
+			}
+			if (lineBases < 0) {
+				lineBases = bases;
+				lineWidth = (int) width;
+			} else if (bases > lineBases) {
+				throw new IOException("Different line lengths in sequence " + name);
+			} else if (bases < lineBases) {
+				lastLine = true;
+			}
+			length += bases;
+		}
+
+		private IndexEntry build() {
+			return new IndexEntry(name, length, offset, Math.max(lineBases, 0), Math.max(lineWidth, 0));
+		}
+	}
+
+	/**
+	 * A sequence stored in the mapped file.
+	 */
+	private class IndexedSequenceReader<C extends Compound> implements ProxySequenceReader<C> {
+
+		private final IndexEntry entry;
+		private final int length;
+		private CompoundSet<C> compoundSet;
+		private Object[] compounds;
+
+		private IndexedSequenceReader(IndexEntry entry, CompoundSet<C> compoundSet) {
+			this.entry = entry;
+			this.length = entry.getIntLength();
+			setCompoundSet(compoundSet);
+		}
+
+		@Override
+		public void setCompoundSet(CompoundSet<C> compoundSet) {
+			this.compoundSet = compoundSet;
+			// lookup table from the single byte characters of the file
+			compounds = new Object[256];
+			for (int c = 0; c < compounds.length; c++) {
+				compounds[c] = compoundSet.getCompoundForString(String.valueOf((char) c));
+			}
+		}
+
+		@Override
+		public void setContents(String sequence) {
+			throw new UnsupportedOperationException("Sequences of an indexed FASTA file are read-only");
+		}
+
+		@Override
+		public int getLength() {
+			return length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public C getCompoundAt(int position) {
+			if (position < 1 || position > length) {
+				throw new IndexOutOfBoundsException("Position " + position + " is not within " + entry.getName()
+						+ " of length " + length);
+			}
+			int b = getBuffer(entry).get(bufferIndex(entry, position - 1)) & 0xff;
+			C compound = (C) compounds[b];
+			if (compound == null) {
+				throw new IllegalStateException("Compound " + (char) b + " at position " + position + " of "
+						+ entry.getName() + " not found in " + compoundSet);
+			}
+			return compound;
+		}
+
+		@Override
+		public int getIndexOf(C compound) {
+			return SequenceMixin.indexOf(this, compound);
+		}
+
+		@Override
+		public int getLastIndexOf(C compound) {
+			return SequenceMixin.lastIndexOf(this, compound);
+		}
+
+		@Override
+		public String getSequenceAsString() {
+			return getSubsequenceAt(entry.getName(), 1, length);
+		}
+
+		@Override
+		public List<C> getAsList() {
+			return SequenceMixin.toList(this);
+		}
+
+		@Override
+		public SequenceView<C> getSubSequence(Integer bioStart, Integer bioEnd) {
+			return new SequenceProxyView<>(this, bioStart, bioEnd);
+		}
+
+		@Override
+		public CompoundSet<C> getCompoundSet() {
+			return compoundSet;
+		}
+
+		@Override
+		public AccessionID getAccession() {
+			return new AccessionID(entry.getName());
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public int countCompounds(C... compounds) {
+			return SequenceMixin.countCompounds(this, compounds);
+		}
+
+		@Override
+		public SequenceView<C> getInverse() {
+			return SequenceMixin.inverse(this);
+		}
+
+		@Override
+		public Iterator<C> iterator() {
+			return new SequenceMixin.SequenceIterator<>(this);
+		}
+
+		@Override
+		public String toString() {
+			return getSequenceAsString();
+		}
+	}
+}
@@ -0,0 +1,667 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.storage;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.ProxySequenceReader;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+import org.biojava.nbio.core.sequence.template.SequenceProxyView;
+import org.biojava.nbio.core.sequence.template.SequenceView;
+import org.biojava.nbio.core.util.Equals;
+import org.biojava.nbio.core.util.Hashcoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A compact store for nucleotide sequences of any size and content.
+ * <p>
+ * A, C, G and T are packed 32 to a long using the 2bit encoding of {@link TwoBitSequenceReader}
+ * (T=0, C=1, A=2, G=3, first base in the highest bits, as in the UCSC .2bit format). Unlike
+ * {@link TwoBitSequenceReader} any other compound of the compound set can be stored: runs of N, IUPAC
+ * ambiguity codes and gaps are kept in a side-table of blocks, and soft-masked (lower case) regions in a
+ * table of mask intervals, so that sequences are returned exactly as they were read. A chromosome of
+ * 250 Mbp with a few hundred N blocks and a few hundred thousand repeat-masked intervals takes about 65 MB,
+ * against 1 to 2 GB for an {@link ArrayListSequenceReader}.
+ * <p>
+ * {@link #getSequenceAsString()}, {@link #getSubSequence(Integer, Integer)} and
+ * {@link #countCompounds(Compound...)} decode or count whole bytes and words rather than single compounds.
+ * {@link #getCompoundAt(int)} only looks positions up in the side-tables if there are N/IUPAC runs or masks, and
+ * then starts from the run of the previous lookup, so that walking along the sequence stays cheap.
+ * {@link #setContents(String)} packs the new sequence in place of the old one.
+ * <p>
+ * Only compound sets with single-character compounds including A, C, G and T can be packed, see
+ * {@link #canPack(CompoundSet)}.
+ *
+ * @param <C> Type of compound; must be a nucleotide compound
+ * @since 7.2.3
+ */
+public class PackedNucleotideSequenceReader<C extends Compound> implements ProxySequenceReader<C> {
+
+	private static final int BASES_PER_WORD = 32;
+	private static final String BASES = "TCAG";
+	private static final long LOW_BITS = 0x5555555555555555L;
+
+	// 2bit code of an upper case character, -1 if the character is stored as a block
+	private static final byte[] CODES = new byte[128];
+	// the four characters encoded by each byte value
+	private static final byte[] DECODE = new byte[256 * 4];
+
+	static {
+		Arrays.fill(CODES, (byte) -1);
+		for (int code = 0; code < 4; code++) {
+			CODES[BASES.charAt(code)] = (byte) code;
+		}
+		for (int b = 0; b < 256; b++) {
+			for (int k = 0; k < 4; k++) {
+				DECODE[4 * b + k] = (byte) BASES.charAt((b >>> (6 - 2 * k)) & 3);
+			}
+		}
+	}
+
+	private final CompoundSet<C> compoundSet;
+	private final AccessionID accession;
+	private int length;
+	private long[] words;
+	// sorted runs of compounds other than A, C, G and T, whose packed bits are 0: the upper case
+	// character blockBases[i] from 0-based position blockStarts[i], blockLengths[i] times
+	private int[] blockStarts;
+	private int[] blockLengths;
+	private byte[] blockBases;
+	// sorted lower case intervals
+	private int[] maskStarts;
+	private int[] maskLengths;
+	private final Compound[] compoundsByChar = new Compound[128];
+	// the run found by the last getCompoundAt, from which the next lookup starts
+	private int blockHint = -1;
+	private int maskHint = -1;
+
+	private volatile Integer hashcode = null;
+
+	/**
+	 * Returns true if sequences of the given compound set can be stored in this class, i.e. if all its
+	 * compounds are single characters and it contains the nucleotides A, C, G and T.
+	 * @param compoundSet the compound set to check
+	 * @return true if the compound set can be packed
+	 */
+	public static boolean canPack(CompoundSet<?> compoundSet) {
+		if (compoundSet.getMaxSingleCompoundStringLength() != 1) {
+			return false;
+		}
+		for (int code = 0; code < 4; code++) {
+			if (!(compoundSet.getCompoundForString(BASES.substring(code, code + 1)) instanceof NucleotideCompound)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public PackedNucleotideSequenceReader(String sequence, CompoundSet<C> compoundSet) throws CompoundNotFoundException {
+		this(sequence, compoundSet, new AccessionID("Unknown"));
+	}
+
+	/**
+	 * Packs the given sequence.
+	 * @param sequence the sequence, whose characters must all be compounds of the compound set
+	 * @param compoundSet the compound set, see {@link #canPack(CompoundSet)}
+	 * @param accession the accession of the sequence
+	 * @throws CompoundNotFoundException if a character is not a compound of the compound set
+	 * @throws IllegalArgumentException if the compound set cannot be packed
+	 */
+	public PackedNucleotideSequenceReader(String sequence, CompoundSet<C> compoundSet, AccessionID accession)
+			throws CompoundNotFoundException {
+		checkCompoundSet(compoundSet);
+		this.compoundSet = compoundSet;
+		this.accession = accession;
+		pack(sequence);
+	}
+
+	private void pack(String sequence) throws CompoundNotFoundException {
+		int length = sequence.length();
+		long[] words = new long[wordCount(length)];
+
+		Runs blocks = new Runs();
+		Runs masks = new Runs();
+		int blockStart = -1;
+		char blockBase = 0;
+		int maskStart = -1;
+		for (int i = 0; i < length; i++) {
+			char ch = sequence.charAt(i);
+			if (ch >= compoundsByChar.length || (compoundsByChar[ch] == null && resolve(ch) == null)) {
+				throw new CompoundNotFoundException("Cannot find compound for: " + ch);
+			}
+			boolean lower = ch >= 'a' && ch <= 'z';
+			if (lower) {
+				ch -= 'a' - 'A';
+				if (maskStart < 0) {
+					maskStart = i;
+				}
+			} else if (maskStart >= 0) {
+				masks.add(maskStart, i - maskStart, (byte) 0);
+				maskStart = -1;
+			}
+
+			int code = CODES[ch];
+			if (code >= 0) {
+				if (blockStart >= 0) {
+					blocks.add(blockStart, i - blockStart, (byte) blockBase);
+					blockStart = -1;
+				}
+				words[i >>> 5] |= (long) code << shift(i);
+			} else if (blockStart < 0 || blockBase != ch) {
+				if (blockStart >= 0) {
+					blocks.add(blockStart, i - blockStart, (byte) blockBase);
+				}
+				blockStart = i;
+				blockBase = ch;
+			}
+		}
+		if (blockStart >= 0) {
+			blocks.add(blockStart, length - blockStart, (byte) blockBase);
+		}
+		if (maskStart >= 0) {
+			masks.add(maskStart, length - maskStart, (byte) 0);
+		}
+
+		this.length = length;
+		this.words = words;
+		this.blockStarts = Arrays.copyOf(blocks.starts, blocks.size);
+		this.blockLengths = Arrays.copyOf(blocks.lengths, blocks.size);
+		this.blockBases = Arrays.copyOf(blocks.bases, blocks.size);
+		this.maskStarts = Arrays.copyOf(masks.starts, masks.size);
+		this.maskLengths = Arrays.copyOf(masks.lengths, masks.size);
+		this.blockHint = -1;
+		this.maskHint = -1;
+		this.hashcode = null;
+	}
+
+	/**
+	 * Creates a store from already packed data, e.g. as read from a .2bit file. The arrays are used
+	 * directly and must not be modified afterwards.
+	 * @param compoundSet the compound set, see {@link #canPack(CompoundSet)}
+	 * @param accession the accession of the sequence
+	 * @param length the number of bases
+	 * @param words the packed bases, 32 per long with the first base in the highest bits
+	 * @param blockStarts the sorted, non-overlapping 0-based starts of the runs of other compounds
+	 * @param blockLengths the lengths of the runs
+	 * @param blockBases the upper case character of each run, e.g. 'N'
+	 * @param maskStarts the sorted, non-overlapping 0-based starts of the lower case intervals
+	 * @param maskLengths the lengths of the lower case intervals
+	 * @throws CompoundNotFoundException if a run or mask refers to a compound not in the compound set
+	 * @throws IllegalArgumentException if the compound set cannot be packed or the arrays are too short
+	 */
+	public PackedNucleotideSequenceReader(CompoundSet<C> compoundSet, AccessionID accession, int length,
+			long[] words, int[] blockStarts, int[] blockLengths, byte[] blockBases,
+			int[] maskStarts, int[] maskLengths) throws CompoundNotFoundException {
+		checkCompoundSet(compoundSet);
+		if (words.length < wordCount(length)) {
+			throw new IllegalArgumentException("Need " + wordCount(length) + " words for " + length + " bases, got " + words.length);
+		}
+		if (blockLengths.length != blockStarts.length || blockBases.length != blockStarts.length
+				|| maskLengths.length != maskStarts.length) {
+			throw new IllegalArgumentException("Block and mask arrays must have matching lengths");
+		}
+		this.compoundSet = compoundSet;
+		this.accession = accession;
+		this.length = length;
+		this.words = words;
+		this.blockStarts = blockStarts;
+		this.blockLengths = blockLengths;
+		this.blockBases = blockBases;
+		this.maskStarts = maskStarts;
+		this.maskLengths = maskLengths;
+
+		StringBuilder chars = new StringBuilder(BASES);
+		for (byte base : blockBases) {
+			chars.append((char) (base & 0xFF));
+		}
+		for (int i = 0; i < chars.length(); i++) {
+			char ch = chars.charAt(i);
+			if (ch >= compoundsByChar.length || resolve(ch) == null
+					|| (maskStarts.length > 0 && ch >= 'A' && ch <= 'Z' && resolve((char) (ch + ('a' - 'A'))) == null)) {
+				throw new CompoundNotFoundException("Cannot find compound for: " + ch);
+			}
+		}
+
+		// the counts rely on the bits under the blocks being 0
+		for (int b = 0; b < blockStarts.length; b++) {
+			for (int i = blockStarts[b]; i < blockStarts[b] + blockLengths[b]; i++) {
+				words[i >>> 5] &= ~(3L << shift(i));
+			}
+		}
+		if (length % BASES_PER_WORD != 0) {
+			words[length >>> 5] &= -1L << shift(length - 1);
+		}
+	}
+
+	private static void checkCompoundSet(CompoundSet<?> compoundSet) {
+		if (!canPack(compoundSet)) {
+			throw new IllegalArgumentException("Cannot pack sequences of " + compoundSet.getClass().getSimpleName());
+		}
+	}
+
+	private Compound resolve(char ch) {
+		Compound compound = compoundSet.getCompoundForString(String.valueOf(ch));
+		compoundsByChar[ch] = compound;
+		return compound;
+	}
+
+	/**
+	 * Class is immutable, so this is unsupported
+	 */
+	@Override
+	public void setCompoundSet(CompoundSet<C> compoundSet) {
+		throw new UnsupportedOperationException("Cannot reset the CompoundSet; object is immutable");
+	}
+
+	/**
+	 * Packs the given sequence, replacing the current contents. The contents are left unchanged
+	 * if the sequence contains a character that is not a compound of the compound set.
+	 */
+	@Override
+	public void setContents(String sequence) throws CompoundNotFoundException {
+		pack(sequence);
+	}
+
+	@Override
+	public AccessionID getAccession() {
+		return accession;
+	}
+
+	/**
+	 * Returns the compound set backing this store
+	 */
+	@Override
+	public CompoundSet<C> getCompoundSet() {
+		return compoundSet;
+	}
+
+	/**
+	 * Returns the length of the sequence
+	 */
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of runs of compounds other than A, C, G and T, e.g. N blocks.
+	 */
+	public int getBlockCount() {
+		return blockStarts.length;
+	}
+
+	/**
+	 * Returns the number of soft-masked (lower case) intervals.
+	 */
+	public int getMaskCount() {
+		return maskStarts.length;
+	}
+
+	/**
+	 * Returns the compound at the specified biological index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public C getCompoundAt(int position) {
+		if (position < 1 || position > length) {
+			throw new IndexOutOfBoundsException("Position " + position + " is outside of 1.." + length);
+		}
+		int i = position - 1;
+		char ch;
+		if (blockStarts.length == 0) {
+			ch = BASES.charAt(code(i));
+		} else {
+			int b = floorRun(blockStarts, blockHint, i);
+			blockHint = b;
+			ch = b >= 0 && i < blockStarts[b] + blockLengths[b] ? (char) (blockBases[b] & 0xFF) : BASES.charAt(code(i));
+		}
+		if (maskStarts.length > 0 && ch >= 'A' && ch <= 'Z') {
+			int m = floorRun(maskStarts, maskHint, i);
+			maskHint = m;
+			if (m >= 0 && i < maskStarts[m] + maskLengths[m]) {
+				ch += 'a' - 'A';
+			}
+		}
+		Compound compound = compoundsByChar[ch];
+		return (C) (compound != null ? compound : resolve(ch));
+	}
+
+	/**
+	 * Returns the sequence as a String, decoding four bases at a time
+	 */
+	@Override
+	public String getSequenceAsString() {
+		return getSequenceAsString(1, length);
+	}
+
+	/**
+	 * Returns part of the sequence as a String, decoding four bases at a time.
+	 * @param bioStart the first position, from 1
+	 * @param bioEnd the last position, inclusive
+	 * @return the sequence from bioStart to bioEnd
+	 */
+	public String getSequenceAsString(int bioStart, int bioEnd) {
+		checkRange(bioStart, bioEnd);
+		int from = bioStart - 1, to = bioEnd;
+		byte[] out = new byte[Math.max(0, to - from)];
+		int pos = 0;
+		int i = from;
+		for (; i < to && (i & 3) != 0; i++) {
+			out[pos++] = (byte) BASES.charAt(code(i));
+		}
+		for (; i + 4 <= to; i += 4) {
+			int b = 4 * ((int) (words[i >>> 5] >>> (56 - ((i & 31) << 1))) & 0xFF);
+			out[pos++] = DECODE[b];
+			out[pos++] = DECODE[b + 1];
+			out[pos++] = DECODE[b + 2];
+			out[pos++] = DECODE[b + 3];
+		}
+		for (; i < to; i++) {
+			out[pos++] = (byte) BASES.charAt(code(i));
+		}
+
+		for (int b = firstRun(blockStarts, blockLengths, from); b < blockStarts.length && blockStarts[b] < to; b++) {
+			int s = Math.max(from, blockStarts[b]), e = Math.min(to, blockStarts[b] + blockLengths[b]);
+			Arrays.fill(out, s - from, e - from, blockBases[b]);
+		}
+		for (int m = firstRun(maskStarts, maskLengths, from); m < maskStarts.length && maskStarts[m] < to; m++) {
+			int e = Math.min(to, maskStarts[m] + maskLengths[m]) - from;
+			for (int k = Math.max(from, maskStarts[m]) - from; k < e; k++) {
+				if (out[k] >= 'A' && out[k] <= 'Z') {
+					out[k] += 'a' - 'A';
+				}
+			}
+		}
+		return new String(out, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Counts the number of times the compounds appear in this sequence store, using population
+	 * counts over whole words
+	 */
+	@Override
+	public int countCompounds(C... compounds) {
+		return countCompounds(1, length, compounds);
+	}
+
+	/**
+	 * Counts the number of times the compounds appear in part of this sequence store.
+	 * @param bioStart the first position, from 1
+	 * @param bioEnd the last position, inclusive
+	 * @param compounds the compounds to count, a compound given twice is counted twice
+	 * @return the total number of occurrences
+	 */
+	@SafeVarargs
+	public final int countCompounds(int bioStart, int bioEnd, C... compounds) {
+		checkRange(bioStart, bioEnd);
+		int count = 0;
+		for (C compound : compounds) {
+			count += count(compound, bioStart - 1, bioEnd);
+		}
+		return count;
+	}
+
+	private int count(C compound, int from, int to) {
+		if (compound == null || from >= to) {
+			return 0;
+		}
+		String s = compoundSet.getStringForCompound(compound);
+		if (s == null || s.length() != 1 || s.charAt(0) >= compoundsByChar.length) {
+			return 0;
+		}
+		char ch = s.charAt(0);
+		boolean lower = ch >= 'a' && ch <= 'z';
+		char upper = lower ? (char) (ch - ('a' - 'A')) : ch;
+		int code = CODES[upper];
+
+		int total = countUpperCase(upper, code, from, to);
+		int masked = 0;
+		for (int m = firstRun(maskStarts, maskLengths, from); m < maskStarts.length && maskStarts[m] < to; m++) {
+			masked += countUpperCase(upper, code, Math.max(from, maskStarts[m]), Math.min(to, maskStarts[m] + maskLengths[m]));
+		}
+		return lower ? masked : total - masked;
+	}
+
+	// occurrences of the upper case character, ignoring the masks
+	private int countUpperCase(char upper, int code, int from, int to) {
+		if (code >= 0) {
+			int count = countCode(code, from, to);
+			// the blocks are stored as T
+			return code == 0 ? count - countInBlocks((char) 0, from, to) : count;
+		}
+		return countInBlocks(upper, from, to);
+	}
+
+	// number of positions in [from, to) in blocks of the given character, or of any block for 0
+	private int countInBlocks(char base, int from, int to) {
+		int count = 0;
+		for (int b = firstRun(blockStarts, blockLengths, from); b < blockStarts.length && blockStarts[b] < to; b++) {
+			if (base == 0 || (blockBases[b] & 0xFF) == base) {
+				count += Math.min(to, blockStarts[b] + blockLengths[b]) - Math.max(from, blockStarts[b]);
+			}
+		}
+		return count;
+	}
+
+	// number of bases in [from, to) with the given 2bit code
+	private int countCode(int code, int from, int to) {
+		if (from >= to) {
+			return 0;
+		}
+		long pattern = code * LOW_BITS;
+		int first = from >>> 5, last = (to - 1) >>> 5;
+		int count = 0;
+		for (int w = first; w <= last; w++) {
+			long same = ~(words[w] ^ pattern);
+			long hits = same & (same >>> 1) & LOW_BITS;
+			if (w == first) {
+				hits &= -1L >>> ((from & 31) << 1);
+			}
+			if (w == last) {
+				hits &= -1L << (62 - (((to - 1) & 31) << 1));
+			}
+			count += Long.bitCount(hits);
+		}
+		return count;
+	}
+
+	private int code(int i) {
+		return (int) (words[i >>> 5] >>> shift(i)) & 3;
+	}
+
+	private static int shift(int i) {
+		return 62 - ((i & 31) << 1);
+	}
+
+	private static int wordCount(int length) {
+		return (length + BASES_PER_WORD - 1) / BASES_PER_WORD;
+	}
+
+	// index of the last run starting at or before position i, or -1; tries the hint and the run after it
+	// before searching
+	private static int floorRun(int[] starts, int hint, int i) {
+		int n = starts.length;
+		for (int r = Math.max(-1, Math.min(hint, n - 1)), last = Math.min(r + 1, n - 1); r <= last; r++) {
+			if ((r < 0 || starts[r] <= i) && (r + 1 == n || i < starts[r + 1])) {
+				return r;
+			}
+		}
+		int r = Arrays.binarySearch(starts, i);
+		return r >= 0 ? r : -r - 2;
+	}
+
+	// index of the first run ending after position i
+	private static int firstRun(int[] starts, int[] lengths, int i) {
+		int r = Arrays.binarySearch(starts, i);
+		if (r < 0) {
+			r = -r - 2;
+		}
+		if (r < 0) {
+			return 0;
+		}
+		return i < starts[r] + lengths[r] ? r : r + 1;
+	}
+
+	private void checkRange(int bioStart, int bioEnd) {
+		if (bioStart < 1 || bioEnd > length || bioStart > bioEnd + 1) {
+			throw new IndexOutOfBoundsException("Range " + bioStart + ".." + bioEnd + " is outside of 1.." + length);
+		}
+	}
+
+	/**
+	 * Returns the first occurrence of the given compound in this store; performs
+	 * a linear search
+	 */
+	@Override
+	public int getIndexOf(C compound) {
+		return SequenceMixin.indexOf(this, compound);
+	}
+
+	/**
+	 * Returns the last occurrence of the given compound in this store; performs
+	 * a linear search
+	 */
+	@Override
+	public int getLastIndexOf(C compound) {
+		return SequenceMixin.lastIndexOf(this, compound);
+	}
+
+	/**
+	 * Returns this Sequence store as a List
+	 */
+	@Override
+	public List<C> getAsList() {
+		return SequenceMixin.toList(this);
+	}
+
+	/**
+	 * Returns a sub sequence view which decodes whole words
+	 */
+	@Override
+	public SequenceView<C> getSubSequence(Integer start, Integer end) {
+		return new PackedSequenceView<>(this, this, start, end);
+	}
+
+	/**
+	 * Provides basic iterable access to this class
+	 */
+	@Override
+	public Iterator<C> iterator() {
+		return SequenceMixin.createIterator(this);
+	}
+
+	@Override
+	public SequenceView<C> getInverse() {
+		return SequenceMixin.inverse(this);
+	}
+
+	@Override
+	public int hashCode() {
+		if (hashcode == null) {
+			int s = Hashcoder.SEED;
+			s = Hashcoder.hash(s, accession);
+			s = Hashcoder.hash(s, length);
+			s = Hashcoder.hash(s, Arrays.hashCode(words));
+			s = Hashcoder.hash(s, Arrays.hashCode(blockStarts));
+			s = Hashcoder.hash(s, Arrays.hashCode(maskStarts));
+			hashcode = s;
+		}
+		return hashcode;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (Equals.classEqual(this, o)) {
+			@SuppressWarnings("unchecked")
+			PackedNucleotideSequenceReader<C> that = (PackedNucleotideSequenceReader<C>) o;
+			return Equals.equal(accession, that.accession) &&
+					Equals.equal(compoundSet, that.compoundSet) &&
+					length == that.length &&
+					Arrays.equals(words, that.words) &&
+					Arrays.equals(blockStarts, that.blockStarts) &&
+					Arrays.equals(blockLengths, that.blockLengths) &&
+					Arrays.equals(blockBases, that.blockBases) &&
+					Arrays.equals(maskStarts, that.maskStarts) &&
+					Arrays.equals(maskLengths, that.maskLengths);
+		}
+		return false;
+	}
+
+	/**
+	 * A view of a sequence backed by a {@link PackedNucleotideSequenceReader}, whose
+	 * {@link #getSequenceAsString()} and {@link #countCompounds(Compound...)} work on the packed words.
+	 *
+	 * @param <C> Type of compound
+	 */
+	public static class PackedSequenceView<C extends Compound> extends SequenceProxyView<C> {
+
+		private final PackedNucleotideSequenceReader<C> reader;
+
+		/**
+		 * @param sequence the viewed sequence, whose positions must be those of the reader
+		 * @param reader the store backing the viewed sequence
+		 * @param bioStart the first position of the view
+		 * @param bioEnd the last position of the view
+		 */
+		public PackedSequenceView(Sequence<C> sequence, PackedNucleotideSequenceReader<C> reader, Integer bioStart, Integer bioEnd) {
+			super(sequence, bioStart, bioEnd);
+			this.reader = reader;
+		}
+
+		@Override
+		public String getSequenceAsString() {
+			return reader.getSequenceAsString(getBioStart(), getBioEnd());
+		}
+
+		@Override
+		public int countCompounds(C... compounds) {
+			return reader.countCompounds(getBioStart(), getBioEnd(), compounds);
+		}
+	}
+
+	// growable arrays of runs
+	private static class Runs {
+		int[] starts = new int[16];
+		int[] lengths = new int[16];
+		byte[] bases = new byte[16];
+		int size = 0;
+
+		void add(int start, int length, byte base) {
+			if (size == starts.length) {
+				starts = Arrays.copyOf(starts, 2 * size);
+				lengths = Arrays.copyOf(lengths, 2 * size);
+				bases = Arrays.copyOf(bases, 2 * size);
+			}
+			starts[size] = start;
+			lengths[size] = length;
+			bases[size] = base;
+			size++;
+		}
+	}
+}
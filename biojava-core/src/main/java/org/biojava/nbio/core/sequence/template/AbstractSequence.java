@@ -38,6 +38,8 @@ import org.biojava.nbio.core.sequence.location.SimpleLocation;
 import org.biojava.nbio.core.sequence.location.template.Location;
 import org.biojava.nbio.core.sequence.reference.AbstractReference;
 import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader.PackedSequenceView;
 import org.biojava.nbio.core.util.Equals;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -644,6 +646,10 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 */
 	@Override
 	public String getSequenceAsString() {
+		PackedNucleotideSequenceReader<C> packed = getPackedStorage();
+		if (packed != null) {
+			return packed.getSequenceAsString();
+		}
 		return SequenceMixin.toString(this);
 
 	}
@@ -706,6 +712,10 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 */
 	@Override
 	public SequenceView<C> getSubSequence(final Integer bioStart, final Integer bioEnd) {
+		PackedNucleotideSequenceReader<C> packed = getPackedStorage();
+		if (packed != null) {
+			return new PackedSequenceView<>(this, packed, bioStart, bioEnd);
+		}
 		return new SequenceProxyView<>(this, bioStart, bioEnd);
 	}
 
@@ -725,9 +735,25 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 */
 	@Override
 	public int countCompounds(C... compounds) {
+		PackedNucleotideSequenceReader<C> packed = getPackedStorage();
+		if (packed != null) {
+			return packed.countCompounds(compounds);
+		}
 		return SequenceMixin.countCompounds(this, compounds);
 	}
 
+	/**
+	 * Returns the storage if it is packed, so that string conversion and counts can work on whole words.
+	 */
+	@SuppressWarnings("unchecked")
+	private PackedNucleotideSequenceReader<C> getPackedStorage() {
+		SequenceReader<C> storage = getSequenceStorage();
+		if (storage instanceof PackedNucleotideSequenceReader) {
+			return (PackedNucleotideSequenceReader<C>) storage;
+		}
+		return null;
+	}
+
 	/**
 	 *
 	 * @return
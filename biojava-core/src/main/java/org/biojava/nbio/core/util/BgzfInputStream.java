@@ -0,0 +1,277 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a BGZF (blocked gzip) stream, as written by {@code bgzip} and used for BAM, tabix and compressed FASTQ
+ * files. Each BGZF block is an independent gzip member whose compressed size is stored in its header, so the
+ * blocks are read sequentially but inflated in parallel on a {@link BioJavaExecutor}, a few blocks ahead of the
+ * reader.
+ * <p>
+ * Plain gzip files are not blocked; {@link #decompressed(InputStream, BioJavaExecutor)} detects which kind of
+ * stream it is given and falls back to {@link GZIPInputStream}.
+ *
+ * @since 7.2.3
+ */
+public class BgzfInputStream extends InputStream {
+
+	private static final int HEADER_LENGTH = 12;
+	private static final int TRAILER_LENGTH = 8;
+	private static final byte[] EMPTY = new byte[0];
+
+	private final InputStream in;
+	private final BioJavaExecutor executor;
+	private final int readAhead;
+	private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+	private final byte[] header = new byte[HEADER_LENGTH];
+
+	private byte[] current = EMPTY;
+	private int position;
+	private boolean eof;
+
+	/**
+	 * Creates a stream inflating on the default executor, as many blocks ahead as there are processors, times two.
+	 *
+	 * @param in the compressed stream
+	 */
+	public BgzfInputStream(InputStream in) {
+		this(in, BioJavaExecutor.getDefault(), 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a stream inflating on the given executor.
+	 *
+	 * @param in the compressed stream
+	 * @param executor the executor inflating the blocks
+	 * @param readAhead the maximum number of blocks read and inflated ahead of the reader, at least 1
+	 */
+	public BgzfInputStream(InputStream in, BioJavaExecutor executor, int readAhead) {
+		if (readAhead < 1) {
+			throw new IllegalArgumentException("readAhead must be at least 1, was " + readAhead);
+		}
+		this.in = in;
+		this.executor = executor;
+		this.readAhead = readAhead;
+	}
+
+	/**
+	 * Wraps a stream which may be BGZF, gzip or uncompressed. BGZF streams are read with a
+	 * {@code BgzfInputStream} on the given executor, other gzip streams with a {@link GZIPInputStream}, and anything
+	 * else is only buffered.
+	 *
+	 * @param in the stream, possibly compressed
+	 * @param executor the executor inflating BGZF blocks
+	 * @return a stream of the uncompressed bytes
+	 * @throws IOException if the start of the stream cannot be read
+	 */
+	public static InputStream decompressed(InputStream in, BioJavaExecutor executor) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in, 1 << 16);
+		buffered.mark(18);
+		byte[] start = new byte[18];
+		int n = readFully(buffered, start, 0, start.length);
+		buffered.reset();
+		if (n < 2 || (start[0] & 0xff) != 0x1f || (start[1] & 0xff) != 0x8b) {
+			return buffered;
+		}
+		if (n == start.length && isBgzfHeader(start)) {
+			return new BgzfInputStream(buffered, executor, 2 * Runtime.getRuntime().availableProcessors());
+		}
+		return new GZIPInputStream(buffered, 1 << 16);
+	}
+
+	// a gzip header whose only extra subfield is the 'BC' block size
+	private static boolean isBgzfHeader(byte[] b) {
+		return (b[2] & 0xff) == 8 && (b[3] & 4) != 0 && uint16(b, 10) == 6 && b[12] == 'B' && b[13] == 'C'
+				&& uint16(b, 14) == 2;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return current[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int n = Math.min(len, current.length - position);
+		System.arraycopy(current, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return current.length - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Future<byte[]> future : pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+		current = EMPTY;
+		eof = true;
+		in.close();
+	}
+
+	// moves to the next non-empty inflated block, returning false at the end of the stream
+	private boolean fill() throws IOException {
+		while (position == current.length) {
+			while (!eof && pending.size() < readAhead) {
+				byte[] block = readBlock();
+				if (block == null) {
+					eof = true;
+				} else {
+					pending.add(executor.submit(() -> inflate(block)));
+				}
+			}
+			Future<byte[]> next = pending.poll();
+			if (next == null) {
+				return false;
+			}
+			try {
+				current = next.get();
+				position = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while inflating a BGZF block");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				throw new IOException("Failed to inflate a BGZF block", cause);
+			}
+		}
+		return true;
+	}
+
+	// reads a whole compressed block, or returns null at the end of the stream
+	private byte[] readBlock() throws IOException {
+		int n = readFully(in, header, 0, HEADER_LENGTH);
+		if (n == 0) {
+			return null;
+		}
+		if (n < HEADER_LENGTH) {
+			throw new EOFException("Truncated BGZF block header");
+		}
+		if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || (header[2] & 0xff) != 8
+				|| (header[3] & 4) == 0) {
+			throw new IOException("Not a BGZF block: missing gzip header with extra field");
+		}
+		int extraLength = uint16(header, 10);
+		byte[] extra = new byte[extraLength];
+		if (readFully(in, extra, 0, extraLength) < extraLength) {
+			throw new EOFException("Truncated BGZF block header");
+		}
+		int blockSize = -1;
+		for (int i = 0; i + 4 <= extraLength; i += 4 + uint16(extra, i + 2)) {
+			if (extra[i] == 'B' && extra[i + 1] == 'C' && uint16(extra, i + 2) == 2) {
+				blockSize = uint16(extra, i + 4) + 1;
+			}
+		}
+		if (blockSize < HEADER_LENGTH + extraLength + TRAILER_LENGTH) {
+			throw new IOException("Not a BGZF block: missing or invalid BC block size");
+		}
+		byte[] block = new byte[blockSize];
+		System.arraycopy(header, 0, block, 0, HEADER_LENGTH);
+		System.arraycopy(extra, 0, block, HEADER_LENGTH, extraLength);
+		int rest = blockSize - HEADER_LENGTH - extraLength;
+		if (readFully(in, block, HEADER_LENGTH + extraLength, rest) < rest) {
+			throw new EOFException("Truncated BGZF block");
+		}
+		return block;
+	}
+
+	private static byte[] inflate(byte[] block) throws IOException {
+		int dataStart = HEADER_LENGTH + uint16(block, 10);
+		int dataLength = block.length - dataStart - TRAILER_LENGTH;
+		int crc = uint16(block, block.length - 8) | uint16(block, block.length - 6) << 16;
+		int size = uint16(block, block.length - 4) | uint16(block, block.length - 2) << 16;
+		if (size < 0 || size > 1 << 16) {
+			throw new IOException("Invalid BGZF block: uncompressed size " + size);
+		}
+		byte[] out = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(block, dataStart, dataLength);
+			int n = 0;
+			while (n < size && !inflater.finished()) {
+				int inflated = inflater.inflate(out, n, size - n);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += inflated;
+			}
+			if (n != size) {
+				throw new IOException("Invalid BGZF block: inflated " + n + " bytes, expected " + size);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid BGZF block", e);
+		} finally {
+			inflater.end();
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(out, 0, size);
+		if ((int) checksum.getValue() != crc) {
+			throw new IOException("Invalid BGZF block: CRC mismatch");
+		}
+		return out;
+	}
+
+	private static int readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+		int n = 0;
+		while (n < len) {
+			int read = in.read(b, off + n, len - n);
+			if (read < 0) {
+				break;
+			}
+			n += read;
+		}
+		return n;
+	}
+
+	private static int uint16(byte[] b, int i) {
+		return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8;
+	}
+}
@@ -0,0 +1,515 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * An injectable executor for the parallel parts of BioJava, as an alternative to the static pool of
+ * {@link ConcurrencyTools}. Each instance wraps its own {@link ExecutorService} and keeps metrics on the tasks
+ * submitted through it (queue depth, waiting and running times), so that separate workloads can be isolated and
+ * monitored.
+ * <p>
+ * Instances are created with one of the factory methods:
+ * <ul>
+ * <li>{@link #fixed(String, int, int)}: a fixed number of threads with a bounded queue. When the queue is full the
+ * submitting thread runs the task itself, which throttles submission (backpressure).</li>
+ * <li>{@link #workStealing(String, int)}: a {@link ForkJoinPool}.</li>
+ * <li>{@link #virtualThreads(String)}: one virtual thread per task, only available on Java 21 or later.</li>
+ * <li>{@link #wrap(String, ExecutorService)}: any other executor service.</li>
+ * </ul>
+ * {@link #getDefault()} returns an instance backed by the shared pool of {@link ConcurrencyTools}, which remains
+ * the default of all methods that accept an executor. Closing it has no effect, since the pool is shared by the
+ * whole JVM.
+ * <p>
+ * Usage:
+ * <pre>
+ *    try (BioJavaExecutor executor = BioJavaExecutor.fixed("alignments", 8, 1000)) {
+ *        List&lt;SequencePair&lt;S, C&gt;&gt; pairs = Alignments.getAllPairsAlignments(sequences, type, gaps, matrix,
+ *                executor);
+ *        logger.info("{}", executor.getMetrics());
+ *    }
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class BioJavaExecutor implements Executor, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(BioJavaExecutor.class);
+
+	private static final BioJavaExecutor DEFAULT = new BioJavaExecutor("default", ConcurrencyTools::getThreadPool) {
+		@Override
+		public void shutdown() {
+			ConcurrencyTools.shutdown();
+		}
+
+		@Override
+		public void shutdownAndAwaitTermination() {
+			ConcurrencyTools.shutdownAndAwaitTermination();
+		}
+
+		@Override
+		public void close() {
+			// the shared pool is only shut down on an explicit request
+		}
+	};
+
+	private final String name;
+	private final Supplier<ExecutorService> service;
+
+	private final LongAdder submitted = new LongAdder(), started = new LongAdder(), completed = new LongAdder(),
+			failed = new LongAdder(), waitNanos = new LongAdder(), runNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong(), maxRunNanos = new AtomicLong();
+
+	/**
+	 * Creates an executor which submits tasks to the given service.
+	 *
+	 * @param name the name of this executor, used in logs and metrics
+	 * @param service supplies the executor service on each submission
+	 */
+	protected BioJavaExecutor(String name, Supplier<ExecutorService> service) {
+		this.name = name;
+		this.service = service;
+	}
+
+	/**
+	 * Returns the executor backed by the shared thread pool of {@link ConcurrencyTools}.
+	 *
+	 * @return the default executor
+	 */
+	public static BioJavaExecutor getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Creates an executor with a fixed number of threads and a bounded queue. When the queue is full, tasks run in
+	 * the submitting thread.
+	 *
+	 * @param name the name of the executor, also used for its threads
+	 * @param threads the number of threads
+	 * @param queueCapacity the maximum number of queued tasks
+	 * @return a new executor
+	 */
+	public static BioJavaExecutor fixed(String name, int threads, int queueCapacity) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), daemonThreads(name),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		return wrap(name, pool);
+	}
+
+	/**
+	 * Creates a work-stealing executor backed by a {@link ForkJoinPool}.
+	 *
+	 * @param name the name of the executor
+	 * @param parallelism the targeted number of threads
+	 * @return a new executor
+	 */
+	public static BioJavaExecutor workStealing(String name, int parallelism) {
+		return wrap(name, new ForkJoinPool(parallelism));
+	}
+
+	/**
+	 * Creates an executor which starts a virtual thread for each task. This suits tasks which mostly wait on I/O,
+	 * such as fetching structures.
+	 *
+	 * @param name the name of the executor
+	 * @return a new executor
+	 * @throws UnsupportedOperationException if the running Java version has no virtual threads
+	 */
+	public static BioJavaExecutor virtualThreads(String name) {
+		try {
+			// looked up at run time, since BioJava is compiled for an earlier Java version
+			ExecutorService service = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			return wrap(name, service);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+		}
+	}
+
+	/**
+	 * Creates an executor which submits tasks to the given service.
+	 *
+	 * @param name the name of the executor
+	 * @param service the executor service to run tasks
+	 * @return a new executor
+	 */
+	public static BioJavaExecutor wrap(String name, ExecutorService service) {
+		return new BioJavaExecutor(name, () -> service);
+	}
+
+	/**
+	 * Returns the name of this executor.
+	 *
+	 * @return the name given at creation
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the underlying executor service.
+	 *
+	 * @return the executor service running the tasks
+	 */
+	public ExecutorService getExecutorService() {
+		return service.get();
+	}
+
+	/**
+	 * Queues up a task and adds a log entry.
+	 *
+	 * @param <T> type returned from the submitted task
+	 * @param task submitted task
+	 * @param message logged message
+	 * @return future on which the desired value is retrieved by calling get()
+	 */
+	public <T> Future<T> submit(Callable<T> task, String message) {
+		// counted before handing over, since a caller-runs policy starts the task right away
+		submitted.increment();
+		logger.debug("Task submitted to {} executor. {}", name, message);
+		long queuedAt = System.nanoTime();
+		try {
+			return service.get().submit(() -> {
+				long startedAt = begin(queuedAt);
+				boolean success = false;
+				try {
+					T result = task.call();
+					success = true;
+					return result;
+				} finally {
+					end(startedAt, success);
+				}
+			});
+		} catch (RuntimeException e) {
+			// rejected, for instance after shutdown
+			submitted.decrement();
+			throw e;
+		}
+	}
+
+	/**
+	 * Queues up a task.
+	 *
+	 * @param <T> type returned from the submitted task
+	 * @param task submitted task
+	 * @return future on which the desired value is retrieved by calling get()
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return submit(task, "");
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		execute(() -> {
+			task.run();
+			return true;
+		});
+	}
+
+	/**
+	 * Queues up a task which reports whether it succeeded, for tasks that handle their own exceptions.
+	 */
+	private void execute(BooleanSupplier task) {
+		submitted.increment();
+		long queuedAt = System.nanoTime();
+		try {
+			service.get().execute(() -> run(task, queuedAt));
+		} catch (RuntimeException e) {
+			submitted.decrement();
+			throw e;
+		}
+	}
+
+	private boolean run(BooleanSupplier task, long queuedAt) {
+		long startedAt = begin(queuedAt);
+		boolean success = false;
+		try {
+			success = task.getAsBoolean();
+			return success;
+		} finally {
+			end(startedAt, success);
+		}
+	}
+
+	/**
+	 * Runs {@code body} for each index from 0 to {@code count - 1} in parallel, and waits for all of them. The
+	 * calling thread takes part: helper tasks are submitted to this executor, and all of them pull indices from a
+	 * shared counter. The call returns once every index is done, without waiting for helpers that had not started
+	 * by then (they find no work left), so it does not deadlock when called from a task of the same, saturated
+	 * executor.
+	 * <p>
+	 * If {@code body} throws, the remaining indices are skipped and the first exception is rethrown.
+	 * <p>
+	 * In the {@link #getMetrics() metrics}, the helpers and the share of the calling thread each count as one task,
+	 * which fails if {@code body} threw in it.
+	 *
+	 * @param count the number of indices
+	 * @param body the work for one index
+	 * @throws IllegalStateException if the calling thread is interrupted while waiting
+	 */
+	public void parallelFor(int count, IntConsumer body) {
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		BooleanSupplier worker = () -> {
+			while (true) {
+				// announce before claiming, so that the caller cannot miss a claimed index
+				inFlight.incrementAndGet();
+				try {
+					int i = next.getAndIncrement();
+					if (i >= count) {
+						return true;
+					}
+					body.accept(i);
+				} catch (RuntimeException | Error e) {
+					failure.compareAndSet(null, e);
+					next.set(count);
+					return false;
+				} finally {
+					if (inFlight.decrementAndGet() == 0) {
+						synchronized (inFlight) {
+							inFlight.notifyAll();
+						}
+					}
+				}
+			}
+		};
+		int helpers = Math.min(count, Runtime.getRuntime().availableProcessors()) - 1;
+		for (int h = 0; h < helpers; h++) {
+			execute(worker);
+		}
+		submitted.increment();
+		run(worker, System.nanoTime());
+		synchronized (inFlight) {
+			while (inFlight.get() > 0) {
+				try {
+					inFlight.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
+				}
+			}
+		}
+		Throwable e = failure.get();
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		if (e != null) {
+			throw (Error) e;
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of all tasks submitted so far.
+	 *
+	 * @return the current metrics
+	 */
+	public Metrics getMetrics() {
+		return new Metrics(name, submitted.sum(), started.sum(), completed.sum(), failed.sum(), waitNanos.sum(),
+				maxWaitNanos.get(), runNanos.sum(), maxRunNanos.get());
+	}
+
+	/**
+	 * Disables new tasks from being submitted and closes the executor cleanly.
+	 */
+	public void shutdown() {
+		service.get().shutdown();
+	}
+
+	/**
+	 * Closes the executor. Waits 1 minute for a clean exit; if necessary, waits another minute for cancellation.
+	 */
+	public void shutdownAndAwaitTermination() {
+		ExecutorService pool = service.get();
+		pool.shutdown();
+		try {
+			if (!pool.awaitTermination(60L, TimeUnit.SECONDS)) {
+				pool.shutdownNow();
+				if (!pool.awaitTermination(60L, TimeUnit.SECONDS)) {
+					logger.warn("BioJava {} executor did not terminate", name);
+				}
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Same as {@link #shutdownAndAwaitTermination()}, so that executors can be used in try-with-resources. Does
+	 * nothing on the {@link #getDefault() default} executor.
+	 */
+	@Override
+	public void close() {
+		shutdownAndAwaitTermination();
+	}
+
+	@Override
+	public String toString() {
+		return getMetrics().toString();
+	}
+
+	private long begin(long queuedAt) {
+		long startedAt = System.nanoTime();
+		started.increment();
+		long wait = startedAt - queuedAt;
+		waitNanos.add(wait);
+		maxWaitNanos.accumulateAndGet(wait, Math::max);
+		return startedAt;
+	}
+
+	private void end(long startedAt, boolean success) {
+		long run = System.nanoTime() - startedAt;
+		runNanos.add(run);
+		maxRunNanos.accumulateAndGet(run, Math::max);
+		if (success) {
+			completed.increment();
+		} else {
+			failed.increment();
+		}
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, "biojava-" + name + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * An immutable snapshot of the task metrics of a {@link BioJavaExecutor}.
+	 */
+	public static class Metrics {
+
+		private final String name;
+		private final long submitted, started, completed, failed;
+		private final long totalWaitNanos, maxWaitNanos, totalRunNanos, maxRunNanos;
+
+		Metrics(String name, long submitted, long started, long completed, long failed, long totalWaitNanos,
+				long maxWaitNanos, long totalRunNanos, long maxRunNanos) {
+			this.name = name;
+			this.submitted = submitted;
+			this.started = started;
+			this.completed = completed;
+			this.failed = failed;
+			this.totalWaitNanos = totalWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.totalRunNanos = totalRunNanos;
+			this.maxRunNanos = maxRunNanos;
+		}
+
+		/**
+		 * @return the number of tasks submitted
+		 */
+		public long getSubmitted() {
+			return submitted;
+		}
+
+		/**
+		 * @return the number of tasks completed normally
+		 */
+		public long getCompleted() {
+			return completed;
+		}
+
+		/**
+		 * @return the number of tasks which threw an exception
+		 */
+		public long getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return the number of tasks submitted but not yet started
+		 */
+		public long getQueueDepth() {
+			return submitted - started;
+		}
+
+		/**
+		 * @return the number of tasks started but not yet finished
+		 */
+		public long getActive() {
+			return started - completed - failed;
+		}
+
+		/**
+		 * @return the mean time tasks waited in the queue, in nanoseconds
+		 */
+		public double getMeanWaitNanos() {
+			return started == 0 ? 0 : (double) totalWaitNanos / started;
+		}
+
+		/**
+		 * @return the longest time a task waited in the queue, in nanoseconds
+		 */
+		public long getMaxWaitNanos() {
+			return maxWaitNanos;
+		}
+
+		/**
+		 * @return the mean running time of finished tasks, in nanoseconds
+		 */
+		public double getMeanRunNanos() {
+			long finished = completed + failed;
+			return finished == 0 ? 0 : (double) totalRunNanos / finished;
+		}
+
+		/**
+		 * @return the longest running time of a finished task, in nanoseconds
+		 */
+		public long getMaxRunNanos() {
+			return maxRunNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s executor: %d submitted, %d queued, %d active, %d completed, %d failed, "
+					+ "wait %.3f ms mean %.3f ms max, run %.3f ms mean %.3f ms max", name, submitted,
+					getQueueDepth(), getActive(), completed, failed, getMeanWaitNanos() / 1e6, maxWaitNanos / 1e6,
+					getMeanRunNanos() / 1e6, maxRunNanos / 1e6);
+		}
+	}
+
+}
@@ -27,10 +27,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Static utility to easily share a thread pool for concurrent/parallel/lazy execution.  To exit cleanly,
  * {@link #shutdown()} or {@link #shutdownAndAwaitTermination()} must be called after all tasks have been submitted.
+ * <p>
+ * To isolate workloads, bound the queue or collect metrics, pass a {@link BioJavaExecutor} to the methods that
+ * accept one instead. {@link BioJavaExecutor#getDefault()} is backed by this shared pool.
  *
  * @author Mark Chapman
  */
@@ -39,7 +43,7 @@ public class ConcurrencyTools {
 	private final static Logger logger = LoggerFactory.getLogger(ConcurrencyTools.class);
 
 	private static ThreadPoolExecutor pool;
-	private static int tasks = 0;
+	private static final AtomicInteger tasks = new AtomicInteger();
 	private ConcurrencyTools() { }
 
 	/**
@@ -151,7 +155,7 @@ public class ConcurrencyTools {
 	 * @return future on which the desired value is retrieved by calling get()
 	 */
 	public static<T> Future<T> submit(Callable<T> task, String message) {
-		logger.debug("Task " + (++tasks) + " submitted to shared thread pool. " + message);
+		logger.debug("Task " + tasks.incrementAndGet() + " submitted to shared thread pool. " + message);
 		return getThreadPool().submit(task);
 	}
 
@@ -22,6 +22,10 @@ package org.biojava.nbio.core.search.io;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.biojava.nbio.core.search.io.blast.BlastTabularParser;
 import org.biojava.nbio.core.search.io.blast.BlastXMLParser;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -110,4 +114,27 @@ public class SearchIOTest {
 			fail("test failed:\n"+e.getMessage());
 		}
 	}
+	/**
+	 * Iteration test: results are parsed again for each iterator
+	 */
+	@Test
+	public void testIterator() throws Exception {
+		String resource = "/org/biojava/nbio/core/search/io/blast/test.two-query.blasttxt";
+		URL resourceURL = getClass().getResource(resource);
+		File file = new File(resourceURL.getFile());
+
+		SearchIO instance = new SearchIO(file, new BlastTabularParser(), 1e-10);
+		for (int pass = 0; pass < 2; pass++) {
+			List<String> queries = new ArrayList<>();
+			for (Result result : instance) {
+				queries.add(result.getQueryID());
+				for (Hit hit : result) {
+					for (Hsp hsp : hit) {
+						assertTrue(hsp.getHspEvalue() <= 1e-10);
+					}
+				}
+			}
+			assertEquals(Arrays.asList("Query_1", "Query_2"), queries);
+		}
+	}
 }
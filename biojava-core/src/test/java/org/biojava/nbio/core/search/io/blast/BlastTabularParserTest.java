@@ -22,11 +22,14 @@ package org.biojava.nbio.core.search.io.blast;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import org.biojava.nbio.core.search.io.Hit;
 import org.biojava.nbio.core.search.io.Hsp;
 import org.biojava.nbio.core.search.io.Result;
+import org.biojava.nbio.core.search.io.ResultIterator;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -204,6 +207,69 @@ public class BlastTabularParserTest {
 		assertEquals(expHsp1hit1res1, hsp1Hit1Res1);
 	}
 
+	/**
+	 * An iterator left before the end of the report is closed by try-with-resources.
+	 */
+	@Test
+	public void testCloseIterator() throws Exception {
+		File file = getFileForResource("/org/biojava/nbio/core/search/io/blast/test.two-query.blasttxt");
+		BlastTabularParser instance = new BlastTabularParser();
+		instance.setFile(file);
 
+		ResultIterator results;
+		try (ResultIterator iterator = instance.createIterator(1e-10)) {
+			results = iterator;
+			assertTrue(iterator.hasNext());
+			iterator.next();
+		}
+		assertFalse(results.hasNext());
+		// closing again does nothing
+		results.close();
+	}
 
+	/**
+	 * Test of createIterator method, of class BlastTabularParser.
+	 */
+	@Test
+	public void testCreateIterator() throws Exception {
+		File file = getFileForResource("/org/biojava/nbio/core/search/io/blast/test.two-query.blasttxt");
+		BlastTabularParser instance = new BlastTabularParser();
+		instance.setFile(file);
+
+		int expectedHsps = 0;
+		for (String line : Files.readAllLines(file.toPath())) {
+			if (!line.startsWith("#") && Double.parseDouble(line.split("\t")[10]) <= 1e-10) expectedHsps++;
+		}
+
+		List<Result> results = instance.createObjects(1e-10);
+		Iterator<Result> iterator = instance.createIterator(1e-10);
+		int hsps = 0;
+		for (Result expected : results) {
+			assertTrue(iterator.hasNext());
+			Result result = iterator.next();
+			assertEquals(expected.getQueryID(), result.getQueryID());
+			assertEquals(expected.getQueryDef(), result.getQueryDef());
+			Iterator<Hit> hits = result.iterator();
+			for (Hit expectedHit : expected) {
+				Hit hit = hits.next();
+				Iterator<Hsp> hspIterator = hit.iterator();
+				for (Hsp expectedHsp : expectedHit) {
+					Hsp hsp = hspIterator.next();
+					assertEquals(expectedHsp.getHspHitFrom(), hsp.getHspHitFrom());
+					assertEquals(expectedHsp.getHspEvalue(), hsp.getHspEvalue(), 0.0);
+					assertTrue(hsp.getHspEvalue() <= 1e-10);
+					hsps++;
+				}
+				assertFalse(hspIterator.hasNext());
+			}
+			assertFalse(hits.hasNext());
+		}
+		assertFalse(iterator.hasNext());
+
+		assertEquals(2, results.size());
+		assertEquals("Query_1", results.get(0).getQueryID());
+		assertEquals("Dual oxidase (DUOX1_RAT)", results.get(0).getQueryDef());
+		assertEquals("Query_2", results.get(1).getQueryID());
+		assertEquals(expectedHsps, hsps);
+	}
 }
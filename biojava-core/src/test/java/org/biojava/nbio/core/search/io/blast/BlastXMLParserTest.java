@@ -21,8 +21,12 @@
 package org.biojava.nbio.core.search.io.blast;
 
 import java.io.File;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import org.biojava.nbio.core.search.io.Hit;
 import org.biojava.nbio.core.search.io.Hsp;
@@ -31,7 +35,9 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
 import org.junit.Ignore;
 
@@ -41,6 +47,9 @@ import org.junit.Ignore;
  */
 public class BlastXMLParserTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	public BlastXMLParserTest() {
 	}
 
@@ -203,4 +212,118 @@ public class BlastXMLParserTest {
 	public void testStoreObjects() throws Exception {
 		// not implemented yet
 	}
+
+	/**
+	 * Test of createIterator method, of class BlastXMLParser.
+	 */
+	@Test
+	public void testCreateIterator() throws Exception {
+		StringBuilder xml = new StringBuilder()
+				.append("<?xml version=\"1.0\"?>\n")
+				.append("<!DOCTYPE BlastOutput PUBLIC \"-//NCBI//NCBI BlastOutput/EN\" \"https://www.ncbi.nlm.nih.gov/dtd/NCBI_BlastOutput.dtd\">\n")
+				.append("<BlastOutput>\n")
+				.append("  <BlastOutput_program>blastp</BlastOutput_program>\n")
+				.append("  <BlastOutput_version>BLASTP 2.2.29+</BlastOutput_version>\n")
+				.append("  <BlastOutput_reference>&quot;ref&quot;</BlastOutput_reference>\n")
+				.append("  <BlastOutput_db>db.fasta</BlastOutput_db>\n")
+				.append("  <BlastOutput_param><Parameters><Parameters_expect>10</Parameters_expect></Parameters></BlastOutput_param>\n")
+				.append("<BlastOutput_iterations>\n");
+		for (int i = 1; i <= 3; i++) {
+			xml.append("<Iteration>\n")
+				.append("  <Iteration_iter-num>").append(i).append("</Iteration_iter-num>\n")
+				.append("  <Iteration_query-ID>Query_").append(i).append("</Iteration_query-ID>\n")
+				.append("  <Iteration_query-def>query ").append(i).append("</Iteration_query-def>\n")
+				.append("  <Iteration_query-len>100</Iteration_query-len>\n");
+			// the second query has no hits
+			if (i != 2) {
+				xml.append("<Iteration_hits>\n");
+				for (int h = 1; h <= 2; h++) {
+					xml.append("<Hit>\n")
+						.append("  <Hit_num>").append(h).append("</Hit_num>\n")
+						.append("  <Hit_id>gnl|BL_ORD_ID|").append(h).append("</Hit_id>\n")
+						.append("  <Hit_def>hit ").append(h).append("</Hit_def>\n")
+						.append("  <Hit_accession>").append(h).append("</Hit_accession>\n")
+						.append("  <Hit_len>").append(200 + h).append("</Hit_len>\n")
+						.append("  <Hit_hsps>\n");
+					for (int n = 1; n <= 2; n++) {
+						xml.append("    <Hsp>\n")
+							.append("      <Hsp_num>").append(n).append("</Hsp_num>\n")
+							.append("      <Hsp_bit-score>").append(50.5 / n).append("</Hsp_bit-score>\n")
+							.append("      <Hsp_score>").append(120 / n).append("</Hsp_score>\n")
+							.append("      <Hsp_evalue>").append(n == 1 ? "1e-20" : "0.5").append("</Hsp_evalue>\n")
+							.append("      <Hsp_query-from>1</Hsp_query-from>\n")
+							.append("      <Hsp_query-to>4</Hsp_query-to>\n")
+							.append("      <Hsp_hit-from>").append(10 * h).append("</Hsp_hit-from>\n")
+							.append("      <Hsp_hit-to>").append(10 * h + 3).append("</Hsp_hit-to>\n")
+							.append("      <Hsp_query-frame>0</Hsp_query-frame>\n")
+							.append("      <Hsp_hit-frame>0</Hsp_hit-frame>\n")
+							.append("      <Hsp_identity>3</Hsp_identity>\n")
+							.append("      <Hsp_positive>4</Hsp_positive>\n")
+							.append("      <Hsp_gaps>0</Hsp_gaps>\n")
+							.append("      <Hsp_align-len>4</Hsp_align-len>\n")
+							.append("      <Hsp_qseq>MKLV</Hsp_qseq>\n")
+							.append("      <Hsp_hseq>MKIV</Hsp_hseq>\n")
+							.append("      <Hsp_midline>MK+V</Hsp_midline>\n")
+							.append("    </Hsp>\n");
+					}
+					xml.append("  </Hit_hsps>\n</Hit>\n");
+				}
+				xml.append("</Iteration_hits>\n");
+			}
+			xml.append("  <Iteration_stat><Statistics><Statistics_db-num>3</Statistics_db-num></Statistics></Iteration_stat>\n")
+				.append("</Iteration>\n");
+		}
+		xml.append("</BlastOutput_iterations>\n</BlastOutput>\n");
+
+		File file = folder.newFile("report.blastxml");
+		Files.write(file.toPath(), xml.toString().getBytes(StandardCharsets.UTF_8));
+
+		BlastXMLParser instance = new BlastXMLParser();
+		instance.setFile(file);
+		Iterator<Result> iterator = instance.createIterator(1e-10);
+		List<Result> results = new ArrayList<>();
+		iterator.forEachRemaining(results::add);
+
+		assertEquals(2, results.size());
+		Result result = results.get(1);
+		assertEquals("blastp", result.getProgram());
+		assertEquals("\"ref\"", result.getReference());
+		assertEquals("db.fasta", result.getDbFile());
+		assertEquals(3, result.getIterationNumber());
+		assertEquals("Query_3", result.getQueryID());
+		assertEquals("query 3", result.getQueryDef());
+		assertEquals(100, result.getQueryLength());
+
+		List<Hit> hits = new ArrayList<>();
+		result.iterator().forEachRemaining(hits::add);
+		assertEquals(2, hits.size());
+		Hit hit = hits.get(1);
+		assertEquals(2, hit.getHitNum());
+		assertEquals("gnl|BL_ORD_ID|2", hit.getHitId());
+		assertEquals("hit 2", hit.getHitDef());
+		assertEquals(202, hit.getHitLen());
+
+		// the hsp above the threshold is left out
+		Iterator<Hsp> hsps = hit.iterator();
+		Hsp hsp = hsps.next();
+		assertFalse(hsps.hasNext());
+		assertEquals(1e-20, hsp.getHspEvalue(), 0.0);
+		assertEquals(50.5, hsp.getHspBitScore(), 0.0);
+		assertEquals(120, hsp.getHspScore());
+		assertEquals(20, hsp.getHspHitFrom());
+		assertEquals(23, hsp.getHspHitTo());
+		assertEquals("MKLV", hsp.getHspQseq());
+		assertEquals("MK+V", hsp.getHspIdentityString());
+
+		assertEquals(results, instance.createObjects(1e-10));
+
+		Files.write(file.toPath(), xml.toString().replace("<Hit_len>202", "<Hit_len>x").getBytes(StandardCharsets.UTF_8));
+		iterator = instance.createIterator(1e-10);
+		try {
+			iterator.next();
+			fail("Expected UncheckedIOException");
+		} catch (UncheckedIOException e) {
+			assertTrue(e.getMessage().contains("Hit_len"));
+		}
+	}
 }
@@ -0,0 +1,183 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.compound.AmbiguityDNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.io.DNASequenceCreator;
+import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.SequenceView;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedNucleotideSequenceReaderTest {
+
+	private final CompoundSet<NucleotideCompound> ambiguity = AmbiguityDNACompoundSet.getDNACompoundSet();
+
+	@Test
+	public void sameAsArrayListReader() throws CompoundNotFoundException {
+		Random random = new Random(7);
+		for (int length : new int[] {0, 1, 31, 32, 33, 100, 1000, 5003}) {
+			String seq = randomSequence(random, length);
+			PackedNucleotideSequenceReader<NucleotideCompound> packed = new PackedNucleotideSequenceReader<>(seq, ambiguity);
+			ArrayListSequenceReader<NucleotideCompound> list = new ArrayListSequenceReader<>(seq, ambiguity);
+
+			assertEquals(length, packed.getLength());
+			assertEquals(seq, packed.getSequenceAsString());
+			assertEquals(list.getAsList(), packed.getAsList());
+			for (int i = 1; i <= length; i++) {
+				assertEquals(list.getCompoundAt(i), packed.getCompoundAt(i));
+			}
+			for (int k = 0; k < 200 && length > 0; k++) {
+				int i = 1 + random.nextInt(length);
+				assertEquals(list.getCompoundAt(i), packed.getCompoundAt(i));
+			}
+			for (NucleotideCompound c : ambiguity.getAllCompounds()) {
+				assertEquals(seq + " " + c, list.countCompounds(c), packed.countCompounds(c));
+			}
+			for (int k = 0; k < 50 && length > 0; k++) {
+				int start = 1 + random.nextInt(length);
+				int end = start - 1 + random.nextInt(length - start + 2);
+				assertEquals(seq.substring(start - 1, end), packed.getSequenceAsString(start, end));
+				assertEquals(seq.substring(start - 1, end), packed.getSubSequence(start, end).getSequenceAsString());
+				NucleotideCompound c = ambiguity.getAllCompounds().get(random.nextInt(ambiguity.getAllCompounds().size()));
+				assertEquals(list.getSubSequence(start, end).countCompounds(c),
+						packed.getSubSequence(start, end).countCompounds(c));
+			}
+		}
+	}
+
+	@Test
+	public void blocksAndMasks() throws CompoundNotFoundException {
+		String seq = "NNNNacgtNNnnACGTRYKMacgtnnnAC--GT";
+		PackedNucleotideSequenceReader<NucleotideCompound> packed = new PackedNucleotideSequenceReader<>(seq, ambiguity);
+		assertEquals(seq, packed.getSequenceAsString());
+		// NNNN, NN, nn (one block), RYKM (four blocks), nnn, --
+		assertEquals(8, packed.getBlockCount());
+		// acgt, nn, acgtnnn
+		assertEquals(3, packed.getMaskCount());
+		assertEquals(6, packed.countCompounds(ambiguity.getCompoundForString("N")));
+		assertEquals(5, packed.countCompounds(ambiguity.getCompoundForString("n")));
+		assertEquals(2, packed.countCompounds(ambiguity.getCompoundForString("T")));
+		assertEquals(2, packed.countCompounds(ambiguity.getCompoundForString("t")));
+		assertEquals(2, packed.countCompounds(ambiguity.getCompoundForString("-")));
+		assertEquals(4, packed.countCompounds(ambiguity.getCompoundForString("T"), ambiguity.getCompoundForString("t")));
+	}
+
+	@Test
+	public void packedData() throws CompoundNotFoundException {
+		// TCAG repeated, with garbage under the N block and in the padding
+		long[] words = {0x1B1B1B1B1B1B1B1BL, 0x1B1BFFFFFFFFFFFFL};
+		PackedNucleotideSequenceReader<NucleotideCompound> packed = new PackedNucleotideSequenceReader<>(
+				DNACompoundSet.getDNACompoundSet(), new AccessionID("chrT"), 40, words,
+				new int[] {4}, new int[] {4}, new byte[] {'N'}, new int[] {0, 36}, new int[] {2, 4});
+		String expected = "tcAGNNNNTCAGTCAGTCAGTCAGTCAGTCAGTCAGtcag";
+		assertEquals(expected, packed.getSequenceAsString());
+		assertEquals("chrT", packed.getAccession().getID());
+		assertEquals(7, packed.countCompounds(DNACompoundSet.getDNACompoundSet().getCompoundForString("T")));
+		assertEquals(2, packed.countCompounds(DNACompoundSet.getDNACompoundSet().getCompoundForString("t")));
+	}
+
+	@Test
+	public void unknownCompounds() {
+		assertFalse(PackedNucleotideSequenceReader.canPack(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+		assertTrue(PackedNucleotideSequenceReader.canPack(DNACompoundSet.getDNACompoundSet()));
+		try {
+			new PackedNucleotideSequenceReader<>("ACGTR", DNACompoundSet.getDNACompoundSet());
+			fail("Expected CompoundNotFoundException");
+		} catch (CompoundNotFoundException e) {
+			// expected, R is only in the ambiguity set
+		}
+	}
+
+	@Test
+	public void setContents() throws CompoundNotFoundException {
+		PackedNucleotideSequenceReader<NucleotideCompound> packed = new PackedNucleotideSequenceReader<>("NNacgtRY", ambiguity);
+		assertEquals(ambiguity.getCompoundForString("t"), packed.getCompoundAt(6));
+		packed.setContents("ACGTAC");
+		assertEquals("ACGTAC", packed.getSequenceAsString());
+		assertEquals(6, packed.getLength());
+		assertEquals(0, packed.getBlockCount());
+		assertEquals(0, packed.getMaskCount());
+		assertEquals(ambiguity.getCompoundForString("T"), packed.getCompoundAt(4));
+		assertEquals(new PackedNucleotideSequenceReader<>("ACGTAC", ambiguity), packed);
+		try {
+			packed.setContents("ACGTJ");
+			fail("Expected CompoundNotFoundException");
+		} catch (CompoundNotFoundException e) {
+			assertEquals("ACGTAC", packed.getSequenceAsString());
+		}
+	}
+
+	@Test
+	public void creatorPacksLongSequences() throws CompoundNotFoundException {
+		String seq = randomSequence(new Random(1), 20000);
+		DNASequenceCreator creator = new DNASequenceCreator(ambiguity);
+		DNASequence packed = (DNASequence) creator.getSequence(seq, 0);
+		DNASequence small = (DNASequence) creator.getSequence(seq.substring(0, 100), 0);
+		DNASequence plain = new DNASequence(seq, ambiguity);
+		assertTrue(packed.getProxySequenceReader() instanceof PackedNucleotideSequenceReader);
+		assertTrue(small.getProxySequenceReader() instanceof ArrayListSequenceReader);
+		DNASequence unpacked = (DNASequence) new DNASequenceCreator(ambiguity, Integer.MAX_VALUE).getSequence(seq, 0);
+		assertTrue(unpacked.getProxySequenceReader() instanceof ArrayListSequenceReader);
+
+		assertEquals(plain, packed);
+		assertEquals(plain.getSequenceAsString(), packed.getSequenceAsString());
+		assertEquals(plain.getGCCount(), packed.getGCCount());
+		assertEquals(plain.getReverseComplement().getSequenceAsString(), packed.getReverseComplement().getSequenceAsString());
+		SequenceView<NucleotideCompound> view = packed.getSubSequence(101, 5000);
+		assertSame(packed, view.getViewedSequence());
+		assertEquals(seq.substring(100, 5000), view.getSequenceAsString());
+		assertEquals(plain.getSubSequence(101, 5000).countCompounds(ambiguity.getCompoundForString("a")),
+				view.countCompounds(ambiguity.getCompoundForString("a")));
+	}
+
+	// mostly ACGT with soft-masked stretches, N runs and some ambiguity codes and gaps
+	private static String randomSequence(Random random, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		boolean lower = false;
+		while (sb.length() < length) {
+			int r = random.nextInt(100);
+			if (r < 3) {
+				lower = !lower;
+			}
+			String bases;
+			if (r < 5) {
+				bases = "NNNNNNNNNN".substring(random.nextInt(10));
+			} else if (r < 8) {
+				bases = String.valueOf("RYKMSWBDHV-".charAt(random.nextInt(11)));
+			} else {
+				bases = String.valueOf("ACGT".charAt(random.nextInt(4)));
+			}
+			sb.append(lower ? bases.toLowerCase() : bases);
+		}
+		sb.setLength(length);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.io.IndexedFastaSequenceFile.IndexEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IndexedFastaSequenceFileTest {
+
+	private static final String FASTA =
+			">seq1 some description\n" +
+			"ACGTACGTAC\n" +
+			"GTACGTACGT\n" +
+			"ACG\n" +
+			">seq2\n" +
+			"NNNNACGT\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCreateIndex() throws Exception {
+		Path fasta = write("test.fa", FASTA);
+		List<IndexEntry> index = IndexedFastaSequenceFile.createIndex(fasta);
+
+		// as written by samtools faidx
+		assertEquals(2, index.size());
+		assertEquals("seq1\t23\t23\t10\t11", index.get(0).toString());
+		assertEquals("seq2\t8\t55\t8\t9", index.get(1).toString());
+
+		Path fai = Paths.get(fasta + IndexedFastaSequenceFile.INDEX_EXTENSION);
+		IndexedFastaSequenceFile.writeIndex(index, fai);
+		assertEquals("seq1\t23\t23\t10\t11\nseq2\t8\t55\t8\t9\n",
+				new String(Files.readAllBytes(fai), StandardCharsets.UTF_8));
+		List<IndexEntry> read = IndexedFastaSequenceFile.readIndex(fai);
+		assertEquals(index.toString(), read.toString());
+	}
+
+	@Test
+	public void testWindowsLineBreaks() throws Exception {
+		Path fasta = write("crlf.fa", FASTA.replace("\n", "\r\n"));
+		List<IndexEntry> index = IndexedFastaSequenceFile.createIndex(fasta);
+		assertEquals("seq1\t23\t24\t10\t12", index.get(0).toString());
+		try (IndexedFastaSequenceFile file = new IndexedFastaSequenceFile(fasta)) {
+			assertEquals("ACGTACGTACGTACGTACGTACG", file.getSubsequenceAt("seq1", 1, 23));
+			assertEquals("NNNNACGT", file.getDNASequence("seq2").getSequenceAsString());
+		}
+	}
+
+	@Test
+	public void testUnevenLines() throws Exception {
+		Path fasta = write("uneven.fa", ">seq1\nACG\nACGTA\n");
+		try {
+			IndexedFastaSequenceFile.createIndex(fasta);
+			fail("Expected an IOException for uneven line lengths");
+		} catch (java.io.IOException e) {
+			assertTrue(e.getMessage().contains("seq1"));
+		}
+	}
+
+	@Test
+	public void testRegions() throws Exception {
+		Path fasta = write("test.fa", FASTA);
+		try (IndexedFastaSequenceFile file = new IndexedFastaSequenceFile(fasta)) {
+			assertEquals(2, file.getSequenceNames().size());
+			assertEquals(23, file.getLength("seq1"));
+
+			// regions across line breaks
+			assertEquals("TACGTACGTACG", file.getSubsequenceAt("seq1", 8, 19));
+			assertEquals("G", file.getSubsequenceAt("seq1", 23, 23));
+			assertEquals("", file.getSubsequenceAt("seq1", 5, 4));
+
+			DNASequence seq1 = file.getDNASequence("seq1");
+			assertEquals("seq1", seq1.getAccession().getID());
+			assertEquals(23, seq1.getLength());
+			assertEquals("ACGTACGTACGTACGTACGTACG", seq1.getSequenceAsString());
+			assertEquals("TACGTACGTACG", seq1.getSubSequence(8, 19).getSequenceAsString());
+			assertEquals("T", seq1.getCompoundAt(12).getShortName());
+
+			NucleotideCompound g = seq1.getCompoundSet().getCompoundForString("G");
+			assertEquals(6, seq1.countCompounds(g));
+			assertEquals(3, seq1.getIndexOf(g));
+			assertEquals(23, seq1.getLastIndexOf(g));
+			assertEquals("CGTACGTACGTACGTACGTACGT", seq1.getReverseComplement().getSequenceAsString());
+
+			try {
+				file.getSubsequenceAt("seq1", 20, 24);
+				fail("Expected IndexOutOfBoundsException");
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+			try {
+				file.getDNASequence("chrUn");
+				fail("Expected IllegalArgumentException");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testRecordOver2GB() throws Exception {
+		Path fasta = write("test.fa", FASTA);
+		// one base per line: 1.5 billion bases span almost 3 billion bytes
+		IndexEntry big = new IndexEntry("big", 1_500_000_000L, 0, 1, 2);
+		try (IndexedFastaSequenceFile file = new IndexedFastaSequenceFile(fasta, java.util.Collections.singletonList(big))) {
+			file.getSubsequenceAt("big", 1, 1);
+			fail("Expected an UncheckedIOException for a record over 2 GB");
+		} catch (java.io.UncheckedIOException e) {
+			assertTrue(e.getCause().getMessage().contains("2999999999 bytes"));
+		}
+	}
+
+	@Test
+	public void testSameAsFastaReader() throws Exception {
+		File fasta = new File(getClass().getResource("/PF00104_small.fasta").toURI());
+		Map<String, ProteinSequence> expected = FastaReaderHelper.readFastaProteinSequence(fasta);
+		Map<String, ProteinSequence> found = new LinkedHashMap<>();
+		try (IndexedFastaSequenceFile file = new IndexedFastaSequenceFile(fasta.toPath())) {
+			for (String name : file.getSequenceNames()) {
+				found.put(name, file.getProteinSequence(name));
+			}
+			assertEquals(expected.keySet(), found.keySet());
+			for (String name : expected.keySet()) {
+				assertEquals(expected.get(name).getSequenceAsString(), found.get(name).getSequenceAsString());
+				assertEquals(expected.get(name).getAsList(), found.get(name).getAsList());
+			}
+		}
+	}
+
+	private Path write(String name, String content) throws Exception {
+		Path path = folder.newFile(name).toPath();
+		Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+		return path;
+	}
+}
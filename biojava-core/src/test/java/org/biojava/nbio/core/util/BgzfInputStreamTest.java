@@ -0,0 +1,148 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class BgzfInputStreamTest {
+
+	@Test
+	void testReadsBlocksInOrder() throws IOException {
+		byte[] data = text(new Random(1), 500_000);
+		byte[] bgzf = bgzf(data, 30_000);
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("bgzf-test", 4, 16);
+				InputStream in = new BgzfInputStream(new ByteArrayInputStream(bgzf), executor, 3)) {
+			assertArrayEquals(data, readAll(in));
+		}
+		// BGZF is also valid multi-member gzip
+		assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(bgzf))));
+	}
+
+	@Test
+	void testDecompressedDetectsFormat() throws IOException {
+		byte[] data = text(new Random(2), 100_000);
+		BioJavaExecutor executor = BioJavaExecutor.getDefault();
+
+		InputStream bgzf = BgzfInputStream.decompressed(new ByteArrayInputStream(bgzf(data, 10_000)), executor);
+		assertTrue(bgzf instanceof BgzfInputStream);
+		assertArrayEquals(data, readAll(bgzf));
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+			out.write(data);
+		}
+		InputStream plainGzip = BgzfInputStream.decompressed(new ByteArrayInputStream(gzip.toByteArray()), executor);
+		assertTrue(plainGzip instanceof GZIPInputStream);
+		assertArrayEquals(data, readAll(plainGzip));
+
+		InputStream text = BgzfInputStream.decompressed(new ByteArrayInputStream(data), executor);
+		assertFalse(text instanceof BgzfInputStream || text instanceof GZIPInputStream);
+		assertArrayEquals(data, readAll(text));
+
+		assertArrayEquals(new byte[0], readAll(BgzfInputStream.decompressed(new ByteArrayInputStream(new byte[0]), executor)));
+	}
+
+	@Test
+	void testCorruptBlocks() throws IOException {
+		byte[] data = text(new Random(3), 50_000);
+		byte[] bgzf = bgzf(data, 20_000);
+
+		byte[] badCrc = bgzf.clone();
+		int firstBlockEnd = (bgzf[16] & 0xff | (bgzf[17] & 0xff) << 8) + 1;
+		badCrc[firstBlockEnd - 8] ^= 1;
+		assertThrows(IOException.class, () -> readAll(new BgzfInputStream(new ByteArrayInputStream(badCrc))));
+
+		byte[] truncated = new byte[bgzf.length - 40];
+		System.arraycopy(bgzf, 0, truncated, 0, truncated.length);
+		assertThrows(IOException.class, () -> readAll(new BgzfInputStream(new ByteArrayInputStream(truncated))));
+
+		assertThrows(IOException.class, () -> readAll(new BgzfInputStream(new ByteArrayInputStream(data))));
+	}
+
+	/**
+	 * Compresses the data in BGZF blocks of at most {@code blockSize} input bytes, followed by the empty EOF block.
+	 */
+	static byte[] bgzf(byte[] data, int blockSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int start = 0; start < data.length; start += blockSize) {
+			writeBlock(out, data, start, Math.min(blockSize, data.length - start));
+		}
+		writeBlock(out, data, 0, 0);
+		return out.toByteArray();
+	}
+
+	private static void writeBlock(ByteArrayOutputStream out, byte[] data, int off, int len) throws IOException {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data, off, len);
+		deflater.finish();
+		byte[] compressed = new byte[len + 1024];
+		int n = deflater.deflate(compressed);
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(data, off, len);
+		int blockSize = 18 + n + 8;
+		out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+				(byte) (blockSize - 1), (byte) ((blockSize - 1) >> 8)});
+		out.write(compressed, 0, n);
+		writeInt(out, (int) crc.getValue());
+		writeInt(out, len);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		for (int i = 0; i < 4; i++) {
+			out.write(value >>> (8 * i));
+		}
+	}
+
+	private static byte[] text(Random random, int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (i % 80 == 79 ? '\n' : "ACGT".charAt(random.nextInt(4)));
+		}
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[7000];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			out.write(buffer, 0, n);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+}
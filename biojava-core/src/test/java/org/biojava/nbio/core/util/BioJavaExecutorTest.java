@@ -0,0 +1,188 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class BioJavaExecutorTest {
+
+	@Test
+	void testDefaultUsesSharedPool() throws Exception {
+		assertSame(ConcurrencyTools.getThreadPool(), BioJavaExecutor.getDefault().getExecutorService());
+
+		// the shared pool survives try-with-resources
+		try (BioJavaExecutor executor = BioJavaExecutor.getDefault()) {
+			executor.submit(() -> null).get();
+		}
+		assertFalse(ConcurrencyTools.getThreadPool().isShutdown());
+	}
+
+	@Test
+	void testFixedRunsInCallerWhenQueueIsFull() throws Exception {
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("test", 1, 1)) {
+			CountDownLatch release = new CountDownLatch(1), running = new CountDownLatch(1);
+			Future<String> blocking = executor.submit(() -> {
+				running.countDown();
+				release.await();
+				return Thread.currentThread().getName();
+			});
+			running.await();
+			Future<String> queued = executor.submit(() -> Thread.currentThread().getName());
+			Future<String> overflow = executor.submit(() -> Thread.currentThread().getName());
+
+			// the pool thread is busy and the queue is full, so the third task ran in this thread
+			assertTrue(overflow.isDone());
+			assertEquals(Thread.currentThread().getName(), overflow.get());
+
+			BioJavaExecutor.Metrics metrics = executor.getMetrics();
+			assertEquals(3, metrics.getSubmitted());
+			assertEquals(1, metrics.getQueueDepth());
+
+			release.countDown();
+			assertEquals("biojava-test-1", blocking.get());
+			assertEquals("biojava-test-1", queued.get());
+			metrics = executor.getMetrics();
+			assertEquals(3, metrics.getCompleted());
+			assertEquals(0, metrics.getQueueDepth());
+			assertEquals(0, metrics.getActive());
+		}
+	}
+
+	@Test
+	void testFailedTasksAreCounted() throws Exception {
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("failing", 2, 10)) {
+			Future<Integer> ok = executor.submit(() -> 42);
+			Future<Integer> bad = executor.submit(() -> {
+				throw new IllegalStateException("expected");
+			});
+			assertEquals(42, ok.get());
+			ExecutionException e = assertThrows(ExecutionException.class, bad::get);
+			assertTrue(e.getCause() instanceof IllegalStateException);
+
+			BioJavaExecutor.Metrics metrics = executor.getMetrics();
+			assertEquals(2, metrics.getSubmitted());
+			assertEquals(1, metrics.getCompleted());
+			assertEquals(1, metrics.getFailed());
+			assertTrue(metrics.getMaxRunNanos() >= metrics.getMeanRunNanos());
+		}
+	}
+
+	@Test
+	void testWorkStealing() throws Exception {
+		try (BioJavaExecutor executor = BioJavaExecutor.workStealing("stealing", 4)) {
+			assertTrue(executor.getExecutorService() instanceof ForkJoinPool);
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				int n = i;
+				futures.add(executor.submit(() -> n * n));
+			}
+			int sum = 0;
+			for (Future<Integer> f : futures) {
+				sum += f.get();
+			}
+			assertEquals(328350, sum);
+			assertEquals(100, executor.getMetrics().getCompleted());
+		}
+	}
+
+	@Test
+	void testVirtualThreads() throws Exception {
+		boolean available;
+		try {
+			Thread.class.getMethod("ofVirtual");
+			available = true;
+		} catch (NoSuchMethodException e) {
+			available = false;
+		}
+		if (!available) {
+			assertThrows(UnsupportedOperationException.class, () -> BioJavaExecutor.virtualThreads("virtual"));
+			return;
+		}
+		try (BioJavaExecutor executor = BioJavaExecutor.virtualThreads("virtual")) {
+			assertEquals(Boolean.TRUE, executor.submit(() -> Thread.class.getMethod("isVirtual")
+					.invoke(Thread.currentThread())).get());
+		}
+	}
+
+	@Test
+	void testParallelFor() throws Exception {
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("parallel", 1, 10)) {
+			int[] squares = new int[1000];
+			executor.parallelFor(squares.length, i -> squares[i] = i * i);
+			for (int i = 0; i < squares.length; i++) {
+				assertEquals(i * i, squares[i]);
+			}
+
+			// called from the only thread of the executor, the caller does all the work
+			AtomicInteger count = new AtomicInteger();
+			executor.submit(() -> {
+				executor.parallelFor(100, i -> count.incrementAndGet());
+				return null;
+			}).get();
+			assertEquals(100, count.get());
+
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+					() -> executor.parallelFor(100, i -> {
+						if (i == 50) {
+							throw new IllegalArgumentException("index " + i);
+						}
+					}));
+			assertEquals("index 50", e.getMessage());
+			// the helpers still queued run before this task on the single thread
+			executor.submit(() -> null).get();
+			assertEquals(1, executor.getMetrics().getFailed());
+			assertEquals(0, executor.getMetrics().getActive());
+		}
+	}
+
+	@Test
+	void testShutdown() {
+		BioJavaExecutor executor = BioJavaExecutor.fixed("closed", 1, 1);
+		executor.shutdownAndAwaitTermination();
+		assertTrue(executor.getExecutorService().isTerminated());
+		assertNotEquals(BioJavaExecutor.getDefault().getExecutorService(), executor.getExecutorService());
+
+		// rejected tasks are not counted
+		BioJavaExecutor stealing = BioJavaExecutor.workStealing("closed", 1);
+		stealing.shutdownAndAwaitTermination();
+		assertThrows(RejectedExecutionException.class, () -> stealing.execute(() -> { }));
+		assertThrows(RejectedExecutionException.class, () -> stealing.submit(() -> null));
+		assertEquals(0, stealing.getMetrics().getSubmitted());
+		assertEquals(0, stealing.getMetrics().getQueueDepth());
+	}
+
+}
@@ -0,0 +1,577 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.io.fastq;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.biojava.nbio.core.util.BgzfInputStream;
+import org.biojava.nbio.core.util.BioJavaExecutor;
+
+/**
+ * High-throughput reader for FASTQ formatted sequences.
+ *
+ * <p>
+ * Unlike {@link FastqReader}, which creates Strings for every line and a {@link Fastq} for every
+ * sequence, this reader parses bytes directly into {@link FastqRecordView}s. Gzip compressed input
+ * is detected and decompressed, BGZF compressed input (as written by <code>bgzip</code>) is
+ * decompressed block-parallel on a {@link BioJavaExecutor}.
+ *
+ * <p>
+ * To read sequentially, reusing a single view:
+ * <pre>
+ * try (FastqRecordReader reader = new FastqRecordReader(new File("reads.fastq.gz"), FastqVariant.FASTQ_SANGER))
+ * {
+ *   FastqRecordView record = new FastqRecordView();
+ *   while (reader.next(record))
+ *   {
+ *     // ...
+ *   }
+ * }
+ * </pre>
+ *
+ * To process sequences in parallel, split the stream into batches:
+ * <pre>
+ * long count = reader.stream().parallel().filter(record -&gt; record.qualityScore(0) &gt; 30).count();
+ * </pre>
+ *
+ * <p>
+ * Parsing itself is sequential, as record boundaries cannot be found reliably from an arbitrary offset
+ * ('@' is also a valid quality character); each split of the stream parses a batch of records into a
+ * single byte array, and the records of the batch are then processed by one thread.
+ *
+ * <p>
+ * Records are validated as by {@link StreamingFastqParser}: descriptions must begin with '@', repeat
+ * descriptions must match, and quality scores must be in range for the variant. Multi-line sequences
+ * and quality scores are supported. Characters are read as ISO-8859-1.
+ *
+ * @since 7.2.3
+ */
+public final class FastqRecordReader
+	implements Closeable
+{
+	/** Default number of records per batch of {@link #stream()}. */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	/** Input stream. */
+	private final InputStream inputStream;
+
+	/** FASTQ sequence format variant. */
+	private final FastqVariant variant;
+
+	/** Valid quality characters for the variant. */
+	private final boolean[] validQuality = new boolean[256];
+
+	/** Input buffer. */
+	private byte[] buffer = new byte[1 << 16];
+
+	/** Position of the next unread byte in buffer. */
+	private int position;
+
+	/** End of the valid bytes in buffer. */
+	private int limit;
+
+	/** True at the end of the input stream. */
+	private boolean eof;
+
+	/** Start of the last line read, inclusive. */
+	private int lineStart;
+
+	/** End of the last line read, exclusive, without the line terminator. */
+	private int lineEnd;
+
+	/** Output array records are parsed into. */
+	private byte[] out;
+
+	/** Number of bytes used in out. */
+	private int outSize;
+
+	/** Offset of the last record parsed in out. */
+	private int recordOffset;
+
+	/** Description length of the last record parsed. */
+	private int recordDescriptionLength;
+
+	/** Sequence length of the last record parsed. */
+	private int recordLength;
+
+	/** Initial capacity of the output array of the next batch. */
+	private int batchCapacity = 1 << 16;
+
+
+	/**
+	 * Create a new FASTQ record reader for the specified file, which may be gzip or BGZF compressed.
+	 *
+	 * @param file file, must not be null
+	 * @param variant FASTQ sequence format variant, must not be null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public FastqRecordReader(final File file, final FastqVariant variant)
+		throws IOException
+	{
+		this(openFile(file), variant, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Create a new FASTQ record reader for the specified input stream, which may be gzip or BGZF compressed.
+	 *
+	 * @param inputStream input stream, must not be null
+	 * @param variant FASTQ sequence format variant, must not be null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public FastqRecordReader(final InputStream inputStream, final FastqVariant variant)
+		throws IOException
+	{
+		this(inputStream, variant, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Create a new FASTQ record reader for the specified input stream, which may be gzip or BGZF compressed.
+	 *
+	 * @param inputStream input stream, must not be null
+	 * @param variant FASTQ sequence format variant, must not be null
+	 * @param executor executor decompressing BGZF blocks, must not be null
+	 * @throws IOException if an I/O error occurs
+	 */
+	public FastqRecordReader(final InputStream inputStream,
+							 final FastqVariant variant,
+							 final BioJavaExecutor executor)
+		throws IOException
+	{
+		if (inputStream == null)
+		{
+			throw new IllegalArgumentException("inputStream must not be null");
+		}
+		if (variant == null)
+		{
+			throw new IllegalArgumentException("variant must not be null");
+		}
+		if (executor == null)
+		{
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		this.inputStream = BgzfInputStream.decompressed(inputStream, executor);
+		this.variant = variant;
+		for (int c = 0; c < validQuality.length; c++)
+		{
+			int qualityScore = variant.qualityScore((char) c);
+			validQuality[c] = qualityScore >= variant.minimumQualityScore() && qualityScore <= variant.maximumQualityScore();
+		}
+	}
+
+
+	private static InputStream openFile(final File file) throws IOException
+	{
+		if (file == null)
+		{
+			throw new IllegalArgumentException("file must not be null");
+		}
+		return new FileInputStream(file);
+	}
+
+	/**
+	 * Return the FASTQ sequence format variant of this reader.
+	 *
+	 * @return the FASTQ sequence format variant of this reader
+	 */
+	public FastqVariant getVariant()
+	{
+		return variant;
+	}
+
+	/**
+	 * Read the next FASTQ formatted sequence into the specified view, overwriting its previous contents.
+	 *
+	 * @param record view to read into, must not be null
+	 * @return true if a sequence was read, false at the end of the input
+	 * @throws IOException if an I/O error occurs or the input is not valid FASTQ
+	 */
+	public boolean next(final FastqRecordView record) throws IOException
+	{
+		if (record == null)
+		{
+			throw new IllegalArgumentException("record must not be null");
+		}
+		out = record.writableData();
+		outSize = 0;
+		try
+		{
+			if (!parseRecord())
+			{
+				return false;
+			}
+			record.set(out, 0, recordDescriptionLength, recordLength, variant);
+			return true;
+		}
+		finally
+		{
+			out = null;
+		}
+	}
+
+	/**
+	 * Return a stream of the remaining FASTQ formatted sequences, read in batches of {@link #DEFAULT_BATCH_SIZE}.
+	 * Closing the stream closes this reader.
+	 *
+	 * @return a stream of the remaining FASTQ formatted sequences
+	 */
+	public Stream<FastqRecordView> stream()
+	{
+		return stream(DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Return a stream of the remaining FASTQ formatted sequences, read in batches of the specified size.
+	 * Each batch shares one byte array. I/O and format errors are thrown as {@link UncheckedIOException}s.
+	 * Closing the stream closes this reader.
+	 *
+	 * @param batchSize number of sequences per batch, must be at least 1
+	 * @return a stream of the remaining FASTQ formatted sequences
+	 */
+	public Stream<FastqRecordView> stream(final int batchSize)
+	{
+		if (batchSize < 1)
+		{
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		return StreamSupport.stream(new BatchSpliterator(batchSize), false).onClose(() ->
+			{
+				try
+				{
+					close();
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		inputStream.close();
+	}
+
+	/**
+	 * Read up to <code>batchSize</code> sequences into a new shared byte array.
+	 */
+	private FastqRecordView[] readBatch(final int batchSize) throws IOException
+	{
+		out = new byte[batchCapacity];
+		outSize = 0;
+		int[] records = new int[3 * batchSize];
+		int n = 0;
+		while (n < batchSize && parseRecord())
+		{
+			records[3 * n] = recordOffset;
+			records[3 * n + 1] = recordDescriptionLength;
+			records[3 * n + 2] = recordLength;
+			n++;
+		}
+		FastqRecordView[] batch = new FastqRecordView[n];
+		for (int i = 0; i < n; i++)
+		{
+			batch[i] = new FastqRecordView(out, records[3 * i], records[3 * i + 1], records[3 * i + 2], variant);
+		}
+		batchCapacity = Math.max(batchCapacity, outSize + outSize / 8);
+		out = null;
+		return batch;
+	}
+
+	/**
+	 * Parse the next sequence, appending it to out.
+	 *
+	 * @return false at the end of the input
+	 */
+	private boolean parseRecord() throws IOException
+	{
+		if (!readLine())
+		{
+			return false;
+		}
+		if (lineStart == lineEnd || buffer[lineStart] != '@')
+		{
+			throw new IOException("description must begin with a '@' character");
+		}
+		recordOffset = outSize;
+		recordDescriptionLength = appendTrimmed(lineStart + 1, false);
+
+		if (!readLine())
+		{
+			throw new IOException("truncated sequence");
+		}
+		int sequenceLength = appendTrimmed(lineStart, false);
+		while (true)
+		{
+			if (!readLine())
+			{
+				throw new IOException("truncated sequence");
+			}
+			if (lineStart < lineEnd && buffer[lineStart] == '+')
+			{
+				checkRepeatDescription();
+				break;
+			}
+			sequenceLength += appendTrimmed(lineStart, false);
+		}
+
+		int qualityLength = 0;
+		do
+		{
+			if (!readLine())
+			{
+				throw new IOException("truncated sequence");
+			}
+			qualityLength += appendTrimmed(lineStart, true);
+		}
+		while (qualityLength < sequenceLength);
+		if (qualityLength != sequenceLength)
+		{
+			throw new IOException("sequence and quality scores must be the same length");
+		}
+		recordLength = sequenceLength;
+		return true;
+	}
+
+	private void checkRepeatDescription() throws IOException
+	{
+		int start = lineStart + 1;
+		int end = lineEnd;
+		while (start < end && (buffer[start] & 0xff) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && (buffer[end - 1] & 0xff) <= ' ')
+		{
+			end--;
+		}
+		if (recordDescriptionLength > 0 && end > start)
+		{
+			if (end - start != recordDescriptionLength
+				|| !Arrays.equals(buffer, start, end, out, recordOffset, recordOffset + recordDescriptionLength))
+			{
+				throw new IOException("repeat description must match description");
+			}
+		}
+	}
+
+	/**
+	 * Append the last line read from <code>start</code>, with leading and trailing whitespace trimmed, to out.
+	 *
+	 * @return the number of bytes appended
+	 */
+	private int appendTrimmed(int start, final boolean quality) throws IOException
+	{
+		int end = lineEnd;
+		while (start < end && (buffer[start] & 0xff) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && (buffer[end - 1] & 0xff) <= ' ')
+		{
+			end--;
+		}
+		int length = end - start;
+		if (quality)
+		{
+			for (int i = start; i < end; i++)
+			{
+				int c = buffer[i] & 0xff;
+				if (!validQuality[c])
+				{
+					throw new IOException("quality score must be between " + variant.minimumQualityScore() +
+										  " and " + variant.maximumQualityScore() + ", was " + variant.qualityScore((char) c) +
+										  " for ASCII char '" + (char) c + "'");
+				}
+			}
+		}
+		if (outSize + length > out.length)
+		{
+			out = Arrays.copyOf(out, Math.max(2 * out.length, outSize + length));
+		}
+		System.arraycopy(buffer, start, out, outSize, length);
+		outSize += length;
+		return length;
+	}
+
+	/**
+	 * Read the next line into buffer, setting lineStart and lineEnd.
+	 *
+	 * @return false at the end of the input
+	 */
+	private boolean readLine() throws IOException
+	{
+		int scan = position;
+		while (true)
+		{
+			for (; scan < limit; scan++)
+			{
+				if (buffer[scan] == '\n')
+				{
+					lineStart = position;
+					lineEnd = scan;
+					position = scan + 1;
+					return true;
+				}
+			}
+			if (eof)
+			{
+				if (position < limit)
+				{
+					lineStart = position;
+					lineEnd = limit;
+					position = limit;
+					return true;
+				}
+				return false;
+			}
+			if (position > 0)
+			{
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				scan -= position;
+				limit -= position;
+				position = 0;
+			}
+			if (limit == buffer.length)
+			{
+				buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+			}
+			int n = inputStream.read(buffer, limit, buffer.length - limit);
+			if (n < 0)
+			{
+				eof = true;
+			}
+			else
+			{
+				limit += n;
+			}
+		}
+	}
+
+	/**
+	 * Spliterator reading the sequences in batches. Splits hand off whole batches, which
+	 * split further by index.
+	 */
+	private final class BatchSpliterator
+		implements Spliterator<FastqRecordView>
+	{
+		private static final int CHARACTERISTICS = ORDERED | NONNULL | IMMUTABLE;
+
+		/** Number of sequences per batch. */
+		private final int batchSize;
+
+		/** Current batch. */
+		private FastqRecordView[] batch = new FastqRecordView[0];
+
+		/** Index of the next sequence in the current batch. */
+		private int index;
+
+		/** True once the input is exhausted. */
+		private boolean done;
+
+
+		private BatchSpliterator(final int batchSize)
+		{
+			this.batchSize = batchSize;
+		}
+
+
+		private boolean fill()
+		{
+			while (index == batch.length)
+			{
+				if (done)
+				{
+					return false;
+				}
+				try
+				{
+					batch = readBatch(batchSize);
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+				index = 0;
+				done = batch.length < batchSize;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super FastqRecordView> action)
+		{
+			if (!fill())
+			{
+				return false;
+			}
+			action.accept(batch[index++]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(final Consumer<? super FastqRecordView> action)
+		{
+			while (fill())
+			{
+				while (index < batch.length)
+				{
+					action.accept(batch[index++]);
+				}
+			}
+		}
+
+		@Override
+		public Spliterator<FastqRecordView> trySplit()
+		{
+			if (!fill())
+			{
+				return null;
+			}
+			Spliterator<FastqRecordView> split = Spliterators.spliterator(batch, index, batch.length, CHARACTERISTICS);
+			index = batch.length;
+			return split;
+		}
+
+		@Override
+		public long estimateSize()
+		{
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics()
+		{
+			return CHARACTERISTICS;
+		}
+	}
+}
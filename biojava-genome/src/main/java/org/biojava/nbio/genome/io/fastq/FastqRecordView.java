@@ -0,0 +1,275 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.io.fastq;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FASTQ formatted sequence backed by a byte array, as read by {@link FastqRecordReader}.
+ *
+ * <p>
+ * The description, sequence and quality scores are stored one after the other in a single
+ * byte array, one byte per character, without line breaks. Accessors such as {@link #sequenceAt(int)}
+ * and {@link #qualityScore(int)} read that array directly; the String accessors and {@link #toFastq()}
+ * create new objects.
+ *
+ * <p>
+ * A view filled by {@link FastqRecordReader#next(FastqRecordView)} is overwritten by the next call,
+ * use {@link #copy()} to keep a record. Views returned by {@link FastqRecordReader#stream()} are
+ * never overwritten.
+ *
+ * @since 7.2.3
+ */
+public final class FastqRecordView
+{
+	/** Bytes of the description, sequence and quality scores. */
+	private byte[] data;
+
+	/** Offset of the description in data. */
+	private int offset;
+
+	/** Length of the description. */
+	private int descriptionLength;
+
+	/** Length of the sequence and of the quality scores. */
+	private int length;
+
+	/** True if data belongs to this view alone and may be overwritten. */
+	private boolean owned;
+
+	/** FASTQ sequence format variant. */
+	private FastqVariant variant = FastqVariant.FASTQ_SANGER;
+
+
+	/**
+	 * Create a new empty FASTQ record view, to be filled by {@link FastqRecordReader#next(FastqRecordView)}.
+	 */
+	public FastqRecordView()
+	{
+		this.data = new byte[256];
+		this.owned = true;
+	}
+
+	/**
+	 * Create a new FASTQ record view over a region of a shared byte array.
+	 *
+	 * @param data byte array
+	 * @param offset offset of the description in data
+	 * @param descriptionLength length of the description
+	 * @param length length of the sequence and of the quality scores
+	 * @param variant FASTQ sequence format variant
+	 */
+	FastqRecordView(final byte[] data,
+					final int offset,
+					final int descriptionLength,
+					final int length,
+					final FastqVariant variant)
+	{
+		set(data, offset, descriptionLength, length, variant);
+		this.owned = false;
+	}
+
+
+	/**
+	 * Point this view at a region of the specified byte array.
+	 */
+	void set(final byte[] data,
+			 final int offset,
+			 final int descriptionLength,
+			 final int length,
+			 final FastqVariant variant)
+	{
+		this.data = data;
+		this.offset = offset;
+		this.descriptionLength = descriptionLength;
+		this.length = length;
+		this.variant = variant;
+	}
+
+	/**
+	 * Return the byte array of this view if it may be overwritten, otherwise a new one.
+	 */
+	byte[] writableData()
+	{
+		if (!owned)
+		{
+			data = new byte[Math.max(256, 2 * length + descriptionLength)];
+			owned = true;
+		}
+		return data;
+	}
+
+	/**
+	 * Return the FASTQ sequence format variant for this FASTQ formatted sequence.
+	 *
+	 * @return the FASTQ sequence format variant for this FASTQ formatted sequence
+	 */
+	public FastqVariant getVariant()
+	{
+		return variant;
+	}
+
+	/**
+	 * Return the description of this FASTQ formatted sequence, as a new String.
+	 *
+	 * @return the description of this FASTQ formatted sequence
+	 */
+	public String getDescription()
+	{
+		return new String(data, offset, descriptionLength, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Return the length of the sequence, which is also the length of the quality scores.
+	 *
+	 * @return the length of the sequence
+	 */
+	public int length()
+	{
+		return length;
+	}
+
+	/**
+	 * Return the sequence character at the specified index.
+	 *
+	 * @param index index, from zero to <code>length() - 1</code>
+	 * @return the sequence character at the specified index
+	 */
+	public byte sequenceAt(final int index)
+	{
+		checkIndex(index);
+		return data[getSequenceOffset() + index];
+	}
+
+	/**
+	 * Return the quality character at the specified index.
+	 *
+	 * @param index index, from zero to <code>length() - 1</code>
+	 * @return the quality character at the specified index
+	 */
+	public byte qualityAt(final int index)
+	{
+		checkIndex(index);
+		return data[getQualityOffset() + index];
+	}
+
+	/**
+	 * Return the quality score at the specified index, decoded with the FASTQ sequence format variant.
+	 *
+	 * @param index index, from zero to <code>length() - 1</code>
+	 * @return the quality score at the specified index
+	 */
+	public int qualityScore(final int index)
+	{
+		return variant.qualityScore((char) (qualityAt(index) & 0xff));
+	}
+
+	/**
+	 * Return the sequence of this FASTQ formatted sequence, as a new String.
+	 *
+	 * @return the sequence of this FASTQ formatted sequence
+	 */
+	public String getSequence()
+	{
+		return new String(data, getSequenceOffset(), length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Return the quality scores of this FASTQ formatted sequence, as a new String.
+	 *
+	 * @return the quality scores of this FASTQ formatted sequence
+	 */
+	public String getQuality()
+	{
+		return new String(data, getQualityOffset(), length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Return the byte array backing this view. The sequence starts at {@link #getSequenceOffset()}
+	 * and the quality scores at {@link #getQualityOffset()}, both {@link #length()} bytes long.
+	 * The array must not be modified.
+	 *
+	 * @return the byte array backing this view
+	 */
+	public byte[] getData()
+	{
+		return data;
+	}
+
+	/**
+	 * Return the offset of the sequence in {@link #getData()}.
+	 *
+	 * @return the offset of the sequence
+	 */
+	public int getSequenceOffset()
+	{
+		return offset + descriptionLength;
+	}
+
+	/**
+	 * Return the offset of the quality scores in {@link #getData()}.
+	 *
+	 * @return the offset of the quality scores
+	 */
+	public int getQualityOffset()
+	{
+		return offset + descriptionLength + length;
+	}
+
+	/**
+	 * Create and return a copy of this view backed by its own byte array.
+	 *
+	 * @return a copy of this view
+	 */
+	public FastqRecordView copy()
+	{
+		int size = descriptionLength + 2 * length;
+		byte[] copy = new byte[size];
+		System.arraycopy(data, offset, copy, 0, size);
+		FastqRecordView view = new FastqRecordView(copy, 0, descriptionLength, length, variant);
+		view.owned = true;
+		return view;
+	}
+
+	/**
+	 * Create and return a new FASTQ formatted sequence from this view.
+	 *
+	 * @return a new FASTQ formatted sequence from this view
+	 */
+	public Fastq toFastq()
+	{
+		return new Fastq(getDescription(), getSequence(), getQuality(), variant);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "FastqRecordView[description=" + getDescription() + ", length=" + length + ", variant=" + variant + "]";
+	}
+
+	private void checkIndex(final int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException("index must be between 0 and " + (length - 1) + ", was " + index);
+		}
+	}
+}
@@ -213,6 +213,42 @@ public final class FastqTools
 		return qualityScores;
 	}
 
+	/**
+	 * Copy the quality scores from the specified FASTQ record view into the specified int array,
+	 * without creating a FASTQ formatted sequence.
+	 *
+	 * @since 7.2.3
+	 * @param record FASTQ record view, must not be null
+	 * @param qualityScores int array of quality scores, must not be null and must be the same
+	 *    length as the FASTQ record view
+	 * @return the specified int array of quality scores
+	 */
+	public static int[] qualityScores(final FastqRecordView record, final int[] qualityScores)
+	{
+		if (record == null)
+		{
+			throw new IllegalArgumentException("record must not be null");
+		}
+		if (qualityScores == null)
+		{
+			throw new IllegalArgumentException("qualityScores must not be null");
+		}
+		int size = record.length();
+		if (qualityScores.length != size)
+		{
+			throw new IllegalArgumentException("qualityScores must be the same length as the FASTQ record view");
+		}
+		FastqVariant variant = record.getVariant();
+		byte[] data = record.getData();
+		int offset = record.getQualityOffset();
+		for (int i = 0; i < size; i++)
+		{
+			char c = (char) (data[offset + i] & 0xff);
+			qualityScores[i] = variant.qualityScore(c);
+		}
+		return qualityScores;
+	}
+
 	/**
 	 * Return the error probabilities from the specified FASTQ formatted sequence.
 	 *
@@ -268,6 +304,42 @@ public final class FastqTools
 		return errorProbabilities;
 	}
 
+	/**
+	 * Copy the error probabilities from the specified FASTQ record view into the specified double array,
+	 * without creating a FASTQ formatted sequence.
+	 *
+	 * @since 7.2.3
+	 * @param record FASTQ record view, must not be null
+	 * @param errorProbabilities double array of error probabilities, must not be null and must be the same
+	 *    length as the FASTQ record view
+	 * @return the specified double array of error probabilities
+	 */
+	public static double[] errorProbabilities(final FastqRecordView record, final double[] errorProbabilities)
+	{
+		if (record == null)
+		{
+			throw new IllegalArgumentException("record must not be null");
+		}
+		if (errorProbabilities == null)
+		{
+			throw new IllegalArgumentException("errorProbabilities must not be null");
+		}
+		int size = record.length();
+		if (errorProbabilities.length != size)
+		{
+			throw new IllegalArgumentException("errorProbabilities must be the same length as the FASTQ record view");
+		}
+		FastqVariant variant = record.getVariant();
+		byte[] data = record.getData();
+		int offset = record.getQualityOffset();
+		for (int i = 0; i < size; i++)
+		{
+			char c = (char) (data[offset + i] & 0xff);
+			errorProbabilities[i] = variant.errorProbability(variant.qualityScore(c));
+		}
+		return errorProbabilities;
+	}
+
 	/**
 	 * Convert the specified FASTQ formatted sequence to the
 	 * specified FASTQ sequence format variant.
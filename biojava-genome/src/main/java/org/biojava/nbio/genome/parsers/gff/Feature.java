@@ -152,8 +152,7 @@ public class Feature implements FeatureI {
 		mScore = feature.mScore;
 		mFrame = feature.mFrame;
 		mAttributes = feature.mAttributes;
-		initAttributeHashMap();
-		mUserMap = new HashMap<>(feature.mUserMap);
+		mUserMap = feature.mUserMap == null ? null : new HashMap<>(feature.mUserMap);
 	}
 
 	/**
@@ -176,8 +175,6 @@ public class Feature implements FeatureI {
 		mScore = score;
 		mFrame = frame;
 		mAttributes = attributes;
-		initAttributeHashMap();
-		mUserMap = new HashMap<>();
 
 	}
 
@@ -196,13 +193,26 @@ public class Feature implements FeatureI {
 	 */
 	@Override
 	public HashMap<String, String> userData() {
+		if (mUserMap == null) {
+			mUserMap = new HashMap<>();
+		}
 		return mUserMap;
 	}
 
-	 HashMap<String,String> attributeHashMap = new HashMap<>();
+	private volatile HashMap<String,String> attributeHashMap;	//parsed from mAttributes on first use
+
+	private HashMap<String,String> attributeHashMap() {
+		HashMap<String,String> map = attributeHashMap;
+		if (map == null) {
+			map = parseAttributes(mAttributes);
+			attributeHashMap = map;
+		}
+		return map;
+	}
 
-	private void initAttributeHashMap(){
-	   String[] values = mAttributes.split(";");
+	private static HashMap<String,String> parseAttributes(String attributes){
+	   HashMap<String,String> attributeHashMap = new HashMap<>();
+	   String[] values = attributes.split(";");
 	   for(String attribute : values){
 		   attribute = attribute.trim();
 		   int equalindex = attribute.indexOf("=");
@@ -218,6 +228,7 @@ public class Feature implements FeatureI {
 		   }
 		   attributeHashMap.put(data[0].trim(), value);
 	   }
+	   return attributeHashMap;
 	}
 
 	/**
@@ -231,7 +242,7 @@ public class Feature implements FeatureI {
 	@Override
 	public String getAttribute(String key) {
 
-		return attributeHashMap.get(key);
+		return attributeHashMap().get(key);
 	}
 
 	public String getAttributeOld(String key) {
@@ -261,7 +272,7 @@ public class Feature implements FeatureI {
 
 	@Override
 	public boolean hasAttribute(String key) {
-		return attributeHashMap.containsKey(key);
+		return attributeHashMap().containsKey(key);
 	}
 
 	@Override
@@ -316,6 +327,6 @@ public class Feature implements FeatureI {
 	@Override
 	public HashMap<String, String> getAttributes() {
 
-		return attributeHashMap;
+		return attributeHashMap();
 	}
 }
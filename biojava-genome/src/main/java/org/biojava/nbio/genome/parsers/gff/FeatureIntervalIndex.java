@@ -0,0 +1,353 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.gff;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Location index of the features of a {@link FeatureList}, with one interval tree per sequence name
+ * and strand. Features are identified by their position (ordinal) in the list.
+ * <p>
+ * Each tree is a start-sorted array laid out as an implicit binary tree augmented with the maximum end
+ * of each subtree, as in Heng Li's cgranges. Overlap queries take O(log n + k) time. Features added
+ * after the index was built are kept in a small unsorted buffer, scanned by queries and merged into the
+ * tree by {@link #add(FeatureI, int)} once it grows beyond the square root of the tree size.
+ * <p>
+ * Queries only read the index, so that an index which is no longer modified can be queried from several
+ * threads.
+ *
+ * @since 7.2.3
+ */
+class FeatureIntervalIndex {
+
+	private final Map<String, Intervals[]> bySeqname = new HashMap<>();
+
+	/**
+	 * Index the features of a list, with one tree per sequence name and strand.
+	 *
+	 * @param features The features, whose positions in the list are their ordinals.
+	 */
+	FeatureIntervalIndex(List<? extends FeatureI> features) {
+		for (int i = 0; i < features.size(); i++) {
+			Intervals intervals = intervals(features.get(i));
+			if (intervals != null) {
+				intervals.add(features.get(i).location(), i);
+			}
+		}
+		for (Intervals[] strands : bySeqname.values()) {
+			strands[0].merge();
+			strands[1].merge();
+		}
+	}
+
+	/**
+	 * Add a feature to the index. Features without a location are not indexed.
+	 *
+	 * @param feature The feature.
+	 * @param ordinal The position of the feature in its list.
+	 */
+	void add(FeatureI feature, int ordinal) {
+		Intervals intervals = intervals(feature);
+		if (intervals != null) {
+			intervals.add(feature.location(), ordinal);
+			if (intervals.pending > Math.max(64, (int) Math.sqrt(intervals.n))) {
+				intervals.merge();
+			}
+		}
+	}
+
+	private Intervals intervals(FeatureI feature) {
+		Location location = feature.location();
+		if (location == null) {
+			return null;
+		}
+		Intervals[] strands = bySeqname.computeIfAbsent(feature.seqname(), k -> new Intervals[] {new Intervals(), new Intervals()});
+		return strands[strand(location)];
+	}
+
+	/**
+	 * Find the features overlapping a location, with the semantics of
+	 * {@link FeatureList#selectOverlapping(String, Location, boolean)}.
+	 *
+	 * @return The ordinals of the overlapping features, in ascending order.
+	 */
+	int[] overlapping(String seqname, Location location, boolean useBothStrands) {
+		Intervals[] strands = bySeqname.get(seqname);
+		if (strands == null) {
+			return new int[0];
+		}
+		Hits hits = new Hits();
+		strands[strand(location)].overlapping(location.start(), location.end(), hits);
+		if (useBothStrands) {
+			strands[1 - strand(location)].overlapping(-location.end(), -location.start(), hits);
+		}
+		int[] ordinals = Arrays.copyOf(hits.ordinals, hits.size);
+		Arrays.sort(ordinals);
+		return ordinals;
+	}
+
+	/**
+	 * Find the feature nearest to a location, as measured by {@link Location#distance(Location)}.
+	 * Ties go to the feature earliest in the list.
+	 *
+	 * @return The ordinal of the nearest feature, or -1 if there is no feature on the sequence (and strand).
+	 */
+	int nearest(String seqname, Location location, boolean useBothStrands) {
+		Intervals[] strands = bySeqname.get(seqname);
+		if (strands == null) {
+			return -1;
+		}
+		Nearest nearest = new Nearest();
+		strands[strand(location)].nearest(location.start(), location.end(), nearest);
+		if (useBothStrands) {
+			strands[1 - strand(location)].nearest(-location.end(), -location.start(), nearest);
+		}
+		return nearest.ordinal;
+	}
+
+	private static int strand(Location location) {
+		return location.isNegative() ? 1 : 0;
+	}
+
+	/**
+	 * Receives the intervals found by a query.
+	 */
+	private interface Visitor {
+		void visit(int start, int end, int ordinal);
+	}
+
+	private static class Hits implements Visitor {
+		int[] ordinals = new int[16];
+		int size;
+
+		@Override
+		public void visit(int start, int end, int ordinal) {
+			if (size == ordinals.length) {
+				ordinals = Arrays.copyOf(ordinals, 2 * size);
+			}
+			ordinals[size++] = ordinal;
+		}
+	}
+
+	/**
+	 * Keeps the closest interval to a query, by distance then ordinal.
+	 */
+	private static class Nearest implements Visitor {
+		int queryStart;
+		int queryEnd;
+		long distance = Long.MAX_VALUE;
+		int ordinal = -1;
+		int visits;
+
+		@Override
+		public void visit(int start, int end, int ordinal) {
+			visits++;
+			long d;
+			if (start < queryEnd && queryStart < end) {
+				d = -1;
+			} else if (queryEnd <= start) {
+				d = (long) start - queryEnd;
+			} else {
+				d = (long) queryStart - end;
+			}
+			if (d < distance || (d == distance && ordinal < this.ordinal)) {
+				distance = d;
+				this.ordinal = ordinal;
+			}
+		}
+	}
+
+	/**
+	 * The intervals of one sequence and strand.
+	 */
+	private static class Intervals {
+
+		private static final int[] EMPTY = new int[0];
+
+		// sorted by start, laid out as an implicit tree
+		private int[] starts = EMPTY;
+		private int[] ends = EMPTY;
+		private int[] maxEnds = EMPTY;
+		private int[] ordinals = EMPTY;
+		private int n;
+		private int maxLevel = -1;
+
+		// added since the tree was built
+		private int[] pendingStarts = new int[16];
+		private int[] pendingEnds = new int[16];
+		private int[] pendingOrdinals = new int[16];
+		private int pending;
+
+		private int minStart = Integer.MAX_VALUE;
+		private int maxEnd = Integer.MIN_VALUE;
+
+		void add(Location location, int ordinal) {
+			int start = location.start();
+			int end = location.end();
+			if (pending == pendingStarts.length) {
+				pendingStarts = Arrays.copyOf(pendingStarts, 2 * pending);
+				pendingEnds = Arrays.copyOf(pendingEnds, 2 * pending);
+				pendingOrdinals = Arrays.copyOf(pendingOrdinals, 2 * pending);
+			}
+			pendingStarts[pending] = start;
+			pendingEnds[pending] = end;
+			pendingOrdinals[pending] = ordinal;
+			pending++;
+			minStart = Math.min(minStart, start);
+			maxEnd = Math.max(maxEnd, end);
+		}
+
+		void overlapping(int queryStart, int queryEnd, Visitor visitor) {
+			for (int i = 0; i < pending; i++) {
+				if (pendingStarts[i] < queryEnd && queryStart < pendingEnds[i]) {
+					visitor.visit(pendingStarts[i], pendingEnds[i], pendingOrdinals[i]);
+				}
+			}
+			if (n == 0) {
+				return;
+			}
+			long[] stackX = new long[64];
+			int[] stackK = new int[64];
+			boolean[] stackLeftDone = new boolean[64];
+			int t = 0;
+			stackK[t] = maxLevel;
+			stackX[t] = (1L << maxLevel) - 1;
+			stackLeftDone[t++] = false;
+			while (t > 0) {
+				t--;
+				long x = stackX[t];
+				int k = stackK[t];
+				if (k <= 3) {
+					// small subtree: scan it
+					long i0 = x >> k << k;
+					long i1 = Math.min(i0 + (1L << (k + 1)) - 1, n);
+					for (int i = (int) i0; i < i1 && starts[i] < queryEnd; i++) {
+						if (queryStart < ends[i]) {
+							visitor.visit(starts[i], ends[i], ordinals[i]);
+						}
+					}
+				} else if (!stackLeftDone[t]) {
+					long y = x - (1L << (k - 1));
+					stackLeftDone[t++] = true;
+					if (y >= n || maxEnds[(int) y] > queryStart) {
+						stackK[t] = k - 1;
+						stackX[t] = y;
+						stackLeftDone[t++] = false;
+					}
+				} else if (x < n && starts[(int) x] < queryEnd) {
+					if (queryStart < ends[(int) x]) {
+						visitor.visit(starts[(int) x], ends[(int) x], ordinals[(int) x]);
+					}
+					stackK[t] = k - 1;
+					stackX[t] = x + (1L << (k - 1));
+					stackLeftDone[t++] = false;
+				}
+			}
+		}
+
+		/**
+		 * Query windows of doubling width around the location. Every interval outside a window is at least
+		 * its padding away, every interval inside is closer, so the first window with hits holds the nearest.
+		 */
+		void nearest(int queryStart, int queryEnd, Nearest nearest) {
+			if (n + pending == 0) {
+				return;
+			}
+			nearest.queryStart = queryStart;
+			nearest.queryEnd = queryEnd;
+			for (long pad = 0; ; pad = pad == 0 ? 1 : 2 * pad) {
+				long start = Math.max(Integer.MIN_VALUE, queryStart - pad);
+				long end = Math.min(Integer.MAX_VALUE, queryEnd + pad);
+				int visits = nearest.visits;
+				overlapping((int) start, (int) end, nearest);
+				if (nearest.visits != visits || (start <= minStart && end >= maxEnd)) {
+					return;
+				}
+			}
+		}
+
+		void merge() {
+			if (pending == 0) {
+				return;
+			}
+			long[] keys = new long[pending];
+			for (int i = 0; i < pending; i++) {
+				keys[i] = (long) pendingStarts[i] << 32 | i;
+			}
+			Arrays.sort(keys);
+			int size = n + pending;
+			int[] mergedStarts = new int[size];
+			int[] mergedEnds = new int[size];
+			int[] mergedOrdinals = new int[size];
+			int a = 0;
+			int b = 0;
+			for (int i = 0; i < size; i++) {
+				int p = b < pending ? (int) keys[b] : -1;
+				if (p < 0 || (a < n && starts[a] <= pendingStarts[p])) {
+					mergedStarts[i] = starts[a];
+					mergedEnds[i] = ends[a];
+					mergedOrdinals[i] = ordinals[a++];
+				} else {
+					mergedStarts[i] = pendingStarts[p];
+					mergedEnds[i] = pendingEnds[p];
+					mergedOrdinals[i] = pendingOrdinals[p];
+					b++;
+				}
+			}
+			starts = mergedStarts;
+			ends = mergedEnds;
+			ordinals = mergedOrdinals;
+			maxEnds = new int[size];
+			n = size;
+			pending = 0;
+			index();
+		}
+
+		// fills maxEnds bottom-up: leaves are the even positions, level k nodes have their k low bits set
+		private void index() {
+			long lastI = 0;
+			int last = 0;
+			for (int i = 0; i < n; i += 2) {
+				lastI = i;
+				last = maxEnds[i] = ends[i];
+			}
+			int k;
+			for (k = 1; 1L << k <= n; k++) {
+				long x = 1L << (k - 1);
+				long step = x << 2;
+				for (long i = (x << 1) - 1; i < n; i += step) {
+					int left = maxEnds[(int) (i - x)];
+					int right = i + x < n ? maxEnds[(int) (i + x)] : last;
+					maxEnds[(int) i] = Math.max(ends[(int) i], Math.max(left, right));
+				}
+				// move to the parent of the last node, which may lie beyond the end of the array
+				lastI = (lastI >> k & 1) != 0 ? lastI - x : lastI + x;
+				if (lastI < n && maxEnds[(int) lastI] > last) {
+					last = maxEnds[(int) lastI];
+				}
+			}
+			maxLevel = k - 1;
+		}
+	}
+}
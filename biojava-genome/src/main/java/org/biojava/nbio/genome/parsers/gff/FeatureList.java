@@ -43,6 +43,9 @@ public class FeatureList extends ArrayList<FeatureI> {
 	 Map<String, Map<String,List<FeatureI>>> featindex = new HashMap<>();
 	Location mLocation;			//genomic location (union of feature locations)
 
+	private transient volatile FeatureIntervalIndex locationIndex;	//built on the first location query
+	private transient int locationIndexModCount;			//modCount the location index is up to date with
+
 	/**
 	 * Construct an empty list.
 	 */
@@ -77,24 +80,48 @@ public class FeatureList extends ArrayList<FeatureI> {
 		} else if (null != feature.location()) {
 			mLocation = mLocation.union(feature.location().plus());
 		}
-		for (Entry<String, String> entry : feature.getAttributes().entrySet()){
-			if (featindex.containsKey(entry.getKey())){
-				Map<String,List<FeatureI>> feat = featindex.get(entry.getKey());
-				if (feat==null){
-					feat= new HashMap<>();
-				}
-				List<FeatureI> features = feat.get(entry.getValue());
-				if (features==null){
-					features = new ArrayList<>();
+		if (!featindex.isEmpty()) {	//only parse the attributes if some are indexed
+			for (Entry<String, String> entry : feature.getAttributes().entrySet()){
+				if (featindex.containsKey(entry.getKey())){
+					Map<String,List<FeatureI>> feat = featindex.get(entry.getKey());
+					if (feat==null){
+						feat= new HashMap<>();
+					}
+					List<FeatureI> features = feat.get(entry.getValue());
+					if (features==null){
+						features = new ArrayList<>();
+					}
+					features.add(feature);
+					feat.put(entry.getValue(), features);
+					featindex.put(entry.getKey(), feat);
+					//featindex.put(key, value)
 				}
-				features.add(feature);
-				feat.put(entry.getValue(), features);
-				featindex.put(entry.getKey(), feat);
-				//featindex.put(key, value)
 			}
 		}
 
-		return super.add(feature);
+		boolean added = super.add(feature);
+		if (locationIndex != null) {
+			if (locationIndexModCount == modCount - 1) {
+				locationIndex.add(feature, size() - 1);
+				locationIndexModCount = modCount;
+			} else {
+				locationIndex = null;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Replace the feature at the specified position in the list.
+	 *
+	 * @param index The position of the feature to replace.
+	 * @param feature The new FeatureI object.
+	 * @return The feature previously at the position.
+	 */
+	@Override
+	public FeatureI set(int index, FeatureI feature) {
+		locationIndex = null;
+		return super.set(index, feature);
 	}
 
 	/**
@@ -344,33 +371,47 @@ public class FeatureList extends ArrayList<FeatureI> {
 
 	/**
 	 * Create a list of all features that overlap the specified location on the specified
-	 * sequence.
+	 * sequence. The features are found with an interval index, built on the first location query and
+	 * kept up to date as features are added.
 	 *
 	 * @param seqname The sequence name. Only features with this sequence name will be checked for overlap.
 	 * @param location The location to check.
 	 * @param useBothStrands If true, locations are mapped to their positive strand image
 	 * before being checked for overlap. If false, only features whose locations are
 	 * on the same strand as the specified location will be considered for inclusion.
-	 * @return The new list of features that overlap the location.
+	 * @return The new list of features that overlap the location, in list order.
 	 */
 	public FeatureList selectOverlapping(String seqname, Location location, boolean useBothStrands)
 			throws Exception {
 		FeatureList list = new FeatureList();
+		for (int i : locationIndex().overlapping(seqname, location, useBothStrands)) {
+			list.add(get(i));
+		}
+		return list;
+	}
 
-		for (FeatureI feature : this) {
-			boolean overlaps = false;
-			if (feature.seqname().equals(seqname)) {
-				if (location.isSameStrand(feature.location())) {
-					overlaps = feature.location().overlaps(location);
-				} else if (useBothStrands) {
-					overlaps = feature.location().overlaps(location.opposite());
-				}
-			}
-			if (overlaps) {
-				list.add(feature);
+	/**
+	 * Create a list of the features overlapping each of the specified locations on the specified
+	 * sequence, as {@link #selectOverlapping(String, Location, boolean)} would for each location.
+	 *
+	 * @param seqname The sequence name. Only features with this sequence name will be checked for overlap.
+	 * @param locations The locations to check.
+	 * @param useBothStrands If true, locations are mapped to their positive strand image
+	 * before being checked for overlap.
+	 * @return A list holding, for each location, the new list of features that overlap it.
+	 * @since 7.2.3
+	 */
+	public List<FeatureList> selectOverlapping(String seqname, List<Location> locations, boolean useBothStrands) {
+		FeatureIntervalIndex index = locationIndex();
+		List<FeatureList> lists = new ArrayList<>(locations.size());
+		for (Location location : locations) {
+			FeatureList list = new FeatureList();
+			for (int i : index.overlapping(seqname, location, useBothStrands)) {
+				list.add(get(i));
 			}
+			lists.add(list);
 		}
-		return list;
+		return lists;
 	}
 
 	/**
@@ -384,26 +425,57 @@ public class FeatureList extends ArrayList<FeatureI> {
 	 * @return The new list of features that do not overlap the location.
 	 */
 	public FeatureList omitOverlapping(String seqname, Location location, boolean useBothStrands) {
+		int[] overlapping = locationIndex().overlapping(seqname, location, useBothStrands);
 		FeatureList list = new FeatureList();
-
-		for (FeatureI feature : this) {
-			boolean overlaps = false;
-			if (feature.seqname().equals(seqname)) {
-				if (location.isSameStrand(feature.location())) {
-					overlaps = feature.location().overlaps(location);
-				} else if (useBothStrands) {
-					overlaps = feature.location().overlaps(location.opposite());
-				}
-			}
-
-			if (!overlaps) {
-				list.add(feature);
+		int next = 0;
+		for (int i = 0; i < size(); i++) {
+			if (next < overlapping.length && overlapping[next] == i) {
+				next++;
+			} else {
+				list.add(get(i));
 			}
 		}
 
 		return list;
 	}
 
+	/**
+	 * Find the feature nearest to the specified location on the specified sequence, as measured by
+	 * {@link Location#distance(Location)}. Overlapping features are nearest; ties go to the feature
+	 * earliest in the list.
+	 *
+	 * @param seqname The sequence name. Only features with this sequence name will be considered.
+	 * @param location The location to check.
+	 * @param useBothStrands If true, locations are mapped to their positive strand image
+	 * before measuring the distance. If false, only features whose locations are
+	 * on the same strand as the specified location will be considered.
+	 * @return The nearest feature, or null if there is none.
+	 * @since 7.2.3
+	 */
+	public FeatureI nearest(String seqname, Location location, boolean useBothStrands) {
+		int i = locationIndex().nearest(seqname, location, useBothStrands);
+		return i < 0 ? null : get(i);
+	}
+
+	/**
+	 * The location index, rebuilt if the list was modified other than by {@link #add(FeatureI)}. The index is
+	 * built and published under a lock, so that concurrent queries of a list that is no longer modified are safe.
+	 */
+	private FeatureIntervalIndex locationIndex() {
+		FeatureIntervalIndex index = locationIndex;
+		if (index != null && locationIndexModCount == modCount) {
+			return index;
+		}
+		synchronized (this) {
+			if (locationIndex == null || locationIndexModCount != modCount) {
+				FeatureIntervalIndex built = new FeatureIntervalIndex(this);
+				locationIndexModCount = modCount;
+				locationIndex = built;
+			}
+			return locationIndex;
+		}
+	}
+
 	/**
 	 * Check if any feature in list has the specified attribute key.
 	 *
@@ -0,0 +1,340 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.gff;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.biojava.nbio.core.util.BgzfInputStream;
+import org.biojava.nbio.core.util.BioJavaExecutor;
+
+/**
+ * Reads GFF3, GTF and GFF2 files one feature at a time, as {@link GFF3Reader} parses them, without
+ * building a {@link FeatureList}.
+ * <br><br>
+ * Features can be pulled with {@link #next()}, pushed to a callback with {@link #read(Consumer)}, or
+ * streamed with {@link #stream()}. The stream may be made parallel, for example to group the features
+ * by sequence name with {@code Collectors.groupingByConcurrent(FeatureI::seqname)}.
+ * <br><br>
+ * Filters on sequence name, type and region are applied before the rest of a line is parsed, so skipped
+ * lines cost little. Sequence names, sources and types are interned per reader, and the attributes of
+ * each {@link Feature} are only split into key/value pairs when first queried. Reading stops at a
+ * {@code ##FASTA} directive. Compressed (gzip or BGZF) files are decompressed.
+ * <br><br>
+ * <pre>
+ * try (GFFStreamReader reader = GFFStreamReader.open(path).withTypes("exon").withRegion("chr1", 1000000, 2000000)) {
+ *     reader.read(exon -&gt; ...);
+ * }
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class GFFStreamReader implements Closeable {
+
+	private final BufferedReader reader;
+	private final Map<String, String> interned = new HashMap<>();
+
+	private Set<String> seqnames;
+	private Set<String> types;
+	private String regionSeqname;
+	private int regionStart;
+	private int regionEnd;
+
+	private int lineNumber;
+	private boolean done;
+
+	/**
+	 * Create a reader over GFF formatted text.
+	 *
+	 * @param reader The text to parse.
+	 */
+	public GFFStreamReader(BufferedReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Create a reader over a stream of GFF formatted text, which may be gzip or BGZF compressed.
+	 *
+	 * @param in The stream to parse.
+	 * @throws IOException Something went wrong -- check exception detail message.
+	 */
+	public GFFStreamReader(InputStream in) throws IOException {
+		this(new BufferedReader(new InputStreamReader(BgzfInputStream.decompressed(in, BioJavaExecutor.getDefault()),
+				StandardCharsets.UTF_8), 1 << 16));
+	}
+
+	/**
+	 * Open a GFF file, which may be gzip or BGZF compressed.
+	 *
+	 * @param path The path to the GFF file.
+	 * @return A new reader.
+	 * @throws IOException Something went wrong -- check exception detail message.
+	 */
+	public static GFFStreamReader open(Path path) throws IOException {
+		InputStream in = Files.newInputStream(path);
+		try {
+			return new GFFStreamReader(in);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Only read features on the specified sequences.
+	 *
+	 * @param seqnames The sequence names to keep.
+	 * @return This reader.
+	 */
+	public GFFStreamReader withSeqnames(String... seqnames) {
+		this.seqnames = new HashSet<>(Arrays.asList(seqnames));
+		return this;
+	}
+
+	/**
+	 * Only read features of the specified types, for example "gene" or "exon".
+	 *
+	 * @param types The feature types to keep.
+	 * @return This reader.
+	 */
+	public GFFStreamReader withTypes(String... types) {
+		this.types = new HashSet<>(Arrays.asList(types));
+		return this;
+	}
+
+	/**
+	 * Only read features on the specified sequence that overlap the specified region, on either strand.
+	 *
+	 * @param seqname The sequence name.
+	 * @param bioStart Origin 1 index of the first position of the region.
+	 * @param bioEnd Origin 1 index of the last position of the region.
+	 * @return This reader.
+	 */
+	public GFFStreamReader withRegion(String seqname, int bioStart, int bioEnd) {
+		this.regionSeqname = seqname;
+		this.regionStart = bioStart;
+		this.regionEnd = bioEnd;
+		return this;
+	}
+
+	/**
+	 * Read the next feature that passes the filters.
+	 *
+	 * @return The next feature, or null at the end of the file.
+	 * @throws IOException Something went wrong -- check exception detail message.
+	 */
+	public FeatureI next() throws IOException {
+		while (!done) {
+			String line = reader.readLine();
+			lineNumber++;
+			if (line == null) {
+				done = true;
+				break;
+			}
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+			if (line.charAt(0) == '#') {
+				//ignore comment lines
+				if (line.regionMatches(true, 0, "##fasta", 0, 7)) {
+					done = true;
+				}
+				continue;
+			}
+			try {
+				Feature feature = parseLine(line);
+				if (feature != null) {
+					return feature;
+				}
+			} catch (RuntimeException e) {
+				throw new IOException("Cannot parse GFF line " + lineNumber + ": " + line, e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Pass each remaining feature that passes the filters to the callback.
+	 *
+	 * @param callback Receives the features in file order.
+	 * @throws IOException Something went wrong -- check exception detail message.
+	 */
+	public void read(Consumer<? super FeatureI> callback) throws IOException {
+		for (FeatureI feature = next(); feature != null; feature = next()) {
+			callback.accept(feature);
+		}
+	}
+
+	/**
+	 * A stream of the remaining features that pass the filters. I/O and parse errors are thrown as
+	 * {@link UncheckedIOException}s. Closing the stream closes this reader.
+	 *
+	 * @return The features in file order.
+	 */
+	public Stream<FeatureI> stream() {
+		Iterator<FeatureI> iterator = new Iterator<FeatureI>() {
+			private FeatureI next;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null) {
+					try {
+						next = GFFStreamReader.this.next();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public FeatureI next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				FeatureI feature = next;
+				next = null;
+				return feature;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try {
+						close();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Create a Feature from a line of a GFF file, or return null if it does not pass the filters.
+	 */
+	private Feature parseLine(String s) {
+		int end = s.indexOf('\t');
+		String seqname = intern(s, 0, end);
+		if (seqnames != null && !seqnames.contains(seqname)) {
+			return null;
+		}
+		if (regionSeqname != null && !regionSeqname.equals(seqname)) {
+			return null;
+		}
+
+		int start = end + 1;
+		end = s.indexOf('\t', start);
+		String source = intern(s, start, end);
+
+		start = end + 1;
+		end = s.indexOf('\t', start);
+		String type = intern(s, start, end);
+		if (types != null && !types.contains(type)) {
+			return null;
+		}
+
+		start = end + 1;
+		end = s.indexOf('\t', start);
+		int locationStart = Integer.parseInt(s.substring(start, end).trim());
+
+		start = end + 1;
+		end = s.indexOf('\t', start);
+		int locationEnd = Integer.parseInt(s.substring(start, end).trim());
+		//glimmer predictions may have the start after the end on the negative strand
+		if (locationStart > locationEnd) {
+			int temp = locationStart;
+			locationStart = locationEnd;
+			locationEnd = temp;
+		}
+		if (regionSeqname != null && (locationEnd < regionStart || locationStart > regionEnd)) {
+			return null;
+		}
+
+		start = end + 1;
+		end = s.indexOf('\t', start);
+		double score;
+		try {
+			score = Double.parseDouble(s.substring(start, end).trim());
+		} catch (NumberFormatException e) {
+			score = 0.0;
+		}
+
+		start = end + 1;
+		end = s.indexOf('\t', start);
+		char strand = s.substring(start, end).trim().charAt(0);
+		Location location = Location.fromBio(locationStart, locationEnd, strand);
+
+		start = end + 1;
+		end = s.indexOf('\t', start);
+		int frame;
+		try {
+			frame = Integer.parseInt(s.substring(start, end < 0 ? s.length() : end).trim());
+		} catch (NumberFormatException e) {
+			frame = -1;
+		}
+
+		//the attributes end at the next tab or # comment
+		String attributes = "";
+		if (end >= 0) {
+			start = end + 1;
+			end = s.indexOf('\t', start);
+			int comment = s.indexOf('#', start);
+			if (end < 0 || (comment >= 0 && comment < end)) {
+				end = comment;
+			}
+			attributes = end < 0 ? s.substring(start) : s.substring(start, end);
+		}
+
+		return new Feature(seqname, source, type, location, score, frame, attributes);
+	}
+
+	private String intern(String s, int start, int end) {
+		if (end < 0) {
+			throw new IllegalArgumentException("Too few tab separated fields");
+		}
+		String value = s.substring(start, end).trim();
+		String canonical = interned.putIfAbsent(value, value);
+		return canonical == null ? value : canonical;
+	}
+}
@@ -20,16 +20,20 @@
  */
 package org.biojava.nbio.genome.parsers.twobit;
 
+import org.biojava.nbio.core.sequence.DNASequence;
+
 import java.io.File;
 
 /**
  * A facade that makes it easier to work with a 2bit file.
+ * <p>
+ * Since 7.2.3 this is backed by a {@link TwoBitFile}, so that a facade can be shared by several threads.
  *
  * Created by yana on 3/27/17.
  */
 public class TwoBitFacade {
 
-	private TwoBitParser twoBitParser = null;
+	private final TwoBitFile twoBitFile;
 
 
 	/**
@@ -38,49 +42,65 @@ public class TwoBitFacade {
 	 *  @param file the File to a .2bit file.
 	 */
 	public TwoBitFacade(File file) throws Exception {
-		twoBitParser = new TwoBitParser(file);
+		this(new TwoBitFile(file.toPath()));
 	}
 
 	/**
-	 *  Closes .2bit file twoBitParser.
+	 *  Wraps an open .2bit file.
+	 *
+	 *  @param twoBitFile the .2bit file
+	 *  @since 7.2.3
 	 */
-	public void close() throws Exception {
-		if (twoBitParser != null)
-			twoBitParser.close();
+	public TwoBitFacade(TwoBitFile twoBitFile) {
+		this.twoBitFile = twoBitFile;
+	}
 
+	/**
+	 *  Closes the .2bit file.
+	 */
+	public void close() throws Exception {
+		twoBitFile.close();
 	}
 
 	/**
 	 * Sets a chromosome for TwoBitParser.
 	 *
 	 * @param chr The chromosome name (e.g. chr21)
+	 * @deprecated the chromosome is given to each call, there is no current chromosome any more
 	 */
+	@Deprecated
 	public void setChromosome(String chr) throws Exception {
-		if ( twoBitParser == null){
-
-		}
-		twoBitParser.close();
-		String[] names = twoBitParser.getSequenceNames();
-		for(int i=0;i<names.length;i++) {
-			if ( names[i].equalsIgnoreCase(chr) ) {
-				twoBitParser.setCurrentSequence(names[i]);
-				break;
-			}
-		}
 	}
 
 	/**
 	 * Extract a sequence from a chromosome, using chromosomal coordinates
 	 *
 	 * @param chromosomeName
-	 * @param start
-	 * @param end
+	 * @param start the first position, from 0
+	 * @param end the position after the last one; the sequence is truncated if it is past the end of the chromosome
 	 * @return the DNASequence from the requested coordinates.
 	 * @throws Exception
 	 */
 	public String getSequence(String chromosomeName, int start, int end) throws Exception {
-		twoBitParser.close();
-		twoBitParser.setCurrentSequence(chromosomeName);
-		return twoBitParser.loadFragment(start,end-start);
+		return twoBitFile.fetch(chromosomeName, start, Math.min(end, twoBitFile.getLength(chromosomeName)));
+	}
+
+	/**
+	 * Loads a whole chromosome, stored 2 bits per base with its N blocks and soft-masked regions.
+	 *
+	 * @param chromosomeName
+	 * @return the DNASequence of the chromosome
+	 * @throws Exception
+	 */
+	public DNASequence getDNASequence(String chromosomeName) throws Exception {
+		return twoBitFile.getDNASequence(chromosomeName);
+	}
+
+	/**
+	 * @return the .2bit file backing this facade
+	 * @since 7.2.3
+	 */
+	public TwoBitFile getTwoBitFile() {
+		return twoBitFile;
 	}
 }
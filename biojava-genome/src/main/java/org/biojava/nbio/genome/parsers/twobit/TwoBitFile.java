@@ -0,0 +1,332 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.twobit;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random access to the sequences of a UCSC .2bit file.
+ * <p>
+ * Unlike {@link TwoBitParser}, which is an {@link java.io.InputStream} with a current sequence and
+ * position, this class has no cursor: every {@link #fetch(String, int, int)} is independent, so instances
+ * can be shared by any number of threads. The packed bases of each sequence are memory-mapped with NIO the
+ * first time it is used and decoded four at a time through a lookup table; N blocks and soft-masked blocks
+ * are found by binary search. Only the bytes of the requested region are read.
+ * <p>
+ * Both version 0 (32-bit offsets) and version 1 (64-bit offsets) files, in either byte order, are supported.
+ * <p>
+ * Usage:
+ * <pre>
+ *    try (TwoBitFile genome = new TwoBitFile(Paths.get("hg38.2bit"))) {
+ *        String window = genome.fetch("chr7", 55019016, 55019365);
+ *        DNASequence chrM = genome.getDNASequence("chrM");
+ *    }
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class TwoBitFile implements Closeable {
+
+	private static final int SIGNATURE = 0x1A412743;
+	private static final String BASES = "TCAG";
+	// the four bases encoded by each byte value
+	private static final byte[] DECODE = new byte[256 * 4];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			for (int k = 0; k < 4; k++) {
+				DECODE[4 * b + k] = (byte) BASES.charAt((b >>> (6 - 2 * k)) & 3);
+			}
+		}
+	}
+
+	private final Path path;
+	private final FileChannel channel;
+	private final ByteOrder order;
+	private final Map<String, Long> offsets;
+	private final Map<String, Record> records = new ConcurrentHashMap<>();
+
+	/**
+	 * Opens a .2bit file and reads its index of sequences.
+	 *
+	 * @param path the .2bit file
+	 * @throws IOException if the file can't be read or is not a .2bit file
+	 */
+	public TwoBitFile(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = read(0, 16, ByteOrder.LITTLE_ENDIAN);
+			int signature = header.getInt();
+			if (signature == SIGNATURE) {
+				order = ByteOrder.LITTLE_ENDIAN;
+			} else if (Integer.reverseBytes(signature) == SIGNATURE) {
+				order = ByteOrder.BIG_ENDIAN;
+			} else {
+				throw new IOException("Wrong start signature in 2bit file " + path);
+			}
+			header.order(order);
+			int version = header.getInt();
+			if (version != 0 && version != 1) {
+				throw new IOException("Unsupported 2bit version " + version + " in " + path);
+			}
+			int count = header.getInt();
+
+			// at most 255 bytes of name and an offset per sequence
+			long indexSize = Math.min(channel.size() - 16, (long) count * (1 + 255 + 8));
+			ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 16, indexSize).order(order);
+			Map<String, Long> map = new LinkedHashMap<>();
+			for (int i = 0; i < count; i++) {
+				byte[] name = new byte[index.get() & 0xFF];
+				index.get(name);
+				long offset = version == 0 ? index.getInt() & 0xFFFFFFFFL : index.getLong();
+				map.put(new String(name, StandardCharsets.US_ASCII), offset);
+			}
+			this.offsets = Collections.unmodifiableMap(map);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the path of the .2bit file.
+	 * @return the path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the names of the sequences, in file order.
+	 * @return the sequence names
+	 */
+	public List<String> getSequenceNames() {
+		return new ArrayList<>(offsets.keySet());
+	}
+
+	/**
+	 * Returns the length of a sequence.
+	 * @param name the sequence name
+	 * @return the number of bases
+	 * @throws IllegalArgumentException if there is no such sequence
+	 */
+	public int getLength(String name) {
+		return getRecord(name).length;
+	}
+
+	/**
+	 * Returns a region of a sequence as a String, with N blocks as 'N' and soft-masked bases in lower case.
+	 * Coordinates are 0-based and half-open as in UCSC tools, so the region has <code>end - start</code> bases.
+	 *
+	 * @param name the sequence name
+	 * @param start the first position, from 0
+	 * @param end the position after the last one
+	 * @return the bases from start to end
+	 * @throws IllegalArgumentException if there is no such sequence
+	 * @throws IndexOutOfBoundsException if the region is not within the sequence
+	 */
+	public String fetch(String name, int start, int end) {
+		Record record = getRecord(name);
+		if (start < 0 || end > record.length || start > end) {
+			throw new IndexOutOfBoundsException("Region " + start + "-" + end + " is outside of " + name + " (0-" + record.length + ")");
+		}
+		ByteBuffer dna = record.dna;
+		byte[] out = new byte[end - start];
+		int pos = 0;
+		int i = start;
+		for (; i < end && (i & 3) != 0; i++) {
+			out[pos++] = DECODE[4 * (dna.get(i >>> 2) & 0xFF) + (i & 3)];
+		}
+		for (; i + 4 <= end; i += 4) {
+			int b = 4 * (dna.get(i >>> 2) & 0xFF);
+			out[pos++] = DECODE[b];
+			out[pos++] = DECODE[b + 1];
+			out[pos++] = DECODE[b + 2];
+			out[pos++] = DECODE[b + 3];
+		}
+		for (; i < end; i++) {
+			out[pos++] = DECODE[4 * (dna.get(i >>> 2) & 0xFF) + (i & 3)];
+		}
+
+		for (int b = firstBlock(record.nStarts, record.nLengths, start); b < record.nStarts.length && record.nStarts[b] < end; b++) {
+			int s = Math.max(start, record.nStarts[b]), e = Math.min(end, record.nStarts[b] + record.nLengths[b]);
+			Arrays.fill(out, s - start, e - start, (byte) 'N');
+		}
+		for (int m = firstBlock(record.maskStarts, record.maskLengths, start); m < record.maskStarts.length && record.maskStarts[m] < end; m++) {
+			int e = Math.min(end, record.maskStarts[m] + record.maskLengths[m]) - start;
+			for (int k = Math.max(start, record.maskStarts[m]) - start; k < e; k++) {
+				out[k] |= 0x20;
+			}
+		}
+		return new String(out, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Returns a whole sequence as a {@link DNASequence} stored 2 bits per base, with its N blocks and
+	 * soft-masked regions. The packed bases are copied as they are, without decoding.
+	 *
+	 * @param name the sequence name
+	 * @return the sequence, with the name as accession
+	 * @throws IllegalArgumentException if there is no such sequence
+	 */
+	public DNASequence getDNASequence(String name) {
+		Record record = getRecord(name);
+		ByteBuffer dna = record.dna.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int bytes = (record.length + 3) / 4;
+		long[] words = new long[(record.length + 31) / 32];
+		int w = 0;
+		for (; 8 * w + 8 <= bytes; w++) {
+			words[w] = dna.getLong(8 * w);
+		}
+		for (int i = 8 * w; i < bytes; i++) {
+			words[w] |= (long) (dna.get(i) & 0xFF) << (56 - 8 * (i - 8 * w));
+		}
+
+		byte[] nBases = new byte[record.nStarts.length];
+		Arrays.fill(nBases, (byte) 'N');
+		AccessionID accession = new AccessionID(name);
+		try {
+			PackedNucleotideSequenceReader<NucleotideCompound> reader = new PackedNucleotideSequenceReader<>(
+					DNACompoundSet.getDNACompoundSet(), accession, record.length, words,
+					record.nStarts, record.nLengths, nBases, record.maskStarts, record.maskLengths);
+			DNASequence sequence = new DNASequence(reader, DNACompoundSet.getDNACompoundSet());
+			sequence.setAccession(accession);
+			return sequence;
+		} catch (CompoundNotFoundException e) {
+			// N, A, C, G, T and their lower case are all in the DNA compound set
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Closes the file. Regions that were already mapped stay valid until they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private Record getRecord(String name) {
+		Long offset = offsets.get(name);
+		if (offset == null) {
+			throw new IllegalArgumentException("No sequence " + name + " in " + path);
+		}
+		return records.computeIfAbsent(name, n -> {
+			try {
+				return readRecord(offset);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not read sequence " + n + " of " + path, e);
+			}
+		});
+	}
+
+	private Record readRecord(long offset) throws IOException {
+		ByteBuffer header = read(offset, 8, order);
+		int length = header.getInt();
+		int nCount = header.getInt();
+		long pos = offset + 8;
+		int[] nStarts = readInts(pos, nCount);
+		int[] nLengths = readInts(pos += 4L * nCount, nCount);
+		int maskCount = read(pos += 4L * nCount, 4, order).getInt();
+		int[] maskStarts = readInts(pos += 4, maskCount);
+		int[] maskLengths = readInts(pos += 4L * maskCount, maskCount);
+		// skip the reserved word
+		pos += 4L * maskCount + 4;
+		MappedByteBuffer dna = channel.map(FileChannel.MapMode.READ_ONLY, pos, (length + 3L) / 4);
+		return new Record(length, dna, nStarts, nLengths, maskStarts, maskLengths);
+	}
+
+	private int[] readInts(long position, int count) throws IOException {
+		int[] ints = new int[count];
+		read(position, 4 * count, order).asIntBuffer().get(ints);
+		return ints;
+	}
+
+	// positional reads don't move the channel, so they can run concurrently
+	private ByteBuffer read(long position, int size, ByteOrder order) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of 2bit file " + path);
+			}
+		}
+		buffer.flip();
+		return buffer.order(order);
+	}
+
+	// index of the first block ending after position i
+	private static int firstBlock(int[] starts, int[] lengths, int i) {
+		int b = Arrays.binarySearch(starts, i);
+		if (b < 0) {
+			b = -b - 2;
+		}
+		if (b < 0) {
+			return 0;
+		}
+		return i < starts[b] + lengths[b] ? b : b + 1;
+	}
+
+	/**
+	 * The immutable header and mapped bases of a sequence.
+	 */
+	private static class Record {
+		private final int length;
+		private final ByteBuffer dna;
+		private final int[] nStarts;
+		private final int[] nLengths;
+		private final int[] maskStarts;
+		private final int[] maskLengths;
+
+		private Record(int length, ByteBuffer dna, int[] nStarts, int[] nLengths, int[] maskStarts, int[] maskLengths) {
+			this.length = length;
+			this.dna = dna;
+			this.nStarts = nStarts;
+			this.nLengths = nLengths;
+			this.maskStarts = maskStarts;
+			this.maskLengths = maskLengths;
+		}
+	}
+}
@@ -21,6 +21,12 @@
 package org.biojava.nbio.genome.parsers.twobit;
 
 
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -339,6 +345,53 @@ public class TwoBitParser extends InputStream {
 		}
 		return new String(ret,0,i);
 	}
+	/**
+	 * Loads the whole current sequence, with its N blocks and soft-masked regions, into a
+	 * {@link DNASequence} stored 2 bits per base. The packed bases are copied as they are, without decoding.
+	 * @return the current sequence
+	 * @throws IOException if no sequence is set or the file cannot be read
+	 * @throws CompoundNotFoundException never for a valid file
+	 */
+	public DNASequence loadDNASequence() throws IOException, CompoundNotFoundException {
+		if(cur_seq_name==null) throw new IOException("Sequence is not set");
+		int len = (int)cur_dna_size;
+		int byte_qnt = (len+3)/4;
+		long[] words = new long[(len+31)/32];
+		byte[] chunk = new byte[1<<16];
+		raf.seek(start_file_pos);
+		for(int pos=0;pos<byte_qnt;) {
+			int n = Math.min(chunk.length,byte_qnt-pos);
+			raf.readFully(chunk,0,n);
+			for(int i=0;i<n;i++,pos++) {
+				words[pos>>>3] |= (long)(chunk[i]&0xff) << (56-((pos&7)<<3));
+			}
+		}
+		raf.seek(start_file_pos);
+		reset();
+
+		int[] nn_starts = new int[cur_nn_blocks.length];
+		int[] nn_lengths = new int[cur_nn_blocks.length];
+		byte[] nn_bases = new byte[cur_nn_blocks.length];
+		for(int i=0;i<cur_nn_blocks.length;i++) {
+			nn_starts[i] = (int)cur_nn_blocks[i][0];
+			nn_lengths[i] = (int)cur_nn_blocks[i][1];
+			nn_bases[i] = 'N';
+		}
+		int[] mask_starts = new int[cur_mask_blocks.length];
+		int[] mask_lengths = new int[cur_mask_blocks.length];
+		for(int i=0;i<cur_mask_blocks.length;i++) {
+			mask_starts[i] = (int)cur_mask_blocks[i][0];
+			mask_lengths[i] = (int)cur_mask_blocks[i][1];
+		}
+
+		AccessionID accession = new AccessionID(cur_seq_name);
+		PackedNucleotideSequenceReader<NucleotideCompound> reader = new PackedNucleotideSequenceReader<>(
+				DNACompoundSet.getDNACompoundSet(), accession, len, words,
+				nn_starts, nn_lengths, nn_bases, mask_starts, mask_lengths);
+		DNASequence sequence = new DNASequence(reader, DNACompoundSet.getDNACompoundSet());
+		sequence.setAccession(accession);
+		return sequence;
+	}
 	public void printFastaSequence() throws IOException {
 		if(cur_seq_name==null) throw new RuntimeException("Sequence is not set");
 		printFastaSequence(cur_dna_size-cur_seq_pos);
@@ -24,11 +24,20 @@
 package org.biojava.nbio.genome;
 
 import org.biojava.nbio.genome.parsers.gff.Feature;
+import org.biojava.nbio.genome.parsers.gff.FeatureI;
 import org.biojava.nbio.genome.parsers.gff.FeatureList;
 import org.biojava.nbio.genome.parsers.gff.Location;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * @author mckeee1
  *
@@ -48,4 +57,147 @@ public class FeatureListTest {
 		f2.add(new Feature("seqname", "source", "type", new Location(1, 2), (double)0, 0, "gene_id \"gene_id_1\"; transcript_id \"transcript_id_1\";"));
 		Assert.assertEquals(1, f2.selectByAttribute("transcript_id").size());
 	}
+
+	@Test
+	public void testOverlapIndexMatchesScan() throws Exception
+	{
+		Random random = new Random(11);
+		FeatureList fl = new FeatureList();
+		for (int round = 0; round < 6; round++) {
+			// grow the list between queries, so that both the tree and the recently added features are searched
+			for (int i = 0; i < 300 * (round + 1); i++) {
+				fl.add(randomFeature(random));
+			}
+			if (round == 4) {
+				fl.remove(7);
+				fl.set(3, randomFeature(random));
+			}
+			for (int q = 0; q < 200; q++) {
+				if (q % 10 == 0) {
+					fl.add(randomFeature(random));
+				}
+				String seqname = random.nextBoolean() ? "chr1" : "chr2";
+				Location location = randomLocation(random);
+				for (boolean useBothStrands : new boolean[] {false, true}) {
+					List<FeatureI> expected = scanOverlapping(fl, seqname, location, useBothStrands);
+					Assert.assertEquals(expected, fl.selectOverlapping(seqname, location, useBothStrands));
+
+					FeatureList omitted = fl.omitOverlapping(seqname, location, useBothStrands);
+					Assert.assertEquals(fl.size(), omitted.size() + expected.size());
+					for (FeatureI f : expected) {
+						Assert.assertFalse(omitted.contains(f));
+					}
+
+					FeatureI nearest = fl.nearest(seqname, location, useBothStrands);
+					Assert.assertSame(scanNearest(fl, seqname, location, useBothStrands), nearest);
+				}
+			}
+		}
+
+		List<Location> locations = new ArrayList<>();
+		for (int q = 0; q < 20; q++) {
+			locations.add(randomLocation(random));
+		}
+		List<FeatureList> batch = fl.selectOverlapping("chr1", locations, true);
+		for (int q = 0; q < locations.size(); q++) {
+			Assert.assertEquals(scanOverlapping(fl, "chr1", locations.get(q), true), batch.get(q));
+		}
+		Assert.assertNull(fl.nearest("chrX", new Location(1, 2), true));
+		Assert.assertEquals(0, fl.selectOverlapping("chrX", new Location(1, 2), true).size());
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception
+	{
+		Random random = new Random(5);
+		List<FeatureI> features = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			features.add(randomFeature(random));
+		}
+		List<Location> locations = new ArrayList<>();
+		for (int q = 0; q < 100; q++) {
+			locations.add(randomLocation(random));
+		}
+		FeatureList reference = new FeatureList(features);
+		List<List<FeatureI>> expected = new ArrayList<>();
+		for (Location location : locations) {
+			expected.add(scanOverlapping(reference, "chr1", location, true));
+		}
+
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		try {
+			for (int round = 0; round < 5; round++) {
+				// a new list each round, so that its index is built by the first concurrent queries
+				FeatureList fl = new FeatureList(features);
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < 8; t++) {
+					int offset = t;
+					futures.add(threads.submit(() -> {
+						start.await();
+						for (int q = 0; q < locations.size(); q++) {
+							int k = (q + offset * 13) % locations.size();
+							Assert.assertEquals(expected.get(k), fl.selectOverlapping("chr1", locations.get(k), true));
+							Assert.assertSame(scanNearest(reference, "chr1", locations.get(k), true),
+									fl.nearest("chr1", locations.get(k), true));
+						}
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			}
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	private static Feature randomFeature(Random random) {
+		return new Feature(random.nextBoolean() ? "chr1" : "chr2", "source", "type", randomLocation(random), 0.0, 0, "gene_id \"g\";");
+	}
+
+	// lengths from 0 to a few thousand, on either strand
+	private static Location randomLocation(Random random) {
+		int start = random.nextInt(100000);
+		int end = start + (random.nextInt(10) == 0 ? 0 : random.nextInt(random.nextBoolean() ? 50 : 5000));
+		return random.nextBoolean() ? new Location(start, end) : new Location(-end, -start);
+	}
+
+	private static List<FeatureI> scanOverlapping(FeatureList fl, String seqname, Location location, boolean useBothStrands) {
+		List<FeatureI> list = new ArrayList<>();
+		for (FeatureI feature : fl) {
+			if (feature.seqname().equals(seqname)) {
+				if (location.isSameStrand(feature.location())) {
+					if (feature.location().overlaps(location)) {
+						list.add(feature);
+					}
+				} else if (useBothStrands && feature.location().overlaps(location.opposite())) {
+					list.add(feature);
+				}
+			}
+		}
+		return list;
+	}
+
+	private static FeatureI scanNearest(FeatureList fl, String seqname, Location location, boolean useBothStrands) {
+		FeatureI nearest = null;
+		int best = Integer.MAX_VALUE;
+		for (FeatureI feature : fl) {
+			if (feature.seqname().equals(seqname)) {
+				int distance = Integer.MAX_VALUE;
+				if (location.isSameStrand(feature.location())) {
+					distance = location.distance(feature.location());
+				} else if (useBothStrands) {
+					distance = location.opposite().distance(feature.location());
+				}
+				if (distance < best) {
+					best = distance;
+					nearest = feature;
+				}
+			}
+		}
+		return nearest;
+	}
 }
@@ -0,0 +1,139 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome;
+
+import org.biojava.nbio.genome.parsers.gff.FeatureI;
+import org.biojava.nbio.genome.parsers.gff.FeatureList;
+import org.biojava.nbio.genome.parsers.gff.GFF3Reader;
+import org.biojava.nbio.genome.parsers.gff.GFFStreamReader;
+import org.biojava.nbio.genome.parsers.gff.Location;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+public class GFFStreamReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFiltersMatchFeatureList() throws Exception {
+		File file = folder.newFile("test.gff3");
+		Files.write(file.toPath(), gff(new Random(3), 2000).getBytes(StandardCharsets.UTF_8));
+		FeatureList all = GFF3Reader.read(file.toPath());
+		Assert.assertEquals(2000, all.size());
+
+		try (GFFStreamReader reader = GFFStreamReader.open(file.toPath())) {
+			Assert.assertEquals(all.toString(), new FeatureList(reader.stream().collect(Collectors.toList())).toString());
+		}
+
+		try (GFFStreamReader reader = GFFStreamReader.open(file.toPath()).withTypes("exon").withSeqnames("chr1", "chr3")) {
+			List<FeatureI> exons = reader.stream().collect(Collectors.toList());
+			Assert.assertEquals(all.stream().filter(f -> f.type().equals("exon") && !f.seqname().equals("chr2")).count(), exons.size());
+		}
+
+		Location region = Location.fromBio(20000, 30000, '+');
+		try (GFFStreamReader reader = GFFStreamReader.open(file.toPath()).withRegion("chr2", 20000, 30000)) {
+			FeatureList expected = new FeatureList();
+			expected.add(all.selectOverlapping("chr2", region, true));
+			FeatureList actual = new FeatureList();
+			reader.read(actual::add);
+			Assert.assertEquals(expected.toString(), actual.toString());
+		}
+
+		try (GFFStreamReader reader = GFFStreamReader.open(file.toPath())) {
+			Map<String, List<FeatureI>> bySeqname = reader.stream().parallel()
+					.collect(Collectors.groupingByConcurrent(FeatureI::seqname));
+			for (Map.Entry<String, List<FeatureI>> entry : bySeqname.entrySet()) {
+				Assert.assertEquals(all.stream().filter(f -> f.seqname().equals(entry.getKey())).count(), entry.getValue().size());
+			}
+		}
+	}
+
+	@Test
+	public void testLazyAttributesAndInterning() throws Exception {
+		String text = "##gff-version 3\n"
+				+ "chr1\tsrc\tgene\t100\t200\t.\t+\t.\tID=g1;Name=A\n"
+				+ "# comment\n"
+				+ "chr1\tsrc\texon\t150\t120\t0.5\t-\t2\tgene_id \"g1\"; transcript_id \"t1\"; # trailing comment\n"
+				+ "##FASTA\n"
+				+ ">chr1\nACGT\n";
+		try (GFFStreamReader reader = new GFFStreamReader(new BufferedReader(new StringReader(text)))) {
+			FeatureI gene = reader.next();
+			FeatureI exon = reader.next();
+			Assert.assertNull(reader.next());
+
+			Assert.assertEquals("A", gene.getAttribute("Name"));
+			Assert.assertEquals("ID=g1", gene.group());
+			Assert.assertEquals("t1", exon.getAttribute("transcript_id"));
+			Assert.assertFalse(exon.hasAttribute("trailing"));
+			Assert.assertEquals(Location.fromBio(120, 150, '-'), exon.location());
+			Assert.assertSame(gene.seqname(), exon.seqname());
+		}
+
+		try (GFFStreamReader reader = new GFFStreamReader(new BufferedReader(new StringReader(text.replace("\t150\t", "\tabc\t"))))) {
+			reader.next();
+			reader.next();
+			Assert.fail("Expected IOException");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().contains("line 4"));
+		}
+	}
+
+	@Test
+	public void testGzip() throws Exception {
+		String text = gff(new Random(5), 100);
+		File file = folder.newFile("test.gff3.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+		try (GFFStreamReader reader = GFFStreamReader.open(file.toPath())) {
+			Assert.assertEquals(100, reader.stream().count());
+		}
+	}
+
+	// genes and exons on three sequences, on both strands
+	private static String gff(Random random, int count) {
+		StringBuilder sb = new StringBuilder("##gff-version 3\n");
+		for (int i = 0; i < count; i++) {
+			int start = 1 + random.nextInt(100000);
+			int end = start + random.nextInt(5000);
+			sb.append("chr").append(1 + random.nextInt(3)).append("\ttest\t").append(i % 3 == 0 ? "gene" : "exon")
+					.append('\t').append(start).append('\t').append(end).append("\t.\t").append(random.nextBoolean() ? '+' : '-')
+					.append("\t.\tID=f").append(i).append(";Parent=g").append(i / 3).append('\n');
+		}
+		return sb.toString();
+	}
+}
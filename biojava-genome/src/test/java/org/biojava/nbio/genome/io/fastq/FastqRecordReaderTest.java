@@ -0,0 +1,273 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.io.fastq;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Unit test for FastqRecordReader.
+ */
+public final class FastqRecordReaderTest {
+
+	/** Valid Sanger variant examples, including wrapped sequences and quality scores. */
+	private static final String[] SANGER_EXAMPLES = new String[]
+		{
+			"example.fastq",
+			"evil_wrapping.fastq",
+			"longreads_original_sanger.fastq",
+			"misc_dna_original_sanger.fastq",
+			"misc_rna_original_sanger.fastq",
+			"multiple-wrapped-quality.fastq",
+			"sanger_full_range_original_sanger.fastq",
+			"tricky.fastq",
+			"wrapped-quality.fastq",
+			"wrapped-sequence.fastq",
+			"wrapping_issues.fastq",
+			"wrapping_original_sanger.fastq"
+		};
+
+	@Test
+	public void testMatchesFastqReader() throws Exception
+	{
+		for (String example : SANGER_EXAMPLES)
+		{
+			assertMatches(example, new SangerFastqReader(), FastqVariant.FASTQ_SANGER);
+		}
+		assertMatches("solexa_full_range_original_solexa.fastq", new SolexaFastqReader(), FastqVariant.FASTQ_SOLEXA);
+		assertMatches("illumina_full_range_original_illumina.fastq", new IlluminaFastqReader(), FastqVariant.FASTQ_ILLUMINA);
+	}
+
+	@Test
+	public void testErrorExamples() throws Exception
+	{
+		List<String> examples = new ArrayList<String>();
+		for (String example : AbstractFastqReaderTest.ERROR_EXAMPLES)
+		{
+			examples.add(example);
+		}
+		examples.add("sanger-invalid-description.fastq");
+		examples.add("sanger-invalid-repeat-description.fastq");
+		for (String example : examples)
+		{
+			try (FastqRecordReader reader = new FastqRecordReader(getClass().getResourceAsStream(example), FastqVariant.FASTQ_SANGER))
+			{
+				FastqRecordView record = new FastqRecordView();
+				while (reader.next(record))
+				{
+					// empty
+				}
+				Assert.fail(example + " expected IOException");
+			}
+			catch (IOException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testCompressedParallelStream() throws Exception
+	{
+		byte[] fastq = generate(new Random(7), 5000);
+		List<Fastq> expected = new ArrayList<Fastq>();
+		for (Fastq f : new SangerFastqReader().read(new ByteArrayInputStream(fastq)))
+		{
+			expected.add(f);
+		}
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(gzip))
+		{
+			out.write(fastq);
+		}
+
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("fastq-test", 4, 16))
+		{
+			for (byte[] input : new byte[][] { fastq, gzip.toByteArray(), bgzf(fastq, 20000) })
+			{
+				try (FastqRecordReader reader = new FastqRecordReader(new ByteArrayInputStream(input), FastqVariant.FASTQ_SANGER, executor))
+				{
+					List<Fastq> actual = reader.stream(100).parallel().map(FastqRecordView::toFastq).collect(Collectors.toList());
+					Assert.assertEquals(expected.size(), actual.size());
+					for (int i = 0; i < expected.size(); i++)
+					{
+						assertEquals(expected.get(i), actual.get(i));
+					}
+				}
+			}
+		}
+
+		byte[] truncated = new byte[fastq.length - 5];
+		System.arraycopy(fastq, 0, truncated, 0, truncated.length);
+		try (FastqRecordReader reader = new FastqRecordReader(new ByteArrayInputStream(truncated), FastqVariant.FASTQ_SANGER))
+		{
+			reader.stream().count();
+			Assert.fail("truncated stream expected UncheckedIOException");
+		}
+		catch (UncheckedIOException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testRecordView() throws Exception
+	{
+		String text = "@foo bar\nACGT\nAC\n+foo bar\nIIII\n#!\n@baz\nA\n+\n5\n";
+		try (FastqRecordReader reader = new FastqRecordReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)), FastqVariant.FASTQ_SANGER))
+		{
+			FastqRecordView record = new FastqRecordView();
+			Assert.assertTrue(reader.next(record));
+			FastqRecordView first = record.copy();
+			Assert.assertEquals("foo bar", record.getDescription());
+			Assert.assertEquals(6, record.length());
+			Assert.assertEquals("ACGTAC", record.getSequence());
+			Assert.assertEquals("IIII#!", record.getQuality());
+			Assert.assertEquals('G', record.sequenceAt(2));
+			Assert.assertEquals(40, record.qualityScore(0));
+			Assert.assertEquals(0, record.qualityScore(5));
+
+			Fastq fastq = record.toFastq();
+			Assert.assertArrayEquals(FastqTools.qualityScores(fastq, new int[6]), FastqTools.qualityScores(record, new int[6]));
+			double[] errorProbabilities = FastqTools.errorProbabilities(record, new double[6]);
+			Assert.assertEquals(1.0e-4, errorProbabilities[0], 1.0e-9);
+			Assert.assertEquals(1.0, errorProbabilities[5], 1.0e-9);
+
+			Assert.assertTrue(reader.next(record));
+			Assert.assertEquals("baz", record.getDescription());
+			Assert.assertEquals("A", record.getSequence());
+			Assert.assertEquals("foo bar", first.getDescription());
+			Assert.assertEquals("ACGTAC", first.getSequence());
+			Assert.assertFalse(reader.next(record));
+			try
+			{
+				record.sequenceAt(1);
+				Assert.fail("sequenceAt(1) expected IndexOutOfBoundsException");
+			}
+			catch (IndexOutOfBoundsException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	private void assertMatches(final String example, final FastqReader fastqReader, final FastqVariant variant)
+		throws IOException
+	{
+		List<Fastq> expected = new ArrayList<Fastq>();
+		for (Fastq fastq : fastqReader.read(getClass().getResource(example)))
+		{
+			expected.add(fastq);
+		}
+		List<Fastq> actual = new ArrayList<Fastq>();
+		try (InputStream inputStream = getClass().getResourceAsStream(example);
+			 FastqRecordReader reader = new FastqRecordReader(inputStream, variant))
+		{
+			FastqRecordView record = new FastqRecordView();
+			while (reader.next(record))
+			{
+				actual.add(record.toFastq());
+			}
+		}
+		Assert.assertEquals(example, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static void assertEquals(final Fastq expected, final Fastq actual)
+	{
+		Assert.assertEquals(expected.getDescription(), actual.getDescription());
+		Assert.assertEquals(expected.getSequence(), actual.getSequence());
+		Assert.assertEquals(expected.getQuality(), actual.getQuality());
+		Assert.assertEquals(expected.getVariant(), actual.getVariant());
+	}
+
+	private static byte[] generate(final Random random, final int count)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++)
+		{
+			int length = 1 + random.nextInt(150);
+			sb.append("@read").append(i).append('\n');
+			for (int j = 0; j < length; j++)
+			{
+				sb.append("ACGTN".charAt(random.nextInt(5)));
+			}
+			sb.append(i % 2 == 0 ? "\n+\n" : "\n+read" + i + "\n");
+			for (int j = 0; j < length; j++)
+			{
+				sb.append((char) ('!' + random.nextInt(42)));
+			}
+			sb.append('\n');
+		}
+		return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	// BGZF blocks of at most blockSize input bytes, followed by the empty EOF block
+	private static byte[] bgzf(final byte[] data, final int blockSize)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int start = 0; start < data.length; start += blockSize)
+		{
+			writeBlock(out, data, start, Math.min(blockSize, data.length - start));
+		}
+		writeBlock(out, data, 0, 0);
+		return out.toByteArray();
+	}
+
+	private static void writeBlock(final ByteArrayOutputStream out, final byte[] data, final int start, final int length)
+	{
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data, start, length);
+		deflater.finish();
+		byte[] compressed = new byte[length + 1024];
+		int n = deflater.deflate(compressed);
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(data, start, length);
+		int size = 18 + n + 8 - 1;
+		out.write(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0, (byte) size, (byte) (size >> 8) }, 0, 18);
+		out.write(compressed, 0, n);
+		long trailer = (crc.getValue() & 0xffffffffL) | ((long) length << 32);
+		for (int i = 0; i < 8; i++)
+		{
+			out.write((int) (trailer >>> (8 * i)));
+		}
+	}
+}
@@ -244,7 +244,7 @@ public final class FastqToolsTest {
 	{
 		try
 		{
-			FastqTools.qualityScores(null, new int[0]);
+			FastqTools.qualityScores((Fastq) null, new int[0]);
 			Assert.fail("qualityScores(null, int[]) expected IllegalArgumentException");
 		}
 		catch (IllegalArgumentException e)
@@ -339,7 +339,7 @@ public final class FastqToolsTest {
 	{
 		try
 		{
-			FastqTools.errorProbabilities(null, new double[0]);
+			FastqTools.errorProbabilities((Fastq) null, new double[0]);
 			Assert.fail("errorProbabilities(null, double[]) expected IllegalArgumentException");
 		}
 		catch (IllegalArgumentException e)
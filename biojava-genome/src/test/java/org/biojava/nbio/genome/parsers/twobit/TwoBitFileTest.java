@@ -0,0 +1,159 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.twobit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TwoBitFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAllRegions() throws Exception {
+		Map<String, String> sequences = sequences(new Random(3), 3, 150);
+		for (boolean bigEndian : new boolean[] {false, true}) {
+			for (int version : new int[] {0, 1}) {
+				File file = TwoBitParserTest.write(folder.newFile(), sequences, bigEndian, version);
+				try (TwoBitFile twoBit = new TwoBitFile(file.toPath())) {
+					assertEquals(new ArrayList<>(sequences.keySet()), twoBit.getSequenceNames());
+					for (Map.Entry<String, String> entry : sequences.entrySet()) {
+						String seq = entry.getValue();
+						assertEquals(seq.length(), twoBit.getLength(entry.getKey()));
+						for (int start = 0; start <= seq.length(); start++) {
+							for (int end = start; end <= Math.min(seq.length(), start + 40); end++) {
+								assertEquals(seq.substring(start, end), twoBit.fetch(entry.getKey(), start, end));
+							}
+						}
+						DNASequence dna = twoBit.getDNASequence(entry.getKey());
+						assertEquals(seq, dna.getSequenceAsString());
+						assertEquals(entry.getKey(), dna.getAccession().getID());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentFetches() throws Exception {
+		Map<String, String> sequences = sequences(new Random(5), 4, 20000);
+		File file = TwoBitParserTest.write(folder.newFile(), sequences, false, 0);
+		List<String> names = new ArrayList<>(sequences.keySet());
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try (TwoBitFile twoBit = new TwoBitFile(file.toPath())) {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				futures.add(pool.submit(() -> {
+					Random random = new Random(seed);
+					for (int k = 0; k < 2000; k++) {
+						String name = names.get(random.nextInt(names.size()));
+						String seq = sequences.get(name);
+						int start = random.nextInt(seq.length() - 100);
+						int end = start + random.nextInt(100);
+						assertEquals(seq.substring(start, end), twoBit.fetch(name, start, end));
+					}
+					return seed;
+				}));
+			}
+			for (Future<Integer> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testErrorsAndFacade() throws Exception {
+		Map<String, String> sequences = new LinkedHashMap<>();
+		sequences.put("chr1", "ACGTNNNNacgt");
+		File file = TwoBitParserTest.write(folder.newFile(), sequences, false, 0);
+		try (TwoBitFile twoBit = new TwoBitFile(file.toPath())) {
+			try {
+				twoBit.fetch("chr2", 0, 1);
+				fail("Expected IllegalArgumentException");
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains("chr2"));
+			}
+			try {
+				twoBit.fetch("chr1", 5, 13);
+				fail("Expected IndexOutOfBoundsException");
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+
+			// the facade truncates regions at the end of the chromosome, as the stream parser did
+			TwoBitFacade facade = new TwoBitFacade(twoBit);
+			assertEquals("NNacgt", facade.getSequence("chr1", 6, 20));
+			assertEquals("ACGTNNNNacgt", facade.getDNASequence("chr1").getSequenceAsString());
+		}
+
+		File notTwoBit = folder.newFile();
+		Files.write(notTwoBit.toPath(), new byte[32]);
+		try {
+			new TwoBitFile(notTwoBit.toPath()).close();
+			fail("Expected IOException");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	// random sequences with N runs and soft-masked stretches
+	private static Map<String, String> sequences(Random random, int count, int length) {
+		Map<String, String> sequences = new LinkedHashMap<>();
+		for (int s = 0; s < count; s++) {
+			StringBuilder sb = new StringBuilder();
+			boolean lower = false;
+			while (sb.length() < length + s) {
+				int r = random.nextInt(100);
+				if (r < 4) {
+					lower = !lower;
+				}
+				char[] run = new char[r < 3 ? 1 + random.nextInt(12) : 1];
+				Arrays.fill(run, r < 3 ? 'N' : "ACGT".charAt(random.nextInt(4)));
+				String bases = new String(run);
+				sb.append(lower ? bases.toLowerCase() : bases);
+			}
+			sb.setLength(length + s);
+			sequences.put("chr" + (s + 1), sb.toString());
+		}
+		return sequences;
+	}
+}
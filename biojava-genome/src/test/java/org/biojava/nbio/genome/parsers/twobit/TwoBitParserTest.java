@@ -0,0 +1,154 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.twobit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TwoBitParserTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testLoadDNASequence() throws Exception {
+		Map<String, String> sequences = new LinkedHashMap<>();
+		sequences.put("chr1", "NNNNACGTacgtNNNNNNNNTTGGCCAAggcctaNACGTACGTACGTACGTACGTACGTACGTACGTAn");
+		sequences.put("chrM", "GATCACAGGTCTATCACCCTATTAACCACTCACGGGAGCTCTCCATGCATTTGG");
+		File file = write(folder.newFile("test.2bit"), sequences, false, 0);
+
+		TwoBitParser parser = new TwoBitParser(file);
+		for (Map.Entry<String, String> entry : sequences.entrySet()) {
+			parser.setCurrentSequence(entry.getKey());
+			DNASequence seq = parser.loadDNASequence();
+			assertEquals(entry.getKey(), seq.getAccession().getID());
+			assertTrue(seq.getProxySequenceReader() instanceof PackedNucleotideSequenceReader);
+			assertEquals(entry.getValue(), seq.getSequenceAsString());
+			assertEquals(entry.getValue().substring(2, 30), seq.getSubSequence(3, 30).getSequenceAsString());
+
+			// the stream reading still works after loading
+			assertEquals(entry.getValue().substring(5, 20), parser.loadFragment(5, 15));
+			parser.close();
+		}
+
+		parser.setCurrentSequence("chr1");
+		DNASequence chr1 = parser.loadDNASequence();
+		NucleotideCompound n = chr1.getCompoundSet().getCompoundForString("N");
+		assertEquals(13, chr1.countCompounds(n));
+		parser.close();
+		parser.closeParser();
+	}
+
+	/**
+	 * Writes the sequences in .2bit format, with upper case N blocks and lower case masks.
+	 */
+	static File write(File file, Map<String, String> sequences, boolean bigEndian, int version) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			writeInt(out, 0x1A412743, bigEndian);
+			writeInt(out, version, bigEndian);
+			writeInt(out, sequences.size(), bigEndian);
+			writeInt(out, 0, bigEndian);
+			long offset = 16;
+			for (String name : sequences.keySet()) {
+				offset += 1 + name.length() + (version == 0 ? 4 : 8);
+			}
+			List<byte[]> records = new ArrayList<>();
+			for (Map.Entry<String, String> entry : sequences.entrySet()) {
+				out.writeByte(entry.getKey().length());
+				out.writeBytes(entry.getKey());
+				if (version == 0) {
+					writeInt(out, (int) offset, bigEndian);
+				} else {
+					out.writeLong(bigEndian ? offset : Long.reverseBytes(offset));
+				}
+				byte[] record = record(entry.getValue(), bigEndian);
+				records.add(record);
+				offset += record.length;
+			}
+			for (byte[] record : records) {
+				out.write(record);
+			}
+		}
+		return file;
+	}
+
+	private static byte[] record(String seq, boolean bigEndian) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeInt(out, seq.length(), bigEndian);
+		writeBlocks(out, runs(seq, true), bigEndian);
+		writeBlocks(out, runs(seq, false), bigEndian);
+		writeInt(out, 0, bigEndian);
+		byte[] packed = new byte[(seq.length() + 3) / 4];
+		for (int i = 0; i < seq.length(); i++) {
+			int code = Math.max(0, "TCAG".indexOf(Character.toUpperCase(seq.charAt(i))));
+			packed[i / 4] |= code << (6 - 2 * (i % 4));
+		}
+		out.write(packed);
+		return bytes.toByteArray();
+	}
+
+	// start and length of the runs of N (or of lower case)
+	private static List<int[]> runs(String seq, boolean n) {
+		List<int[]> runs = new ArrayList<>();
+		for (int i = 0; i < seq.length(); i++) {
+			char c = seq.charAt(i);
+			if (n ? Character.toUpperCase(c) == 'N' : Character.isLowerCase(c)) {
+				if (!runs.isEmpty() && runs.get(runs.size() - 1)[0] + runs.get(runs.size() - 1)[1] == i) {
+					runs.get(runs.size() - 1)[1]++;
+				} else {
+					runs.add(new int[] {i, 1});
+				}
+			}
+		}
+		return runs;
+	}
+
+	private static void writeBlocks(DataOutputStream out, List<int[]> blocks, boolean bigEndian) throws IOException {
+		writeInt(out, blocks.size(), bigEndian);
+		for (int[] block : blocks) {
+			writeInt(out, block[0], bigEndian);
+		}
+		for (int[] block : blocks) {
+			writeInt(out, block[1], bigEndian);
+		}
+	}
+
+	private static void writeInt(DataOutputStream out, int value, boolean bigEndian) throws IOException {
+		out.writeInt(bigEndian ? value : Integer.reverseBytes(value));
+	}
+}
@@ -577,6 +577,35 @@ public class Calc {
 		}
 	}
 
+	/**
+	 * Transforms all atoms of a packed model at once, working directly on the
+	 * coordinate array. The transformation Matrix must be a post-multiplication
+	 * Matrix.
+	 *
+	 * @param atoms
+	 *            the packed atoms to transform
+	 * @param m
+	 *            transformation Matrix4d
+	 * @since 7.2.3
+	 */
+	public static void transform(PackedAtomArrays atoms, Matrix4d m) {
+		CalcPoint.transform(m, atoms.getCoordinates());
+	}
+
+	/**
+	 * Translates all atoms of a packed model at once, working directly on the
+	 * coordinate array.
+	 *
+	 * @param atoms
+	 *            the packed atoms to translate
+	 * @param v
+	 *            translation vector
+	 * @since 7.2.3
+	 */
+	public static void translate(PackedAtomArrays atoms, Vector3d v) {
+		CalcPoint.translate(v, atoms.getCoordinates());
+	}
+
 	/**
 	 * Translates an atom object, given a Vector3d (i.e. the vecmath library
 	 * double-precision 3-d vector)
@@ -798,6 +827,20 @@ public class Calc {
 
 	}
 
+	/**
+	 * Returns the centroid of all atoms of a packed model.
+	 *
+	 * @param atoms
+	 *            the packed atoms
+	 * @return the centroid as a Point3d
+	 * @since 7.2.3
+	 */
+	public static Point3d getCentroid(PackedAtomArrays atoms) {
+		if (atoms.size() == 0)
+			throw new IllegalArgumentException("Atom array has length 0, can't calculate centroid!");
+		return CalcPoint.centroid(atoms.getCoordinates());
+	}
+
 	/**
 	 * Returns the center of mass of the set of atoms. Atomic masses of the
 	 * Atoms are used.
@@ -91,7 +91,8 @@ public class HetatomImpl implements Group {
 
 	}
 
-	private static PerformanceBehavior performanceBehavior=PerformanceBehavior.LESS_MEMORY_SLOWER_PERFORMANCE;
+	// package-private so that tests can switch it
+	static PerformanceBehavior performanceBehavior=PerformanceBehavior.LESS_MEMORY_SLOWER_PERFORMANCE;
 
 	private Map<String,Atom> atomNameLookup;
 
@@ -205,6 +206,10 @@ public class HetatomImpl implements Group {
 		if ( atomNameLookup != null)
 			atomNameLookup.clear();
 
+		// the lookup must hold the same views of packed atoms as the bonds do
+		if ( atomNameLookup != null && atoms instanceof PackedAtomList)
+			((PackedAtomList) atoms).createViews();
+
 		for (Atom a: atoms){
 			a.setGroup(this);
 			if ( atomNameLookup != null)
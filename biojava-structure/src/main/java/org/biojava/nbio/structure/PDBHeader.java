@@ -354,7 +354,10 @@ public class PDBHeader implements PDBRecord {
 		Date d = getDepDate();
 		if ( d !=  null){
 			// provide correct display of Dep date...
-			buf.append(dateFormat.format(d));
+			// the format is not thread-safe
+			synchronized (dateFormat) {
+				buf.append(dateFormat.format(d));
+			}
 		} else {
 			buf.append("         ");
 		}
@@ -0,0 +1,222 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.structure.io.FileConvert;
+
+/**
+ * A flyweight {@link Atom} that reads and writes all its fields from a
+ * {@link PackedAtomArrays}. Two views are equal if they point to the same
+ * index of the same arrays.
+ * <p>
+ * Note that {@link #getCoordsAsPoint3d()} returns a copy of the coordinates:
+ * to modify them use {@link #setX(double)}, {@link #setCoords(double[])} or
+ * the methods in {@link Calc}.
+ *
+ * @since 7.2.3
+ */
+public class PackedAtom implements Atom {
+
+	private static final long serialVersionUID = -6480253328386530245L;
+
+	private final PackedAtomArrays arrays;
+	private final int index;
+
+	PackedAtom(PackedAtomArrays arrays, int index) {
+		this.arrays = arrays;
+		this.index = index;
+	}
+
+	/**
+	 * @return the arrays backing this atom
+	 */
+	public PackedAtomArrays getArrays() {
+		return arrays;
+	}
+
+	/**
+	 * @return the index of this atom in its {@link PackedAtomArrays}
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	@Override
+	public void setName(String s) { arrays.setName(index, s); }
+
+	@Override
+	public String getName() { return arrays.getName(index); }
+
+	@Override
+	public void setElement(Element e) { arrays.setElement(index, e); }
+
+	@Override
+	public Element getElement() { return arrays.getElement(index); }
+
+	@Override
+	public void setPDBserial(int i) { arrays.setPDBserial(index, i); }
+
+	@Override
+	public int getPDBserial() { return arrays.getPDBserial(index); }
+
+	@Override
+	public void setCoords(double[] c) {
+		arrays.setX(index, c[0]);
+		arrays.setY(index, c[1]);
+		arrays.setZ(index, c[2]);
+	}
+
+	@Override
+	public double[] getCoords() {
+		return new double[] { getX(), getY(), getZ() };
+	}
+
+	/**
+	 * Returns a new Point3d with the coordinates of this atom. Modifications
+	 * of the returned point are not reflected in the atom.
+	 */
+	@Override
+	public Point3d getCoordsAsPoint3d() {
+		return new Point3d(getX(), getY(), getZ());
+	}
+
+	@Override
+	public void setX(double x) { arrays.setX(index, x); }
+
+	@Override
+	public void setY(double y) { arrays.setY(index, y); }
+
+	@Override
+	public void setZ(double z) { arrays.setZ(index, z); }
+
+	@Override
+	public double getX() { return arrays.getX(index); }
+
+	@Override
+	public double getY() { return arrays.getY(index); }
+
+	@Override
+	public double getZ() { return arrays.getZ(index); }
+
+	@Override
+	public void setAltLoc(Character c) { arrays.setAltLoc(index, c); }
+
+	@Override
+	public Character getAltLoc() { return arrays.getAltLoc(index); }
+
+	@Override
+	public void setOccupancy(float occupancy) { arrays.setOccupancy(index, occupancy); }
+
+	@Override
+	public float getOccupancy() { return arrays.getOccupancy(index); }
+
+	@Override
+	public void setTempFactor(float temp) { arrays.setTempFactor(index, temp); }
+
+	@Override
+	public float getTempFactor() { return arrays.getTempFactor(index); }
+
+	@Override
+	public short getCharge() { return arrays.getCharge(index); }
+
+	@Override
+	public void setCharge(short charge) { arrays.setCharge(index, charge); }
+
+	@Override
+	public void setGroup(Group parent) { arrays.setGroup(index, parent); }
+
+	@Override
+	public Group getGroup() { return arrays.getGroup(index); }
+
+	@Override
+	public void addBond(Bond bond) { arrays.addBond(this, bond); }
+
+	@Override
+	public List<Bond> getBonds() { return arrays.getBonds(index); }
+
+	@Override
+	public void setBonds(List<Bond> bonds) { arrays.setBonds(this, bonds); }
+
+	@Override
+	public boolean hasBond(Atom other) {
+		List<Bond> bonds = getBonds();
+		if (bonds == null)
+			return false;
+
+		for (Bond b : bonds) {
+			if (b.getAtomA().equals(other) || b.getAtomB().equals(other))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a detached {@link AtomImpl} copy of this atom. As in AtomImpl,
+	 * bonds are not copied.
+	 */
+	@Override
+	public Object clone() {
+		AtomImpl n = new AtomImpl();
+		n.setOccupancy(getOccupancy());
+		n.setTempFactor(getTempFactor());
+		n.setAltLoc(getAltLoc());
+		n.setCharge(getCharge());
+		n.setX(getX());
+		n.setY(getY());
+		n.setZ(getZ());
+		n.setPDBserial(getPDBserial());
+		n.setName(getName());
+		n.setElement(getElement());
+		return n;
+	}
+
+	@Override
+	public String toPDB() {
+		return FileConvert.toPDB(this);
+	}
+
+	@Override
+	public void toPDB(StringBuffer buf) {
+		FileConvert.toPDB(this, buf);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof PackedAtom)) return false;
+		PackedAtom other = (PackedAtom) o;
+		return arrays == other.arrays && index == other.index;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(arrays) + index;
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " " + getElement() + " " + getPDBserial() + " " + getX() + " " + getY() + " " + getZ();
+	}
+}
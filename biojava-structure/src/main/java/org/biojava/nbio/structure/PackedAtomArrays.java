@@ -0,0 +1,394 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, structure-of-arrays storage for all the atoms of one model of a
+ * {@link Structure}.
+ * <p>
+ * Coordinates are kept in a single interleaved <code>double[]</code>
+ * (x0, y0, z0, x1, y1, z1, ...), B-factors and occupancies in
+ * <code>float[]</code> and elements as codes in a <code>byte[]</code>. The
+ * {@link Group}s of a packed model hold a {@link PackedAtomList} instead of
+ * a list of {@link AtomImpl}, which hands out lightweight {@link PackedAtom}
+ * views on demand. Per-atom memory is thus reduced to the primitive fields plus
+ * a parent reference, instead of an AtomImpl and a Point3d per atom.
+ * <p>
+ * Usage:
+ * <pre>
+ *    Structure s = StructureIO.getStructure("4v6x");
+ *    PackedAtomArrays model = PackedAtomArrays.pack(s, 0);
+ *    double[] xyz = model.getCoordinates();
+ * </pre>
+ * <p>
+ * The packed representation is optional and fully hidden behind the
+ * {@link Atom} and {@link Group} interfaces. The groups of a packed model are
+ * fixed in size: {@link Group#addAtom(Atom)} is not supported on them, use
+ * {@link Group#setAtoms(List)} to replace the atoms instead.
+ *
+ * @since 7.2.3
+ * @see PackedAtom
+ * @see PackedAtomList
+ */
+public class PackedAtomArrays implements Serializable {
+
+	private static final long serialVersionUID = 4130542713574231560L;
+
+	private static final Element[] ELEMENTS = Element.values();
+
+	private final int size;
+
+	private final double[] coords;
+	private final float[] occupancies;
+	private final float[] tempFactors;
+	private final byte[] elements;
+	private final String[] names;
+	private final int[] serials;
+	private final char[] altLocs;
+	private final short[] charges;
+	private final Group[] parents;
+
+	/**
+	 * Bonds and canonical atom views, only allocated if any of the atoms has
+	 * bonds or is held in a group's atom name lookup. Canonical views are
+	 * needed because {@link Bond#getOther(Atom)} compares atoms with
+	 * <code>==</code>
+	 */
+	private List<Bond>[] bonds;
+	private PackedAtom[] views;
+
+	/**
+	 * Creates empty arrays for the given number of atoms. All atoms are
+	 * initialised with the same defaults as {@link AtomImpl}.
+	 *
+	 * @param size the number of atoms
+	 */
+	public PackedAtomArrays(int size) {
+		this.size = size;
+		coords = new double[3 * size];
+		occupancies = new float[size];
+		tempFactors = new float[size];
+		elements = new byte[size];
+		names = new String[size];
+		serials = new int[size];
+		altLocs = new char[size];
+		charges = new short[size];
+		parents = new Group[size];
+		Arrays.fill(elements, (byte) Element.R.ordinal());
+	}
+
+	/**
+	 * Packs all atoms of the given model into primitive arrays and replaces
+	 * the atoms of each group (including alternate location groups) by
+	 * {@link PackedAtom} views backed by the returned arrays. Bonds between
+	 * atoms of the model are carried over.
+	 * <p>
+	 * An atom that belongs to several groups, as the atoms an alternate
+	 * location group shares with its main group (see
+	 * {@link StructureTools#cleanUpAltLocs(Structure)}), is packed once and
+	 * keeps its parent group.
+	 *
+	 * @param structure the structure to pack
+	 * @param modelNr the model index, starting at 0
+	 * @return the arrays now backing the model's atoms
+	 */
+	public static PackedAtomArrays pack(Structure structure, int modelNr) {
+		List<Group> groups = new ArrayList<>();
+		Map<Atom, Integer> indices = new IdentityHashMap<>();
+		List<Atom> originals = new ArrayList<>();
+		for (Chain c : structure.getChains(modelNr)) {
+			for (Group g : c.getAtomGroups()) {
+				groups.add(g);
+				groups.addAll(g.getAltLocs());
+			}
+		}
+		for (Group g : groups) {
+			for (Atom a : g.getAtoms()) {
+				if (indices.putIfAbsent(a, originals.size()) == null)
+					originals.add(a);
+			}
+		}
+
+		int count = originals.size();
+		PackedAtomArrays arrays = new PackedAtomArrays(count);
+		for (int i = 0; i < count; i++)
+			arrays.copyFrom(i, originals.get(i));
+
+		for (Group g : groups) {
+			List<Atom> atoms = g.getAtoms();
+			int[] groupIndices = new int[atoms.size()];
+			boolean contiguous = true;
+			for (int k = 0; k < groupIndices.length; k++) {
+				groupIndices[k] = indices.get(atoms.get(k));
+				contiguous &= groupIndices[k] == groupIndices[0] + k;
+			}
+			if (contiguous)
+				g.setAtoms(new PackedAtomList(arrays, groupIndices.length == 0 ? 0 : groupIndices[0], groupIndices.length));
+			else
+				g.setAtoms(new PackedAtomList(arrays, groupIndices));
+		}
+		// setAtoms made the last group of a shared atom its parent
+		for (int i = 0; i < count; i++)
+			arrays.parents[i] = originals.get(i).getGroup();
+
+		// bonds referring to the original atoms are rebuilt between the views
+		for (int i = 0; i < count; i++) {
+			List<Bond> atomBonds = originals.get(i).getBonds();
+			if (atomBonds == null)
+				continue;
+			for (Bond b : atomBonds) {
+				if (b.getAtomA() != originals.get(i))
+					continue;
+				Integer other = indices.get(b.getAtomB());
+				if (other == null)
+					continue;
+				new BondImpl(arrays.getAtom(i), arrays.getAtom(other), b.getBondOrder());
+			}
+		}
+		return arrays;
+	}
+
+	/**
+	 * Packs every model of the given structure, see {@link #pack(Structure, int)}.
+	 *
+	 * @param structure the structure to pack
+	 * @return one PackedAtomArrays per model, in model order
+	 */
+	public static List<PackedAtomArrays> pack(Structure structure) {
+		List<PackedAtomArrays> models = new ArrayList<>(structure.nrModels());
+		for (int n = 0; n < structure.nrModels(); n++) {
+			models.add(pack(structure, n));
+		}
+		return models;
+	}
+
+	private void copyFrom(int i, Atom a) {
+		setX(i, a.getX());
+		setY(i, a.getY());
+		setZ(i, a.getZ());
+		occupancies[i] = a.getOccupancy();
+		tempFactors[i] = a.getTempFactor();
+		setElement(i, a.getElement());
+		names[i] = a.getName();
+		serials[i] = a.getPDBserial();
+		setAltLoc(i, a.getAltLoc());
+		charges[i] = a.getCharge();
+	}
+
+	/**
+	 * Returns a view of the atom at the given index. If the atom takes part in
+	 * bonds or is held in an atom name lookup (see
+	 * {@link HetatomImpl.PerformanceBehavior}) the same view instance is always
+	 * returned, otherwise a new lightweight view is created.
+	 *
+	 * @param i the atom index
+	 * @return an Atom backed by these arrays
+	 */
+	public Atom getAtom(int i) {
+		checkIndex(i);
+		if (views != null && views[i] != null)
+			return views[i];
+		return new PackedAtom(this, i);
+	}
+
+	/**
+	 * @return the number of atoms stored
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the backing coordinate array, interleaved as x0, y0, z0, x1, ...
+	 * Changes to the returned array are reflected in the atoms and vice versa.
+	 *
+	 * @return the backing coordinates, of length 3 * {@link #size()}
+	 */
+	public double[] getCoordinates() {
+		return coords;
+	}
+
+	/**
+	 * Copies the coordinates of a subset of atoms into a new interleaved array,
+	 * for instance the C-alpha atoms for a superposition.
+	 *
+	 * @param indices the atom indices to extract
+	 * @return a new array of length 3 * indices.length
+	 */
+	public double[] getCoordinates(int[] indices) {
+		double[] subset = new double[3 * indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			System.arraycopy(coords, 3 * indices[i], subset, 3 * i, 3);
+		}
+		return subset;
+	}
+
+	/**
+	 * Returns the backing B-factor array.
+	 * @return the temperature factors, one per atom
+	 */
+	public float[] getTempFactors() {
+		return tempFactors;
+	}
+
+	/**
+	 * Returns the backing occupancy array.
+	 * @return the occupancies, one per atom
+	 */
+	public float[] getOccupancies() {
+		return occupancies;
+	}
+
+	/**
+	 * Returns the backing element code array. Codes are the
+	 * {@link Element#ordinal()} of each atom's element.
+	 * @return the element codes, one per atom
+	 */
+	public byte[] getElementCodes() {
+		return elements;
+	}
+
+	/**
+	 * Returns the backing atom name array.
+	 * @return the atom names, one per atom
+	 */
+	public String[] getNames() {
+		return names;
+	}
+
+	/**
+	 * Returns the backing PDB serial array.
+	 * @return the atom serials, one per atom
+	 */
+	public int[] getSerials() {
+		return serials;
+	}
+
+	/**
+	 * Returns the backing alternate location array. As in {@link AtomImpl},
+	 * 0 stands for no alternate location, which {@link Atom#getAltLoc()}
+	 * returns as null.
+	 * @return the alt loc codes, one per atom
+	 */
+	public char[] getAltLocCodes() {
+		return altLocs;
+	}
+
+	double getX(int i) { return coords[3 * i]; }
+	double getY(int i) { return coords[3 * i + 1]; }
+	double getZ(int i) { return coords[3 * i + 2]; }
+
+	void setX(int i, double x) { coords[3 * i] = x; }
+	void setY(int i, double y) { coords[3 * i + 1] = y; }
+	void setZ(int i, double z) { coords[3 * i + 2] = z; }
+
+	float getOccupancy(int i) { return occupancies[i]; }
+	void setOccupancy(int i, float occupancy) { occupancies[i] = occupancy; }
+
+	float getTempFactor(int i) { return tempFactors[i]; }
+	void setTempFactor(int i, float tempFactor) { tempFactors[i] = tempFactor; }
+
+	Element getElement(int i) { return ELEMENTS[elements[i]]; }
+	void setElement(int i, Element e) { elements[i] = (byte) e.ordinal(); }
+
+	String getName(int i) { return names[i]; }
+	void setName(int i, String name) { names[i] = name; }
+
+	int getPDBserial(int i) { return serials[i]; }
+	void setPDBserial(int i, int serial) { serials[i] = serial; }
+
+	Character getAltLoc(int i) {
+		// same convention as AtomImpl: 0 means no alt loc
+		if (altLocs[i] == 0) return null;
+		return altLocs[i];
+	}
+
+	void setAltLoc(int i, Character c) {
+		altLocs[i] = c == null ? 0 : c;
+	}
+
+	short getCharge(int i) { return charges[i]; }
+	void setCharge(int i, short charge) { charges[i] = charge; }
+
+	Group getGroup(int i) { return parents[i]; }
+	void setGroup(int i, Group parent) { parents[i] = parent; }
+
+	List<Bond> getBonds(int i) {
+		if (bonds == null) return null;
+		return bonds[i];
+	}
+
+	@SuppressWarnings("unchecked")
+	void setBonds(PackedAtom atom, List<Bond> atomBonds) {
+		if (bonds == null) {
+			if (atomBonds == null) return;
+			bonds = new List[size];
+			if (views == null)
+				views = new PackedAtom[size];
+		}
+		bonds[atom.getIndex()] = atomBonds;
+		registerView(atom);
+	}
+
+	void addBond(PackedAtom atom, Bond bond) {
+		int i = atom.getIndex();
+		List<Bond> atomBonds = getBonds(i);
+		if (atomBonds == null) {
+			atomBonds = new ArrayList<>(AtomImpl.BONDS_INITIAL_CAPACITY);
+			setBonds(atom, atomBonds);
+		}
+		atomBonds.add(bond);
+		registerView(atom);
+	}
+
+	/**
+	 * Creates the canonical view of the atom at the given index, if it has
+	 * none yet, so that {@link #getAtom(int)} returns the same instance from
+	 * now on.
+	 */
+	void createView(int i) {
+		if (views == null)
+			views = new PackedAtom[size];
+		if (views[i] == null)
+			views[i] = new PackedAtom(this, i);
+	}
+
+	/**
+	 * The first view that takes part in a bond becomes the canonical view for
+	 * that atom index.
+	 */
+	private void registerView(PackedAtom atom) {
+		if (views[atom.getIndex()] == null)
+			views[atom.getIndex()] = atom;
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Atom index " + i + " out of bounds for size " + size);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The atoms of one {@link Group} in a packed model: a fixed-size list over a
+ * contiguous range of a {@link PackedAtomArrays}, or over arbitrary indices,
+ * as for alternate location groups that share atoms with their main group.
+ * {@link PackedAtom} views are created on access and not retained.
+ *
+ * @since 7.2.3
+ */
+public class PackedAtomList extends AbstractList<Atom> implements RandomAccess, Serializable {
+
+	private static final long serialVersionUID = 2235860839226446407L;
+
+	private final PackedAtomArrays arrays;
+	private final int start;
+	private final int size;
+	private final int[] indices;
+
+	/**
+	 * @param arrays the backing arrays
+	 * @param start index of the first atom in the arrays
+	 * @param size number of atoms in the list
+	 */
+	public PackedAtomList(PackedAtomArrays arrays, int start, int size) {
+		if (start < 0 || size < 0 || start + size > arrays.size())
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + (start + size) + ") out of bounds for size " + arrays.size());
+		this.arrays = arrays;
+		this.start = start;
+		this.size = size;
+		this.indices = null;
+	}
+
+	/**
+	 * @param arrays the backing arrays
+	 * @param indices index in the arrays of each atom of the list
+	 */
+	public PackedAtomList(PackedAtomArrays arrays, int[] indices) {
+		for (int i : indices) {
+			if (i < 0 || i >= arrays.size())
+				throw new IndexOutOfBoundsException("Atom index " + i + " out of bounds for size " + arrays.size());
+		}
+		this.arrays = arrays;
+		this.start = indices.length == 0 ? 0 : indices[0];
+		this.size = indices.length;
+		this.indices = indices.clone();
+	}
+
+	@Override
+	public Atom get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		return arrays.getAtom(getIndex(index));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Makes {@link #get(int)} return the same view of each atom of this list
+	 * from now on, see {@link PackedAtomArrays#getAtom(int)}.
+	 */
+	void createViews() {
+		for (int k = 0; k < size; k++)
+			arrays.createView(getIndex(k));
+	}
+
+	/**
+	 * @return the arrays backing this list
+	 */
+	public PackedAtomArrays getArrays() {
+		return arrays;
+	}
+
+	/**
+	 * @return the index of the first atom of this list in the backing arrays
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @param index the position of an atom in this list
+	 * @return the index of that atom in the backing arrays
+	 */
+	public int getIndex(int index) {
+		return indices == null ? start + index : indices[index];
+	}
+}
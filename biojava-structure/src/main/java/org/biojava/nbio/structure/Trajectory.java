@@ -0,0 +1,932 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.biojava.nbio.structure.geometry.SuperPositionQCP;
+import org.biojava.nbio.structure.io.Hybrid36;
+import org.biojava.nbio.structure.io.PDBFileParser;
+
+/**
+ * A series of conformations (frames) of the same molecules, such as an NMR
+ * ensemble or the snapshots of a molecular dynamics simulation.
+ * <p>
+ * Unlike a multi-model {@link Structure}, which holds a copy of every chain,
+ * group and atom for each model, a trajectory shares one topology: a copy of
+ * the first model, stored as {@link PackedAtomArrays}. Each frame is only a
+ * block of <code>float</code> coordinates, interleaved as x0, y0, z0, x1, ...
+ * in the order of the topology atoms (chains, then groups, then the atoms of
+ * each group followed by those of its alternate locations, where the atoms an
+ * alternate location shares with its main group come once). Frames are kept
+ * in memory up to a {@link #setMemoryLimit(long) limit}, and in a
+ * memory-mapped temporary file beyond it.
+ * <p>
+ * Frames are materialised on demand, either by {@link #apply(int) applying}
+ * their coordinates to the shared topology, or as an independent copy with
+ * {@link #getStructure(int)}. Usage:
+ * <pre>
+ *    Trajectory trajectory = Trajectory.readPdb(in);
+ *    int[] ca = trajectory.indicesOf(StructureTools.getRepresentativeAtomArray(trajectory.getTopology()));
+ *    double[] rmsds = trajectory.getRmsds(trajectory.getCoordinates(0, ca, null), ca);
+ *
+ *    SecStrucCalc dssp = new SecStrucCalc();
+ *    dssp.setMovementThreshold(0.1);
+ *    for (Trajectory.Frame frame : trajectory) {
+ *        List&lt;SecStrucState&gt; states = dssp.calculate(frame.apply(), false);
+ *        double[] asas = new AsaCalculator(frame.apply(), 1.4, 960, 1, false).calculateAsas();
+ *    }
+ * </pre>
+ * <p>
+ * Frames can be read concurrently, but {@link #apply(int)} changes the shared
+ * topology and adding frames is not thread-safe.
+ * <p>
+ * PDB files are streamed by {@link #readPdb(InputStream)}. mmCIF files are
+ * not: parse them into a structure and use {@link #fromStructure(Structure)},
+ * which needs all models in memory while the trajectory is built.
+ *
+ * @since 7.2.3
+ */
+public class Trajectory implements Iterable<Trajectory.Frame>, Closeable {
+
+	/** The default size above which frames are stored in a memory-mapped file */
+	public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+
+	/** The size of the memory-mapped regions of the frame file */
+	private static final int CHUNK_BYTES = 64 << 20;
+
+	/** The number of frames superposed at a time by getRmsds */
+	private static final int RMSD_BLOCK = 1024;
+
+	private final Structure topology;
+	private final PackedAtomArrays atoms;
+	private final int frameSize;
+
+	private FrameStore frames;
+	private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+	/**
+	 * Creates an empty trajectory, with a copy of the first model of the
+	 * given structure as topology. The structure is not modified.
+	 *
+	 * @param structure
+	 *            the structure to take the chains, groups and atoms from
+	 */
+	public Trajectory(Structure structure) {
+		topology = copyFirstModel(structure);
+		atoms = PackedAtomArrays.pack(topology, 0);
+		frameSize = 3 * atoms.size();
+		frames = new MemoryFrames();
+	}
+
+	/**
+	 * Creates a trajectory with one frame for each model of the structure. All
+	 * models must have the same atoms as the first one. This is how mmCIF
+	 * files, which are not streamed like {@link #readPdb(InputStream) PDB
+	 * files}, can be read.
+	 *
+	 * @param structure
+	 *            a multi-model structure
+	 * @return the trajectory
+	 * @throws IllegalArgumentException
+	 *             if a model does not have as many atoms as the first one
+	 */
+	public static Trajectory fromStructure(Structure structure) {
+		Trajectory trajectory = new Trajectory(structure);
+		for (int m = 0; m < structure.nrModels(); m++) {
+			trajectory.addFrame(structure, m);
+		}
+		return trajectory;
+	}
+
+	/**
+	 * Reads a multi-model PDB file. Only the header and first model are parsed
+	 * into a structure, the topology. The following models are streamed
+	 * straight into frames: their atom records are matched to the atoms of the
+	 * first model by position, so they must list the same atoms in the same
+	 * order, as NMR ensembles and simulation outputs do. Atom serial numbers
+	 * are not used for matching, so they may be hybrid-36 encoded, overflow or
+	 * repeat, as in simulations of more than 99,999 atoms.
+	 * <p>
+	 * CONECT records, which usually follow the last model, are added as bonds
+	 * between the topology atoms of the first model's records they refer to.
+	 *
+	 * @param in
+	 *            the PDB file contents, which are read but not closed
+	 * @return the trajectory, with one frame per model
+	 * @throws IOException
+	 *             if the file can't be read, an atom record is malformed or a
+	 *             model has a different number of atoms than the first one
+	 */
+	public static Trajectory readPdb(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1));
+
+		// the header and first model, with the atom records numbered by their position,
+		// so that the parsed atoms can be traced back to their records
+		StringBuilder first = new StringBuilder();
+		List<String> serials = new ArrayList<>();
+		Map<String, Integer> positions = new HashMap<>();
+		Set<String> repeated = new HashSet<>();
+		List<String> conects = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (isAtomRecord(line)) {
+				checkAtomRecord(line, 1);
+				if (serials.size() == Hybrid36.maxValue(5))
+					throw new IOException("The first model has more than " + serials.size() + " atoms");
+				String serial = line.substring(6, 11).trim();
+				serials.add(serial);
+				if (positions.put(serial, serials.size()) != null)
+					repeated.add(serial);
+				first.append(line, 0, 6).append(Hybrid36.encode(serials.size(), 5)).append(line, 11, line.length());
+			} else if (line.startsWith("CONECT")) {
+				// added once the serials of the whole first model are known
+				conects.add(line);
+				continue;
+			} else {
+				first.append(line);
+			}
+			first.append('\n');
+			if (line.startsWith("ENDMDL"))
+				break;
+		}
+
+		Structure structure = new PDBFileParser().parsePDBFile(new BufferedReader(new StringReader(first.toString())));
+		Trajectory trajectory = new Trajectory(structure);
+		float[] frame = trajectory.toFloats(trajectory.atoms.getCoordinates());
+		trajectory.addFrame(frame);
+
+		// the record of each topology atom, whose original serial is restored
+		int[] recordOf = new int[trajectory.atoms.size()];
+		boolean[] seen = new boolean[serials.size()];
+		int[] atomSerials = trajectory.atoms.getSerials();
+		for (int i = 0; i < recordOf.length; i++) {
+			int r = atomSerials[i] - 1;
+			if (r < 0 || r >= seen.length || seen[r])
+				throw new IOException("Atom " + trajectory.atoms.getAtom(i) + " does not match an atom record");
+			seen[r] = true;
+			recordOf[i] = r;
+			atomSerials[i] = parseSerial(serials.get(r));
+		}
+
+		float[] coords = new float[3 * serials.size()];
+		int record = 0;
+		int model = 1;
+		while ((line = reader.readLine()) != null) {
+			if (isAtomRecord(line)) {
+				if (record == serials.size())
+					throw new IOException("Model " + (model + 1) + " has more atoms than the first model");
+				checkAtomRecord(line, model + 1);
+				try {
+					coords[3 * record] = (float) Double.parseDouble(line.substring(30, 38).trim());
+					coords[3 * record + 1] = (float) Double.parseDouble(line.substring(38, 46).trim());
+					coords[3 * record + 2] = (float) Double.parseDouble(line.substring(46, 54).trim());
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid coordinates in model " + (model + 1) + ": " + line, e);
+				}
+				record++;
+			} else if (line.startsWith("ENDMDL")) {
+				if (record != serials.size())
+					throw new IOException("Model " + (model + 1) + " has " + record
+							+ " atoms, the first model has " + serials.size());
+				for (int i = 0; i < recordOf.length; i++)
+					System.arraycopy(coords, 3 * recordOf[i], frame, 3 * i, 3);
+				trajectory.addFrame(frame);
+				record = 0;
+				model++;
+			} else if (line.startsWith("CONECT")) {
+				conects.add(line);
+			}
+		}
+		if (record != 0)
+			throw new IOException("Model " + (model + 1) + " has no ENDMDL record");
+
+		int[] atomOf = new int[serials.size()];
+		Arrays.fill(atomOf, -1);
+		for (int i = 0; i < recordOf.length; i++)
+			atomOf[recordOf[i]] = i;
+		for (String conect : conects)
+			trajectory.addConect(conect, positions, repeated, atomOf);
+		return trajectory;
+	}
+
+	private static boolean isAtomRecord(String line) {
+		return line.startsWith("ATOM") || line.startsWith("HETATM");
+	}
+
+	private static void checkAtomRecord(String line, int model) throws IOException {
+		// up to the z coordinate
+		if (line.length() < 54)
+			throw new IOException("Atom record too short in model " + model + ": " + line);
+	}
+
+	/**
+	 * The serial of an atom record: a decimal or hybrid-36 number, or 0 if it
+	 * overflowed its columns.
+	 */
+	private static int parseSerial(String serial) {
+		try {
+			return Hybrid36.decode(serial);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Adds the bonds of a CONECT record between the topology atoms of the
+	 * records its serials refer to. Records with a serial that is not that of
+	 * exactly one atom record are skipped, and the hydrogen bond and salt
+	 * bridge columns of old files are ignored.
+	 *
+	 * @param positions
+	 *            the position of the record of each serial, starting at 1
+	 * @param atomOf
+	 *            the topology atom of each record, or -1
+	 */
+	private void addConect(String line, Map<String, Integer> positions, Set<String> repeated, int[] atomOf) {
+		int[] bonded = new int[5];
+		int count = 0;
+		for (int start = 6; start + 5 <= line.length() && start < 31; start += 5) {
+			String serial = line.substring(start, start + 5).trim();
+			if (serial.isEmpty()) {
+				if (start == 6)
+					return;
+				continue;
+			}
+			Integer position = positions.get(serial);
+			if (position == null || repeated.contains(serial) || atomOf[position - 1] < 0)
+				return;
+			bonded[count++] = atomOf[position - 1];
+		}
+		for (int k = 1; k < count; k++) {
+			if (bonded[k] != bonded[0])
+				new BondImpl(atoms.getAtom(bonded[0]), atoms.getAtom(bonded[k]), 1);
+		}
+	}
+
+	/**
+	 * Adds a frame.
+	 *
+	 * @param coordinates
+	 *            the coordinates of all atoms, in the order of the topology
+	 * @throws IllegalArgumentException
+	 *             if the array does not have 3 coordinates per atom
+	 */
+	public void addFrame(float[] coordinates) {
+		if (coordinates.length != frameSize)
+			throw new IllegalArgumentException("A frame needs " + frameSize + " coordinates, got " + coordinates.length);
+		if (frames instanceof MemoryFrames && (long) (frames.size() + 1) * frameSize * Float.BYTES > memoryLimit) {
+			frames = new MappedFrames(frames);
+		}
+		frames.add(coordinates);
+	}
+
+	/**
+	 * Adds a frame, rounding the coordinates to single precision.
+	 *
+	 * @param coordinates
+	 *            the coordinates of all atoms, in the order of the topology
+	 * @throws IllegalArgumentException
+	 *             if the array does not have 3 coordinates per atom
+	 */
+	public void addFrame(double[] coordinates) {
+		if (coordinates.length != frameSize)
+			throw new IllegalArgumentException("A frame needs " + frameSize + " coordinates, got " + coordinates.length);
+		addFrame(toFloats(coordinates));
+	}
+
+	/**
+	 * Adds the coordinates of a model as a frame.
+	 *
+	 * @param structure
+	 *            a structure with the same atoms as the topology
+	 * @param modelNr
+	 *            the model index, starting at 0
+	 * @throws IllegalArgumentException
+	 *             if the model does not have as many atoms as the topology
+	 */
+	public void addFrame(Structure structure, int modelNr) {
+		float[] frame = new float[frameSize];
+		int[] count = new int[1];
+		forEachAtom(structure, modelNr, a -> {
+			int i = count[0]++;
+			if (3 * i < frame.length) {
+				frame[3 * i] = (float) a.getX();
+				frame[3 * i + 1] = (float) a.getY();
+				frame[3 * i + 2] = (float) a.getZ();
+			}
+		});
+		if (3 * count[0] != frameSize)
+			throw new IllegalArgumentException("Model " + modelNr + " has " + count[0]
+					+ " atoms, the topology has " + atoms.size());
+		addFrame(frame);
+	}
+
+	/**
+	 * @return the number of frames
+	 */
+	public int size() {
+		return frames.size();
+	}
+
+	/**
+	 * @return the number of atoms of each frame
+	 */
+	public int getAtomCount() {
+		return atoms.size();
+	}
+
+	/**
+	 * Returns the shared topology, a single-model structure whose atoms have
+	 * the coordinates of the last {@link #apply(int) applied} frame, or of the
+	 * first model of the original structure if none was applied.
+	 *
+	 * @return the topology
+	 */
+	public Structure getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the indices of atoms of the topology, for instance its C-alpha
+	 * atoms, to extract their coordinates from the frames.
+	 *
+	 * @param topologyAtoms
+	 *            atoms of {@link #getTopology()}
+	 * @return the index of each atom in the frames
+	 * @throws IllegalArgumentException
+	 *             if an atom is not one of the topology
+	 */
+	public int[] indicesOf(Atom[] topologyAtoms) {
+		int[] indices = new int[topologyAtoms.length];
+		for (int i = 0; i < topologyAtoms.length; i++) {
+			Atom a = topologyAtoms[i];
+			if (!(a instanceof PackedAtom) || ((PackedAtom) a).getArrays() != atoms)
+				throw new IllegalArgumentException("Atom " + a + " is not an atom of the topology");
+			indices[i] = ((PackedAtom) a).getIndex();
+		}
+		return indices;
+	}
+
+	/**
+	 * Copies the coordinates of a frame.
+	 *
+	 * @param frame
+	 *            the frame index
+	 * @param dest
+	 *            the array to fill, or null to allocate one
+	 * @return the coordinates of all atoms, interleaved as x0, y0, z0, x1, ...
+	 */
+	public float[] getFrame(int frame, float[] dest) {
+		checkFrame(frame);
+		if (dest == null)
+			dest = new float[frameSize];
+		frames.get(frame, dest);
+		return dest;
+	}
+
+	/**
+	 * Copies the coordinates of a frame in double precision.
+	 *
+	 * @param frame
+	 *            the frame index
+	 * @param dest
+	 *            the array to fill, or null to allocate one
+	 * @return the coordinates of all atoms, interleaved as x0, y0, z0, x1, ...
+	 */
+	public double[] getCoordinates(int frame, double[] dest) {
+		float[] coords = getFrame(frame, null);
+		if (dest == null)
+			dest = new double[frameSize];
+		for (int k = 0; k < frameSize; k++)
+			dest[k] = coords[k];
+		return dest;
+	}
+
+	/**
+	 * Copies the coordinates of some atoms of a frame in double precision, as
+	 * packed coordinates for {@link SuperPositionQCP}.
+	 *
+	 * @param frame
+	 *            the frame index
+	 * @param indices
+	 *            the atoms, see {@link #indicesOf(Atom[])}
+	 * @param dest
+	 *            the array to fill, or null to allocate one
+	 * @return the coordinates of the atoms, interleaved as x0, y0, z0, x1, ...
+	 */
+	public double[] getCoordinates(int frame, int[] indices, double[] dest) {
+		if (dest == null)
+			dest = new double[3 * indices.length];
+		copy(getFrame(frame, null), indices, dest, 0);
+		return dest;
+	}
+
+	/**
+	 * Sets the coordinates of the atoms of the shared topology to those of a
+	 * frame. The returned structure can be given to any calculation, e.g.
+	 * {@link org.biojava.nbio.structure.secstruc.SecStrucCalc} or
+	 * {@link org.biojava.nbio.structure.asa.AsaCalculator}, but is changed by
+	 * the next call.
+	 *
+	 * @param frame
+	 *            the frame index
+	 * @return the topology, see {@link #getTopology()}
+	 */
+	public Structure apply(int frame) {
+		float[] coords = getFrame(frame, null);
+		double[] xyz = atoms.getCoordinates();
+		for (int k = 0; k < frameSize; k++)
+			xyz[k] = coords[k];
+		return topology;
+	}
+
+	/**
+	 * Materialises a frame as a new structure, independent of this trajectory.
+	 *
+	 * @param frame
+	 *            the frame index
+	 * @return a copy of the topology with the coordinates of the frame
+	 */
+	public Structure getStructure(int frame) {
+		float[] coords = getFrame(frame, null);
+		Structure structure = topology.clone();
+		List<Chain> chains = topology.getChains(0);
+		List<Chain> copies = structure.getChains(0);
+		shareAtoms(chains, copies);
+		for (int c = 0; c < chains.size(); c++) {
+			List<Group> groups = chains.get(c).getAtomGroups();
+			List<Group> copiedGroups = copies.get(c).getAtomGroups();
+			for (int g = 0; g < groups.size(); g++) {
+				setCoordinates(groups.get(g), copiedGroups.get(g), coords);
+				List<Group> altLocs = groups.get(g).getAltLocs();
+				for (int k = 0; k < altLocs.size(); k++)
+					setCoordinates(altLocs.get(k), copiedGroups.get(g).getAltLocs().get(k), coords);
+			}
+		}
+		return structure;
+	}
+
+	/**
+	 * Calculates the RMSD of the superposition of some atoms of every frame
+	 * onto a reference, with the batch methods of {@link SuperPositionQCP}.
+	 *
+	 * @param reference
+	 *            packed coordinates of the reference, one point per atom
+	 * @param indices
+	 *            the atoms to superpose, see {@link #indicesOf(Atom[])}
+	 * @return the RMSD of each frame
+	 */
+	public double[] getRmsds(double[] reference, int[] indices) {
+		if (reference.length != 3 * indices.length)
+			throw new IllegalArgumentException("The reference needs " + 3 * indices.length
+					+ " coordinates, got " + reference.length);
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		qcp.setReference(reference);
+
+		int n = size();
+		double[] rmsds = new double[n];
+		int block = Math.min(n, RMSD_BLOCK);
+		double[] models = new double[block * reference.length];
+		double[] blockRmsds = new double[block];
+		float[] frame = new float[frameSize];
+		for (int start = 0; start < n; start += block) {
+			int count = Math.min(block, n - start);
+			for (int f = 0; f < count; f++) {
+				frames.get(start + f, frame);
+				copy(frame, indices, models, f * reference.length);
+			}
+			qcp.getRmsds(models, count, blockRmsds);
+			System.arraycopy(blockRmsds, 0, rmsds, start, count);
+		}
+		return rmsds;
+	}
+
+	/**
+	 * Sets the size above which frames are stored in a memory-mapped
+	 * temporary file instead of the heap. Frames already stored in memory
+	 * move to the file when the limit is reached.
+	 *
+	 * @param bytes
+	 *            the limit, {@link #DEFAULT_MEMORY_LIMIT} by default
+	 */
+	public void setMemoryLimit(long bytes) {
+		memoryLimit = bytes;
+	}
+
+	/**
+	 * @return the size above which frames are stored in a memory-mapped file
+	 */
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	/**
+	 * @return whether the frames are stored in a memory-mapped file
+	 */
+	public boolean isMapped() {
+		return frames instanceof MappedFrames;
+	}
+
+	/**
+	 * Iterates over the frames. Frames added during the iteration are
+	 * included.
+	 */
+	@Override
+	public Iterator<Frame> iterator() {
+		return new Iterator<Frame>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size();
+			}
+
+			@Override
+			public Frame next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return new Frame(next++);
+			}
+		};
+	}
+
+	/**
+	 * Deletes the memory-mapped file of the frames, if any. No frames can be
+	 * read afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		frames.close();
+	}
+
+	private void checkFrame(int frame) {
+		if (frame < 0 || frame >= size())
+			throw new IndexOutOfBoundsException("Frame " + frame + " of " + size());
+	}
+
+	private float[] toFloats(double[] coordinates) {
+		float[] frame = new float[coordinates.length];
+		for (int k = 0; k < coordinates.length; k++)
+			frame[k] = (float) coordinates[k];
+		return frame;
+	}
+
+	private static void copy(float[] frame, int[] indices, double[] dest, int offset) {
+		for (int i = 0; i < indices.length; i++) {
+			int k = 3 * indices[i];
+			dest[offset + 3 * i] = frame[k];
+			dest[offset + 3 * i + 1] = frame[k + 1];
+			dest[offset + 3 * i + 2] = frame[k + 2];
+		}
+	}
+
+	/**
+	 * Gives the atoms of a copy of a topology group the coordinates of a frame.
+	 */
+	private static void setCoordinates(Group group, Group copy, float[] frame) {
+		List<Atom> atoms = group.getAtoms();
+		List<Atom> copiedAtoms = copy.getAtoms();
+		for (int i = 0; i < atoms.size(); i++) {
+			int k = 3 * ((PackedAtom) atoms.get(i)).getIndex();
+			Atom a = copiedAtoms.get(i);
+			a.setX(frame[k]);
+			a.setY(frame[k + 1]);
+			a.setZ(frame[k + 2]);
+		}
+	}
+
+	/**
+	 * Visits the atoms of a model in the order of
+	 * {@link PackedAtomArrays#pack(Structure, int)}: the atoms an alternate
+	 * location shares with its main group are visited once.
+	 */
+	private static void forEachAtom(Structure structure, int modelNr, Consumer<Atom> action) {
+		Set<Atom> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Chain c : structure.getChains(modelNr)) {
+			for (Group g : c.getAtomGroups()) {
+				visit(g, visited, action);
+				for (Group alt : g.getAltLocs())
+					visit(alt, visited, action);
+			}
+		}
+	}
+
+	private static void visit(Group group, Set<Atom> visited, Consumer<Atom> action) {
+		for (Atom a : group.getAtoms()) {
+			if (visited.add(a))
+				action.accept(a);
+		}
+	}
+
+	/**
+	 * A copy of the first model of a structure, without copying the other
+	 * models as {@link Structure#clone()} would.
+	 */
+	private static Structure copyFirstModel(Structure structure) {
+		Structure copy = new StructureImpl();
+		copy.setPdbId(structure.getPdbId());
+		copy.setName(structure.getName());
+		copy.setPDBHeader(structure.getPDBHeader());
+		copy.setDBRefs(structure.getDBRefs());
+		copy.setSites(structure.getSites());
+		copy.setCrystallographicInfo(structure.getCrystallographicInfo());
+
+		List<Chain> model = new ArrayList<>();
+		for (Chain chain : structure.getChains(0)) {
+			Chain c = (Chain) chain.clone();
+			c.setStructure(copy);
+			model.add(c);
+		}
+		shareAtoms(structure.getChains(0), model);
+		copy.addModel(model);
+
+		List<EntityInfo> entityInfos = new ArrayList<>();
+		for (EntityInfo entityInfo : structure.getEntityInfos()) {
+			EntityInfo e = new EntityInfo(entityInfo);
+			for (String asymId : entityInfo.getChainIds()) {
+				Chain c = copy.getChain(asymId, 0);
+				if (c == null)
+					continue;
+				c.setEntityInfo(e);
+				e.addChain(c);
+			}
+			entityInfos.add(e);
+		}
+		copy.setEntityInfos(entityInfos);
+		return copy;
+	}
+
+	/**
+	 * Makes the copies of atoms that alternate locations share with their main
+	 * group shared again, as {@link Group#clone()} gives every alternate
+	 * location its own, and copies the bonds between groups, which it drops.
+	 *
+	 * @param chains
+	 *            the original chains
+	 * @param copies
+	 *            their clones
+	 */
+	private static void shareAtoms(List<Chain> chains, List<Chain> copies) {
+		Map<Atom, Atom> atomCopies = new IdentityHashMap<>();
+		Map<Group, Group> groupCopies = new IdentityHashMap<>();
+		for (int c = 0; c < chains.size(); c++) {
+			List<Group> groups = chains.get(c).getAtomGroups();
+			List<Group> copiedGroups = copies.get(c).getAtomGroups();
+			for (int g = 0; g < groups.size(); g++) {
+				Group group = groups.get(g);
+				Group copy = copiedGroups.get(g);
+				mapAtoms(group, copy, atomCopies, groupCopies);
+				for (int k = 0; k < group.getAltLocs().size(); k++)
+					mapAtoms(group.getAltLocs().get(k), copy.getAltLocs().get(k), atomCopies, groupCopies);
+			}
+		}
+
+		Map<Bond, Bond> bondCopies = new IdentityHashMap<>();
+		for (Map.Entry<Atom, Atom> entry : atomCopies.entrySet()) {
+			Atom atom = entry.getKey();
+			Atom copy = entry.getValue();
+			copy.setGroup(groupCopies.getOrDefault(atom.getGroup(), copy.getGroup()));
+			if (atom.getBonds() == null)
+				continue;
+			List<Bond> bonds = new ArrayList<>(atom.getBonds().size());
+			for (Bond bond : atom.getBonds()) {
+				Bond b = bondCopies.get(bond);
+				if (b == null) {
+					Atom a1 = atomCopies.get(bond.getAtomA());
+					Atom a2 = atomCopies.get(bond.getAtomB());
+					// bonds to other models are not copied
+					if (a1 == null || a2 == null)
+						continue;
+					b = new BondImpl(a1, a2, bond.getBondOrder(), false);
+					bondCopies.put(bond, b);
+				}
+				bonds.add(b);
+			}
+			copy.setBonds(bonds);
+		}
+	}
+
+	private static void mapAtoms(Group group, Group copy, Map<Atom, Atom> atomCopies, Map<Group, Group> groupCopies) {
+		groupCopies.put(group, copy);
+		List<Atom> atoms = group.getAtoms();
+		List<Atom> copiedAtoms = new ArrayList<>(copy.getAtoms());
+		boolean shared = false;
+		for (int i = 0; i < atoms.size(); i++) {
+			Atom previous = atomCopies.putIfAbsent(atoms.get(i), copiedAtoms.get(i));
+			if (previous != null) {
+				copiedAtoms.set(i, previous);
+				shared = true;
+			}
+		}
+		// parents are restored by the caller
+		if (shared)
+			copy.setAtoms(copiedAtoms);
+	}
+
+	/**
+	 * A view of one frame of the trajectory.
+	 */
+	public class Frame {
+
+		private final int index;
+
+		private Frame(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * @return the index of this frame in the trajectory
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @see Trajectory#getCoordinates(int, double[])
+		 */
+		public double[] getCoordinates(double[] dest) {
+			return Trajectory.this.getCoordinates(index, dest);
+		}
+
+		/**
+		 * @see Trajectory#getCoordinates(int, int[], double[])
+		 */
+		public double[] getCoordinates(int[] indices, double[] dest) {
+			return Trajectory.this.getCoordinates(index, indices, dest);
+		}
+
+		/**
+		 * @see Trajectory#apply(int)
+		 */
+		public Structure apply() {
+			return Trajectory.this.apply(index);
+		}
+
+		/**
+		 * @see Trajectory#getStructure(int)
+		 */
+		public Structure toStructure() {
+			return Trajectory.this.getStructure(index);
+		}
+	}
+
+	/**
+	 * The coordinate blocks of the frames.
+	 */
+	private interface FrameStore extends Closeable {
+
+		int size();
+
+		void add(float[] frame);
+
+		void get(int frame, float[] dest);
+	}
+
+	private class MemoryFrames implements FrameStore {
+
+		private final List<float[]> frames = new ArrayList<>();
+
+		@Override
+		public int size() {
+			return frames.size();
+		}
+
+		@Override
+		public void add(float[] frame) {
+			frames.add(frame.clone());
+		}
+
+		@Override
+		public void get(int frame, float[] dest) {
+			System.arraycopy(frames.get(frame), 0, dest, 0, frameSize);
+		}
+
+		@Override
+		public void close() {
+			frames.clear();
+		}
+	}
+
+	/**
+	 * Frames in a temporary file, mapped in chunks of whole frames so that no
+	 * frame straddles two mappings.
+	 */
+	private class MappedFrames implements FrameStore {
+
+		private final Path file;
+		private final FileChannel channel;
+		private final int framesPerChunk;
+		private final List<FloatBuffer> chunks = new ArrayList<>();
+		private int size;
+
+		MappedFrames(FrameStore frames) {
+			long frameBytes = (long) frameSize * Float.BYTES;
+			if (frameBytes > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Frames of " + atoms.size() + " atoms are too large to map");
+			framesPerChunk = (int) Math.max(1, CHUNK_BYTES / frameBytes);
+			try {
+				file = Files.createTempFile("biojava-trajectory", ".frames");
+				file.toFile().deleteOnExit();
+				channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not create the frame file", e);
+			}
+			float[] frame = new float[frameSize];
+			for (int f = 0; f < frames.size(); f++) {
+				frames.get(f, frame);
+				add(frame);
+			}
+			try {
+				frames.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void add(float[] frame) {
+			int chunk = size / framesPerChunk;
+			if (chunk == chunks.size()) {
+				long chunkBytes = (long) framesPerChunk * frameSize * Float.BYTES;
+				try {
+					chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunk * chunkBytes, chunkBytes)
+							.order(ByteOrder.nativeOrder()).asFloatBuffer());
+				} catch (IOException e) {
+					throw new UncheckedIOException("Could not map the frame file", e);
+				}
+			}
+			FloatBuffer buffer = chunks.get(chunk).duplicate();
+			buffer.position((size % framesPerChunk) * frameSize);
+			buffer.put(frame);
+			size++;
+		}
+
+		@Override
+		public void get(int frame, float[] dest) {
+			FloatBuffer buffer = chunks.get(frame / framesPerChunk).duplicate();
+			buffer.position((frame % framesPerChunk) * frameSize);
+			buffer.get(dest, 0, frameSize);
+		}
+
+		@Override
+		public void close() throws IOException {
+			chunks.clear();
+			channel.close();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Trajectory [" + size() + " frames of " + atoms.size() + " atoms]";
+	}
+}
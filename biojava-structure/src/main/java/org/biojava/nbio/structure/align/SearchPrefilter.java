@@ -0,0 +1,95 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+/**
+ * Decides from their {@link StructureDescriptor}s whether a target of a
+ * {@link StructureSearch} is worth aligning to the query.
+ *
+ * @since 7.2.3
+ */
+@FunctionalInterface
+public interface SearchPrefilter {
+
+	/**
+	 * @return true to align the target, false to skip it
+	 */
+	boolean accept(StructureDescriptor query, StructureDescriptor target);
+
+	/**
+	 * @return a prefilter accepting the targets accepted by both
+	 */
+	default SearchPrefilter and(SearchPrefilter other) {
+		return (query, target) -> accept(query, target) && other.accept(query, target);
+	}
+
+	/**
+	 * Accept all targets.
+	 */
+	static SearchPrefilter none() {
+		return (query, target) -> true;
+	}
+
+	/**
+	 * Accept targets whose length is within a ratio of the query length: the
+	 * shorter of the two must be at least {@code minRatio} times the longer.
+	 *
+	 * @param minRatio
+	 *            between 0 and 1
+	 */
+	static SearchPrefilter lengthRatio(double minRatio) {
+		return (query, target) -> {
+			int min = Math.min(query.getLength(), target.getLength());
+			int max = Math.max(query.getLength(), target.getLength());
+			return min >= minRatio * max;
+		};
+	}
+
+	/**
+	 * Accept targets whose radius of gyration differs from the query's by at
+	 * most the given fraction of the larger one.
+	 *
+	 * @param maxRelativeDifference
+	 *            between 0 and 1
+	 */
+	static SearchPrefilter radiusOfGyration(double maxRelativeDifference) {
+		return (query, target) -> {
+			double a = query.getRadiusOfGyration();
+			double b = target.getRadiusOfGyration();
+			return Math.abs(a - b) <= maxRelativeDifference * Math.max(a, b);
+		};
+	}
+
+	/**
+	 * Accept targets whose helix and strand fractions each differ from the
+	 * query's by at most the given amount. Targets are accepted when the
+	 * secondary structure of either is unknown.
+	 *
+	 * @param maxDifference
+	 *            between 0 and 1
+	 */
+	static SearchPrefilter secondaryStructure(double maxDifference) {
+		return (query, target) -> !query.hasSecondaryStructure()
+				|| !target.hasSecondaryStructure()
+				|| (Math.abs(query.getHelixFraction() - target.getHelixFraction()) <= maxDifference
+						&& Math.abs(query.getStrandFraction() - target.getStrandFraction()) <= maxDifference);
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.geometry.MomentsOfInertia;
+import org.biojava.nbio.structure.secstruc.SecStrucInfo;
+
+/**
+ * Cheap global descriptors of a structure, computed from its representative
+ * atoms, which {@link SearchPrefilter}s compare to discard search candidates
+ * before aligning them.
+ * <p>
+ * The secondary structure composition is taken from the assignment stored in
+ * the groups ({@link Group#SEC_STRUC}), as read from the file or computed by
+ * DSSP. It is not available if no group has one.
+ *
+ * @since 7.2.3
+ */
+public class StructureDescriptor {
+
+	private final int length;
+	private final double radiusOfGyration;
+	private final double helixFraction;
+	private final double strandFraction;
+
+	public StructureDescriptor(int length, double radiusOfGyration,
+			double helixFraction, double strandFraction) {
+		this.length = length;
+		this.radiusOfGyration = radiusOfGyration;
+		this.helixFraction = helixFraction;
+		this.strandFraction = strandFraction;
+	}
+
+	/**
+	 * Compute the descriptors of a structure.
+	 *
+	 * @param atoms
+	 *            the representative atoms (one per residue, e.g. CA)
+	 */
+	public static StructureDescriptor of(Atom[] atoms) {
+		MomentsOfInertia moments = new MomentsOfInertia();
+		int helix = 0, strand = 0, assigned = 0;
+		for (Atom atom : atoms) {
+			moments.addPoint(atom.getCoordsAsPoint3d(), 1.0);
+			Group group = atom.getGroup();
+			Object ss = group == null ? null : group.getProperty(Group.SEC_STRUC);
+			if (ss instanceof SecStrucInfo) {
+				assigned++;
+				SecStrucInfo info = (SecStrucInfo) ss;
+				if (info.getType().isHelixType())
+					helix++;
+				else if (info.getType().isBetaStrand())
+					strand++;
+			}
+		}
+		double rg = atoms.length == 0 ? 0 : moments.getRadiusOfGyration();
+		if (assigned == 0)
+			return new StructureDescriptor(atoms.length, rg, Double.NaN, Double.NaN);
+		return new StructureDescriptor(atoms.length, rg,
+				(double) helix / atoms.length, (double) strand / atoms.length);
+	}
+
+	/**
+	 * @return the number of representative atoms
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the radius of gyration of the atoms, in &Aring;
+	 */
+	public double getRadiusOfGyration() {
+		return radiusOfGyration;
+	}
+
+	/**
+	 * @return whether the secondary structure fractions are known
+	 */
+	public boolean hasSecondaryStructure() {
+		return !Double.isNaN(helixFraction);
+	}
+
+	/**
+	 * @return the fraction of residues in helices, or NaN if unknown
+	 */
+	public double getHelixFraction() {
+		return helixFraction;
+	}
+
+	/**
+	 * @return the fraction of residues in beta strands, or NaN if unknown
+	 */
+	public double getStrandFraction() {
+		return strandFraction;
+	}
+
+	@Override
+	public String toString() {
+		return "StructureDescriptor [length=" + length + ", radiusOfGyration="
+				+ radiusOfGyration + ", helixFraction=" + helixFraction
+				+ ", strandFraction=" + strandFraction + "]";
+	}
+}
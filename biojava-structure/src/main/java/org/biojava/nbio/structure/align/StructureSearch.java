@@ -0,0 +1,519 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.ce.ConfigStrucAligParams;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Searches a database of structures for the ones most similar to a query,
+ * with any pairwise {@link StructureAlignment} algorithm (e.g. jCE or
+ * jFatCat_rigid).
+ * <p>
+ * For each target, the search loads the atoms, compares the
+ * {@link StructureDescriptor}s of query and target with a
+ * {@link SearchPrefilter}, and aligns the targets that pass. Targets are
+ * processed in parallel on a {@link BioJavaExecutor}, with a bounded number of
+ * them in flight, so that a long list of targets (e.g. all PDB chains) is
+ * searched in bounded memory. Aligners are reused from target to target, so
+ * that the query side of the alignment can be reused as well (see
+ * {@link org.biojava.nbio.structure.align.ce.CeWorkspace}).
+ * <p>
+ * Each alignment is passed to a listener on the calling thread as soon as it
+ * is done, and the best {@link #setTopK(int) K} alignments by
+ * {@link #setScore(ToDoubleFunction) score} are returned at the end.
+ * <p>
+ * With a {@link #setCheckpoint(Path) checkpoint file}, every target that was
+ * aligned or filtered out is recorded with its score, and an interrupted
+ * search resumes where it stopped: recorded targets are skipped, and those
+ * that make it into the top K are aligned again at the end. Targets that
+ * could not be loaded or aligned are not recorded, so that they are tried
+ * again.
+ * <p>
+ * Example:
+ * <pre>
+ * StructureSearch search = new StructureSearch(new AtomCache(), CeMain.algorithmName);
+ * search.setPrefilter(SearchPrefilter.lengthRatio(0.5)
+ *         .and(SearchPrefilter.radiusOfGyration(0.3)));
+ * search.setCheckpoint(Paths.get("search.tsv"));
+ * List&lt;AFPChain&gt; best = search.search("1cdg.A", targets, afp -&gt; {});
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class StructureSearch {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureSearch.class);
+
+	private static final String ALIGNED = "aligned";
+	private static final String FILTERED = "filtered";
+
+	/**
+	 * Loads the representative atoms of a structure from its name.
+	 */
+	@FunctionalInterface
+	public interface AtomSource {
+		Atom[] getAtoms(String name) throws IOException, StructureException;
+	}
+
+	private final AtomSource source;
+	private final String algorithmName;
+	private ConfigStrucAligParams parameters;
+	private BioJavaExecutor executor = BioJavaExecutor.getDefault();
+	private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+	private SearchPrefilter prefilter = SearchPrefilter.none();
+	private int topK = 100;
+	private ToDoubleFunction<AFPChain> score = AFPChain::getTMScore;
+	private Path checkpoint;
+
+	// counts of the last search
+	private int aligned;
+	private int filtered;
+	private int failed;
+	private int resumed;
+
+	/**
+	 * Search structures from an {@link AtomCache}.
+	 *
+	 * @param cache
+	 *            loads the representative atoms of query and targets
+	 * @param algorithmName
+	 *            name of a {@link StructureAlignmentFactory} algorithm
+	 */
+	public StructureSearch(AtomCache cache, String algorithmName) {
+		this(cache::getRepresentativeAtoms, algorithmName);
+	}
+
+	/**
+	 * @param source
+	 *            loads the atoms of query and targets, from several threads
+	 * @param algorithmName
+	 *            name of a {@link StructureAlignmentFactory} algorithm
+	 */
+	public StructureSearch(AtomSource source, String algorithmName) {
+		this.source = source;
+		this.algorithmName = algorithmName;
+	}
+
+	public ConfigStrucAligParams getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @param parameters
+	 *            alignment parameters, or null for the defaults
+	 */
+	public void setParameters(ConfigStrucAligParams parameters) {
+		this.parameters = parameters;
+	}
+
+	public BioJavaExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @param executor
+	 *            runs the loading and alignment of the targets. A bounded
+	 *            executor must accept at least {@link #getMaxInFlight()} tasks.
+	 */
+	public void setExecutor(BioJavaExecutor executor) {
+		this.executor = executor;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * @param maxInFlight
+	 *            the maximum number of targets submitted and not yet
+	 *            reported; twice the number of processors by default
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		this.maxInFlight = maxInFlight;
+	}
+
+	public SearchPrefilter getPrefilter() {
+		return prefilter;
+	}
+
+	public void setPrefilter(SearchPrefilter prefilter) {
+		this.prefilter = prefilter;
+	}
+
+	public int getTopK() {
+		return topK;
+	}
+
+	/**
+	 * @param topK
+	 *            the number of best alignments returned by the search; 100
+	 *            by default
+	 */
+	public void setTopK(int topK) {
+		this.topK = topK;
+	}
+
+	public ToDoubleFunction<AFPChain> getScore() {
+		return score;
+	}
+
+	/**
+	 * @param score
+	 *            ranks the alignments, higher is better; the TM-score by
+	 *            default. Alignments with a NaN score are never in the top K.
+	 */
+	public void setScore(ToDoubleFunction<AFPChain> score) {
+		this.score = score;
+	}
+
+	public Path getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * @param checkpoint
+	 *            file recording the processed targets, read first if it
+	 *            exists; or null to search without a checkpoint
+	 */
+	public void setCheckpoint(Path checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * @return the number of targets aligned by the last search, without the
+	 *         ones aligned again after resuming
+	 */
+	public int getAligned() {
+		return aligned;
+	}
+
+	/**
+	 * @return the number of targets discarded by the prefilter in the last
+	 *         search
+	 */
+	public int getFiltered() {
+		return filtered;
+	}
+
+	/**
+	 * @return the number of targets that could not be loaded or aligned in
+	 *         the last search
+	 */
+	public int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the number of targets of the last search skipped because they
+	 *         were in the checkpoint
+	 */
+	public int getResumed() {
+		return resumed;
+	}
+
+	/**
+	 * Search the targets for the structures most similar to the query.
+	 *
+	 * @param query
+	 *            name of the query structure
+	 * @param targets
+	 *            names of the target structures, iterated once
+	 * @param listener
+	 *            receives each alignment when it is done, on the calling
+	 *            thread
+	 * @return the best alignments, best first
+	 * @throws IOException
+	 *             if the query cannot be loaded or the checkpoint cannot be
+	 *             read or written
+	 * @throws StructureException
+	 *             if the query cannot be loaded or the algorithm is unknown
+	 * @throws IllegalStateException
+	 *             if the calling thread is interrupted
+	 */
+	public List<AFPChain> search(String query, Iterable<String> targets,
+			Consumer<? super AFPChain> listener) throws IOException, StructureException {
+
+		// fail before loading anything if the algorithm is unknown
+		StructureAlignmentFactory.getAlgorithm(algorithmName);
+
+		aligned = filtered = failed = resumed = 0;
+		Search search = new Search(query, source.getAtoms(query));
+
+		Map<String, Double> done = readCheckpoint();
+		for (Map.Entry<String, Double> entry : done.entrySet())
+			search.offer(new Hit(entry.getKey(), entry.getValue(), null));
+
+		try (BufferedWriter out = openCheckpoint()) {
+			int inFlight = 0;
+			for (String target : targets) {
+				if (done.containsKey(target)) {
+					resumed++;
+					continue;
+				}
+				while (inFlight >= maxInFlight) {
+					search.report(search.take(), listener, out);
+					inFlight--;
+				}
+				executor.execute(() -> search.run(target));
+				inFlight++;
+
+				for (Outcome outcome = search.completed.poll(); outcome != null;
+						outcome = search.completed.poll()) {
+					search.report(outcome, listener, out);
+					inFlight--;
+				}
+			}
+			while (inFlight > 0) {
+				search.report(search.take(), listener, out);
+				inFlight--;
+			}
+		}
+
+		return search.best();
+	}
+
+	private Map<String, Double> readCheckpoint() throws IOException {
+		Map<String, Double> done = new HashMap<>();
+		if (checkpoint == null || !Files.exists(checkpoint))
+			return done;
+		try (BufferedReader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+				// an interrupted write leaves an incomplete last line
+				if (fields.length != 3)
+					continue;
+				try {
+					done.put(fields[0], fields[1].equals(ALIGNED)
+							? Double.parseDouble(fields[2]) : Double.NaN);
+				} catch (NumberFormatException e) {
+					logger.warn("Ignoring checkpoint line: {}", line);
+				}
+			}
+		}
+		return done;
+	}
+
+	private BufferedWriter openCheckpoint() throws IOException {
+		if (checkpoint == null)
+			return null;
+		boolean newLine = false;
+		if (Files.exists(checkpoint) && Files.size(checkpoint) > 0) {
+			try (RandomAccessFile file = new RandomAccessFile(checkpoint.toFile(), "r")) {
+				file.seek(file.length() - 1);
+				newLine = file.read() != '\n';
+			}
+		}
+		BufferedWriter out = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		if (newLine)
+			out.newLine();
+		return out;
+	}
+
+	private static class Hit {
+		final String target;
+		final double score;
+		AFPChain afpChain;
+
+		Hit(String target, double score, AFPChain afpChain) {
+			this.target = target;
+			this.score = score;
+			this.afpChain = afpChain;
+		}
+	}
+
+	private static class Outcome {
+		final String target;
+		final AFPChain afpChain;
+		final double score;
+		final Throwable failure;
+
+		Outcome(String target, AFPChain afpChain, double score, Throwable failure) {
+			this.target = target;
+			this.afpChain = afpChain;
+			this.score = score;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * An aligner with its own copy of the query atoms.
+	 */
+	private class Worker {
+		final StructureAlignment algorithm;
+		final Atom[] queryAtoms;
+
+		Worker(Atom[] queryAtoms) throws StructureException {
+			algorithm = StructureAlignmentFactory.getAlgorithm(algorithmName);
+			if (parameters != null)
+				algorithm.setParameters(parameters);
+			this.queryAtoms = StructureTools.cloneAtomArray(queryAtoms);
+		}
+	}
+
+	/**
+	 * The state of one search.
+	 */
+	private class Search {
+		final String query;
+		final Atom[] queryAtoms;
+		final StructureDescriptor queryDescriptor;
+		final BlockingQueue<Outcome> completed = new LinkedBlockingQueue<>();
+		final ConcurrentLinkedQueue<Worker> workers = new ConcurrentLinkedQueue<>();
+		final PriorityQueue<Hit> top = new PriorityQueue<>(
+				Comparator.comparingDouble((Hit hit) -> hit.score));
+
+		Search(String query, Atom[] queryAtoms) {
+			this.query = query;
+			this.queryAtoms = queryAtoms;
+			this.queryDescriptor = StructureDescriptor.of(queryAtoms);
+		}
+
+		/** Load, filter and align a target, on a thread of the executor */
+		void run(String target) {
+			Outcome outcome;
+			try {
+				Atom[] atoms = source.getAtoms(target);
+				if (!prefilter.accept(queryDescriptor, StructureDescriptor.of(atoms))) {
+					outcome = new Outcome(target, null, Double.NaN, null);
+				} else {
+					AFPChain afpChain = align(target, atoms);
+					outcome = new Outcome(target, afpChain, score.applyAsDouble(afpChain), null);
+				}
+			} catch (Exception | Error e) {
+				outcome = new Outcome(target, null, Double.NaN, e);
+			}
+			completed.add(outcome);
+		}
+
+		AFPChain align(String target, Atom[] atoms) throws StructureException {
+			Worker worker = workers.poll();
+			if (worker == null)
+				worker = new Worker(queryAtoms);
+			try {
+				AFPChain afpChain = worker.algorithm.align(worker.queryAtoms,
+						StructureTools.cloneAtomArray(atoms));
+				afpChain.setName1(query);
+				afpChain.setName2(target);
+				return afpChain;
+			} finally {
+				workers.add(worker);
+			}
+		}
+
+		Outcome take() {
+			try {
+				return completed.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while searching " + query, e);
+			}
+		}
+
+		void report(Outcome outcome, Consumer<? super AFPChain> listener,
+				BufferedWriter out) throws IOException {
+			if (outcome.failure instanceof Error)
+				throw (Error) outcome.failure;
+			if (outcome.failure != null) {
+				failed++;
+				logger.warn("Could not align {} to {}: {}", outcome.target, query,
+						outcome.failure.getMessage());
+				return;
+			}
+			if (outcome.afpChain == null) {
+				filtered++;
+			} else {
+				aligned++;
+				offer(new Hit(outcome.target, outcome.score, outcome.afpChain));
+				listener.accept(outcome.afpChain);
+			}
+			if (out != null) {
+				out.write(outcome.target + "\t" + (outcome.afpChain == null ? FILTERED : ALIGNED)
+						+ "\t" + outcome.score);
+				out.newLine();
+				out.flush();
+			}
+		}
+
+		void offer(Hit hit) {
+			if (Double.isNaN(hit.score) || topK <= 0)
+				return;
+			if (top.size() < topK) {
+				top.add(hit);
+			} else if (hit.score > top.peek().score) {
+				top.poll();
+				top.add(hit);
+			}
+		}
+
+		/** The top hits, best first, aligning the ones read from the checkpoint */
+		List<AFPChain> best() {
+			List<Hit> hits = new ArrayList<>(top);
+			hits.sort(Comparator.comparingDouble((Hit hit) -> -hit.score)
+					.thenComparing(hit -> hit.target));
+			List<AFPChain> best = new ArrayList<>(hits.size());
+			for (Hit hit : hits) {
+				if (hit.afpChain == null) {
+					try {
+						hit.afpChain = align(hit.target, source.getAtoms(hit.target));
+					} catch (IOException | StructureException e) {
+						logger.warn("Could not align {} to {} again: {}", hit.target, query,
+								e.getMessage());
+						continue;
+					}
+				}
+				best.add(hit.afpChain);
+			}
+			return best;
+		}
+	}
+}
@@ -42,6 +42,7 @@ import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.vecmath.Matrix4d;
@@ -111,13 +112,25 @@ public class CECalculator {
 
 	List<MatrixListener> matrixListeners;
 
+	private final CeWorkspace workspace;
+
 
 
 	public CECalculator(CeParameters params){
+		this(params, null);
+	}
+
+	/**
+	 * @param params
+	 * @param workspace cached query data and buffers to reuse, or null
+	 * @since 7.2.3
+	 */
+	public CECalculator(CeParameters params, CeWorkspace workspace){
 		timeStart = System.currentTimeMillis();
 		dist1= new double[0][0];
 		dist2= new double[0][0];
 		this.params = params;
+		this.workspace = workspace;
 		matrixListeners = new ArrayList<>();
 
 	}
@@ -144,7 +157,15 @@ public class CECalculator {
 		f1 = new int[nse1];
 		f2 = new int[nse2];
 
-		dist1 = initIntraDistmatrix(ca1, nse1);
+		if ( workspace != null) {
+			dist1 = workspace.getQueryDistances(ca1, params.getScoringStrategy());
+			if ( dist1 == null) {
+				dist1 = initIntraDistmatrix(ca1, nse1);
+				workspace.setQueryDistances(ca1, params.getScoringStrategy(), dist1);
+			}
+		} else {
+			dist1 = initIntraDistmatrix(ca1, nse1);
+		}
 		dist2 = initIntraDistmatrix(ca2, nse2);
 
 
@@ -177,7 +198,10 @@ public class CECalculator {
 
 		// verified: a[] is set correctly.
 
-		mat = initSumOfDistances(nse1, nse2, winSize, winSizeComb1, ca1, ca2);
+		if ( workspace != null)
+			mat = sumOfDistances(workspace.getMatrix(nse1, nse2), nse1, nse2, winSize, winSizeComb1);
+		else
+			mat = initSumOfDistances(nse1, nse2, winSize, winSizeComb1, ca1, ca2);
 
 
 
@@ -382,35 +406,55 @@ public class CECalculator {
 
 	public double[][] initSumOfDistances(int nse1, int nse2, int winSize, int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
 
-		double d;
-
-		double[][] mat   = new double[nse1][nse2];
-
-		// init the initial mat[] array.
-		// at this stage mat contains the sum of the distances of fragments of the matrices dist1, dist
-		for(int ise1=0; ise1<nse1; ise1++) {
-			for(int ise2=0; ise2<nse2; ise2++) {
+		return sumOfDistances(new double[nse1][nse2], nse1, nse2, winSize, winSizeComb1);
+	}
 
-				mat[ise1][ise2]=-1.0;
+	/**
+	 * Fill mat with the sum of the distances of fragments of the matrices dist1, dist2.
+	 * The distances of each fragment are read from contiguous fragment vectors,
+	 * see {@link CeWorkspace#fragments(double[][], int)}, and summed in the same order
+	 * as the original loops over dist1 and dist2.
+	 */
+	private double[][] sumOfDistances(double[][] mat, int nse1, int nse2, int winSize, int winSizeComb1) {
 
-				if(ise1>nse1-winSize || ise2>nse2-winSize) continue;
+		int comb = CeWorkspace.fragmentSize(winSize);
 
-				d=0.0;
-				// this sums up over the distances of the fragments
-				for(int is1=0; is1<winSize-2; is1++)
-					for(int is2=is1+2; is2<winSize; is2++) {
-						//System.out.println("pos1 :" +  (ise1+is1) + " " + (ise1+is2) +  " " + (ise2+is1) + " " + (ise2+is2));
-						// is this abs or floor? check!
-						d+=Math.abs(dist1[ise1+is1][ise1+is2]-dist2[ise2+is1][ise2+is2]);
+		if ( workspace != null && workspace.isFloatStorage()) {
+			float[] frag1 = workspace.getFloatFragments(dist1, winSize);
+			float[] frag2 = workspace.getFloatFragments(dist2, winSize);
+			for(int ise1=0; ise1<nse1; ise1++) {
+				double[] row = mat[ise1];
+				for(int ise2=0; ise2<nse2; ise2++) {
+					if(ise1>nse1-winSize || ise2>nse2-winSize) {
+						row[ise2]=-1.0;
+						continue;
 					}
-				mat[ise1][ise2]=d/winSizeComb1;
-
-				//System.out.println("mat ["+ise1+"]["+ise2+"]="+mat[ise1][ise2]);
+					double d=0.0;
+					for(int k=0, k1=ise1*comb, k2=ise2*comb; k<comb; k++)
+						d+=Math.abs(frag1[k1+k]-frag2[k2+k]);
+					row[ise2]=d/winSizeComb1;
+				}
 			}
-
+			return mat;
 		}
 
-		// verified: mat[][] probably ok.
+		double[] frag1 = workspace != null ? workspace.getFragments(dist1, winSize)
+				: CeWorkspace.fragments(dist1, winSize);
+		double[] frag2 = workspace != null ? workspace.getFragments(dist2, winSize)
+				: CeWorkspace.fragments(dist2, winSize);
+		for(int ise1=0; ise1<nse1; ise1++) {
+			double[] row = mat[ise1];
+			for(int ise2=0; ise2<nse2; ise2++) {
+				if(ise1>nse1-winSize || ise2>nse2-winSize) {
+					row[ise2]=-1.0;
+					continue;
+				}
+				double d=0.0;
+				for(int k=0, k1=ise1*comb, k2=ise2*comb; k<comb; k++)
+					d+=Math.abs(frag1[k1+k]-frag2[k2+k]);
+				row[ise2]=d/winSizeComb1;
+			}
+		}
 
 		return mat;
 	}
@@ -449,13 +493,17 @@ public class CECalculator {
 
 		int traceMaxSize=nse1<nse2?nse1:nse2;
 
-		bestTrace1 = new int [traceMaxSize];
-		bestTrace2 = new int [traceMaxSize];
-		trace1     = new int [traceMaxSize];
-		trace2     = new int [traceMaxSize];
+		int bestTracesMax=30;
+		int[][] buffers = workspace != null ? workspace.getTraceBuffers(6 + 2*bestTracesMax, traceMaxSize)
+				: new int[6 + 2*bestTracesMax][traceMaxSize];
+
+		bestTrace1 = buffers[0];
+		bestTrace2 = buffers[1];
+		trace1     = buffers[2];
+		trace2     = buffers[3];
 
-		int[] traceIndex     = new int [traceMaxSize];
-		int[] traceIterLevel = new int [traceMaxSize];
+		int[] traceIndex     = buffers[4];
+		int[] traceIterLevel = buffers[5];
 
 		int ise11;
 		int ise12;
@@ -473,7 +521,8 @@ public class CECalculator {
 		} else {
 			iterDepth = traceMaxSize;
 		}
-		double[][] traceScore = new double[traceMaxSize][iterDepth];
+		double[][] traceScore = workspace != null ? workspace.getTraceScore(traceMaxSize, iterDepth)
+				: new double[traceMaxSize][iterDepth];
 
 		nTraces =0;
 		long tracesLimit=(long)5e7;
@@ -489,9 +538,8 @@ public class CECalculator {
 		int jse1=0;
 		int jse2=0;
 
-		int bestTracesMax=30;
-		bestTraces1 = new int[bestTracesMax][traceMaxSize];
-		bestTraces2 = new int[bestTracesMax][ traceMaxSize];
+		bestTraces1 = Arrays.copyOfRange(buffers, 6, 6 + bestTracesMax);
+		bestTraces2 = Arrays.copyOfRange(buffers, 6 + bestTracesMax, 6 + 2*bestTracesMax);
 		bestTracesN=new int [bestTracesMax];
 		bestTracesScores = new double [bestTracesMax];
 		for(int it=0; it<bestTracesMax; it++) {
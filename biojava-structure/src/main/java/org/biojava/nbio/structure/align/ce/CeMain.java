@@ -61,11 +61,13 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 	protected CeParameters params;
 	protected CECalculator calculator;
 	private Atom[] ca2clone;
+	private CeWorkspace workspace;
 
 	public CeMain(){
 		super();
 		params = new CeParameters();
-		calculator = new CECalculator(params);
+		workspace = new CeWorkspace();
+		calculator = new CECalculator(params, workspace);
 	}
 
 
@@ -102,7 +104,7 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 			pos++;
 		}
 
-		calculator = new CECalculator(params);
+		calculator = new CECalculator(params, workspace);
 
 		//Build alignment ca1 to ca2-ca2
 		AFPChain afpChain = new AFPChain(algorithmName);
@@ -175,4 +177,28 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 	public CECalculator getCECalculator() {
 		return calculator;
 	}
+
+	/**
+	 * The workspace reused by the alignments of this instance, which keeps the
+	 * distance matrix of the last first structure (the query).
+	 *
+	 * @return the workspace, or null if alignments do not reuse data
+	 * @since 7.2.3
+	 */
+	public CeWorkspace getWorkspace() {
+		return workspace;
+	}
+
+	/**
+	 * Set the workspace reused by the alignments of this instance, for
+	 * instance a workspace with float storage.
+	 *
+	 * @param workspace
+	 *            the workspace, or null to compute every alignment from
+	 *            scratch
+	 * @since 7.2.3
+	 */
+	public void setWorkspace(CeWorkspace workspace) {
+		this.workspace = workspace;
+	}
 }
@@ -0,0 +1,231 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.ce;
+
+import java.util.Arrays;
+
+import org.biojava.nbio.structure.Atom;
+
+/**
+ * Data that {@link CECalculator} keeps from one alignment to the next, so that
+ * one query can be aligned against many targets without recomputing the
+ * query side or reallocating the trace buffers.
+ * <p>
+ * The workspace caches the intramolecular distance matrix of the last query
+ * (the first structure of an alignment), together with its fragment vectors:
+ * the distances within each window of {@code winSize} atoms that are summed
+ * by {@link CECalculator#initSumOfDistances(int, int, int, int, Atom[], Atom[])}.
+ * The cache is used again when the next query has the same CA coordinates
+ * and the same {@link CeParameters.ScoringStrategy}, whether or not it is the
+ * same array.
+ * <p>
+ * With float storage, fragment vectors are stored in single precision, which
+ * halves the memory traffic of the sum of distances. The matrix then differs
+ * from the double precision one by rounding errors, which can change
+ * alignments in borderline cases; the default is double precision, with the
+ * same results as without a workspace.
+ * <p>
+ * A workspace is not thread-safe: use one per thread (e.g. one {@link CeMain}
+ * per thread). The distance matrices that the workspace shares between
+ * alignments must not be modified, and the {@link CECalculator#getMatMatrix()
+ * mat} matrix of an alignment is reused by the next one.
+ *
+ * @since 7.2.3
+ */
+public class CeWorkspace {
+
+	private final boolean floatStorage;
+
+	// the cached query
+	private double[] queryCoords;
+	private CeParameters.ScoringStrategy queryStrategy;
+	private double[][] queryDist;
+	private int fragmentWinSize;
+	private double[] queryFragments;
+	private float[] queryFloatFragments;
+
+	private double[][] mat;
+	private double[][] traceScore;
+	private int[][] traceBuffers;
+
+	/**
+	 * Create a workspace with double precision storage.
+	 */
+	public CeWorkspace() {
+		this(false);
+	}
+
+	/**
+	 * @param floatStorage
+	 *            whether to store fragment vectors in single precision
+	 */
+	public CeWorkspace(boolean floatStorage) {
+		this.floatStorage = floatStorage;
+	}
+
+	public boolean isFloatStorage() {
+		return floatStorage;
+	}
+
+	/**
+	 * Forget the cached query and release all buffers.
+	 */
+	public void clear() {
+		queryCoords = null;
+		queryStrategy = null;
+		queryDist = null;
+		queryFragments = null;
+		queryFloatFragments = null;
+		mat = null;
+		traceScore = null;
+		traceBuffers = null;
+	}
+
+	/**
+	 * The cached distance matrix of a query, or null if the query is not the
+	 * cached one.
+	 */
+	double[][] getQueryDistances(Atom[] ca, CeParameters.ScoringStrategy strategy) {
+		if (queryDist == null || strategy != queryStrategy
+				|| queryCoords.length != 3 * ca.length)
+			return null;
+		for (int i = 0; i < ca.length; i++) {
+			if (queryCoords[3 * i] != ca[i].getX()
+					|| queryCoords[3 * i + 1] != ca[i].getY()
+					|| queryCoords[3 * i + 2] != ca[i].getZ())
+				return null;
+		}
+		return queryDist;
+	}
+
+	void setQueryDistances(Atom[] ca, CeParameters.ScoringStrategy strategy,
+			double[][] dist) {
+		double[] coords = new double[3 * ca.length];
+		for (int i = 0; i < ca.length; i++) {
+			coords[3 * i] = ca[i].getX();
+			coords[3 * i + 1] = ca[i].getY();
+			coords[3 * i + 2] = ca[i].getZ();
+		}
+		queryCoords = coords;
+		queryStrategy = strategy;
+		queryDist = dist;
+		queryFragments = null;
+		queryFloatFragments = null;
+	}
+
+	/**
+	 * The fragment vectors of a distance matrix, cached if it is the query
+	 * matrix.
+	 */
+	double[] getFragments(double[][] dist, int winSize) {
+		if (dist != queryDist)
+			return fragments(dist, winSize);
+		if (queryFragments == null || fragmentWinSize != winSize) {
+			queryFragments = fragments(dist, winSize);
+			queryFloatFragments = null;
+			fragmentWinSize = winSize;
+		}
+		return queryFragments;
+	}
+
+	/**
+	 * The fragment vectors of a distance matrix in single precision, cached if
+	 * it is the query matrix.
+	 */
+	float[] getFloatFragments(double[][] dist, int winSize) {
+		if (dist != queryDist)
+			return toFloat(fragments(dist, winSize));
+		if (queryFloatFragments == null || fragmentWinSize != winSize) {
+			queryFloatFragments = toFloat(fragments(dist, winSize));
+			queryFragments = null;
+			fragmentWinSize = winSize;
+		}
+		return queryFloatFragments;
+	}
+
+	/**
+	 * A nse1&times;nse2 matrix, reused if the last one had the same size.
+	 */
+	double[][] getMatrix(int nse1, int nse2) {
+		if (mat == null || mat.length != nse1
+				|| (nse1 > 0 && mat[0].length != nse2))
+			mat = new double[nse1][nse2];
+		return mat;
+	}
+
+	/**
+	 * A zeroed matrix of at least rows&times;cols.
+	 */
+	double[][] getTraceScore(int rows, int cols) {
+		if (traceScore == null || traceScore.length < rows
+				|| (rows > 0 && traceScore[0].length < cols)) {
+			traceScore = new double[rows][cols];
+		} else {
+			for (double[] row : traceScore)
+				Arrays.fill(row, 0);
+		}
+		return traceScore;
+	}
+
+	/**
+	 * The given number of zeroed arrays of at least the given size.
+	 */
+	int[][] getTraceBuffers(int count, int size) {
+		if (traceBuffers == null || traceBuffers.length < count
+				|| (count > 0 && traceBuffers[0].length < size)) {
+			traceBuffers = new int[count][size];
+		} else {
+			for (int[] buffer : traceBuffers)
+				Arrays.fill(buffer, 0);
+		}
+		return traceBuffers;
+	}
+
+	/**
+	 * The distances within each window of winSize atoms that are summed in the
+	 * CE matrix: fragment i holds dist[i + is1][i + is2] for is1 from 0 to
+	 * winSize - 3 and is2 from is1 + 2 to winSize - 1, in this order.
+	 */
+	static double[] fragments(double[][] dist, int winSize) {
+		int n = Math.max(0, dist.length - winSize + 1);
+		int comb = fragmentSize(winSize);
+		double[] fragments = new double[n * comb];
+		for (int i = 0, k = 0; i < n; i++) {
+			for (int is1 = 0; is1 < winSize - 2; is1++) {
+				double[] row = dist[i + is1];
+				for (int is2 = is1 + 2; is2 < winSize; is2++)
+					fragments[k++] = row[i + is2];
+			}
+		}
+		return fragments;
+	}
+
+	static int fragmentSize(int winSize) {
+		return winSize < 3 ? 0 : (winSize - 1) * (winSize - 2) / 2;
+	}
+
+	private static float[] toFloat(double[] values) {
+		float[] floats = new float[values.length];
+		for (int i = 0; i < values.length; i++)
+			floats[i] = (float) values[i];
+		return floats;
+	}
+}
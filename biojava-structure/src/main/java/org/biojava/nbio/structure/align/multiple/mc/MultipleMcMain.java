@@ -31,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.align.CallableStructureAlignment;
@@ -87,6 +88,7 @@ public class MultipleMcMain implements MultipleStructureAligner {
 	private MultipleAlignmentEnsemble ensemble;
 	private StructureAlignment pairwise;
 	private int reference = 0;
+	private BioJavaExecutor executor;
 
 	/**
 	 * Default constructor.
@@ -131,8 +133,10 @@ public class MultipleMcMain implements MultipleStructureAligner {
 				afpAlignments.get(i).add(null);
 		}
 
-		int threads = params.getNrThreads();
-		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		//Use the injected executor if any, otherwise a private thread pool
+		ExecutorService pool = null;
+		if (executor == null)
+			pool = Executors.newFixedThreadPool(params.getNrThreads());
 		List<Future<AFPChain>> afpFuture = new ArrayList<>();
 
 		//Create all the possible protein pairwise combinations
@@ -144,7 +148,8 @@ public class MultipleMcMain implements MultipleStructureAligner {
 						atomArrays.get(i), atomArrays.get(j),
 						pairwise.getAlgorithmName(), pairwise.getParameters());
 
-				Future<AFPChain> submit = executor.submit(worker);
+				Future<AFPChain> submit = (pool == null) ?
+						executor.submit(worker) : pool.submit(worker);
 				afpFuture.add(submit);
 			}
 		}
@@ -160,7 +165,7 @@ public class MultipleMcMain implements MultipleStructureAligner {
 				}
 			}
 		}
-		executor.shutdown();
+		if (pool != null) pool.shutdown();
 
 		reference = chooseReferenceRMSD(afpAlignments);
 		boolean flexible = false;
@@ -402,6 +407,32 @@ public class MultipleMcMain implements MultipleStructureAligner {
 		return align(atomArrays,params);
 	}
 
+	/**
+	 * Returns the executor which runs the all-to-all pairwise alignments of
+	 * the seed, or null if a thread pool of {@link
+	 * MultipleMcParameters#getNrThreads()} threads is created for each
+	 * alignment.
+	 *
+	 * @return the executor, may be null
+	 * @since 7.2.3
+	 */
+	public BioJavaExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor which runs the all-to-all pairwise alignments of the
+	 * seed. The executor is shared, so it is not shut down after the
+	 * alignment. If null (the default), a private thread pool of {@link
+	 * MultipleMcParameters#getNrThreads()} threads is used.
+	 *
+	 * @param executor the executor, may be null
+	 * @since 7.2.3
+	 */
+	public void setExecutor(BioJavaExecutor executor) {
+		this.executor = executor;
+	}
+
 	@Override
 	public ConfigStrucAligParams getParameters() {
 		return params;
@@ -22,6 +22,7 @@ package org.biojava.nbio.structure.align.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -51,10 +52,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A utility class that provides easy access to Structure objects. If you are running a script that is frequently
- * re-using the same PDB structures, the AtomCache keeps an in-memory cache of the files for quicker access. The cache
- * is a soft-cache, this means it won't cause out of memory exceptions, but garbage collects the data if the Java
- * virtual machine needs to free up space. The AtomCache is thread-safe.
+ * A utility class that provides easy access to Structure objects. The AtomCache keeps the files it downloads in a
+ * local directory. If you are running a script that is frequently re-using the same PDB structures, it can also keep
+ * the parsed structures in memory, in a size-bounded {@link StructureMemoryCache} (see
+ * {@link #setMemoryCache(StructureMemoryCache)}). The AtomCache is thread-safe.
  *
  * @author Andreas Prlic
  * @author Spencer Bliven
@@ -88,6 +89,8 @@ public class AtomCache {
 	private String path;
 	private StructureFiletype filetype = StructureFiletype.BCIF;
 
+	private StructureMemoryCache memoryCache;
+
 	/**
 	 * Default AtomCache constructor.
 	 *
@@ -174,9 +177,6 @@ public class AtomCache {
 		Structure s = getStructure(name);
 		atoms = StructureTools.getAtomCAArray(s);
 
-		/*
-		 * synchronized (cache){ cache.put(name, atoms); }
-		 */
 		return atoms;
 	}
 
@@ -199,9 +199,6 @@ public class AtomCache {
 		Structure s = getStructure(name);
 		atoms = StructureTools.getRepresentativeAtomArray(s);
 
-		/*
-		 * synchronized (cache){ cache.put(name, atoms); }
-		 */
 		return atoms;
 	}
 
@@ -657,6 +654,25 @@ public class AtomCache {
 		this.params = params;
 	}
 
+	public StructureMemoryCache getMemoryCache() {
+		return memoryCache;
+	}
+
+	/**
+	 * Keep the structures loaded by PDB ID in memory, so that they are parsed
+	 * once for all the identifiers of the same entry, e.g. its chains and
+	 * domains. Structures are cached by PDB ID, path, file type, obsolete
+	 * behavior and file parsing parameters, and every request gets its own copy.
+	 *
+	 * @param memoryCache
+	 *            the in-memory cache, possibly shared with other AtomCaches,
+	 *            or null (the default) to parse the file of every request
+	 * @since 7.2.3
+	 */
+	public void setMemoryCache(StructureMemoryCache memoryCache) {
+		this.memoryCache = memoryCache;
+	}
+
 	/**
 	 * <b>[Optional]</b> This method changes the behavior when obsolete entries
 	 * are requested. Current behaviors are:
@@ -807,7 +823,14 @@ public class AtomCache {
 	public Structure getStructureForPdbId(PdbId pdbId) throws IOException {
 		if (pdbId == null)
 			return null;
-		
+
+		StructureMemoryCache memory = memoryCache;
+		if (memory != null)
+			return memory.get(memoryCacheKey(pdbId), () -> loadStructureForPdbId(pdbId));
+		return loadStructureForPdbId(pdbId);
+	}
+
+	private Structure loadStructureForPdbId(PdbId pdbId) throws IOException {
 		while (checkLoading(pdbId)) {
 			// waiting for loading to be finished...
 			try {
@@ -830,6 +853,16 @@ public class AtomCache {
 		}
 	}
 
+	/**
+	 * The key of a structure in the memory cache: everything that changes the
+	 * parsed structure of a PDB ID, including the mirror it is read from. The
+	 * parameters are copied, so that later changes do not alter the key.
+	 */
+	private Object memoryCacheKey(PdbId pdbId) {
+		return Arrays.asList(pdbId.getId(), path, filetype, obsoleteBehavior,
+				new FileParsingParameters(params));
+	}
+
 	protected Structure loadStructureFromCifByPdbId(String pdbId) throws IOException {
 		return loadStructureFromCifByPdbId(new PdbId(pdbId));
 	}
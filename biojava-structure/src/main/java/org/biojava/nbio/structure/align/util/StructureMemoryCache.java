@@ -0,0 +1,420 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.BondImpl;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.DBRef;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.PDBHeader;
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.StructureTools;
+
+/**
+ * A thread-safe in-memory cache of parsed structures, bounded by their total
+ * number of atoms, for an {@link AtomCache} that is asked for the same entries
+ * again and again (see {@link AtomCache#setMemoryCache(StructureMemoryCache)}).
+ * A cache can be shared by several AtomCaches.
+ * <p>
+ * The least recently used structures are evicted first. Concurrent requests
+ * for a structure that is being loaded wait for that load instead of loading
+ * it again.
+ * <p>
+ * The cached structures are never handed out: every request gets its own
+ * copy, with its own header, bonds, sites and DBRefs, which it is free to
+ * modify. Copying a structure is much faster than parsing it again.
+ *
+ * @since 7.2.3
+ */
+public class StructureMemoryCache {
+
+	/**
+	 * Loads a structure on a cache miss.
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		Structure load() throws IOException;
+	}
+
+	private static class Entry {
+		final Structure structure;
+		final long atoms;
+
+		Entry(Structure structure, long atoms) {
+			this.structure = structure;
+			this.atoms = atoms;
+		}
+	}
+
+	private final long maxAtoms;
+
+	// guarded by this, in access order
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long atoms;
+
+	private final ConcurrentHashMap<Object, CompletableFuture<Structure>> loading = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param maxAtoms
+	 *            the maximum number of atoms, in all models, of the cached
+	 *            structures. Larger structures are not cached.
+	 */
+	public StructureMemoryCache(long maxAtoms) {
+		if (maxAtoms < 1)
+			throw new IllegalArgumentException("maxAtoms must be positive: " + maxAtoms);
+		this.maxAtoms = maxAtoms;
+	}
+
+	/**
+	 * Returns a copy of the structure of the key, loading it first if it is
+	 * not cached.
+	 *
+	 * @param key
+	 *            identifies the structure and how it is parsed; must implement
+	 *            equals and hashCode
+	 * @param loader
+	 *            loads the structure if it is not cached, on the calling
+	 *            thread
+	 * @return a copy of the structure, or null if the loader returned null
+	 * @throws IOException
+	 *             if the structure could not be loaded, by this request or by
+	 *             the concurrent one it waited for
+	 */
+	public Structure get(Object key, Loader loader) throws IOException {
+		Structure structure = lookup(key);
+		if (structure != null) {
+			hits.incrementAndGet();
+			return copy(structure);
+		}
+
+		CompletableFuture<Structure> future = new CompletableFuture<>();
+		CompletableFuture<Structure> running = loading.putIfAbsent(key, future);
+		if (running != null) {
+			coalesced.incrementAndGet();
+			return copy(await(key, running));
+		}
+		try {
+			// it may have been loaded since the lookup
+			structure = lookup(key);
+			if (structure != null) {
+				hits.incrementAndGet();
+			} else {
+				misses.incrementAndGet();
+				structure = loader.load();
+				if (structure != null)
+					put(key, structure, StructureTools.getNrAtoms(structure));
+			}
+			future.complete(structure);
+		} catch (IOException | RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, future);
+		}
+		return copy(structure);
+	}
+
+	/**
+	 * Removes all structures from the cache. The counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		atoms = 0;
+	}
+
+	public long getMaxAtoms() {
+		return maxAtoms;
+	}
+
+	/**
+	 * @return the number of atoms of the cached structures
+	 */
+	public synchronized long getAtoms() {
+		return atoms;
+	}
+
+	/**
+	 * @return the number of cached structures
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of requests answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of requests that loaded their structure
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of requests that waited for the load of the same
+	 *         structure by another request
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * @return the number of structures evicted to make room for others
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "StructureMemoryCache [size=" + size() + ", atoms=" + getAtoms() + "/" + maxAtoms
+				+ ", hits=" + getHits() + ", misses=" + getMisses() + ", coalesced=" + getCoalesced()
+				+ ", evictions=" + getEvictions() + "]";
+	}
+
+	private synchronized Structure lookup(Object key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.structure;
+	}
+
+	private synchronized void put(Object key, Structure structure, long size) {
+		if (size > maxAtoms)
+			return;
+		Entry previous = entries.put(key, new Entry(structure, size));
+		if (previous != null)
+			atoms -= previous.atoms;
+		atoms += size;
+
+		Iterator<Entry> it = entries.values().iterator();
+		while (atoms > maxAtoms) {
+			Entry eldest = it.next();
+			it.remove();
+			atoms -= eldest.atoms;
+			evictions.incrementAndGet();
+		}
+	}
+
+	private static Structure await(Object key, CompletableFuture<Structure> running) throws IOException {
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + key);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			if (cause instanceof IOException)
+				throw new IOException(cause.getMessage(), cause);
+			throw new IllegalStateException("Could not load " + key, cause);
+		}
+	}
+
+	/**
+	 * A copy of a structure that shares nothing mutable with it: unlike
+	 * {@link Structure#clone()}, the header, sites and DBRefs are copied, and
+	 * the bonds between groups and the disulfide bonds are kept.
+	 */
+	static Structure copy(Structure structure) {
+		if (structure == null)
+			return null;
+		// not Structure.clone(), which hands the sites and DBRefs of the
+		// structure to the copy, and makes the copy the parent of the DBRefs
+		Structure copy = new StructureImpl();
+		copy.setPdbId(structure.getPdbId());
+		copy.setName(structure.getName());
+		copy.setPDBHeader(copyHeader(structure.getPDBHeader()));
+		copy.setBiologicalAssembly(structure.isBiologicalAssembly());
+		copy.setStructureIdentifier(structure.getStructureIdentifier());
+		List<DBRef> dbRefs = new ArrayList<>(structure.getDBRefs().size());
+		for (DBRef dbRef : structure.getDBRefs())
+			dbRefs.add(copyDBRef(dbRef));
+		copy.setDBRefs(dbRefs);
+
+		// the clones of the groups and atoms, in the same order as the originals
+		Map<Group, Group> groupClones = new IdentityHashMap<>();
+		Map<Atom, Atom> clones = new IdentityHashMap<>();
+		for (int m = 0; m < structure.nrModels(); m++) {
+			List<Chain> chains = structure.getModel(m);
+			List<Chain> copiedChains = new ArrayList<>(chains.size());
+			for (Chain chain : chains) {
+				Chain copiedChain = (Chain) chain.clone();
+				copiedChain.setStructure(copy);
+				copiedChains.add(copiedChain);
+				List<Group> groups = chain.getAtomGroups();
+				List<Group> copiedGroups = copiedChain.getAtomGroups();
+				for (int g = 0; g < groups.size(); g++)
+					mapAtoms(groups.get(g), copiedGroups.get(g), groupClones, clones);
+			}
+			copy.addModel(copiedChains);
+		}
+
+		// as Structure.clone()
+		List<EntityInfo> entityInfos = new ArrayList<>(structure.getEntityInfos().size());
+		for (EntityInfo entityInfo : structure.getEntityInfos()) {
+			EntityInfo copiedInfo = new EntityInfo(entityInfo);
+			for (String asymId : entityInfo.getChainIds()) {
+				for (int m = 0; m < copy.nrModels(); m++) {
+					Chain chain = copy.getChain(asymId, m);
+					if (chain == null)
+						continue;
+					chain.setEntityInfo(copiedInfo);
+					copiedInfo.addChain(chain);
+				}
+			}
+			entityInfos.add(copiedInfo);
+		}
+		copy.setEntityInfos(entityInfos);
+
+		if (structure.getSites() != null) {
+			List<Site> sites = new ArrayList<>(structure.getSites().size());
+			for (Site site : structure.getSites())
+				sites.add(copySite(site, groupClones));
+			copy.setSites(sites);
+		}
+
+		// Group.clone() only keeps the bonds within groups
+		Map<Bond, Bond> bonds = new IdentityHashMap<>();
+		for (Map.Entry<Atom, Atom> entry : clones.entrySet()) {
+			List<Bond> original = entry.getKey().getBonds();
+			if (original == null)
+				continue;
+			List<Bond> copied = new ArrayList<>(original.size());
+			for (Bond bond : original)
+				copied.add(copyBond(bond, clones, bonds));
+			entry.getValue().setBonds(copied);
+		}
+		if (structure.getSSBonds() != null) {
+			List<Bond> ssBonds = new ArrayList<>(structure.getSSBonds().size());
+			for (Bond bond : structure.getSSBonds())
+				ssBonds.add(copyBond(bond, clones, bonds));
+			copy.setSSBonds(ssBonds);
+		}
+
+		return copy;
+	}
+
+	private static void mapAtoms(Group group, Group copy, Map<Group, Group> groupClones, Map<Atom, Atom> clones) {
+		groupClones.put(group, copy);
+		List<Atom> atoms = group.getAtoms();
+		List<Atom> copiedAtoms = copy.getAtoms();
+		for (int i = 0; i < atoms.size(); i++)
+			clones.putIfAbsent(atoms.get(i), copiedAtoms.get(i));
+		List<Group> altLocs = group.getAltLocs();
+		List<Group> copiedAltLocs = copy.getAltLocs();
+		for (int i = 0; i < altLocs.size(); i++)
+			mapAtoms(altLocs.get(i), copiedAltLocs.get(i), groupClones, clones);
+	}
+
+	/**
+	 * A copy of a site over the clones of its groups. Groups that are not
+	 * part of the structure are left out.
+	 */
+	private static Site copySite(Site site, Map<Group, Group> groupClones) {
+		List<Group> groups = new ArrayList<>(site.getGroups().size());
+		for (Group group : site.getGroups()) {
+			Group clone = groupClones.get(group);
+			if (clone != null)
+				groups.add(clone);
+		}
+		Site copy = new Site(site.getSiteID(), groups);
+		copy.setDescription(site.getDescription());
+		copy.setEvCode(site.getEvCode());
+		return copy;
+	}
+
+	private static DBRef copyDBRef(DBRef dbRef) {
+		DBRef copy = new DBRef();
+		copy.setId(dbRef.getId());
+		copy.setIdCode(dbRef.getIdCode());
+		copy.setChainName(dbRef.getChainName());
+		copy.setSeqBegin(dbRef.getSeqBegin());
+		copy.setInsertBegin(dbRef.getInsertBegin());
+		copy.setSeqEnd(dbRef.getSeqEnd());
+		copy.setInsertEnd(dbRef.getInsertEnd());
+		copy.setDatabase(dbRef.getDatabase());
+		copy.setDbAccession(dbRef.getDbAccession());
+		copy.setDbIdCode(dbRef.getDbIdCode());
+		copy.setDbSeqBegin(dbRef.getDbSeqBegin());
+		copy.setIdbnsBegin(dbRef.getIdbnsBegin());
+		copy.setDbSeqEnd(dbRef.getDbSeqEnd());
+		copy.setIdbnsEnd(dbRef.getIdbnsEnd());
+		return copy;
+	}
+
+	private static Bond copyBond(Bond bond, Map<Atom, Atom> clones, Map<Bond, Bond> bonds) {
+		Bond copy = bonds.get(bond);
+		if (copy == null) {
+			Atom a = clones.getOrDefault(bond.getAtomA(), bond.getAtomA());
+			Atom b = clones.getOrDefault(bond.getAtomB(), bond.getAtomB());
+			copy = new BondImpl(a, b, bond.getBondOrder(), false);
+			bonds.put(bond, copy);
+		}
+		return copy;
+	}
+
+	private static PDBHeader copyHeader(PDBHeader header) {
+		if (header == null)
+			return null;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(header);
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				return (PDBHeader) in.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("Could not copy the header of " + header.getIdCode(), e);
+		}
+	}
+}
@@ -20,17 +20,14 @@
  */
 package org.biojava.nbio.structure.asa;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.structure.*;
-import org.biojava.nbio.structure.contact.Contact;
-import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.contact.CellList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.vecmath.Point3d;
-import javax.vecmath.Vector3d;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 
 /**
@@ -49,6 +46,11 @@ import java.util.concurrent.Executors;
  * Lysozyme and Insulin." JMB (1973) 79:351-371.
  * Lee, B., and Richards, F.M. "The interpretation of Protein Structures: Estimation of
  * Static Accessibility" JMB (1971) 55:379-400
+ * <p>
+ * Neighbours are found through a {@link CellList}, one atom at a time into reused buffers, so that the
+ * calculation runs in linear time and memory in the number of atoms. Blocks of atoms can be run in parallel,
+ * either on a thread pool of the given number of threads or on an executor set with
+ * {@link #setExecutor(BioJavaExecutor)}.
  *
  * @author Jose Duarte
  */
@@ -66,6 +68,9 @@ public class AsaCalculator {
 
 	private static final boolean DEFAULT_USE_SPATIAL_HASHING = true;
 
+	// number of atoms calculated by each parallel task
+	private static final int ATOMS_PER_TASK = 256;
+
 
 
 	// Chothia's amino acid atoms vdw radii
@@ -85,19 +90,46 @@ public class AsaCalculator {
 
 
 
-	private class AsaCalcWorker implements Runnable {
-
-		private final int i;
-		private final double[] asas;
-
-		private AsaCalcWorker(int i, double[] asas) {
-			this.i = i;
-			this.asas = asas;
+	/**
+	 * The neighbours of one atom, with the terms of equation 3 in Eisenhaber 1994. A buffer is reused
+	 * for all atoms calculated by one thread, so that no memory is allocated per atom.
+	 */
+	private class NeighborBuffer implements CellList.NeighborVisitor {
+
+		private double reach;
+		private int size;
+		private int[] indices = new int[64];
+		private double[] distSqs = new double[64];
+		private double[] vx = new double[64], vy = new double[64], vz = new double[64];
+		private double[] sqRadii = new double[64];
+
+		private void reset(int i) {
+			reach = radii[i] + probe + probe;
+			size = 0;
 		}
 
 		@Override
-		public void run() {
-			asas[i] = calcSingleAsa(i);
+		public void visit(int j, double distSq) {
+			double cutoff = reach + radii[j];
+			if (distSq >= cutoff*cutoff) return;
+			if (size == indices.length) {
+				int capacity = 2 * size;
+				indices = Arrays.copyOf(indices, capacity);
+				distSqs = Arrays.copyOf(distSqs, capacity);
+				vx = Arrays.copyOf(vx, capacity);
+				vy = Arrays.copyOf(vy, capacity);
+				vz = Arrays.copyOf(vz, capacity);
+				sqRadii = Arrays.copyOf(sqRadii, capacity);
+			}
+			// insertion sort by distance, neighbour lists are short
+			int k = size++;
+			while (k > 0 && distSqs[k-1] > distSq) {
+				indices[k] = indices[k-1];
+				distSqs[k] = distSqs[k-1];
+				k--;
+			}
+			indices[k] = j;
+			distSqs[k] = distSq;
 		}
 	}
 
@@ -116,11 +148,14 @@ public class AsaCalculator {
 	private final double[] radii;
 	private final double probe;
 	private final int nThreads;
-	private Vector3d[] spherePoints;
+	private double[] spherePoints;
 	private double cons;
-	private IndexAndDistance[][] neighborIndices;
+	private double[] coords;
+	private CellList cellList;
+	private double maxRadius;
 
 	private boolean useSpatialHashingForNeighbors;
+	private BioJavaExecutor executor;
 
 	/**
 	 * Constructs a new AsaCalculator. Subsequently call {@link #calculateAsas()}
@@ -201,7 +236,7 @@ public class AsaCalculator {
 	}
 
 	/**
-	 * Constructs a new AsaCalculator. Subsequently call {@link #calcSingleAsa(int)}
+	 * Constructs a new AsaCalculator. Subsequently call {@link #calculateAsas()}
 	 * to calculate the atom ASAs. The given radius parameter will be taken as the radius for
 	 * all points given. No ASA calculation per group will be possible with this constructor, so
 	 * usage of {@link #getGroupAsas()} will result in a NullPointerException.
@@ -274,8 +309,8 @@ public class AsaCalculator {
 
 	/**
 	 * Calculates the Accessible Surface Areas for the atoms given in constructor and with parameters given.
-	 * Beware that the parallel implementation is quite memory hungry. It scales well as long as there is
-	 * enough memory available.
+	 * If an executor was set with {@link #setExecutor(BioJavaExecutor)} it runs the calculation, otherwise
+	 * a thread pool of the given number of threads is created for this call.
 	 * @return an array with asa values corresponding to each atom of the input array
 	 */
 	public double[] calculateAsas() {
@@ -283,43 +318,42 @@ public class AsaCalculator {
 		double[] asas = new double[atomCoords.length];
 
 		long start = System.currentTimeMillis();
-		if (useSpatialHashingForNeighbors) {
-			logger.debug("Will use spatial hashing to find neighbors");
-			neighborIndices = findNeighborIndicesSpatialHashing();
-		} else {
-			logger.debug("Will not use spatial hashing to find neighbors");
-			neighborIndices = findNeighborIndices();
-		}
+		initNeighborSearch(useSpatialHashingForNeighbors);
 		long end = System.currentTimeMillis();
-		logger.debug("Took {} s to find neighbors", (end-start)/1000.0);
+		logger.debug("Took {} s to prepare neighbor search", (end-start)/1000.0);
 
 		start = System.currentTimeMillis();
-		if (nThreads<=1) { // (i.e. it will also be 1 thread if 0 or negative number specified)
+		if (executor != null) {
+			logger.debug("Will use executor {} for ASA calculation", executor.getName());
+			calcAsas(asas, executor);
+
+		} else if (nThreads<=1) { // (i.e. it will also be 1 thread if 0 or negative number specified)
 			logger.debug("Will use 1 thread for ASA calculation");
-			for (int i=0;i<atomCoords.length;i++) {
-				asas[i] = calcSingleAsa(i);
-			}
+			calcAsas(asas, 0, atomCoords.length);
 
 		} else {
 			logger.debug("Will use {} threads for ASA calculation", nThreads);
-
-			ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
-
-			for (int i=0;i<atomCoords.length;i++) {
-				threadPool.submit(new AsaCalcWorker(i,asas));
+			try (BioJavaExecutor threadPool = BioJavaExecutor.workStealing("asa", nThreads)) {
+				calcAsas(asas, threadPool);
 			}
-
-			threadPool.shutdown();
-
-			while (!threadPool.isTerminated());
-
 		}
 		end = System.currentTimeMillis();
-		logger.debug("Took {} s to calculate all {} atoms ASAs (excluding neighbors calculation)", (end-start)/1000.0, atomCoords.length);
+		logger.debug("Took {} s to calculate all {} atoms ASAs (including neighbors calculation)", (end-start)/1000.0, atomCoords.length);
 
 		return asas;
 	}
 
+	/**
+	 * Sets the executor to run the ASA calculation on, instead of creating a thread pool of the
+	 * number of threads given in the constructor for each call to {@link #calculateAsas()}.
+	 * The executor is not shut down by this class.
+	 * @param executor the executor, or null to use the number of threads given in the constructor
+	 * @since 7.2.3
+	 */
+	public void setExecutor(BioJavaExecutor executor) {
+		this.executor = executor;
+	}
+
 	/**
 	 * Set the useSpatialHashingForNeighbors flag to use spatial hashing to calculate neighbors (true) or all-to-all
 	 * distance calculation (false). Default is {@value DEFAULT_USE_SPATIAL_HASHING}.
@@ -334,17 +368,19 @@ public class AsaCalculator {
 	 * Returns list of 3d coordinates of points on a unit sphere using the
 	 * Golden Section Spiral algorithm.
 	 * @param nSpherePoints the number of points to be used in generating the spherical dot-density
-	 * @return the array of points as Vector3d objects
+	 * @return the coordinates of the points, interleaved as x0, y0, z0, x1, ...
 	 */
-	private Vector3d[] generateSpherePoints(int nSpherePoints) {
-		Vector3d[] points = new Vector3d[nSpherePoints];
+	private double[] generateSpherePoints(int nSpherePoints) {
+		double[] points = new double[3 * nSpherePoints];
 		double inc = Math.PI * (3.0 - Math.sqrt(5.0));
 		double offset = 2.0 / nSpherePoints;
 		for (int k=0;k<nSpherePoints;k++) {
 			double y = k * offset - 1.0 + (offset / 2.0);
 			double r = Math.sqrt(1.0 - y*y);
 			double phi = k * inc;
-			points[k] = new Vector3d(Math.cos(phi)*r, y, Math.sin(phi)*r);
+			points[3*k] = Math.cos(phi)*r;
+			points[3*k+1] = y;
+			points[3*k+2] = Math.sin(phi)*r;
 		}
 		return points;
 	}
@@ -354,31 +390,7 @@ public class AsaCalculator {
 	 * @return 2-dimensional array of size: n_atoms x n_neighbors_per_atom
 	 */
 	IndexAndDistance[][] findNeighborIndices() {
-
-		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
-		int initialCapacity = 60;
-
-		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
-
-		for (int k=0; k<atomCoords.length; k++) {
-			double radius = radii[k] + probe + probe;
-
-			List<IndexAndDistance> thisNbIndices = new ArrayList<>(initialCapacity);
-
-			for (int i = 0; i < atomCoords.length; i++) {
-				if (i == k) continue;
-
-				double dist = atomCoords[i].distance(atomCoords[k]);
-
-				if (dist < radius + radii[i]) {
-					thisNbIndices.add(new IndexAndDistance(i, dist));
-				}
-			}
-
-			IndexAndDistance[] indicesArray = thisNbIndices.toArray(new IndexAndDistance[0]);
-			nbsIndices[k] = indicesArray;
-		}
-		return nbsIndices;
+		return findNeighborIndices(false);
 	}
 
 	/**
@@ -387,55 +399,20 @@ public class AsaCalculator {
 	 * @return 2-dimensional array of size: n_atoms x n_neighbors_per_atom
 	 */
 	IndexAndDistance[][] findNeighborIndicesSpatialHashing() {
+		return findNeighborIndices(true);
+	}
 
-		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
-		int initialCapacity = 60;
-
-		List<Contact> contactList = calcContacts();
-		Map<Integer, List<IndexAndDistance>> indices = new HashMap<>(atomCoords.length);
-		for (Contact contact : contactList) {
-			// note contacts are stored 1-way only, with j>i
-			int i = contact.getI();
-			int j = contact.getJ();
-
-			List<IndexAndDistance> iIndices;
-			List<IndexAndDistance> jIndices;
-			if (!indices.containsKey(i)) {
-				iIndices = new ArrayList<>(initialCapacity);
-				indices.put(i, iIndices);
-			} else {
-				iIndices = indices.get(i);
-			}
-			if (!indices.containsKey(j)) {
-				jIndices = new ArrayList<>(initialCapacity);
-				indices.put(j, jIndices);
-			} else {
-				jIndices = indices.get(j);
-			}
-
-			double radius = radii[i] + probe + probe;
-			double dist = contact.getDistance();
-			if (dist < radius + radii[j]) {
-				iIndices.add(new IndexAndDistance(j, dist));
-				jIndices.add(new IndexAndDistance(i, dist));
-			}
-		}
-
-		// convert map to array for fast access
+	private IndexAndDistance[][] findNeighborIndices(boolean spatialHashing) {
+		initNeighborSearch(spatialHashing);
+		NeighborBuffer buffer = new NeighborBuffer();
 		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
-		for (Map.Entry<Integer, List<IndexAndDistance>> entry : indices.entrySet()) {
-			List<IndexAndDistance> list = entry.getValue();
-			IndexAndDistance[] indexAndDistances = list.toArray(new IndexAndDistance[0]);
-			nbsIndices[entry.getKey()] = indexAndDistances;
-		}
-
-		// important: some atoms might have no neighbors at all: we need to initialise to empty arrays
-		for (int i=0; i<nbsIndices.length; i++) {
-			if (nbsIndices[i] == null) {
-				nbsIndices[i] = new IndexAndDistance[0];
+		for (int i=0; i<atomCoords.length; i++) {
+			findNeighbors(i, buffer);
+			nbsIndices[i] = new IndexAndDistance[buffer.size];
+			for (int k=0; k<buffer.size; k++) {
+				nbsIndices[i][k] = new IndexAndDistance(buffer.indices[k], Math.sqrt(buffer.distSqs[k]));
 			}
 		}
-
 		return nbsIndices;
 	}
 
@@ -443,31 +420,75 @@ public class AsaCalculator {
 		return atomCoords;
 	}
 
-	private List<Contact> calcContacts() {
-		if (atomCoords.length == 0)
-			return new ArrayList<>();
-		double maxRadius = 0;
-		OptionalDouble optionalDouble = Arrays.stream(radii).max();
-		if (optionalDouble.isPresent())
-			maxRadius = optionalDouble.getAsDouble();
-		double cutoff = maxRadius + maxRadius + probe + probe;
-		logger.debug("Max radius is {}, cutoff is {}", maxRadius, cutoff);
-		Grid grid = new Grid(cutoff);
-		grid.addCoords(atomCoords);
-		return grid.getIndicesContacts();
+	/**
+	 * Copies the coordinates into a primitive array and, if spatial hashing is used, builds the cell list
+	 * with cells large enough to hold the neighbors of the largest atoms.
+	 */
+	private void initNeighborSearch(boolean spatialHashing) {
+		coords = new double[3 * atomCoords.length];
+		for (int i=0; i<atomCoords.length; i++) {
+			coords[3*i] = atomCoords[i].x;
+			coords[3*i+1] = atomCoords[i].y;
+			coords[3*i+2] = atomCoords[i].z;
+		}
+		maxRadius = 0;
+		for (double radius : radii) {
+			maxRadius = Math.max(maxRadius, radius);
+		}
+		if (spatialHashing) {
+			logger.debug("Will use spatial hashing to find neighbors");
+			double cutoff = maxRadius + maxRadius + probe + probe;
+			logger.debug("Max radius is {}, cutoff is {}", maxRadius, cutoff);
+			cellList = new CellList(coords, cutoff);
+		} else {
+			logger.debug("Will not use spatial hashing to find neighbors");
+			cellList = null;
+		}
 	}
 
-	private double calcSingleAsa(int i) {
-		Point3d atom_i = atomCoords[i];
+	/**
+	 * Fills the buffer with the neighbors of atom i, sorted from closest to farthest.
+	 */
+	private void findNeighbors(int i, NeighborBuffer buffer) {
+		buffer.reset(i);
+		if (cellList != null) {
+			cellList.forEachNeighbor(i, radii[i] + probe + probe + maxRadius, buffer);
+			return;
+		}
+		double x = coords[3*i], y = coords[3*i+1], z = coords[3*i+2];
+		for (int j=0; j<atomCoords.length; j++) {
+			if (j == i) continue;
+			double dx = coords[3*j] - x, dy = coords[3*j+1] - y, dz = coords[3*j+2] - z;
+			buffer.visit(j, dx*dx + dy*dy + dz*dz);
+		}
+	}
 
-		int n_neighbor = neighborIndices[i].length;
-		IndexAndDistance[] neighbor_indices = neighborIndices[i];
+	/**
+	 * Runs blocks of atoms on the executor, with {@link BioJavaExecutor#parallelFor(int, java.util.function.IntConsumer)}
+	 * so that the calling thread takes part and a saturated executor can't deadlock the call.
+	 */
+	private void calcAsas(double[] asas, BioJavaExecutor executor) {
+		int blocks = (asas.length + ATOMS_PER_TASK - 1) / ATOMS_PER_TASK;
+		executor.parallelFor(blocks, b -> calcAsas(asas, b * ATOMS_PER_TASK, Math.min(asas.length, (b + 1) * ATOMS_PER_TASK)));
+	}
+
+	private void calcAsas(double[] asas, int from, int to) {
+		NeighborBuffer buffer = new NeighborBuffer();
+		for (int i=from; i<to; i++) {
+			asas[i] = calcSingleAsa(i, buffer);
+		}
+	}
+
+	private double calcSingleAsa(int i, NeighborBuffer buffer) {
 		// Sorting by closest to farthest away neighbors achieves faster runtimes when checking for occluded
 		// sphere sample points below. This follows the ideas exposed in
 		// Eisenhaber et al, J Comp Chemistry 1994 (https://onlinelibrary.wiley.com/doi/epdf/10.1002/jcc.540160303)
 		// This is essential for performance. In my tests this brings down the number of occlusion checks in loop below to
 		// an average of n_sphere_points/10 per atom i, producing ~ x4 performance gain overall
-		Arrays.sort(neighbor_indices, Comparator.comparingDouble(o -> o.dist));
+		findNeighbors(i, buffer);
+
+		int n_neighbor = buffer.size;
+		double[] vx = buffer.vx, vy = buffer.vy, vz = buffer.vz, sqRadii = buffer.sqRadii;
 
 		double radius_i = probe + radii[i];
 
@@ -477,20 +498,19 @@ public class AsaCalculator {
 		if (logger.isDebugEnabled()) numDistsCalced = new int[n_neighbor];
 
 		// now we precalculate anything depending only on i,j in equation 3 in Eisenhaber 1994
-		double[] sqRadii = new double[n_neighbor];
-		Vector3d[] aj_minus_ais = new Vector3d[n_neighbor];
+		double x = coords[3*i], y = coords[3*i+1], z = coords[3*i+2];
 		for (int nbArrayInd =0; nbArrayInd<n_neighbor; nbArrayInd++) {
-			int j = neighbor_indices[nbArrayInd].index;
-			double dist = neighbor_indices[nbArrayInd].dist;
+			int j = buffer.indices[nbArrayInd];
 			double radius_j = radii[j] + probe;
 			// see equation 3 in Eisenhaber 1994
-			sqRadii[nbArrayInd] = (dist*dist + radius_i*radius_i - radius_j*radius_j)/(2*radius_i);
-			Vector3d aj_minus_ai = new Vector3d(atomCoords[j]);
-			aj_minus_ai.sub(atom_i);
-			aj_minus_ais[nbArrayInd] = aj_minus_ai;
+			sqRadii[nbArrayInd] = (buffer.distSqs[nbArrayInd] + radius_i*radius_i - radius_j*radius_j)/(2*radius_i);
+			vx[nbArrayInd] = coords[3*j] - x;
+			vy[nbArrayInd] = coords[3*j+1] - y;
+			vz[nbArrayInd] = coords[3*j+2] - z;
 		}
 
-		for (Vector3d point: spherePoints){
+		for (int p = 0; p < spherePoints.length; p += 3) {
+			double px = spherePoints[p], py = spherePoints[p+1], pz = spherePoints[p+2];
 			boolean is_accessible = true;
 
 			// note that the neighbors are sorted by distance, achieving optimal performance in this inner loop
@@ -501,7 +521,7 @@ public class AsaCalculator {
 				// see equation 3 in Eisenhaber 1994. This is slightly more efficient than
 				// calculating distances to the actual sphere points on atom_i (which would be obtained with:
 				// Point3d test_point = new Point3d(point.x*radius + atom_i.x,point.y*radius + atom_i.y,point.z*radius + atom_i.z))
-				double dotProd = aj_minus_ais[nbArrayInd].dot(point);
+				double dotProd = vx[nbArrayInd]*px + vy[nbArrayInd]*py + vz[nbArrayInd]*pz;
 
 				if (numDistsCalced!=null) numDistsCalced[nbArrayInd]++;
 
@@ -1,5 +1,7 @@
 package org.biojava.nbio.structure.chem;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -109,4 +111,13 @@ public class ChemicalComponentDictionary {
     public ChemComp getChemComp(String id) {
         return dictionary.get(id);
     }
+
+    /**
+     * Returns all ChemComps in this dictionary, in no particular order.
+     * @return an unmodifiable view of the ChemComps
+     * @since 7.2.3
+     */
+    public Collection<ChemComp> getChemComps() {
+        return Collections.unmodifiableCollection(dictionary.values());
+    }
 }
@@ -0,0 +1,438 @@
+package org.biojava.nbio.structure.chem;
+
+import org.biojava.nbio.structure.io.cif.ChemCompConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ChemComp provider that reads the chemical component dictionary from a
+ * compact binary store, which is memory-mapped and decoded lazily, one
+ * component per request. Opening a store takes milliseconds, whatever its
+ * size, and the dictionary stays off the heap: only the requested components
+ * are decoded, into new ChemComp objects.
+ * <p>
+ * A store is built once, offline, from the components.cif(.gz) file of the
+ * wwPDB (see {@link AllChemCompProvider#downloadFile()}) with
+ * {@link #writeStore(Path, Path)}. Components that are not in the store are
+ * requested from a fallback provider if there is one, e.g. a
+ * {@link DownloadChemCompProvider} for components released since, or else
+ * returned as empty components.
+ * <p>
+ * The provider is thread-safe, and lookups do not block each other.
+ * <p>
+ * Example:
+ * <pre>
+ * MappedChemCompProvider.writeStore(Paths.get("components.cif.gz"), Paths.get("components.ccd"));
+ * ...
+ * ChemCompGroupFactory.setChemCompProvider(new MappedChemCompProvider(Paths.get("components.ccd")));
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class MappedChemCompProvider implements ChemCompProvider {
+    private static final Logger logger = LoggerFactory.getLogger(MappedChemCompProvider.class);
+
+    // the store: a header, an index of fixed-width entries sorted by id, then the components
+    private static final int MAGIC = 0x42434344; // "BCCD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    // the lengths of strings that are null, or the id of their component
+    private static final int NULL = -1;
+    private static final int ID = -2;
+
+    private final Path path;
+    private final ChemCompProvider fallback;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int keyWidth;
+    private final int entrySize;
+
+    /**
+     * Opens a store, without a fallback.
+     * @param store the store written by {@link #writeStore(Path, Path)}
+     * @throws IOException if the store cannot be read
+     */
+    public MappedChemCompProvider(Path store) throws IOException {
+        this(store, null);
+    }
+
+    /**
+     * Opens a store.
+     * @param store the store written by {@link #writeStore(Path, Path)}
+     * @param fallback provides the components that are not in the store, or null
+     * @throws IOException if the store cannot be read
+     */
+    public MappedChemCompProvider(Path store, ChemCompProvider fallback) throws IOException {
+        this.path = store;
+        this.fallback = fallback;
+        try (FileChannel channel = FileChannel.open(store, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException("Chemical component store " + store + " is larger than 2 GB");
+            if (length < HEADER_SIZE)
+                throw new IOException(store + " is not a chemical component store");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException(store + " is not a chemical component store");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported version " + buffer.getInt(4) + " of chemical component store " + store);
+        size = buffer.getInt(8);
+        keyWidth = buffer.getInt(12);
+        entrySize = keyWidth + 12;
+        logger.debug("Opened chemical component store {} with {} components", store, size);
+    }
+
+    /**
+     * Returns a new instance of a chemical component definition, from the
+     * store or else from the fallback provider.
+     * @param recordName the ID of the {@link ChemComp}
+     * @return a new {@link ChemComp} definition, empty if it is neither in the
+     * store nor provided by the fallback
+     */
+    @Override
+    public ChemComp getChemComp(String recordName) {
+        String name = recordName.toUpperCase().trim();
+        int entry = find(name.getBytes(StandardCharsets.UTF_8));
+        if (entry >= 0) {
+            int at = HEADER_SIZE + entry * entrySize + keyWidth;
+            return read((int) buffer.getLong(at));
+        }
+
+        if (fallback != null) {
+            logger.debug("Chem comp {} is not in store {}, getting it from {}", name, path, fallback.getClass().getSimpleName());
+            return fallback.getChemComp(name);
+        }
+        logger.debug("Getting empty chem comp for {}", name);
+        ChemComp cc = ChemComp.getEmptyChemComp();
+        cc.setId(name);
+        return cc;
+    }
+
+    /**
+     * @return the number of components in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Binary search of the index.
+     * @return the entry of the id, or -1
+     */
+    private int find(byte[] key) {
+        if (key.length > keyWidth)
+            return -1;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareKey(HEADER_SIZE + mid * entrySize, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // compares the key at a position with one, both padded with zeros, as unsigned bytes
+    private int compareKey(int at, byte[] key) {
+        for (int i = 0; i < keyWidth; i++) {
+            int a = buffer.get(at + i) & 0xff;
+            int b = i < key.length ? key[i] & 0xff : 0;
+            if (a != b)
+                return a - b;
+        }
+        return 0;
+    }
+
+    // the setters are called in the same order as when parsing, for the flags they derive
+    private ChemComp read(int offset) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset);
+        ChemComp cc = new ChemComp();
+        String id = readString(in, null);
+        cc.setId(id);
+        cc.setName(readString(in, id));
+        cc.setType(readString(in, id));
+        cc.setPdbxType(readString(in, id));
+        cc.setFormula(readString(in, id));
+        cc.setMonNstdParentCompId(readString(in, id));
+        cc.setPdbxSynonyms(readString(in, id));
+        cc.setPdbxFormalCharge(in.getInt());
+        cc.setPdbxInitialDate(readString(in, id));
+        cc.setPdbxModifiedDate(readString(in, id));
+        cc.setPdbxAmbiguousFlag(readString(in, id));
+        cc.setPdbxReleaseStatus(readString(in, id));
+        cc.setPdbxReplacedBy(readString(in, id));
+        cc.setPdbxReplaces(readString(in, id));
+        cc.setFormulaWeight(in.getDouble());
+        cc.setOneLetterCode(readString(in, id));
+        cc.setThreeLetterCode(readString(in, id));
+        cc.setPdbxModelCoordinatesDetails(readString(in, id));
+        cc.setPdbxModelCoordinatesMissingFlag(readString(in, id));
+        cc.setPdbxIdealCoordinatesDetails(readString(in, id));
+        cc.setPdbxIdealCoordinatesMissingFlag(readString(in, id));
+        cc.setPdbxModelCoordinatesDbCode(readString(in, id));
+        cc.setPdbxSubcomponentList(readString(in, id));
+        cc.setPdbxProcessingSite(readString(in, id));
+        cc.setMonNstdFlag(readString(in, id));
+
+        int n = in.getInt();
+        List<ChemCompDescriptor> descriptors = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ChemCompDescriptor d = new ChemCompDescriptor();
+            d.setCompId(readString(in, id));
+            d.setType(readString(in, id));
+            d.setProgram(readString(in, id));
+            d.setProgramVersion(readString(in, id));
+            d.setDescriptor(readString(in, id));
+            descriptors.add(d);
+        }
+        cc.setDescriptors(descriptors);
+
+        n = in.getInt();
+        List<ChemCompAtom> atoms = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ChemCompAtom a = new ChemCompAtom();
+            a.setCompId(readString(in, id));
+            a.setAtomId(readString(in, id));
+            a.setAltAtomId(readString(in, id));
+            a.setTypeSymbol(readString(in, id));
+            a.setCharge(in.getInt());
+            a.setPdbxAlign(in.getInt());
+            a.setPdbxAromaticFlag(readString(in, id));
+            a.setPdbxLeavingAtomFlag(readString(in, id));
+            a.setPdbxStereoConfig(readString(in, id));
+            a.setModelCartnX(in.getDouble());
+            a.setModelCartnY(in.getDouble());
+            a.setModelCartnZ(in.getDouble());
+            a.setPdbxModelCartnXIdeal(in.getDouble());
+            a.setPdbxModelCartnYIdeal(in.getDouble());
+            a.setPdbxModelCartnZIdeal(in.getDouble());
+            a.setPdbxComponentCompId(readString(in, id));
+            a.setPdbxResidueNumbering(readString(in, id));
+            a.setPdbxComponentAtomId(readString(in, id));
+            a.setPdbxPolymerType(readString(in, id));
+            a.setPdbxRefId(readString(in, id));
+            a.setPdbxComponentId(readString(in, id));
+            a.setPdbxOrdinal(in.getInt());
+            atoms.add(a);
+        }
+        cc.setAtoms(atoms);
+
+        n = in.getInt();
+        List<ChemCompBond> bonds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ChemCompBond b = new ChemCompBond();
+            b.setCompId(readString(in, id));
+            b.setAtomId1(readString(in, id));
+            b.setAtomId2(readString(in, id));
+            b.setValueOrder(readString(in, id));
+            b.setPdbxAromaticFlag(readString(in, id));
+            b.setPdbxStereoConfig(readString(in, id));
+            b.setPdbxOrdinal(in.getInt());
+            bonds.add(b);
+        }
+        cc.setBonds(bonds);
+        return cc;
+    }
+
+    private static String readString(ByteBuffer in, String id) {
+        int length = in.getInt();
+        if (length == NULL)
+            return null;
+        if (length == ID)
+            return id;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds a store from a components.cif file, which can be gzipped. The
+     * whole dictionary is parsed into memory while the store is written.
+     * @param componentsFile the components.cif(.gz) file of the wwPDB
+     * @param store the store to write, replaced if it exists
+     * @throws IOException if the file cannot be read or the store cannot be written
+     */
+    public static void writeStore(Path componentsFile, Path store) throws IOException {
+        logger.info("Building chemical component store {} from {}", store, componentsFile);
+        writeStore(ChemCompConverter.fromPath(componentsFile), store);
+    }
+
+    /**
+     * Builds a store from a chemical component dictionary.
+     * @param dictionary the components
+     * @param store the store to write, replaced if it exists
+     * @throws IOException if the store cannot be written
+     */
+    public static void writeStore(ChemicalComponentDictionary dictionary, Path store) throws IOException {
+        List<ChemComp> comps = new ArrayList<>();
+        for (ChemComp cc : dictionary.getChemComps()) {
+            if (cc.getId() == null) {
+                logger.warn("Skipping chem comp without ID {}", cc);
+                continue;
+            }
+            comps.add(cc);
+        }
+        byte[][] keys = new byte[comps.size()][];
+        Integer[] order = new Integer[comps.size()];
+        int keyWidth = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = comps.get(i).getId().getBytes(StandardCharsets.UTF_8);
+            keyWidth = Math.max(keyWidth, keys[i].length);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+
+        int entrySize = keyWidth + 12;
+        long dataStart = HEADER_SIZE + (long) keys.length * entrySize;
+        ByteBuffer index = ByteBuffer.allocate((int) dataStart);
+        index.putInt(MAGIC);
+        index.putInt(VERSION);
+        index.putInt(keys.length);
+        index.putInt(keyWidth);
+
+        // written aside and moved in place, so that a store is never read half-written
+        Path dir = store.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, store.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(dataStart);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                for (int i : order) {
+                    long offset = dataStart + out.size();
+                    if (offset >= Integer.MAX_VALUE)
+                        throw new IOException("Chemical component store " + store + " would be larger than 2 GB");
+                    index.put(Arrays.copyOf(keys[i], keyWidth));
+                    index.putLong(offset);
+                    write(out, comps.get(i));
+                    index.putInt((int) (dataStart + out.size() - offset));
+                }
+                out.flush();
+
+                index.flip();
+                long at = 0;
+                while (index.hasRemaining())
+                    at += channel.write(index, at);
+            }
+            Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.info("Wrote {} chemical components to {}", keys.length, store);
+    }
+
+    private static void write(DataOutputStream out, ChemComp cc) throws IOException {
+        String id = cc.getId();
+        writeString(out, id, null);
+        writeString(out, cc.getName(), id);
+        writeString(out, cc.getType(), id);
+        writeString(out, cc.getPdbxType(), id);
+        writeString(out, cc.getFormula(), id);
+        writeString(out, cc.getMonNstdParentCompId(), id);
+        writeString(out, cc.getPdbxSynonyms(), id);
+        out.writeInt(cc.getPdbxFormalCharge());
+        writeString(out, cc.getPdbxInitialDate(), id);
+        writeString(out, cc.getPdbxModifiedDate(), id);
+        writeString(out, cc.getPdbxAmbiguousFlag(), id);
+        writeString(out, cc.getPdbxReleaseStatus(), id);
+        writeString(out, cc.getPdbxReplacedBy(), id);
+        writeString(out, cc.getPdbxReplaces(), id);
+        out.writeDouble(cc.getFormulaWeight());
+        writeString(out, cc.getOneLetterCode(), id);
+        writeString(out, cc.getThreeLetterCode(), id);
+        writeString(out, cc.getPdbxModelCoordinatesDetails(), id);
+        writeString(out, cc.getPdbxModelCoordinatesMissingFlag(), id);
+        writeString(out, cc.getPdbxIdealCoordinatesDetails(), id);
+        writeString(out, cc.getPdbxIdealCoordinatesMissingFlag(), id);
+        writeString(out, cc.getPdbxModelCoordinatesDbCode(), id);
+        writeString(out, cc.getPdbxSubcomponentList(), id);
+        writeString(out, cc.getPdbxProcessingSite(), id);
+        writeString(out, cc.getMonNstdFlag(), id);
+
+        out.writeInt(cc.getDescriptors().size());
+        for (ChemCompDescriptor d : cc.getDescriptors()) {
+            writeString(out, d.getCompId(), id);
+            writeString(out, d.getType(), id);
+            writeString(out, d.getProgram(), id);
+            writeString(out, d.getProgramVersion(), id);
+            writeString(out, d.getDescriptor(), id);
+        }
+
+        out.writeInt(cc.getAtoms().size());
+        for (ChemCompAtom a : cc.getAtoms()) {
+            writeString(out, a.getCompId(), id);
+            writeString(out, a.getAtomId(), id);
+            writeString(out, a.getAltAtomId(), id);
+            writeString(out, a.getTypeSymbol(), id);
+            out.writeInt(a.getCharge());
+            out.writeInt(a.getPdbxAlign());
+            writeString(out, a.getPdbxAromaticFlag(), id);
+            writeString(out, a.getPdbxLeavingAtomFlag(), id);
+            writeString(out, a.getPdbxStereoConfig(), id);
+            out.writeDouble(a.getModelCartnX());
+            out.writeDouble(a.getModelCartnY());
+            out.writeDouble(a.getModelCartnZ());
+            out.writeDouble(a.getPdbxModelCartnXIdeal());
+            out.writeDouble(a.getPdbxModelCartnYIdeal());
+            out.writeDouble(a.getPdbxModelCartnZIdeal());
+            writeString(out, a.getPdbxComponentCompId(), id);
+            writeString(out, a.getPdbxResidueNumbering(), id);
+            writeString(out, a.getPdbxComponentAtomId(), id);
+            writeString(out, a.getPdbxPolymerType(), id);
+            writeString(out, a.getPdbxRefId(), id);
+            writeString(out, a.getPdbxComponentId(), id);
+            out.writeInt(a.getPdbxOrdinal());
+        }
+
+        out.writeInt(cc.getBonds().size());
+        for (ChemCompBond b : cc.getBonds()) {
+            writeString(out, b.getCompId(), id);
+            writeString(out, b.getAtomId1(), id);
+            writeString(out, b.getAtomId2(), id);
+            writeString(out, b.getValueOrder(), id);
+            writeString(out, b.getPdbxAromaticFlag(), id);
+            writeString(out, b.getPdbxStereoConfig(), id);
+            out.writeInt(b.getPdbxOrdinal());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s, String id) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL);
+        } else if (s.equals(id)) {
+            out.writeInt(ID);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
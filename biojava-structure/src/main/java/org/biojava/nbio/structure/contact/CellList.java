@@ -0,0 +1,230 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+import javax.vecmath.Point3d;
+
+/**
+ * A cell list for neighbour searches over large sets of points, stored in primitive arrays.
+ * <p>
+ * As in {@link Grid}, space is hashed into cubic cells of the size of the cutoff, so that the neighbours
+ * of a point are found in its own cell and the 26 surrounding ones. Unlike {@link Grid}, no {@link Contact}
+ * or cell objects are created: points are sorted by cell into a single index array, and neighbours are
+ * reported one by one to a {@link NeighborVisitor}. Building the list takes linear time and memory.
+ * <p>
+ * A cell list is immutable once built, so any number of threads can query it concurrently.
+ * <p>
+ * Usage:
+ * <pre>
+ *  CellList cells = new CellList(points, 8.0);
+ *  cells.forEachNeighbor(i, 8.0, (j, distSq) -&gt; ...);
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class CellList {
+
+	/**
+	 * Callback receiving the neighbours found by a query.
+	 */
+	@FunctionalInterface
+	public interface NeighborVisitor {
+		/**
+		 * Called once for each point within the cutoff.
+		 * @param j the index of the neighbouring point
+		 * @param distSq the squared distance to the query point
+		 */
+		void visit(int j, double distSq);
+	}
+
+	// the number of cells is kept within this factor of the number of points, so that sparse sets
+	// (e.g. two distant molecules) don't allocate a huge empty grid
+	private static final int MAX_CELLS_PER_POINT = 8;
+
+	private final double[] coords;
+	private final int size;
+	private final double cellSize;
+	private final double xmin, ymin, zmin;
+	private final int nx, ny, nz;
+	// points of cell c are cellPoints[cellStart[c]] to cellPoints[cellStart[c+1]-1]
+	private final int[] cellStart;
+	private final int[] cellPoints;
+
+	/**
+	 * Builds a cell list for the given points.
+	 * @param points the points
+	 * @param cellSize the minimum size of the cells, usually the largest cutoff that will be queried
+	 */
+	public CellList(Point3d[] points, double cellSize) {
+		this(toArray(points), cellSize);
+	}
+
+	/**
+	 * Builds a cell list for the given coordinates. The array is used directly and must not be modified
+	 * while the cell list is in use.
+	 * @param coords the coordinates, interleaved as x0, y0, z0, x1, ...
+	 * @param cellSize the minimum size of the cells, usually the largest cutoff that will be queried
+	 * @throws IllegalArgumentException if the cell size is not positive
+	 */
+	public CellList(double[] coords, double cellSize) {
+		if (!(cellSize > 0))
+			throw new IllegalArgumentException("Cell size must be positive, was " + cellSize);
+
+		this.coords = coords;
+		this.size = coords.length / 3;
+
+		double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+		double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			double x = coords[3*i], y = coords[3*i+1], z = coords[3*i+2];
+			x0 = Math.min(x0, x); y0 = Math.min(y0, y); z0 = Math.min(z0, z);
+			x1 = Math.max(x1, x); y1 = Math.max(y1, y); z1 = Math.max(z1, z);
+		}
+		if (size == 0) {
+			x0 = y0 = z0 = x1 = y1 = z1 = 0;
+		}
+
+		// grow the cells for sparse sets of points, cells can be larger than the cutoff but never smaller
+		double maxCells = (double) MAX_CELLS_PER_POINT * size + 64;
+		double extent = cellSize;
+		while (cellCount(x1 - x0, extent) * cellCount(y1 - y0, extent) * cellCount(z1 - z0, extent) > maxCells) {
+			extent *= 2;
+		}
+
+		this.cellSize = extent;
+		this.xmin = x0;
+		this.ymin = y0;
+		this.zmin = z0;
+		this.nx = (int) cellCount(x1 - x0, extent);
+		this.ny = (int) cellCount(y1 - y0, extent);
+		this.nz = (int) cellCount(z1 - z0, extent);
+
+		// counting sort of the points by cell
+		int[] cellOf = new int[size];
+		cellStart = new int[nx * ny * nz + 1];
+		for (int i = 0; i < size; i++) {
+			int c = cellIndex(cell(coords[3*i], xmin, nx), cell(coords[3*i+1], ymin, ny), cell(coords[3*i+2], zmin, nz));
+			cellOf[i] = c;
+			cellStart[c + 1]++;
+		}
+		for (int c = 0; c < cellStart.length - 1; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		cellPoints = new int[size];
+		int[] fill = new int[cellStart.length - 1];
+		for (int i = 0; i < size; i++) {
+			int c = cellOf[i];
+			cellPoints[cellStart[c] + fill[c]++] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of points in this cell list.
+	 * @return the number of points
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the actual size of the cells, which is larger than the requested one for sparse sets of points.
+	 * @return the cell size
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Reports all other points within the cutoff distance (exclusive) of point i.
+	 * @param i the index of the query point
+	 * @param cutoff the distance cutoff
+	 * @param visitor receives the index and squared distance of each neighbour
+	 */
+	public void forEachNeighbor(int i, double cutoff, NeighborVisitor visitor) {
+		forEachNeighbor(coords[3*i], coords[3*i+1], coords[3*i+2], i, cutoff, visitor);
+	}
+
+	/**
+	 * Reports all points within the cutoff distance (exclusive) of the given position.
+	 * @param x the x coordinate of the query position
+	 * @param y the y coordinate of the query position
+	 * @param z the z coordinate of the query position
+	 * @param cutoff the distance cutoff
+	 * @param visitor receives the index and squared distance of each neighbour
+	 */
+	public void forEachNeighbor(double x, double y, double z, double cutoff, NeighborVisitor visitor) {
+		forEachNeighbor(x, y, z, -1, cutoff, visitor);
+	}
+
+	private void forEachNeighbor(double x, double y, double z, int self, double cutoff, NeighborVisitor visitor) {
+		if (size == 0) return;
+
+		double cutoffSq = cutoff * cutoff;
+		// number of cells to search on each side, 1 unless the cutoff is larger than the cells
+		int reach = Math.max(1, (int) Math.ceil(cutoff / cellSize));
+
+		// the inclusive ranges of cells within reach, in doubles since the position can be far outside the grid
+		double cx = Math.floor((x - xmin) / cellSize), cy = Math.floor((y - ymin) / cellSize),
+				cz = Math.floor((z - zmin) / cellSize);
+		int xlo = (int) Math.max(0, cx - reach), xhi = (int) Math.min(nx - 1, cx + reach);
+		int ylo = (int) Math.max(0, cy - reach), yhi = (int) Math.min(ny - 1, cy + reach);
+		int zlo = (int) Math.max(0, cz - reach), zhi = (int) Math.min(nz - 1, cz + reach);
+
+		for (int ix = xlo; ix <= xhi; ix++) {
+			for (int iy = ylo; iy <= yhi; iy++) {
+				for (int iz = zlo; iz <= zhi; iz++) {
+					int c = cellIndex(ix, iy, iz);
+					for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+						int j = cellPoints[k];
+						if (j == self) continue;
+						double dx = coords[3*j] - x, dy = coords[3*j+1] - y, dz = coords[3*j+2] - z;
+						double distSq = dx*dx + dy*dy + dz*dz;
+						if (distSq < cutoffSq) {
+							visitor.visit(j, distSq);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private int cellIndex(int cx, int cy, int cz) {
+		return (cx * ny + cy) * nz + cz;
+	}
+
+	private int cell(double v, double min, int n) {
+		return Math.min(n - 1, (int) ((v - min) / cellSize));
+	}
+
+	private static double cellCount(double span, double cellSize) {
+		return 1 + Math.floor(span / cellSize);
+	}
+
+	private static double[] toArray(Point3d[] points) {
+		double[] coords = new double[3 * points.length];
+		for (int i = 0; i < points.length; i++) {
+			coords[3*i] = points[i].x;
+			coords[3*i+1] = points[i].y;
+			coords[3*i+2] = points[i].z;
+		}
+		return coords;
+	}
+}
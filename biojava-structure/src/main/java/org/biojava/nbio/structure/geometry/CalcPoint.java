@@ -96,6 +96,97 @@ public class CalcPoint {
 		}
 	}
 
+	/**
+	 * Calculate the centroid of a packed coordinate array, interleaved as x0,
+	 * y0, z0, x1, ... as in {@link org.biojava.nbio.structure.PackedAtomArrays}.
+	 *
+	 * @param xyz
+	 *            interleaved coordinates. The array will not be modified
+	 * @return centroid as Point3d
+	 */
+	public static Point3d centroid(double[] xyz) {
+		int n = xyz.length / 3;
+		double cx = 0, cy = 0, cz = 0;
+		for (int i = 0; i < 3 * n; i += 3) {
+			cx += xyz[i];
+			cy += xyz[i + 1];
+			cz += xyz[i + 2];
+		}
+		return new Point3d(cx / n, cy / n, cz / n);
+	}
+
+	/**
+	 * Center a packed coordinate array, interleaved as x0, y0, z0, x1, ...
+	 *
+	 * @param xyz
+	 *            interleaved coordinates. The array will be modified
+	 * @return the centroid that was subtracted
+	 */
+	public static Point3d center(double[] xyz) {
+		Point3d center = centroid(xyz);
+		center.negate();
+		translate(new Vector3d(center), xyz);
+		center.negate();
+		return center;
+	}
+
+	/**
+	 * Transform a packed coordinate array with a 4x4 transformation matrix.
+	 *
+	 * @param rotTrans
+	 *            4x4 transformation matrix
+	 * @param xyz
+	 *            interleaved coordinates. The array will be modified
+	 */
+	public static void transform(Matrix4d rotTrans, double[] xyz) {
+		for (int i = 0; i + 2 < xyz.length; i += 3) {
+			double x = xyz[i], y = xyz[i + 1], z = xyz[i + 2];
+			xyz[i] = rotTrans.m00 * x + rotTrans.m01 * y + rotTrans.m02 * z + rotTrans.m03;
+			xyz[i + 1] = rotTrans.m10 * x + rotTrans.m11 * y + rotTrans.m12 * z + rotTrans.m13;
+			xyz[i + 2] = rotTrans.m20 * x + rotTrans.m21 * y + rotTrans.m22 * z + rotTrans.m23;
+		}
+	}
+
+	/**
+	 * Translate a packed coordinate array with a translation vector.
+	 *
+	 * @param trans
+	 *            the translation vector to apply
+	 * @param xyz
+	 *            interleaved coordinates. The array will be modified
+	 */
+	public static void translate(Vector3d trans, double[] xyz) {
+		for (int i = 0; i + 2 < xyz.length; i += 3) {
+			xyz[i] += trans.x;
+			xyz[i + 1] += trans.y;
+			xyz[i + 2] += trans.z;
+		}
+	}
+
+	/**
+	 * Calculate the RMSD of two packed coordinate arrays, already superposed.
+	 *
+	 * @param x
+	 *            interleaved coordinates superposed to y
+	 * @param y
+	 *            interleaved coordinates superposed to x
+	 * @return RMSD
+	 */
+	public static double rmsd(double[] x, double[] y) {
+
+		if (x.length != y.length) {
+			throw new IllegalArgumentException(
+					"Coordinate arrays are not of the same length.");
+		}
+
+		double sum = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			double d = x[i] - y[i];
+			sum += d * d;
+		}
+		return Math.sqrt(sum / (x.length / 3));
+	}
+
 	/**
 	 * Clone an array of points.
 	 *
@@ -26,6 +26,7 @@ import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +73,15 @@ import org.slf4j.LoggerFactory;
  * Point3d[] ySuperposed = qcp.getTransformedCoordinates();
  * </pre>
  * <p>
+ * D. Calculate the rmsds of many models to one reference, or of all pairs of
+ * models, from packed coordinates without allocating per model
+ *
+ * <pre>
+ * qcp.setReference(reference);
+ * qcp.getRmsds(models, count, rmsds);
+ * double[][] matrix = qcp.rmsdMatrix(models, count);
+ * </pre>
+ * <p>
  * Citations:
  * <p>
  * Liu P, Agrafiotis DK, &amp; Theobald DL (2011) Reply to comment on: "Fast
@@ -137,6 +147,9 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 	private boolean transformationCalculated = false;
 	private boolean centered = false;
 
+	private double[] reference;
+	private double referenceNorm;
+
 	/**
 	 * Default constructor for the quaternion based superposition algorithm.
 	 *
@@ -385,6 +398,34 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 	}
 
 	private int calcRmsd(double len) {
+		SxzpSzx = Sxz + Szx;
+		SyzpSzy = Syz + Szy;
+		SxypSyx = Sxy + Syx;
+		SyzmSzy = Syz - Szy;
+		SxzmSzx = Sxz - Szx;
+		SxymSyx = Sxy - Syx;
+		SxxpSyy = Sxx + Syy;
+		SxxmSyy = Sxx - Syy;
+
+		mxEigenV = maxEigenvalue(Sxx, Sxy, Sxz, Syx, Syy, Syz, Szx, Szy, Szz, e0, eval_prec);
+
+		/*
+		 * the fabs() is to guard against extremely small, but *negative*
+		 * numbers due to floating point error
+		 */
+		rmsd = Math.sqrt(Math.abs(2.0 * (e0 - mxEigenV) / len));
+
+		return 1;
+	}
+
+	/**
+	 * Finds the largest eigenvalue of the key matrix of the inner product
+	 * matrix S by Newton-Raphson iteration on its characteristic polynomial,
+	 * starting from the upper bound e0.
+	 */
+	private static double maxEigenvalue(double Sxx, double Sxy, double Sxz,
+			double Syx, double Syy, double Syz, double Szx, double Szy,
+			double Szz, double e0, double eval_prec) {
 		double Sxx2 = Sxx * Sxx;
 		double Syy2 = Syy * Syy;
 		double Szz2 = Szz * Szz;
@@ -404,14 +445,14 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		double c1 = 8.0 * (Sxx * Syz * Szy + Syy * Szx * Sxz + Szz * Sxy * Syx - Sxx * Syy * Szz - Syz * Szx * Sxy
 				- Szy * Syx * Sxz);
 
-		SxzpSzx = Sxz + Szx;
-		SyzpSzy = Syz + Szy;
-		SxypSyx = Sxy + Syx;
-		SyzmSzy = Syz - Szy;
-		SxzmSzx = Sxz - Szx;
-		SxymSyx = Sxy - Syx;
-		SxxpSyy = Sxx + Syy;
-		SxxmSyy = Sxx - Syy;
+		double SxzpSzx = Sxz + Szx;
+		double SyzpSzy = Syz + Szy;
+		double SxypSyx = Sxy + Syx;
+		double SyzmSzy = Syz - Szy;
+		double SxzmSzx = Sxz - Szx;
+		double SxymSyx = Sxy - Syx;
+		double SxxpSyy = Sxx + Syy;
+		double SxxmSyy = Sxx - Syy;
 
 		double Sxy2Sxz2Syx2Szx2 = Sxy2 + Sxz2 - Syx2 - Szx2;
 
@@ -426,7 +467,7 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 				+ (+(SxypSyx) * (SyzmSzy) + (SxzmSzx) * (SxxmSyy - Szz))
 						* (-(SxymSyx) * (SyzpSzy) + (SxzmSzx) * (SxxpSyy - Szz));
 
-		mxEigenV = e0;
+		double mxEigenV = e0;
 
 		int i;
 		for (i = 1; i < 51; ++i) {
@@ -441,19 +482,11 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 				break;
 		}
 
-		if (i == 50) {
-			logger.warn(String.format("More than %d iterations needed!", i));
-		} else {
-			logger.info(String.format("%d iterations needed!", i));
+		if (i == 51) {
+			logger.warn("More than {} iterations needed!", i - 1);
 		}
 
-		/*
-		 * the fabs() is to guard against extremely small, but *negative*
-		 * numbers due to floating point error
-		 */
-		rmsd = Math.sqrt(Math.abs(2.0 * (e0 - mxEigenV) / len));
-
-		return 1;
+		return mxEigenV;
 	}
 
 	private int calcRotationMatrix() {
@@ -595,6 +628,293 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		return getRmsd();
 	}
 
+	/**
+	 * Return the RMSD of the superposition of two packed coordinate arrays,
+	 * interleaved as x0, y0, z0, x1, ... as in
+	 * {@link org.biojava.nbio.structure.PackedAtomArrays}. No Point3d objects
+	 * are created and the input arrays are not modified.
+	 *
+	 * @param fixed
+	 *            interleaved coordinates of the reference set
+	 * @param moved
+	 *            interleaved coordinates of the set to superpose
+	 * @return root mean square deviation for superposition of moved onto fixed
+	 * @since 7.2.3
+	 */
+	public double getRmsd(double[] fixed, double[] moved) {
+		calcRmsd(moved, fixed);
+		return rmsd;
+	}
+
+	/**
+	 * Superposition of two packed coordinate arrays, interleaved as x0, y0,
+	 * z0, x1, ... The input arrays are not modified, use
+	 * {@link CalcPoint#transform(Matrix4d, double[])} to apply the result.
+	 *
+	 * @param fixed
+	 *            interleaved coordinates of the reference set
+	 * @param moved
+	 *            interleaved coordinates of the set to superpose
+	 * @return transformation matrix as a Matrix4d to superpose moved onto fixed
+	 * @since 7.2.3
+	 */
+	public Matrix4d superpose(double[] fixed, double[] moved) {
+		calcRmsd(moved, fixed);
+		getRotationMatrix();
+		if (!centered) {
+			calcTransformation();
+		} else {
+			transformation.set(rotmat);
+		}
+		return transformation;
+	}
+
+	/**
+	 * Calculates the RMSD value for superposition of packed coordinates y onto
+	 * x. If the coordinates are not centered, the centroids are subtracted on
+	 * the fly instead of copying the arrays.
+	 */
+	private void calcRmsd(double[] x, double[] y) {
+		if (x.length != y.length)
+			throw new IllegalArgumentException(
+					"Coordinate arrays to superpose are of different lengths.");
+
+		double cx1 = 0, cy1 = 0, cz1 = 0, cx2 = 0, cy2 = 0, cz2 = 0;
+		if (!centered) {
+			xtrans = CalcPoint.centroid(x);
+			xtrans.negate();
+			ytrans = CalcPoint.centroid(y);
+			ytrans.negate();
+			cx1 = xtrans.x; cy1 = xtrans.y; cz1 = xtrans.z;
+			cx2 = ytrans.x; cy2 = ytrans.y; cz2 = ytrans.z;
+		}
+		innerProduct(y, x, cx2, cy2, cz2, cx1, cy1, cz1);
+		calcRmsd(wsum);
+		rmsdCalculated = true;
+		transformationCalculated = false;
+	}
+
+	/**
+	 * Unweighted inner product of two packed coordinate arrays, each
+	 * translated by the given offsets.
+	 */
+	private void innerProduct(double[] coords1, double[] coords2,
+			double tx1, double ty1, double tz1, double tx2, double ty2, double tz2) {
+		double g1 = 0.0, g2 = 0.0;
+
+		Sxx = 0;
+		Sxy = 0;
+		Sxz = 0;
+		Syx = 0;
+		Syy = 0;
+		Syz = 0;
+		Szx = 0;
+		Szy = 0;
+		Szz = 0;
+
+		for (int i = 0; i + 2 < coords1.length; i += 3) {
+			double x1 = coords1[i] + tx1;
+			double y1 = coords1[i + 1] + ty1;
+			double z1 = coords1[i + 2] + tz1;
+			double x2 = coords2[i] + tx2;
+			double y2 = coords2[i + 1] + ty2;
+			double z2 = coords2[i + 2] + tz2;
+
+			g1 += x1 * x1 + y1 * y1 + z1 * z1;
+			g2 += x2 * x2 + y2 * y2 + z2 * z2;
+
+			Sxx += x1 * x2;
+			Sxy += x1 * y2;
+			Sxz += x1 * z2;
+
+			Syx += y1 * x2;
+			Syy += y1 * y2;
+			Syz += y1 * z2;
+
+			Szx += z1 * x2;
+			Szy += z1 * y2;
+			Szz += z1 * z2;
+		}
+		wsum = coords1.length / 3;
+
+		e0 = (g1 + g2) * 0.5;
+	}
+
+	/**
+	 * Sets the reference of {@link #getRmsds(double[], int, double[])}: packed
+	 * coordinates, interleaved as x0, y0, z0, x1, ... The coordinates are
+	 * copied and centered once, so that every model is compared to them
+	 * without any further allocation.
+	 *
+	 * @param reference
+	 *            interleaved coordinates of the reference set
+	 * @since 7.2.3
+	 */
+	public void setReference(double[] reference) {
+		if (reference.length % 3 != 0)
+			throw new IllegalArgumentException(
+					"Packed coordinate array length is not a multiple of 3.");
+		this.reference = reference.clone();
+		CalcPoint.center(this.reference);
+		double g = 0.0;
+		for (double c : this.reference)
+			g += c * c;
+		referenceNorm = g;
+	}
+
+	/**
+	 * Calculates the RMSDs of the superposition of many models onto the
+	 * reference set by {@link #setReference(double[])}. The models are stored
+	 * back to back in one packed array, each with as many coordinates as the
+	 * reference. They need not be centered, and are not modified.
+	 * <p>
+	 * Only the RMSDs are computed; nothing is allocated and the state used by
+	 * {@link #superposeAfterRmsd()} is not changed.
+	 *
+	 * @param models
+	 *            interleaved coordinates of the models, one after the other
+	 * @param count
+	 *            the number of models
+	 * @param rmsds
+	 *            receives the RMSD of model i at index i
+	 * @since 7.2.3
+	 */
+	public void getRmsds(double[] models, int count, double[] rmsds) {
+		if (reference == null)
+			throw new IllegalStateException("No reference set. Use setReference() first.");
+		int length = reference.length;
+		if (models.length < count * length)
+			throw new IllegalArgumentException("Not enough coordinates for " + count
+					+ " models of " + length / 3 + " points.");
+		if (rmsds.length < count)
+			throw new IllegalArgumentException("RMSD array is shorter than the number of models.");
+
+		for (int m = 0; m < count; m++)
+			rmsds[m] = rmsd(reference, 0, referenceNorm, models, m * length, length, eval_prec);
+	}
+
+	/**
+	 * Calculates the RMSDs of the superpositions of all pairs of models, using
+	 * the default {@link BioJavaExecutor}.
+	 *
+	 * @see #rmsdMatrix(double[], int, BioJavaExecutor)
+	 * @since 7.2.3
+	 */
+	public double[][] rmsdMatrix(double[] models, int count) {
+		return rmsdMatrix(models, count, BioJavaExecutor.getDefault());
+	}
+
+	/**
+	 * Calculates the RMSDs of the superpositions of all pairs of models. The
+	 * models are stored back to back in one packed array, interleaved as x0,
+	 * y0, z0, x1, ..., all with the same number of points, and are not
+	 * modified. They are centered once, then the rows of the matrix are
+	 * computed in parallel.
+	 *
+	 * @param models
+	 *            interleaved coordinates of the models, one after the other
+	 * @param count
+	 *            the number of models
+	 * @param executor
+	 *            runs the rows of the matrix
+	 * @return the symmetric matrix of RMSDs, with zeros on the diagonal
+	 * @since 7.2.3
+	 */
+	public double[][] rmsdMatrix(double[] models, int count, BioJavaExecutor executor) {
+		if (count == 0)
+			return new double[0][0];
+		if (models.length % (3 * count) != 0)
+			throw new IllegalArgumentException("Packed coordinate array length is not a multiple of 3 * "
+					+ count + ".");
+		int length = models.length / count;
+
+		double[] coords = models.clone();
+		double[] norms = new double[count];
+		for (int m = 0; m < count; m++) {
+			int offset = m * length;
+			double cx = 0, cy = 0, cz = 0;
+			for (int i = offset; i < offset + length; i += 3) {
+				cx += coords[i];
+				cy += coords[i + 1];
+				cz += coords[i + 2];
+			}
+			int n = length / 3;
+			cx /= n;
+			cy /= n;
+			cz /= n;
+			double g = 0.0;
+			for (int i = offset; i < offset + length; i += 3) {
+				coords[i] -= cx;
+				coords[i + 1] -= cy;
+				coords[i + 2] -= cz;
+				g += coords[i] * coords[i] + coords[i + 1] * coords[i + 1]
+						+ coords[i + 2] * coords[i + 2];
+			}
+			norms[m] = g;
+		}
+
+		double[][] matrix = new double[count][count];
+		executor.parallelFor(count, i -> {
+			for (int j = 0; j < i; j++) {
+				double d = rmsd(coords, i * length, norms[i], coords, j * length, length, eval_prec);
+				matrix[i][j] = d;
+				matrix[j][i] = d;
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * The QCP RMSD of a model onto a centered reference, both in packed
+	 * arrays. The model is centered on the fly: since the reference sums to
+	 * zero, the inner product matrix does not depend on the model translation
+	 * and only the model norm needs correcting for its centroid.
+	 *
+	 * @param ref
+	 *            centered reference coordinates, starting at refOffset
+	 * @param refNorm
+	 *            the sum of the squared reference coordinates
+	 */
+	private static double rmsd(double[] ref, int refOffset, double refNorm,
+			double[] model, int offset, int length, double eval_prec) {
+		double Sxx = 0, Sxy = 0, Sxz = 0;
+		double Syx = 0, Syy = 0, Syz = 0;
+		double Szx = 0, Szy = 0, Szz = 0;
+		double sx = 0, sy = 0, sz = 0, g = 0;
+
+		for (int i = 0; i < length; i += 3) {
+			double x1 = ref[refOffset + i];
+			double y1 = ref[refOffset + i + 1];
+			double z1 = ref[refOffset + i + 2];
+			double x2 = model[offset + i];
+			double y2 = model[offset + i + 1];
+			double z2 = model[offset + i + 2];
+
+			sx += x2;
+			sy += y2;
+			sz += z2;
+			g += x2 * x2 + y2 * y2 + z2 * z2;
+
+			Sxx += x1 * x2;
+			Sxy += x1 * y2;
+			Sxz += x1 * z2;
+
+			Syx += y1 * x2;
+			Syy += y1 * y2;
+			Syz += y1 * z2;
+
+			Szx += z1 * x2;
+			Szy += z1 * y2;
+			Szz += z1 * z2;
+		}
+		int n = length / 3;
+		g -= (sx * sx + sy * sy + sz * sz) / n;
+
+		double e0 = (refNorm + g) * 0.5;
+		double mxEigenV = maxEigenvalue(Sxx, Sxy, Sxz, Syx, Syy, Syz, Szx, Szy, Szz, e0, eval_prec);
+		return Math.sqrt(Math.abs(2.0 * (e0 - mxEigenV) / n));
+	}
+
 	/**
 	 * The QCP method can be used as a two-step calculation: first compute the
 	 * RMSD (fast) and then compute the superposition.
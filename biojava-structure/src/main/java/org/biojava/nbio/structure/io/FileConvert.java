@@ -146,37 +146,7 @@ public class FileConvert {
 		// some objects (PDBHeader, Compound) are still missing
 		//
 
-		PDBHeader header = structure.getPDBHeader();
-		header.toPDB(str);
-
-
-		//REMARK 800
-		if (!structure.getSites().isEmpty()) {
-			str.append("REMARK 800                                                                      ").append(newline);
-			str.append("REMARK 800 SITE                                                                 ").append(newline);
-			for (Site site : structure.getSites()) {
-				site.remark800toPDB(str);
-			}
-		}
-		//DBREF
-		for (DBRef dbref : structure.getDBRefs()){
-			dbref.toPDB(str);
-			str.append(newline);
-		}
-		//SSBOND
-		List<SSBondImpl> ssbonds = SSBondImpl.getSsBondListFromBondList(structure.getSSBonds());
-		for (SSBondImpl ssbond : ssbonds){
-			ssbond.toPDB(str);
-			str.append(newline);
-		}
-		//SITE
-		for (Site site : structure.getSites()) {
-			try {
-				site.toPDB(str);
-			} catch (Exception e){
-				e.printStackTrace();
-			}
-		}
+		toPDBHeader(structure, str);
 
 		//
 		// print the atom records
@@ -263,6 +233,44 @@ public class FileConvert {
 		return str.toString() ;
 	}
 
+	/**
+	 * Appends the header records of a structure, everything before the atom
+	 * records, in PDB format.
+	 */
+	static void toPDBHeader(Structure structure, StringBuffer str) {
+		PDBHeader header = structure.getPDBHeader();
+		header.toPDB(str);
+
+
+		//REMARK 800
+		if (!structure.getSites().isEmpty()) {
+			str.append("REMARK 800                                                                      ").append(newline);
+			str.append("REMARK 800 SITE                                                                 ").append(newline);
+			for (Site site : structure.getSites()) {
+				site.remark800toPDB(str);
+			}
+		}
+		//DBREF
+		for (DBRef dbref : structure.getDBRefs()){
+			dbref.toPDB(str);
+			str.append(newline);
+		}
+		//SSBOND
+		List<SSBondImpl> ssbonds = SSBondImpl.getSsBondListFromBondList(structure.getSSBonds());
+		for (SSBondImpl ssbond : ssbonds){
+			ssbond.toPDB(str);
+			str.append(newline);
+		}
+		//SITE
+		for (Site site : structure.getSites()) {
+			try {
+				site.toPDB(str);
+			} catch (Exception e){
+				e.printStackTrace();
+			}
+		}
+	}
+
 	private static void toPDB(Group g, StringBuffer str) {
 		// iterate over all atoms ...
 		// format output ...
@@ -459,7 +467,7 @@ public class FileConvert {
 
 
 	/** test if pdbserial has an insertion code */
-	private static boolean hasInsertionCode(String pdbserial) {
+	static boolean hasInsertionCode(String pdbserial) {
 		try {
 			Integer.parseInt(pdbserial) ;
 		} catch (NumberFormatException e) {
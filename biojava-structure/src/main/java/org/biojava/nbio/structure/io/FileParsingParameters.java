@@ -25,6 +25,8 @@
 package org.biojava.nbio.structure.io;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
 
 import org.biojava.nbio.structure.AminoAcid;
 
@@ -98,6 +100,11 @@ public class FileParsingParameters implements Serializable
 	 */
 	private boolean createAtomCharges;
 
+	/**
+	 * Copy the atom_site columns of mmCIF files in bulk into packed atom arrays
+	 */
+	private boolean columnarIngest;
+
 	/**
 	 * The maximum number of atoms we will add to a structure,
 	 * this protects from memory overflows in the few really big protein structures.
@@ -113,6 +120,26 @@ public class FileParsingParameters implements Serializable
 		setDefault();
 	}
 
+	/**
+	 * Creates a copy of the given parameters.
+	 * New fields must be copied here and compared in {@link #equals(Object)} and {@link #hashCode()}.
+	 * @param other the parameters to copy
+	 * @since 7.2.3
+	 */
+	public FileParsingParameters(FileParsingParameters other){
+		parseSecStruc = other.parseSecStruc;
+		alignSeqRes = other.alignSeqRes;
+		parseCAOnly = other.parseCAOnly;
+		headerOnly = other.headerOnly;
+		fullAtomNames = other.fullAtomNames == null ? null : other.fullAtomNames.clone();
+		maxAtoms = other.maxAtoms;
+		atomCaThreshold = other.atomCaThreshold;
+		parseBioAssembly = other.parseBioAssembly;
+		createAtomBonds = other.createAtomBonds;
+		createAtomCharges = other.createAtomCharges;
+		columnarIngest = other.columnarIngest;
+	}
+
 	public void setDefault(){
 
 		parseSecStruc = false;
@@ -134,6 +161,8 @@ public class FileParsingParameters implements Serializable
 
 		createAtomCharges = true;
 
+		columnarIngest = false;
+
 	}
 
 	/**
@@ -332,6 +361,64 @@ public class FileParsingParameters implements Serializable
 		this.createAtomCharges = createAtomCharges;
 	}
 
+	/**
+	 * Are the atoms of mmCIF and BinaryCIF files read in columnar ingest mode?
+	 *
+	 * @return true if atoms are copied in bulk into packed arrays
+	 * @see #setColumnarIngest(boolean)
+	 * @since 7.2.3
+	 */
+	public boolean isColumnarIngest() {
+		return columnarIngest;
+	}
+
+	/**
+	 * Sets the columnar ingest mode for mmCIF and BinaryCIF files. In this mode the coordinate, B-factor,
+	 * occupancy, element, name and serial columns of the atom_site category are copied in bulk into one
+	 * {@link org.biojava.nbio.structure.PackedAtomArrays} per model, instead of creating an
+	 * {@link org.biojava.nbio.structure.AtomImpl} per row. Residue and chain boundaries are found by
+	 * scanning runs of equal values in the chain and residue number columns. The resulting Structure is
+	 * the same, except that its atoms are {@link org.biojava.nbio.structure.PackedAtom} views. Residues
+	 * with alternate locations are still read row by row. Not used if {@link #isParseCAOnly()}.
+	 * Default is false.
+	 *
+	 * @param columnarIngest
+	 *            true to copy atoms in bulk into packed arrays
+	 * @since 7.2.3
+	 */
+	public void setColumnarIngest(boolean columnarIngest) {
+		this.columnarIngest = columnarIngest;
+	}
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(parseSecStruc, alignSeqRes, parseCAOnly, headerOnly, Arrays.hashCode(fullAtomNames),
+				maxAtoms, atomCaThreshold, parseBioAssembly, createAtomBonds, createAtomCharges, columnarIngest);
+	}
 
+	/**
+	 * Parameters are equal if they parse files the same way.
+	 * @since 7.2.3
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FileParsingParameters other = (FileParsingParameters) obj;
+		return parseSecStruc == other.parseSecStruc
+				&& alignSeqRes == other.alignSeqRes
+				&& parseCAOnly == other.parseCAOnly
+				&& headerOnly == other.headerOnly
+				&& Arrays.equals(fullAtomNames, other.fullAtomNames)
+				&& maxAtoms == other.maxAtoms
+				&& atomCaThreshold == other.atomCaThreshold
+				&& parseBioAssembly == other.parseBioAssembly
+				&& createAtomBonds == other.createAtomBonds
+				&& createAtomCharges == other.createAtomCharges
+				&& columnarIngest == other.columnarIngest;
+	}
 }
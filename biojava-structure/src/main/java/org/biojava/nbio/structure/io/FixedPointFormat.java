@@ -0,0 +1,193 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Formats numbers with a fixed number of fraction digits as ASCII bytes, with
+ * exactly the result of the {@link DecimalFormat} it stands for, but without
+ * allocating and without DecimalFormat's shared mutable state. Instances are
+ * immutable and thread-safe.
+ * <p>
+ * Like DecimalFormat, negative numbers that round to zero keep their sign,
+ * and integer digits beyond the maximum are dropped from the left. Numbers are
+ * rounded to the nearest output; the few within an ulp of halfway between two
+ * outputs, where DecimalFormat rounds half-even on the digits of their
+ * shortest decimal representation, are left to DecimalFormat, as are NaN,
+ * infinities and numbers too large to be rounded exactly with a long.
+ */
+final class FixedPointFormat {
+
+	/** The coordinates of PDB atom records, as {@link FileConvert#d3} */
+	static final FixedPointFormat PDB_COORDINATE = pdb(3, 4);
+
+	/** The occupancies and B-factors of PDB atom records, as {@link FileConvert#d2} */
+	static final FixedPointFormat PDB_FACTOR = pdb(2, 3);
+
+	/** The coordinates of mmCIF atom sites */
+	static final FixedPointFormat CIF_COORDINATE = cif("0.000", 3, true);
+
+	/** The occupancies of mmCIF atom sites */
+	static final FixedPointFormat CIF_OCCUPANCY = cif("0.00", 2, true);
+
+	/** All other mmCIF floats */
+	static final FixedPointFormat CIF_FLOAT = cif("0.######", 6, false);
+
+	/** The longest output of {@link #format(double, byte[], int)} */
+	static final int MAX_LENGTH = 32;
+
+	// the scaled values below are integers represented exactly by a double
+	private static final double LIMIT = 0x1p52;
+
+	private static final double SPLITTER = 0x1p27 + 1;
+
+	private final int fractionDigits;
+	private final boolean trailingZeros;
+	private final int maxIntegerDigits;
+	private final long scale;
+	private final double scaleHi;
+	private final double scaleLo;
+	private final long integerLimit;
+
+	// never used directly, so that copies can be made concurrently
+	private final DecimalFormat prototype;
+
+	private FixedPointFormat(int fractionDigits, boolean trailingZeros, int maxIntegerDigits, DecimalFormat prototype) {
+		this.fractionDigits = fractionDigits;
+		this.trailingZeros = trailingZeros;
+		this.maxIntegerDigits = maxIntegerDigits;
+		this.prototype = prototype;
+		long s = 1;
+		for (int i = 0; i < fractionDigits; i++)
+			s *= 10;
+		scale = s;
+		double t = SPLITTER * s;
+		scaleHi = t - (t - s);
+		scaleLo = s - scaleHi;
+		long limit = 1;
+		for (int i = 0; i < maxIntegerDigits && limit < Long.MAX_VALUE / 10; i++)
+			limit *= 10;
+		integerLimit = limit;
+	}
+
+	private static FixedPointFormat pdb(int fractionDigits, int maxIntegerDigits) {
+		DecimalFormat format = (DecimalFormat) NumberFormat.getInstance(Locale.US);
+		format.setMaximumIntegerDigits(maxIntegerDigits);
+		format.setMinimumFractionDigits(fractionDigits);
+		format.setMaximumFractionDigits(fractionDigits);
+		format.setGroupingUsed(false);
+		return new FixedPointFormat(fractionDigits, true, maxIntegerDigits, format);
+	}
+
+	private static FixedPointFormat cif(String pattern, int fractionDigits, boolean trailingZeros) {
+		DecimalFormat format = new DecimalFormat(pattern, new DecimalFormatSymbols(Locale.US));
+		return new FixedPointFormat(fractionDigits, trailingZeros, Integer.MAX_VALUE, format);
+	}
+
+	/**
+	 * Writes a number at a position of a buffer with at least
+	 * {@link #MAX_LENGTH} bytes from there.
+	 *
+	 * @return the number of bytes written, or -1 if the number must be
+	 *         formatted with {@link #format(double)}
+	 */
+	int format(double value, byte[] buf, int pos) {
+		double a = Math.abs(value);
+		double hi = a * scale;
+		if (!(hi < LIMIT))
+			return -1;
+
+		// hi + lo is exactly a * scale (Dekker's product)
+		double t = SPLITTER * a;
+		double aHi = t - (t - a);
+		double aLo = a - aHi;
+		double lo = ((aHi * scaleHi - hi) + aHi * scaleLo + aLo * scaleHi) + aLo * scaleLo;
+
+		// the sign of the exact fraction minus one half decides the rounding
+		long n = (long) hi;
+		double d = ((hi - n) - 0.5) + lo;
+		// DecimalFormat rounds the shortest decimal representation of the
+		// value, which may be the halfway point itself if the value is that close
+		if (Math.abs(d) <= Math.ulp(a) * scale)
+			return -1;
+		if (d > 0)
+			n++;
+
+		long integer = n / scale;
+		long fraction = n % scale;
+		int minIntegerDigits = 1;
+		if (integer >= integerLimit) {
+			integer %= integerLimit;
+			minIntegerDigits = maxIntegerDigits;
+		}
+
+		int p = pos;
+		if (Double.doubleToRawLongBits(value) < 0)
+			buf[p++] = '-';
+		p = digits(integer, minIntegerDigits, buf, p);
+		if (trailingZeros) {
+			buf[p++] = '.';
+			p = digits(fraction, fractionDigits, buf, p);
+		} else if (fraction != 0) {
+			int width = fractionDigits;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				width--;
+			}
+			buf[p++] = '.';
+			p = digits(fraction, width, buf, p);
+		}
+		return p - pos;
+	}
+
+	/**
+	 * Formats any number, with DecimalFormat if it is out of the range of
+	 * {@link #format(double, byte[], int)}.
+	 */
+	String format(double value) {
+		byte[] buf = new byte[MAX_LENGTH];
+		int length = format(value, buf, 0);
+		if (length < 0)
+			return ((DecimalFormat) prototype.clone()).format(value);
+		return new String(buf, 0, length, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Writes a non-negative number, left-padded with zeros to a width.
+	 */
+	static int digits(long value, int width, byte[] buf, int pos) {
+		int length = 1;
+		for (long v = value / 10; v != 0; v /= 10)
+			length++;
+		length = Math.max(length, width);
+		int p = pos + length;
+		for (int i = 0; i < length; i++) {
+			buf[--p] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return pos + length;
+	}
+}
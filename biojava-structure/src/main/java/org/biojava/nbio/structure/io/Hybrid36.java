@@ -0,0 +1,123 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+/**
+ * The hybrid-36 encoding, with which PDB files written by simulation software
+ * give more than 99,999 atoms serial numbers in the 5 columns of the format:
+ * numbers that fit are written in decimal, the next ones as upper case base-36
+ * numbers starting with a letter (A0000 after 99999), and the next ones as
+ * lower case base-36 numbers (a0000 after ZZZZZ).
+ *
+ * @since 7.2.3
+ */
+public final class Hybrid36 {
+
+	private static final String UPPER = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+	private static final String LOWER = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+	private Hybrid36() {
+	}
+
+	/**
+	 * The largest number that can be encoded in the given number of columns.
+	 *
+	 * @param width the number of columns, from 1 to 5
+	 * @return the largest number
+	 */
+	public static int maxValue(int width) {
+		checkWidth(width);
+		int decimal = (int) Math.pow(10, width);
+		int letters = 26 * (int) Math.pow(36, width - 1);
+		return decimal + 2 * letters - 1;
+	}
+
+	/**
+	 * Encodes a number, right-justified in the given number of columns.
+	 *
+	 * @param value a number from 0 to {@link #maxValue(int)}
+	 * @param width the number of columns, from 1 to 5
+	 * @return the encoded number, of the given length
+	 * @throws IllegalArgumentException if the number is out of range
+	 */
+	public static String encode(int value, int width) {
+		if (value < 0 || value > maxValue(width))
+			throw new IllegalArgumentException(value + " cannot be encoded in " + width + " columns");
+		int decimal = (int) Math.pow(10, width);
+		if (value < decimal)
+			return String.format("%" + width + "d", value);
+		int letters = 26 * (int) Math.pow(36, width - 1);
+		// the letters follow the ten digits
+		int offset = 10 * (int) Math.pow(36, width - 1);
+		value -= decimal;
+		String digits = UPPER;
+		if (value >= letters) {
+			value -= letters;
+			digits = LOWER;
+		}
+		value += offset;
+		char[] encoded = new char[width];
+		for (int i = width - 1; i >= 0; i--) {
+			encoded[i] = digits.charAt(value % 36);
+			value /= 36;
+		}
+		return new String(encoded);
+	}
+
+	/**
+	 * Decodes a number, ignoring the blanks around it.
+	 *
+	 * @param field the columns of the number
+	 * @return the number
+	 * @throws NumberFormatException if the field is not a hybrid-36 number of
+	 *                               its width
+	 */
+	public static int decode(String field) {
+		String s = field.trim();
+		if (s.isEmpty())
+			throw new NumberFormatException("Empty hybrid-36 number: \"" + field + "\"");
+		char first = s.charAt(0);
+		if (first == '-' || first == '+' || Character.isDigit(first))
+			return Integer.parseInt(s);
+		int width = field.length();
+		boolean upper = Character.isUpperCase(first);
+		String digits = upper ? UPPER : LOWER;
+		if (width < 1 || width > 5 || s.length() != width || !Character.isLetter(first))
+			throw new NumberFormatException("Not a hybrid-36 number: \"" + field + "\"");
+		int value = 0;
+		for (int i = 0; i < width; i++) {
+			int digit = digits.indexOf(s.charAt(i));
+			if (digit < 0)
+				throw new NumberFormatException("Not a hybrid-36 number: \"" + field + "\"");
+			value = value * 36 + digit;
+		}
+		int decimal = (int) Math.pow(10, width);
+		int letters = 26 * (int) Math.pow(36, width - 1);
+		value += decimal - 10 * (int) Math.pow(36, width - 1);
+		return upper ? value : value + letters;
+	}
+
+	private static void checkWidth(int width) {
+		if (width < 1 || width > 5)
+			throw new IllegalArgumentException("Width must be from 1 to 5: " + width);
+	}
+}
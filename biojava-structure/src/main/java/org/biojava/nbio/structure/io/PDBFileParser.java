@@ -1822,7 +1822,8 @@ public class PDBFileParser  {
 		}
 		// create new atom
 
-		int pdbnumber = Integer.parseInt (line.substring (6, 11).trim ());
+		// serials beyond 99999 are hybrid-36 encoded by simulation software
+		int pdbnumber = Hybrid36.decode(line.substring (6, 11));
 		AtomImpl atom = new AtomImpl() ;
 		atom.setPDBserial(pdbnumber) ;
 
@@ -2022,7 +2023,7 @@ public class PDBFileParser  {
 		Integer b = null ;
 
 		if ( ! "".equals(sbond)) {
-			bond = Integer.parseInt(sbond);
+			bond = Hybrid36.decode(line.substring(start,end));
 			b = bond;
 		}
 
@@ -2065,7 +2066,7 @@ public class PDBFileParser  {
 
 		// this try .. catch is e.g. to catch 1gte which has wrongly formatted lines...
 		try {
-			int atomserial = Integer.parseInt (line.substring(6 ,11).trim());
+			int atomserial = Hybrid36.decode(line.substring(6 ,11));
 			Integer bond1      = conect_helper(line,11,16);
 			Integer bond2      = conect_helper(line,16,21);
 			Integer bond3      = conect_helper(line,21,26);
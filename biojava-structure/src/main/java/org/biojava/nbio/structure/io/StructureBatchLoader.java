@@ -0,0 +1,644 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.core.util.InputStreamProvider;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureIO;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.biojava.nbio.structure.io.mmtf.MmtfActions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Loads many structures concurrently, e.g. a list of PDB ids or all the files
+ * of a local mirror of the PDB, in bounded memory.
+ * <p>
+ * Structures are loaded on a {@link BioJavaExecutor}, with a bounded number of
+ * them {@link #setMaxInFlight(int) in flight}, and with a bounded
+ * {@link #setMaxAtomsInFlight(long) number of atoms} loaded and not yet
+ * delivered. Before a structure is loaded, its atoms are estimated from the
+ * size of its file, or from the mean size of the structures loaded so far;
+ * the estimate is replaced by the actual number of atoms when it is loaded.
+ * At least one structure is always in flight, so that a structure larger than
+ * the budget is still loaded, alone.
+ * <p>
+ * Each structure is delivered as a {@link Result}, with the time taken to
+ * load it, in the order in which they complete: either to a listener on the
+ * calling thread, or as a {@link Stream} that loads ahead of its consumer.
+ * Structures that cannot be loaded are delivered as failed results.
+ * <p>
+ * The counts and times of each batch are kept in its own {@link Summary},
+ * returned by the listener methods and filled in by the streams as their
+ * results are consumed, so that one loader can run several batches at once.
+ * <p>
+ * Files are parsed with the {@link #setFileParsingParameters(FileParsingParameters)
+ * parameters} of the loader, except MMTF files: {@link MmtfActions} does not
+ * take any parameters.
+ * <p>
+ * Example:
+ * <pre>
+ * StructureBatchLoader loader = new StructureBatchLoader(new FileParsingParameters());
+ * loader.setMaxAtomsInFlight(5_000_000);
+ * StructureBatchLoader.Summary summary = new StructureBatchLoader.Summary();
+ * try (Stream&lt;StructureBatchLoader.Result&gt; results = loader.streamDirectory(mirror, summary)) {
+ *     results.filter(StructureBatchLoader.Result::isLoaded)
+ *             .forEach(r -&gt; process(r.getStructure()));
+ * }
+ * System.out.println(summary.getFailed() + " files could not be loaded");
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class StructureBatchLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureBatchLoader.class);
+
+	/** The atoms assumed for a structure loaded by id, before any was loaded */
+	private static final long DEFAULT_ATOMS = 10_000;
+
+	/**
+	 * Loads a structure from its identifier.
+	 */
+	@FunctionalInterface
+	public interface StructureSource {
+		Structure getStructure(String id) throws IOException, StructureException;
+	}
+
+	/**
+	 * A loaded structure, or the failure to load it.
+	 */
+	public static class Result {
+		private final String id;
+		private final Structure structure;
+		private final Throwable failure;
+		private final long nanos;
+		private final int atoms;
+
+		Result(String id, Structure structure, Throwable failure, long nanos, int atoms) {
+			this.id = id;
+			this.structure = structure;
+			this.failure = failure;
+			this.nanos = nanos;
+			this.atoms = atoms;
+		}
+
+		/**
+		 * @return the identifier, or the path of the file
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the structure, or null if it could not be loaded
+		 */
+		public Structure getStructure() {
+			return structure;
+		}
+
+		/**
+		 * @return why the structure could not be loaded, or null if it was
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		public boolean isLoaded() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the time taken to load or parse the structure, in
+		 *         nanoseconds, without the time waiting to be run
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the number of atoms of the structure, in all models
+		 */
+		public int getAtoms() {
+			return atoms;
+		}
+
+		@Override
+		public String toString() {
+			return id + (failure == null ? " " + atoms + " atoms" : " failed: " + failure)
+					+ " in " + nanos / 1000000 + " ms";
+		}
+	}
+
+	/**
+	 * The counts and times of one batch. They are updated as the results are
+	 * delivered, on the thread consuming them. A summary must not be shared by
+	 * batches.
+	 */
+	public static class Summary {
+		private int loaded;
+		private int failed;
+		private long loadedAtoms;
+		private long totalNanos;
+		private long maxNanos;
+		private final AtomicLong peakAtoms = new AtomicLong();
+
+		/**
+		 * @return the number of structures loaded
+		 */
+		public int getLoaded() {
+			return loaded;
+		}
+
+		/**
+		 * @return the number of structures that could not be loaded
+		 */
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return the total number of atoms of the loaded structures
+		 */
+		public long getLoadedAtoms() {
+			return loadedAtoms;
+		}
+
+		/**
+		 * @return the total time taken to load the structures, in
+		 *         nanoseconds, summed over the threads
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * @return the longest time taken to load a structure, in nanoseconds
+		 */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * @return the largest number of atoms, estimated or loaded, in flight
+		 *         at once
+		 */
+		public long getPeakAtomsInFlight() {
+			return peakAtoms.get();
+		}
+
+		@Override
+		public String toString() {
+			return loaded + " loaded, " + failed + " failed, " + loadedAtoms + " atoms in "
+					+ totalNanos / 1000000 + " ms, peak " + peakAtoms.get() + " atoms in flight";
+		}
+	}
+
+	private final StructureSource source;
+	private FileParsingParameters params;
+	private BioJavaExecutor executor = BioJavaExecutor.getDefault();
+	private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+	private long maxAtomsInFlight = 20_000_000;
+
+	/**
+	 * Load structures by id from an {@link AtomCache}, and files with its
+	 * parsing parameters.
+	 *
+	 * @param cache
+	 *            loads the structures by id, from several threads
+	 */
+	public StructureBatchLoader(AtomCache cache) {
+		this(cache::getStructure, cache.getFileParsingParams());
+	}
+
+	/**
+	 * Load files only.
+	 *
+	 * @param params
+	 *            the parameters to parse the files with
+	 */
+	public StructureBatchLoader(FileParsingParameters params) {
+		this(id -> {
+			throw new StructureException("No source of structures by id: " + id);
+		}, params);
+	}
+
+	/**
+	 * @param source
+	 *            loads the structures by id, from several threads
+	 * @param params
+	 *            the parameters to parse files with
+	 */
+	public StructureBatchLoader(StructureSource source, FileParsingParameters params) {
+		this.source = source;
+		this.params = params;
+	}
+
+	public FileParsingParameters getFileParsingParameters() {
+		return params;
+	}
+
+	/**
+	 * @param params
+	 *            the parameters to parse files with; structures loaded by id
+	 *            are parsed by their source, and MMTF files are read without
+	 *            parameters
+	 */
+	public void setFileParsingParameters(FileParsingParameters params) {
+		this.params = params;
+	}
+
+	public BioJavaExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @param executor
+	 *            loads the structures. A bounded executor must accept at
+	 *            least {@link #getMaxInFlight()} tasks.
+	 */
+	public void setExecutor(BioJavaExecutor executor) {
+		this.executor = executor;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * @param maxInFlight
+	 *            the maximum number of structures submitted and not yet
+	 *            delivered; twice the number of processors by default
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		this.maxInFlight = maxInFlight;
+	}
+
+	public long getMaxAtomsInFlight() {
+		return maxAtomsInFlight;
+	}
+
+	/**
+	 * @param maxAtomsInFlight
+	 *            the maximum number of atoms, estimated or loaded, of the
+	 *            structures submitted and not yet delivered; 20 million by
+	 *            default
+	 */
+	public void setMaxAtomsInFlight(long maxAtomsInFlight) {
+		if (maxAtomsInFlight < 1)
+			throw new IllegalArgumentException("maxAtomsInFlight must be positive: " + maxAtomsInFlight);
+		this.maxAtomsInFlight = maxAtomsInFlight;
+	}
+
+	/**
+	 * Load the structures of the identifiers.
+	 *
+	 * @param ids
+	 *            the identifiers, iterated once
+	 * @param listener
+	 *            receives each result when it is done, on the calling thread
+	 * @return the counts and times of the batch
+	 * @throws IllegalStateException
+	 *             if the calling thread is interrupted
+	 */
+	public Summary load(Iterable<String> ids, Consumer<? super Result> listener) {
+		Batch batch = new Batch(idTasks(ids), new Summary());
+		for (Result result = batch.next(); result != null; result = batch.next())
+			listener.accept(result);
+		return batch.summary;
+	}
+
+	/**
+	 * Load the structures of the identifiers, ahead of the consumer of the
+	 * stream.
+	 *
+	 * @param ids
+	 *            the identifiers, iterated once
+	 * @return the results, in the order in which they are done
+	 */
+	public Stream<Result> stream(Iterable<String> ids) {
+		return stream(ids, new Summary());
+	}
+
+	/**
+	 * Load the structures of the identifiers, ahead of the consumer of the
+	 * stream.
+	 *
+	 * @param ids
+	 *            the identifiers, iterated once
+	 * @param summary
+	 *            receives the counts and times of the results consumed
+	 * @return the results, in the order in which they are done
+	 */
+	public Stream<Result> stream(Iterable<String> ids, Summary summary) {
+		return stream(new Batch(idTasks(ids), summary));
+	}
+
+	/**
+	 * Load the structure files of a directory and its subdirectories, e.g. a
+	 * local mirror of the PDB. Files are recognized by the extensions of
+	 * {@link StructureFiletype}.
+	 *
+	 * @param directory
+	 *            the root directory
+	 * @param listener
+	 *            receives each result when it is done, on the calling thread
+	 * @return the counts and times of the batch
+	 * @throws IOException
+	 *             if the directory cannot be listed
+	 * @throws IllegalStateException
+	 *             if the calling thread is interrupted
+	 */
+	public Summary loadDirectory(Path directory, Consumer<? super Result> listener) throws IOException {
+		try (Stream<Path> files = listFiles(directory)) {
+			Batch batch = new Batch(fileTasks(files), new Summary());
+			for (Result result = batch.next(); result != null; result = batch.next())
+				listener.accept(result);
+			return batch.summary;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Load the structure files of a directory and its subdirectories, ahead
+	 * of the consumer of the stream. The stream must be closed.
+	 *
+	 * @param directory
+	 *            the root directory
+	 * @return the results, in the order in which they are done
+	 * @throws IOException
+	 *             if the directory cannot be opened
+	 */
+	public Stream<Result> streamDirectory(Path directory) throws IOException {
+		return streamDirectory(directory, new Summary());
+	}
+
+	/**
+	 * Load the structure files of a directory and its subdirectories, ahead
+	 * of the consumer of the stream. The stream must be closed.
+	 *
+	 * @param directory
+	 *            the root directory
+	 * @param summary
+	 *            receives the counts and times of the results consumed
+	 * @return the results, in the order in which they are done
+	 * @throws IOException
+	 *             if the directory cannot be opened
+	 */
+	public Stream<Result> streamDirectory(Path directory, Summary summary) throws IOException {
+		Stream<Path> files = listFiles(directory);
+		return stream(new Batch(fileTasks(files), summary)).onClose(files::close);
+	}
+
+	private static Stream<Path> listFiles(Path directory) throws IOException {
+		return Files.walk(directory)
+				.filter(Files::isRegularFile)
+				.filter(file -> StructureIO.guessFiletype(file.getFileName().toString()) != StructureFiletype.UNKNOWN)
+				.sorted();
+	}
+
+	private Iterator<Task> idTasks(Iterable<String> ids) {
+		Iterator<String> it = ids.iterator();
+		return new Iterator<Task>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Task next() {
+				String id = it.next();
+				return new Task(id, -1, () -> source.getStructure(id));
+			}
+		};
+	}
+
+	private Iterator<Task> fileTasks(Stream<Path> files) {
+		FileParsingParameters fileParams = params;
+		return files.map(file -> new Task(file.toString(), estimateAtoms(file),
+				() -> read(file, fileParams))).iterator();
+	}
+
+	/**
+	 * An overestimate of the atoms of a structure file from its size: about
+	 * 80 bytes per atom in text files, 20 when gzipped and 5 in binary files.
+	 */
+	static long estimateAtoms(Path file) {
+		long size;
+		try {
+			size = Files.size(file);
+		} catch (IOException e) {
+			return -1;
+		}
+		String name = file.getFileName().toString().toLowerCase();
+		StructureFiletype type = StructureIO.guessFiletype(name);
+		int bytesPerAtom;
+		if (type == StructureFiletype.BCIF || type == StructureFiletype.MMTF)
+			bytesPerAtom = 5;
+		else if (name.endsWith(".gz") || name.endsWith(".z"))
+			bytesPerAtom = 20;
+		else
+			bytesPerAtom = 80;
+		return Math.max(1, size / bytesPerAtom);
+	}
+
+	private static Structure read(Path file, FileParsingParameters params) throws IOException {
+		StructureFiletype type = StructureIO.guessFiletype(file.getFileName().toString());
+		try (InputStream in = new InputStreamProvider().getInputStream(file.toFile())) {
+			switch (type) {
+			case PDB:
+				PDBFileParser parser = new PDBFileParser();
+				parser.setFileParsingParameters(params);
+				return parser.parsePDBFile(in);
+			case CIF:
+			case BCIF:
+				return CifStructureConverter.fromInputStream(in, params);
+			case MMTF:
+				// MMTF files are read without parsing parameters
+				return MmtfActions.readFromInputStream(in);
+			default:
+				throw new IOException("Unknown file type: " + file);
+			}
+		}
+	}
+
+	private Stream<Result> stream(Batch batch) {
+		Spliterator<Result> spliterator = new Spliterators.AbstractSpliterator<Result>(Long.MAX_VALUE,
+				Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super Result> action) {
+				Result result = batch.next();
+				if (result == null)
+					return false;
+				action.accept(result);
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	@FunctionalInterface
+	private interface Loading {
+		Structure load() throws IOException, StructureException;
+	}
+
+	private static class Task {
+		final String id;
+		final long estimate;
+		final Loading loading;
+
+		/**
+		 * @param estimate
+		 *            the estimated atoms, or -1 if unknown
+		 */
+		Task(String id, long estimate, Loading loading) {
+			this.id = id;
+			this.estimate = estimate;
+			this.loading = loading;
+		}
+	}
+
+	/**
+	 * The state of one batch. Tasks are submitted and results delivered on
+	 * the consuming thread; only the atoms in flight are updated by the
+	 * executor.
+	 */
+	private class Batch {
+		final Iterator<Task> tasks;
+		final Summary summary;
+		final BlockingQueue<Result> completed = new LinkedBlockingQueue<>();
+		final AtomicLong atomsInFlight = new AtomicLong();
+		int inFlight;
+		// the next task, held back by the atom budget
+		Task pending;
+
+		Batch(Iterator<Task> tasks, Summary summary) {
+			this.tasks = tasks;
+			this.summary = summary;
+		}
+
+		/**
+		 * @return the next result, or null when all are delivered
+		 */
+		Result next() {
+			submit();
+			if (inFlight == 0)
+				return null;
+			Result result = take();
+			inFlight--;
+			atomsInFlight.addAndGet(-result.atoms);
+			record(result);
+			return result;
+		}
+
+		private void submit() {
+			while (inFlight < maxInFlight) {
+				if (pending == null) {
+					if (!tasks.hasNext())
+						return;
+					pending = tasks.next();
+				}
+				long estimate = pending.estimate >= 0 ? pending.estimate : meanAtoms();
+				if (inFlight > 0 && atomsInFlight.get() + estimate > maxAtomsInFlight)
+					return;
+				Task task = pending;
+				// raised before the hand-over, since a caller-runs policy loads right away
+				long atoms = atomsInFlight.addAndGet(estimate);
+				inFlight++;
+				try {
+					executor.execute(() -> run(task, estimate));
+				} catch (RuntimeException e) {
+					// rejected, for instance after shutdown: keep the task for a later attempt
+					inFlight--;
+					atomsInFlight.addAndGet(-estimate);
+					throw e;
+				}
+				pending = null;
+				summary.peakAtoms.accumulateAndGet(atoms, Math::max);
+			}
+		}
+
+		/** Load a structure, on a thread of the executor */
+		private void run(Task task, long estimate) {
+			Result result;
+			long start = System.nanoTime();
+			try {
+				Structure structure = task.loading.load();
+				int atoms = StructureTools.getNrAtoms(structure);
+				result = new Result(task.id, structure, null, System.nanoTime() - start, atoms);
+			} catch (Exception | Error e) {
+				result = new Result(task.id, null, e, System.nanoTime() - start, 0);
+			}
+			// replace the estimate by the loaded atoms until the result is delivered
+			summary.peakAtoms.accumulateAndGet(atomsInFlight.addAndGet(result.atoms - estimate), Math::max);
+			completed.add(result);
+		}
+
+		private Result take() {
+			try {
+				return completed.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while loading structures", e);
+			}
+		}
+
+		private void record(Result result) {
+			if (result.failure instanceof Error)
+				throw (Error) result.failure;
+			summary.totalNanos += result.nanos;
+			summary.maxNanos = Math.max(summary.maxNanos, result.nanos);
+			if (result.failure != null) {
+				summary.failed++;
+				logger.warn("Could not load {}: {}", result.id, result.failure.getMessage());
+			} else {
+				summary.loaded++;
+				summary.loadedAtoms += result.atoms;
+			}
+		}
+
+		private long meanAtoms() {
+			return summary.loaded == 0 ? DEFAULT_ATOMS : Math.max(1, summary.loadedAtoms / summary.loaded);
+		}
+	}
+}
@@ -0,0 +1,653 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.rcsb.cif.model.Block;
+import org.rcsb.cif.model.Category;
+import org.rcsb.cif.model.CifFile;
+import org.rcsb.cif.model.Column;
+import org.rcsb.cif.model.FloatColumn;
+import org.rcsb.cif.model.IntColumn;
+import org.rcsb.cif.model.ValueKind;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes structures in PDB or mmCIF format straight to an
+ * {@link OutputStream} or a {@link WritableByteChannel}.
+ * <p>
+ * The output is byte for byte that of {@link FileConvert#toPDB()} and
+ * {@link FileConvert#toMMCIF()}, encoded as UTF-8, but it is never held in
+ * memory as a whole: lines are formatted into a reused buffer that is written
+ * out whenever it is full. Numbers are formatted without
+ * {@link java.text.DecimalFormat}, which is slow and, as the shared instances
+ * of FileConvert and of the mmCIF text writer, not thread-safe.
+ * <p>
+ * A writer can be used by many threads at once, for the same structure or for
+ * different ones, as long as the structures are not modified meanwhile.
+ * <p>
+ * Example:
+ * <pre>
+ * StructureWriter writer = new StructureWriter(StructureFiletype.CIF);
+ * try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+ *     writer.write(structure, out);
+ * }
+ * </pre>
+ *
+ * @since 7.2.3
+ */
+public class StructureWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final String newline = System.getProperty("line.separator");
+
+	private static final String TER = String.format("%-80s", "TER");
+
+	private static final String ENDMDL = String.format("%-80s", "ENDMDL");
+
+	private static final String CONECT_PADDING = String.format("%64s", "");
+
+	private final StructureFiletype filetype;
+
+	private volatile boolean printConnections = true;
+
+	/**
+	 * @param filetype
+	 *            {@link StructureFiletype#PDB} or {@link StructureFiletype#CIF}
+	 */
+	public StructureWriter(StructureFiletype filetype) {
+		if (filetype != StructureFiletype.PDB && filetype != StructureFiletype.CIF)
+			throw new IllegalArgumentException("Can only write PDB or mmCIF, not " + filetype);
+		this.filetype = filetype;
+	}
+
+	public StructureFiletype getFiletype() {
+		return filetype;
+	}
+
+	/**
+	 * Returns if the CONECT records of the bonds are written in PDB format;
+	 * default is true, as in {@link FileConvert}.
+	 * @return if the printConnections flag is set
+	 */
+	public boolean doPrintConnections() {
+		return printConnections;
+	}
+
+	/**
+	 * Enables/disables writing the CONECT records of the bonds in PDB format.
+	 * @param printConnections
+	 */
+	public void setPrintConnections(boolean printConnections) {
+		this.printConnections = printConnections;
+	}
+
+	/**
+	 * Writes a structure to a stream, which is flushed but not closed.
+	 * @param structure
+	 * @param out
+	 * @throws IOException if writing to the stream fails
+	 */
+	public void write(Structure structure, OutputStream out) throws IOException {
+		Output output = new Output(out, null);
+		write(structure, output);
+		out.flush();
+	}
+
+	/**
+	 * Writes a structure to a channel, which is not closed.
+	 * @param structure
+	 * @param channel
+	 * @throws IOException if writing to the channel fails
+	 */
+	public void write(Structure structure, WritableByteChannel channel) throws IOException {
+		write(structure, new Output(null, channel));
+	}
+
+	private void write(Structure structure, Output out) throws IOException {
+		if (filetype == StructureFiletype.PDB)
+			writePDB(structure, out);
+		else
+			writeCif(structure, out);
+		out.flush();
+	}
+
+	/**
+	 * As {@link FileConvert#toPDB()}.
+	 */
+	private void writePDB(Structure structure, Output out) throws IOException {
+		StringBuffer header = new StringBuffer();
+		FileConvert.toPDBHeader(structure, header);
+		out.appendLines(header);
+
+		PdbAtoms atoms = new PdbAtoms(out);
+		int nrModels = structure.nrModels();
+		if (structure.isNmr()) {
+			out.append("EXPDTA    NMR, ");
+			out.appendInt(nrModels, 0);
+			out.append(" STRUCTURES");
+			out.newline();
+		}
+		for (int m = 0; m < nrModels; m++) {
+			if (nrModels > 1) {
+				out.append("MODEL      ");
+				out.appendInt(m + 1, 0);
+				out.newline();
+			}
+
+			for (Chain chain : structure.getPolyChains(m)) {
+				int nrGroups = chain.getAtomLength();
+				for (int h = 0; h < nrGroups; h++)
+					atoms.write(chain.getAtomGroup(h));
+				// End any polymeric chain with a "TER" record
+				if (nrGroups > 0)
+					out.line(TER);
+			}
+
+			boolean nonPolyGroupsExist = false;
+			for (Chain chain : structure.getNonPolyChains(m)) {
+				int nrGroups = chain.getAtomLength();
+				for (int h = 0; h < nrGroups; h++) {
+					atoms.write(chain.getAtomGroup(h));
+					nonPolyGroupsExist = true;
+				}
+			}
+			if (nonPolyGroupsExist)
+				out.line(TER);
+
+			boolean waterGroupsExist = false;
+			for (Chain chain : structure.getWaterChains(m)) {
+				int nrGroups = chain.getAtomLength();
+				for (int h = 0; h < nrGroups; h++) {
+					atoms.write(chain.getAtomGroup(h));
+					waterGroupsExist = true;
+				}
+			}
+			if (waterGroupsExist)
+				out.line(TER);
+
+			if (nrModels > 1)
+				out.line(ENDMDL);
+		}
+
+		if (printConnections) {
+			for (Chain c : structure.getChains()) {
+				for (Group g : c.getAtomGroups()) {
+					for (Atom a : g.getAtoms()) {
+						if (a.getBonds() == null)
+							continue;
+						for (Bond b : a.getBonds()) {
+							out.append("CONECT");
+							out.appendInt(b.getAtomA().getPDBserial(), 5);
+							out.appendInt(b.getAtomB().getPDBserial(), 5);
+							out.line(CONECT_PADDING);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The ATOM and HETATM records of the groups of one structure, as
+	 * {@link FileConvert#toPDB(Atom, StringBuffer)}.
+	 */
+	private static final class PdbAtoms {
+
+		private final Output out;
+
+		// the element symbols, as toUpperCase() in the default locale
+		private final String[] elements = new String[Element.values().length];
+
+		// the columns of the atoms of the last group, from the residue name to the coordinates
+		private Group group;
+		private String record;
+		private String residue;
+
+		PdbAtoms(Output out) {
+			this.out = out;
+		}
+
+		void write(Group g) throws IOException {
+			int groupsize = g.size();
+			for (int atompos = 0; atompos < groupsize; atompos++) {
+				Atom a = g.getAtom(atompos);
+				if (a == null)
+					continue;
+				write(a);
+			}
+			if (g.hasAltLoc()) {
+				for (Group alt : g.getAltLocs())
+					write(alt);
+			}
+		}
+
+		private void write(Atom a) throws IOException {
+			Group g = a.getGroup();
+			if (g != group) {
+				record = g.getType().equals(GroupType.HETATM) ? "HETATM" : "ATOM  ";
+				String pdbcode = g.getResidueNumber().toString();
+				String resseq = FileConvert.hasInsertionCode(pdbcode)
+						? String.format("%5s", pdbcode)
+						: String.format("%4s", pdbcode) + " ";
+				residue = String.format("%3s", g.getPDBName()) + " " + g.getChain().getName() + resseq + "   ";
+				group = g;
+			}
+
+			out.append(record);
+			out.appendInt(a.getPDBserial(), 5);
+			out.append(' ');
+			appendAtomName(a);
+			Character altLoc = a.getAltLoc();
+			out.append(altLoc == null ? ' ' : altLoc);
+			out.append(residue);
+			out.appendNumber(FixedPointFormat.PDB_COORDINATE, a.getX(), 8);
+			out.appendNumber(FixedPointFormat.PDB_COORDINATE, a.getY(), 8);
+			out.appendNumber(FixedPointFormat.PDB_COORDINATE, a.getZ(), 8);
+			out.appendNumber(FixedPointFormat.PDB_FACTOR, a.getOccupancy(), 6);
+			out.appendNumber(FixedPointFormat.PDB_FACTOR, a.getTempFactor(), 6);
+			out.padTo(76);
+			String element = element(a.getElement());
+			out.spaces(2 - element.length());
+			out.append(element);
+			out.newline();
+		}
+
+		/**
+		 * As FileConvert.formatAtomName(Atom), without building the padded name.
+		 */
+		private void appendAtomName(Atom a) throws IOException {
+			String name = a.getName();
+			switch (name.length()) {
+			case 4:
+				out.append(name);
+				break;
+			case 3:
+				out.append(' ');
+				out.append(name);
+				break;
+			case 2:
+				Element element = a.getElement();
+				if (element == Element.C || element == Element.N || element == Element.O || element == Element.P || element == Element.S) {
+					out.append(' ');
+					out.append(name);
+					out.append(' ');
+				} else {
+					out.append(name);
+					out.spaces(2);
+				}
+				break;
+			case 1:
+				out.append(' ');
+				out.append(name);
+				out.spaces(2);
+				break;
+			default:
+				out.append("null");
+			}
+		}
+
+		private String element(Element e) {
+			String s = elements[e.ordinal()];
+			if (s == null) {
+				s = e.equals(Element.R) ? "X" : e.toString().toUpperCase();
+				elements[e.ordinal()] = s;
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * As {@link FileConvert#toMMCIF()}: the CifFile of the structure, written
+	 * as the mmCIF text writer of ciftools does.
+	 */
+	private void writeCif(Structure structure, Output out) throws IOException {
+		CifFile cifFile = CifStructureConverter.toCifFile(structure);
+		for (Block block : cifFile.getBlocks()) {
+			String header = block.getBlockHeader();
+			out.append("data_");
+			out.append(header != null ? header.replaceAll("[ \n\t]", "").toUpperCase() : "UNKNOWN");
+			out.append("\n#\n");
+
+			for (Category c : block.getCategories().values()) {
+				Category category = block.getCategory(c.getCategoryName());
+				if (category.getRowCount() == 0)
+					continue;
+				List<Column<?>> columns = new ArrayList<>(category.getColumns().values());
+				if (columns.isEmpty())
+					continue;
+				if (category.getRowCount() == 1)
+					writeCifSingleRecord(out, category, columns);
+				else
+					writeCifLoop(out, category, columns);
+			}
+		}
+	}
+
+	private static void writeCifSingleRecord(Output out, Category category, List<Column<?>> columns) throws IOException {
+		int width = 0;
+		for (Column<?> column : columns)
+			width = Math.max(width, column.getColumnName().length());
+		width += 6 + category.getCategoryName().length();
+
+		for (Column<?> column : columns) {
+			String name = "_" + category.getCategoryName() + "." + column.getColumnName();
+			out.append(name);
+			out.spaces(width - name.length());
+			FixedPointFormat format = cifFormat(column);
+			for (int row = 0; row < column.getRowCount(); row++) {
+				if (!writeCifValue(out, column, format, row))
+					out.append('\n');
+			}
+		}
+		out.append("#\n");
+	}
+
+	private static void writeCifLoop(Output out, Category category, List<Column<?>> columns) throws IOException {
+		out.append("loop_\n");
+		FixedPointFormat[] formats = new FixedPointFormat[columns.size()];
+		for (int i = 0; i < formats.length; i++) {
+			Column<?> column = columns.get(i);
+			out.append('_');
+			out.append(category.getCategoryName());
+			out.append('.');
+			out.append(column.getColumnName());
+			out.append('\n');
+			formats[i] = cifFormat(column);
+		}
+
+		int rowCount = columns.get(0).getRowCount();
+		for (int row = 0; row < rowCount; row++) {
+			boolean multiline = false;
+			for (int i = 0; i < formats.length; i++)
+				multiline = writeCifValue(out, columns.get(i), formats[i], row);
+			if (!multiline)
+				out.append('\n');
+		}
+		out.append("#\n");
+	}
+
+	private static FixedPointFormat cifFormat(Column<?> column) {
+		switch (column.getColumnName()) {
+		case "Cartn_x":
+		case "Cartn_y":
+		case "Cartn_z":
+			return FixedPointFormat.CIF_COORDINATE;
+		case "occupancy":
+			return FixedPointFormat.CIF_OCCUPANCY;
+		default:
+			return FixedPointFormat.CIF_FLOAT;
+		}
+	}
+
+	/**
+	 * @return true if the value ended with a line break
+	 */
+	private static boolean writeCifValue(Output out, Column<?> column, FixedPointFormat format, int row) throws IOException {
+		ValueKind kind = column.getValueKind(row);
+		if (kind != ValueKind.PRESENT) {
+			out.append(kind == ValueKind.NOT_PRESENT ? ". " : "? ");
+			return false;
+		}
+		if (column instanceof IntColumn) {
+			out.appendInt(((IntColumn) column).get(row), 0);
+			out.append(' ');
+			return false;
+		}
+		if (column instanceof FloatColumn) {
+			out.appendNumber(format, ((FloatColumn) column).get(row), 0);
+			out.append(' ');
+			return false;
+		}
+
+		String s = column.getStringData(row);
+		if (s.contains("\n")) {
+			writeCifMultiline(out, s);
+			return true;
+		}
+		return writeCifChecked(out, s);
+	}
+
+	private static void writeCifMultiline(Output out, String s) throws IOException {
+		out.append("\n;");
+		out.append(s);
+		out.append("\n;\n");
+	}
+
+	/**
+	 * Writes a text value, quoted if it has to be.
+	 * @return true if the value ended with a line break
+	 */
+	private static boolean writeCifChecked(Output out, String s) throws IOException {
+		if (s == null || s.isEmpty()) {
+			out.append(". ");
+			return false;
+		}
+
+		boolean escape = s.charAt(0) == '_';
+		char quote = '\'';
+		boolean whitespace = false;
+		boolean singleQuote = false;
+		boolean doubleQuote = false;
+		for (int i = 0; i < s.length(); i++) {
+			switch (s.charAt(i)) {
+			case '\t':
+			case ' ':
+				whitespace = true;
+				break;
+			case '\n':
+				writeCifMultiline(out, s);
+				return true;
+			case '"':
+				if (singleQuote) {
+					writeCifMultiline(out, s);
+					return true;
+				}
+				doubleQuote = true;
+				escape = true;
+				quote = '\'';
+				break;
+			case '\'':
+				if (doubleQuote) {
+					writeCifMultiline(out, s);
+					return true;
+				}
+				singleQuote = true;
+				escape = true;
+				quote = '"';
+				break;
+			default:
+				break;
+			}
+		}
+
+		char first = s.charAt(0);
+		if (!escape && (first == '#' || first == '$' || first == ';' || first == '[' || first == ']' || whitespace)) {
+			escape = true;
+			quote = '\'';
+		}
+
+		if (escape) {
+			out.append(quote);
+			out.append(s);
+			out.append(quote);
+		} else {
+			out.append(s);
+		}
+		out.append(' ');
+		return false;
+	}
+
+	/**
+	 * A buffer of UTF-8 text in front of a stream or a channel, which keeps
+	 * track of the characters of the current line for padding.
+	 */
+	private static final class Output {
+
+		private final OutputStream stream;
+		private final WritableByteChannel channel;
+		private final byte[] buf = new byte[BUFFER_SIZE];
+		private final ByteBuffer bytes = ByteBuffer.wrap(buf);
+		private final byte[] number = new byte[FixedPointFormat.MAX_LENGTH];
+		private int pos;
+		private int column;
+
+		Output(OutputStream stream, WritableByteChannel channel) {
+			this.stream = stream;
+			this.channel = channel;
+		}
+
+		void append(CharSequence s) throws IOException {
+			int n = s.length();
+			for (int i = 0; i < n; i++) {
+				char c = s.charAt(i);
+				if (c >= 0x80) {
+					append(s.subSequence(i, n).toString().getBytes(StandardCharsets.UTF_8));
+					break;
+				}
+				if (pos == buf.length)
+					flush();
+				buf[pos++] = (byte) c;
+			}
+			column += n;
+		}
+
+		/**
+		 * Appends text that may span several lines.
+		 */
+		void appendLines(CharSequence s) throws IOException {
+			append(s);
+			for (int i = s.length() - 1; i >= 0; i--) {
+				if (s.charAt(i) == '\n') {
+					column = s.length() - 1 - i;
+					break;
+				}
+			}
+		}
+
+		void append(char c) throws IOException {
+			if (c >= 0x80) {
+				append(String.valueOf(c));
+				return;
+			}
+			if (pos == buf.length)
+				flush();
+			buf[pos++] = (byte) c;
+			column++;
+		}
+
+		private void append(byte[] b) throws IOException {
+			for (int off = 0; off < b.length; ) {
+				if (pos == buf.length)
+					flush();
+				int n = Math.min(b.length - off, buf.length - pos);
+				System.arraycopy(b, off, buf, pos, n);
+				pos += n;
+				off += n;
+			}
+		}
+
+		void spaces(int n) throws IOException {
+			for (int i = 0; i < n; i++)
+				append(' ');
+		}
+
+		void padTo(int width) throws IOException {
+			spaces(width - column);
+		}
+
+		/**
+		 * Appends an integer right-justified in a width, as {@code %5d}.
+		 */
+		void appendInt(long v, int width) throws IOException {
+			int length = 0;
+			if (v < 0) {
+				number[length++] = '-';
+				if (v == Long.MIN_VALUE) {
+					append(Long.toString(v));
+					return;
+				}
+			}
+			length = FixedPointFormat.digits(Math.abs(v), 1, number, length);
+			appendNumber(length, width);
+		}
+
+		/**
+		 * Appends a number right-justified in a width, as {@code %8s}.
+		 */
+		void appendNumber(FixedPointFormat format, double v, int width) throws IOException {
+			int length = format.format(v, number, 0);
+			if (length < 0) {
+				String s = format.format(v);
+				spaces(width - s.length());
+				append(s);
+				return;
+			}
+			appendNumber(length, width);
+		}
+
+		private void appendNumber(int length, int width) throws IOException {
+			if (buf.length - pos < Math.max(length, width))
+				flush();
+			for (int i = length; i < width; i++)
+				buf[pos++] = ' ';
+			System.arraycopy(number, 0, buf, pos, length);
+			pos += length;
+			column += Math.max(length, width);
+		}
+
+		void line(String s) throws IOException {
+			append(s);
+			newline();
+		}
+
+		void newline() throws IOException {
+			append(StructureWriter.newline);
+			column = 0;
+		}
+
+		void flush() throws IOException {
+			if (stream != null) {
+				stream.write(buf, 0, pos);
+			} else {
+				bytes.clear().limit(pos);
+				while (bytes.hasRemaining())
+					channel.write(bytes);
+			}
+			pos = 0;
+		}
+	}
+}
@@ -32,6 +32,8 @@ import org.biojava.nbio.structure.Group;
 import org.biojava.nbio.structure.GroupType;
 import org.biojava.nbio.structure.HetatomImpl;
 import org.biojava.nbio.structure.NucleotideImpl;
+import org.biojava.nbio.structure.PackedAtomArrays;
+import org.biojava.nbio.structure.PackedAtomList;
 import org.biojava.nbio.structure.PDBCrystallographicInfo;
 import org.biojava.nbio.structure.PDBHeader;
 import org.biojava.nbio.structure.PdbId;
@@ -179,193 +181,359 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
             return;
         }
 
-        StrColumn labelAsymId = atomSite.getLabelAsymId();
-        StrColumn authAsymId = atomSite.getAuthAsymId();
+        AtomSiteColumns columns = new AtomSiteColumns(atomSite);
 
-        StrColumn groupPDB = atomSite.getGroupPDB();
-        IntColumn authSeqId = atomSite.getAuthSeqId();
+        if (params.isColumnarIngest() && !params.isParseCAOnly()) {
+            consumeAtomSiteColumnar(columns, atomSite.getRowCount());
+            return;
+        }
 
-        StrColumn labelCompId = atomSite.getLabelCompId();
+        for (int atomIndex = 0; atomIndex < atomSite.getRowCount(); atomIndex++) {
+            Group altGroup = startAtomSiteRow(columns, atomIndex);
+            addAtomSiteRow(columns, atomIndex, altGroup);
+        }
+    }
 
-        IntColumn id = atomSite.getId();
-        StrColumn labelAtomId = atomSite.getLabelAtomId();
+    /**
+     * Moves to the model, chain and group of the given atom_site row, creating them as needed.
+     * @return the alt loc group the atom of the row belongs to, or null if it belongs to the current group
+     */
+    private Group startAtomSiteRow(AtomSiteColumns columns, int atomIndex) {
+        boolean startOfNewChain = false;
+        Character oneLetterCode = StructureTools.get1LetterCodeAmino(columns.labelCompId.get(atomIndex));
 
-        FloatColumn cartnX = atomSite.getCartnX();
-        FloatColumn cartnY = atomSite.getCartnY();
-        FloatColumn cartnZ = atomSite.getCartnZ();
+        boolean isHetAtmInFile = false;
+        if (!"ATOM".equals(columns.groupPDB.get(atomIndex))) {
+            if (oneLetterCode != null && oneLetterCode.equals(StructureTools.UNKNOWN_GROUP_LABEL)) {
+                oneLetterCode = null;
+            }
 
-        FloatColumn occupancy = atomSite.getOccupancy();
-        FloatColumn bIsoOrEquiv = atomSite.getBIsoOrEquiv();
+            isHetAtmInFile = true;
+        }
 
-        StrColumn labelAltId = atomSite.getLabelAltId();
-        StrColumn typeSymbol = atomSite.getTypeSymbol();
+        String insCodeString = columns.pdbxPDBInsCode.isDefined()? columns.pdbxPDBInsCode.get(atomIndex) : null;
 
-        StrColumn pdbxPDBInsCode = atomSite.getPdbxPDBInsCode();
-        IntColumn labelSeqId = atomSite.getLabelSeqId();
-        IntColumn pdbx_pdb_model_num = atomSite.getPdbxPDBModelNum();
+        Character insCode = null;
+        if (insCodeString != null && !insCodeString.isEmpty() && !"?".equals(insCodeString)) {
+            insCode = insCodeString.charAt(0);
+        }
 
-        for (int atomIndex = 0; atomIndex < atomSite.getRowCount(); atomIndex++) {
-            boolean startOfNewChain = false;
-            Character oneLetterCode = StructureTools.get1LetterCodeAmino(labelCompId.get(atomIndex));
+        // non polymer chains (ligands and small molecules) will have a label_seq_id set to '.'
+        long seqId = columns.labelSeqId.get(atomIndex);
 
-            boolean isHetAtmInFile = false;
-            if (!"ATOM".equals(groupPDB.get(atomIndex))) {
-                if (oneLetterCode != null && oneLetterCode.equals(StructureTools.UNKNOWN_GROUP_LABEL)) {
-                    oneLetterCode = null;
-                }
+        String nmrModelNumber = columns.pdbx_pdb_model_num.getStringData(atomIndex);
 
-                isHetAtmInFile = true;
-            }
-
-            String insCodeString = pdbxPDBInsCode.isDefined()? pdbxPDBInsCode.get(atomIndex) : null;
+        if (currentNmrModelNumber == null) {
+            currentNmrModelNumber = nmrModelNumber;
+        }
+        if (!currentNmrModelNumber.equals(nmrModelNumber)) {
+            currentNmrModelNumber = nmrModelNumber;
 
-            Character insCode = null;
-            if (insCodeString != null && !insCodeString.isEmpty() && !"?".equals(insCodeString)) {
-                insCode = insCodeString.charAt(0);
+            if (currentChain != null) {
+                currentChain.addGroup(currentGroup);
+                currentGroup.trimToSize();
             }
 
-            // non polymer chains (ligands and small molecules) will have a label_seq_id set to '.'
-            long seqId = labelSeqId.get(atomIndex);
+            allModels.add(currentModel);
+            currentModel = new ArrayList<>();
+            currentChain = null;
+            currentGroup = null;
+        }
 
-            String nmrModelNumber = pdbx_pdb_model_num.getStringData(atomIndex);
+        String asymId = columns.labelAsymId.get(atomIndex);
+        String authId = columns.authAsymId.isDefined()? columns.authAsymId.get(atomIndex) : asymId;
 
-            if (currentNmrModelNumber == null) {
-                currentNmrModelNumber = nmrModelNumber;
-            }
-            if (!currentNmrModelNumber.equals(nmrModelNumber)) {
-                currentNmrModelNumber = nmrModelNumber;
+        if (currentChain == null) {
+            currentChain = new ChainImpl();
+            currentChain.setName(authId);
+            currentChain.setId(asymId);
+            currentModel.add(currentChain);
+            startOfNewChain = true;
+        }
 
-                if (currentChain != null) {
-                    currentChain.addGroup(currentGroup);
-                    currentGroup.trimToSize();
-                }
+        if (!asymId.equals(currentChain.getId())) {
+            startOfNewChain = true;
 
-                allModels.add(currentModel);
-                currentModel = new ArrayList<>();
-                currentChain = null;
-                currentGroup = null;
-            }
+            currentChain.addGroup(currentGroup);
 
-            String asymId = labelAsymId.get(atomIndex);
-            String authId = authAsymId.isDefined()? authAsymId.get(atomIndex) : asymId;
+            Optional<Chain> testChain = currentModel.stream()
+                    .filter(chain -> chain.getId().equals(asymId))
+                    .findFirst();
 
-            if (currentChain == null) {
+            if (testChain.isPresent()) {
+                currentChain = testChain.get();
+            } else {
                 currentChain = new ChainImpl();
                 currentChain.setName(authId);
                 currentChain.setId(asymId);
-                currentModel.add(currentChain);
-                startOfNewChain = true;
             }
 
-            if (!asymId.equals(currentChain.getId())) {
-                startOfNewChain = true;
-
-                currentChain.addGroup(currentGroup);
-
-                Optional<Chain> testChain = currentModel.stream()
-                        .filter(chain -> chain.getId().equals(asymId))
-                        .findFirst();
-
-                if (testChain.isPresent()) {
-                    currentChain = testChain.get();
-                } else {
-                    currentChain = new ChainImpl();
-                    currentChain.setName(authId);
-                    currentChain.setId(asymId);
-                }
-
-                if (!currentModel.contains(currentChain)) {
-                    currentModel.add(currentChain);
-                }
+            if (!currentModel.contains(currentChain)) {
+                currentModel.add(currentChain);
             }
+        }
 
-            int authSeqIdInt = authSeqId.isDefined()? authSeqId.get(atomIndex) : (int)seqId;
+        int authSeqIdInt = columns.authSeqId.isDefined()? columns.authSeqId.get(atomIndex) : (int)seqId;
 
-            ResidueNumber residueNumber = new ResidueNumber(authId, authSeqIdInt, insCode);
+        ResidueNumber residueNumber = new ResidueNumber(authId, authSeqIdInt, insCode);
 
-            String recordName = groupPDB.get(atomIndex);
-            String compId = labelCompId.get(atomIndex);
-            if (currentGroup == null) {
-                currentGroup = createGroup(recordName, oneLetterCode, compId, seqId);
-                currentGroup.setResidueNumber(residueNumber);
-                currentGroup.setPDBName(compId);
-                currentGroup.setHetAtomInFile(isHetAtmInFile);
-            }
+        String recordName = columns.groupPDB.get(atomIndex);
+        String compId = columns.labelCompId.get(atomIndex);
+        if (currentGroup == null) {
+            currentGroup = createGroup(recordName, oneLetterCode, compId, seqId);
+            currentGroup.setResidueNumber(residueNumber);
+            currentGroup.setPDBName(compId);
+            currentGroup.setHetAtomInFile(isHetAtmInFile);
+        }
 
-            Group altGroup = null;
-            String altLocation = labelAltId.isDefined()? labelAltId.get(atomIndex) : null;
+        Group altGroup = null;
+        String altLocation = columns.labelAltId.isDefined()? columns.labelAltId.get(atomIndex) : null;
 
-            if (startOfNewChain) {
+        if (startOfNewChain) {
+            currentGroup = createGroup(recordName, oneLetterCode, compId, seqId);
+            currentGroup.setResidueNumber(residueNumber);
+            currentGroup.setPDBName(compId);
+            currentGroup.setHetAtomInFile(isHetAtmInFile);
+        } else {
+            if (!residueNumber.equals(currentGroup.getResidueNumber())) {
+                currentChain.addGroup(currentGroup);
+                currentGroup.trimToSize();
                 currentGroup = createGroup(recordName, oneLetterCode, compId, seqId);
-                currentGroup.setResidueNumber(residueNumber);
                 currentGroup.setPDBName(compId);
+                currentGroup.setResidueNumber(residueNumber);
                 currentGroup.setHetAtomInFile(isHetAtmInFile);
             } else {
-                if (!residueNumber.equals(currentGroup.getResidueNumber())) {
-                    currentChain.addGroup(currentGroup);
-                    currentGroup.trimToSize();
-                    currentGroup = createGroup(recordName, oneLetterCode, compId, seqId);
-                    currentGroup.setPDBName(compId);
-                    currentGroup.setResidueNumber(residueNumber);
-                    currentGroup.setHetAtomInFile(isHetAtmInFile);
-                } else {
-                    if (altLocation != null && !altLocation.isEmpty() && !".".equals(altLocation)) {
-                        altGroup = getAltLocGroup(recordName, altLocation.charAt(0), oneLetterCode, compId, seqId);
-                        if (altGroup.getChain() == null) {
-                            altGroup.setChain(currentChain);
-                        }
+                if (altLocation != null && !altLocation.isEmpty() && !".".equals(altLocation)) {
+                    altGroup = getAltLocGroup(recordName, altLocation.charAt(0), oneLetterCode, compId, seqId);
+                    if (altGroup.getChain() == null) {
+                        altGroup.setChain(currentChain);
                     }
                 }
             }
+        }
 
-            if (params.isParseCAOnly()) {
-                if (!labelAtomId.get(atomIndex).equals(StructureTools.CA_ATOM_NAME) && "C".equals(typeSymbol.get(atomIndex))) {
-                    continue;
-                }
+        return altGroup;
+    }
+
+    /**
+     * Creates the atom of the given atom_site row and adds it to the current group.
+     */
+    private void addAtomSiteRow(AtomSiteColumns columns, int atomIndex, Group altGroup) {
+        String altLocation = columns.labelAltId.isDefined()? columns.labelAltId.get(atomIndex) : null;
+
+        if (params.isParseCAOnly()) {
+            if (!columns.labelAtomId.get(atomIndex).equals(StructureTools.CA_ATOM_NAME) && "C".equals(columns.typeSymbol.get(atomIndex))) {
+                return;
             }
+        }
 
-            Atom atom = new AtomImpl();
+        Atom atom = new AtomImpl();
 
-            atom.setPDBserial(id.get(atomIndex));
-            atom.setName(labelAtomId.get(atomIndex));
+        atom.setPDBserial(columns.id.get(atomIndex));
+        atom.setName(columns.labelAtomId.get(atomIndex));
 
-            atom.setX(cartnX.get(atomIndex));
-            atom.setY(cartnY.get(atomIndex));
-            atom.setZ(cartnZ.get(atomIndex));
+        atom.setX(columns.cartnX.get(atomIndex));
+        atom.setY(columns.cartnY.get(atomIndex));
+        atom.setZ(columns.cartnZ.get(atomIndex));
 
-            atom.setOccupancy((float) (occupancy.isDefined()? occupancy.get(atomIndex) : 1.0));
-            atom.setTempFactor((float) bIsoOrEquiv.get(atomIndex));
+        atom.setOccupancy((float) (columns.occupancy.isDefined()? columns.occupancy.get(atomIndex) : 1.0));
+        atom.setTempFactor((float) columns.bIsoOrEquiv.get(atomIndex));
 
-            if (altLocation == null || altLocation.isEmpty() || ".".equals(altLocation)) {
-                atom.setAltLoc(' ');
-            } else {
-                atom.setAltLoc(altLocation.charAt(0));
+        if (altLocation == null || altLocation.isEmpty() || ".".equals(altLocation)) {
+            atom.setAltLoc(' ');
+        } else {
+            atom.setAltLoc(altLocation.charAt(0));
+        }
+
+        String ts = columns.typeSymbol.get(atomIndex);
+        try {
+            Element element = Element.valueOfIgnoreCase(ts);
+            atom.setElement(element);
+        }  catch (IllegalArgumentException e) {
+            logger.info("Element {} was not recognised as a BioJava-known element, the element will be " +
+                    "represented as the generic element {}", ts, Element.R.name());
+            atom.setElement(Element.R);
+        }
+
+        if (altGroup != null) {
+            altGroup.addAtom(atom);
+        } else {
+            currentGroup.addAtom(atom);
+        }
+
+        String atomName = atom.getName();
+        if (!currentGroup.hasAtom(atomName)) {
+            if (currentGroup.getPDBName().equals(atom.getGroup().getPDBName())) {
+                if (!StructureTools.hasNonDeuteratedEquiv(atom, currentGroup)) {
+                    currentGroup.addAtom(atom);
+                }
             }
+        }
+    }
 
-            String ts = typeSymbol.get(atomIndex);
-            try {
-                Element element = Element.valueOfIgnoreCase(ts);
-                atom.setElement(element);
-            }  catch (IllegalArgumentException e) {
-                logger.info("Element {} was not recognised as a BioJava-known element, the element will be " +
-                        "represented as the generic element {}", ts, Element.R.name());
-                atom.setElement(Element.R);
+    /**
+     * Columnar ingest of the atom_site category, see {@link FileParsingParameters#setColumnarIngest(boolean)}.
+     * The rows are split into residues by a run-length scan of the model, chain and residue number columns. The
+     * atoms of each model are then copied from the column arrays into one {@link PackedAtomArrays}, and each group
+     * gets a {@link PackedAtomList} over its range. Models, chains and groups are created as in the row-by-row path,
+     * from the first row of each residue. Residues with alternate locations need the alt loc groups of the row-by-row
+     * path, so their rows are read one by one.
+     */
+    private void consumeAtomSiteColumnar(AtomSiteColumns columns, int rowCount) {
+        double[] cartnX = columns.cartnX.getArray();
+        double[] cartnY = columns.cartnY.getArray();
+        double[] cartnZ = columns.cartnZ.getArray();
+        double[] occupancy = columns.occupancy.isDefined()? columns.occupancy.getArray() : null;
+        double[] bIsoOrEquiv = columns.bIsoOrEquiv.getArray();
+        int[] id = columns.id.getArray();
+        String[] labelAtomId = columns.labelAtomId.getArray();
+        String[] typeSymbol = columns.typeSymbol.getArray();
+
+        int[] modelNum = columns.pdbx_pdb_model_num.isDefined()? columns.pdbx_pdb_model_num.getArray() : null;
+        String[] labelAsymId = columns.labelAsymId.getArray();
+        String[] authAsymId = columns.authAsymId.isDefined()? columns.authAsymId.getArray() : labelAsymId;
+        int[] seqNum = columns.authSeqId.isDefined()? columns.authSeqId.getArray() : columns.labelSeqId.getArray();
+        String[] insCode = columns.pdbxPDBInsCode.isDefined()? columns.pdbxPDBInsCode.getArray() : null;
+        String[] labelAltId = columns.labelAltId.isDefined()? columns.labelAltId.getArray() : null;
+
+        // run-length scan: a residue starts wherever the model, chain or residue number changes
+        int[] runStart = new int[rowCount + 1];
+        int runs = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (i == 0
+                    || (modelNum != null && modelNum[i] != modelNum[i - 1])
+                    || !labelAsymId[i].equals(labelAsymId[i - 1])
+                    || !authAsymId[i].equals(authAsymId[i - 1])
+                    || seqNum[i] != seqNum[i - 1]
+                    || (insCode != null && insCode(insCode[i]) != insCode(insCode[i - 1]))) {
+                runStart[runs++] = i;
+            }
+        }
+        runStart[runs] = rowCount;
+
+        boolean[] hasAltLocs = new boolean[runs];
+        if (labelAltId != null) {
+            for (int r = 0; r < runs; r++) {
+                for (int i = runStart[r]; i < runStart[r + 1]; i++) {
+                    if (!labelAltId[i].isEmpty() && !".".equals(labelAltId[i])) {
+                        hasAltLocs[r] = true;
+                        break;
+                    }
+                }
             }
+        }
 
-            if (altGroup != null) {
-                altGroup.addAtom(atom);
-            } else {
-                currentGroup.addAtom(atom);
+        Map<String, Element> elements = new HashMap<>();
+        int run = 0;
+        while (run < runs) {
+            // the residues of one model share its arrays
+            int modelEnd = run + 1;
+            while (modelEnd < runs && (modelNum == null || modelNum[runStart[modelEnd]] == modelNum[runStart[run]])) {
+                modelEnd++;
             }
 
-            String atomName = atom.getName();
-            if (!currentGroup.hasAtom(atomName)) {
-                if (currentGroup.getPDBName().equals(atom.getGroup().getPDBName())) {
-                    if (!StructureTools.hasNonDeuteratedEquiv(atom, currentGroup)) {
-                        currentGroup.addAtom(atom);
+            int size = 0;
+            for (int r = run; r < modelEnd; r++) {
+                if (!hasAltLocs[r]) {
+                    size += runStart[r + 1] - runStart[r];
+                }
+            }
+            PackedAtomArrays arrays = new PackedAtomArrays(size);
+            double[] coords = arrays.getCoordinates();
+            float[] occupancies = arrays.getOccupancies();
+            float[] tempFactors = arrays.getTempFactors();
+            byte[] elementCodes = arrays.getElementCodes();
+            String[] names = arrays.getNames();
+            int[] serials = arrays.getSerials();
+            char[] altLocs = arrays.getAltLocCodes();
+
+            int offset = 0;
+            for (int r = run; r < modelEnd; r++) {
+                int from = runStart[r];
+                int to = runStart[r + 1];
+                if (hasAltLocs[r]) {
+                    for (int i = from; i < to; i++) {
+                        addAtomSiteRow(columns, i, startAtomSiteRow(columns, i));
                     }
+                    continue;
+                }
+
+                startAtomSiteRow(columns, from);
+                int start = offset;
+                for (int i = from; i < to; i++, offset++) {
+                    coords[3 * offset] = cartnX[i];
+                    coords[3 * offset + 1] = cartnY[i];
+                    coords[3 * offset + 2] = cartnZ[i];
+                    occupancies[offset] = (float) (occupancy != null? occupancy[i] : 1.0);
+                    tempFactors[offset] = (float) bIsoOrEquiv[i];
+                    elementCodes[offset] = (byte) elements.computeIfAbsent(typeSymbol[i], this::toElement).ordinal();
+                    names[offset] = labelAtomId[i];
+                    serials[offset] = id[i];
+                    altLocs[offset] = ' ';
                 }
+                currentGroup.setAtoms(new PackedAtomList(arrays, start, to - from));
             }
+            run = modelEnd;
+        }
+    }
+
+    private static char insCode(String insCode) {
+        if (insCode == null || insCode.isEmpty() || "?".equals(insCode)) {
+            return 0;
+        }
+        return insCode.charAt(0);
+    }
+
+    private Element toElement(String typeSymbol) {
+        try {
+            return Element.valueOfIgnoreCase(typeSymbol);
+        } catch (IllegalArgumentException e) {
+            logger.info("Element {} was not recognised as a BioJava-known element, the element will be " +
+                    "represented as the generic element {}", typeSymbol, Element.R.name());
+            return Element.R;
+        }
+    }
+
+    /**
+     * The columns of the atom_site category used to create atoms.
+     */
+    private static class AtomSiteColumns {
+        final StrColumn labelAsymId;
+        final StrColumn authAsymId;
+        final StrColumn groupPDB;
+        final IntColumn authSeqId;
+        final StrColumn labelCompId;
+        final IntColumn id;
+        final StrColumn labelAtomId;
+        final FloatColumn cartnX;
+        final FloatColumn cartnY;
+        final FloatColumn cartnZ;
+        final FloatColumn occupancy;
+        final FloatColumn bIsoOrEquiv;
+        final StrColumn labelAltId;
+        final StrColumn typeSymbol;
+        final StrColumn pdbxPDBInsCode;
+        final IntColumn labelSeqId;
+        final IntColumn pdbx_pdb_model_num;
+
+        AtomSiteColumns(AtomSite atomSite) {
+            labelAsymId = atomSite.getLabelAsymId();
+            authAsymId = atomSite.getAuthAsymId();
+            groupPDB = atomSite.getGroupPDB();
+            authSeqId = atomSite.getAuthSeqId();
+            labelCompId = atomSite.getLabelCompId();
+            id = atomSite.getId();
+            labelAtomId = atomSite.getLabelAtomId();
+            cartnX = atomSite.getCartnX();
+            cartnY = atomSite.getCartnY();
+            cartnZ = atomSite.getCartnZ();
+            occupancy = atomSite.getOccupancy();
+            bIsoOrEquiv = atomSite.getBIsoOrEquiv();
+            labelAltId = atomSite.getLabelAltId();
+            typeSymbol = atomSite.getTypeSymbol();
+            pdbxPDBInsCode = atomSite.getPdbxPDBInsCode();
+            labelSeqId = atomSite.getLabelSeqId();
+            pdbx_pdb_model_num = atomSite.getPdbxPDBModelNum();
         }
     }
 
@@ -0,0 +1,287 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.secstruc;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.contact.CellList;
+
+import java.util.Arrays;
+
+/**
+ * The backbone H-bond energies of DSSP, computed over packed coordinates and a
+ * {@link CellList} of the C-alpha atoms instead of atom objects and a contact
+ * set.
+ * <p>
+ * For every donor residue (the N-H), the energies to all acceptors (the C=O)
+ * whose C-alpha is closer than {@link SecStrucCalc#CA_MIN_DIST} are kept in a
+ * row, sorted by acceptor. Rows are computed in parallel blocks of residues.
+ * <p>
+ * The rows are kept between calls. When the same residues are given again,
+ * e.g. the next frame of a trajectory, only the rows involving residues whose
+ * backbone moved by more than a threshold since they were last computed are
+ * recomputed.
+ *
+ * @since 7.2.3
+ */
+class BackboneHBonds {
+
+	/** Residues per parallel task */
+	private static final int BLOCK = 64;
+
+	/** Doubles per residue: N, CA, C, O and H coordinates */
+	private static final int STRIDE = 15;
+	private static final int N = 0, CA = 3, C = 6, O = 9, H = 12;
+
+	private static final int[] NO_PARTNERS = new int[0];
+	private static final double[] NO_ENERGIES = new double[0];
+
+	private ResidueNumber[] residues;
+	// the coordinates of each residue when the rows involving it were computed
+	private double[] reference;
+	private int[][] partners;
+	private double[][] energies;
+	private int recomputed;
+
+	/**
+	 * Computes the H-bond energies of the groups, whose H atoms must have been
+	 * calculated.
+	 *
+	 * @param groups
+	 *            the backbone groups
+	 * @param threshold
+	 *            if not negative and the groups are the same residues as in
+	 *            the previous call, only recompute the energies involving
+	 *            residues that moved more than this distance
+	 * @param executor
+	 *            runs blocks of rows in parallel, or null to compute them in
+	 *            the calling thread
+	 */
+	void calculate(SecStrucGroup[] groups, double threshold, BioJavaExecutor executor) {
+		int n = groups.length;
+		double[] coords = new double[STRIDE * n];
+		double[] ca = new double[3 * n];
+		boolean[] donor = new boolean[n];
+		for (int r = 0; r < n; r++) {
+			SecStrucGroup g = groups[r];
+			copy(g.getN(), coords, STRIDE * r + N);
+			copy(g.getCA(), coords, STRIDE * r + CA);
+			copy(g.getC(), coords, STRIDE * r + C);
+			copy(g.getO(), coords, STRIDE * r + O);
+			copy(g.getCA(), ca, 3 * r);
+			// the same donors as SecStrucCalc.checkAddHBond
+			donor[r] = !"PRO".equals(g.getPDBName()) && g.hasAtom("H");
+			if (donor[r])
+				copy(g.getH(), coords, STRIDE * r + H);
+		}
+		CellList cells = new CellList(ca, SecStrucCalc.CA_MIN_DIST);
+
+		boolean[] dirty = new boolean[n];
+		if (threshold >= 0 && sameResidues(groups)) {
+			boolean[] moved = new boolean[n];
+			double thresholdSq = threshold * threshold;
+			for (int r = 0; r < n; r++)
+				moved[r] = displacementSq(coords, reference, r) > thresholdSq;
+
+			// rows of the moved donors, and of the donors that had or have a
+			// moved acceptor within reach
+			for (int d = 0; d < n; d++) {
+				if (moved[d]) {
+					dirty[d] = true;
+					continue;
+				}
+				for (int a : partners[d]) {
+					if (moved[a]) {
+						dirty[d] = true;
+						break;
+					}
+				}
+			}
+			for (int r = 0; r < n; r++) {
+				if (moved[r])
+					cells.forEachNeighbor(r, SecStrucCalc.CA_MIN_DIST, (j, distSq) -> dirty[j] = true);
+			}
+			// the rows involving a moved residue are all recomputed below
+			for (int r = 0; r < n; r++) {
+				if (moved[r])
+					System.arraycopy(coords, STRIDE * r, reference, STRIDE * r, STRIDE);
+			}
+		} else {
+			residues = new ResidueNumber[n];
+			for (int r = 0; r < n; r++)
+				residues[r] = groups[r].getResidueNumber();
+			reference = coords.clone();
+			partners = new int[n][];
+			energies = new double[n][];
+			Arrays.fill(dirty, true);
+		}
+
+		int blocks = (n + BLOCK - 1) / BLOCK;
+		if (executor == null) {
+			for (int b = 0; b < blocks; b++)
+				calculateBlock(b, n, dirty, donor, coords, cells);
+		} else {
+			executor.parallelFor(blocks, b -> calculateBlock(b, n, dirty, donor, coords, cells));
+		}
+
+		recomputed = 0;
+		for (boolean d : dirty) {
+			if (d)
+				recomputed++;
+		}
+	}
+
+	/**
+	 * @return the acceptors within reach of donor d, in increasing order
+	 */
+	int[] getPartners(int d) {
+		return partners[d];
+	}
+
+	/**
+	 * @return the energies, in cal/mol, of the H-bonds of donor d to the
+	 *         acceptors of {@link #getPartners(int)}. Residues that cannot
+	 *         donate have no energies.
+	 */
+	double[] getEnergies(int d) {
+		return energies[d];
+	}
+
+	/**
+	 * @return the number of rows computed by the last call
+	 */
+	int getRecomputed() {
+		return recomputed;
+	}
+
+	private void calculateBlock(int block, int n, boolean[] dirty, boolean[] donor,
+			double[] coords, CellList cells) {
+		Acceptors acceptors = new Acceptors();
+		int end = Math.min(n, (block + 1) * BLOCK);
+		for (int d = block * BLOCK; d < end; d++) {
+			if (!dirty[d])
+				continue;
+
+			acceptors.donor = d;
+			acceptors.count = 0;
+			cells.forEachNeighbor(d, SecStrucCalc.CA_MIN_DIST, acceptors);
+
+			int m = acceptors.count;
+			if (m == 0) {
+				partners[d] = NO_PARTNERS;
+				energies[d] = NO_ENERGIES;
+				continue;
+			}
+			int[] row = Arrays.copyOf(acceptors.found, m);
+			Arrays.sort(row);
+			double[] rowEnergies = NO_ENERGIES;
+			if (donor[d]) {
+				rowEnergies = new double[m];
+				for (int k = 0; k < m; k++)
+					rowEnergies[k] = energy(coords, d, row[k]);
+			}
+			partners[d] = row;
+			energies[d] = rowEnergies;
+		}
+	}
+
+	/**
+	 * Collects the acceptors within reach of a donor.
+	 */
+	private static class Acceptors implements CellList.NeighborVisitor {
+		int donor;
+		int count;
+		int[] found = new int[32];
+
+		@Override
+		public void visit(int j, double distSq) {
+			// no bond from the N-H of a residue to the C=O of the previous one
+			if (j == donor - 1)
+				return;
+			if (count == found.length)
+				found = Arrays.copyOf(found, 2 * count);
+			found[count++] = j;
+		}
+	}
+
+	/**
+	 * The same as SecStrucCalc.calculateHBondEnergy, on packed coordinates.
+	 */
+	private static double energy(double[] coords, int donor, int acceptor) {
+		int d = STRIDE * donor;
+		int a = STRIDE * acceptor;
+
+		double dno = distance(coords, a + O, d + N);
+		double dhc = distance(coords, a + C, d + H);
+		double dho = distance(coords, a + O, d + H);
+		double dnc = distance(coords, a + C, d + N);
+
+		if ((dno < SecStrucCalc.MINDIST) || (dhc < SecStrucCalc.MINDIST) ||
+				(dnc < SecStrucCalc.MINDIST)) {
+			return SecStrucCalc.HBONDLOWENERGY;
+		}
+
+		double e1 = SecStrucCalc.Q / dho - SecStrucCalc.Q / dhc;
+		double e2 = SecStrucCalc.Q / dnc - SecStrucCalc.Q / dno;
+
+		double energy = e1 + e2;
+
+		if (energy > SecStrucCalc.HBONDLOWENERGY)
+			return energy;
+
+		return SecStrucCalc.HBONDLOWENERGY;
+	}
+
+	private static double distance(double[] coords, int i, int j) {
+		double x = coords[i] - coords[j];
+		double y = coords[i + 1] - coords[j + 1];
+		double z = coords[i + 2] - coords[j + 2];
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+	private static double displacementSq(double[] coords, double[] reference, int r) {
+		double max = 0;
+		for (int k = STRIDE * r; k < STRIDE * (r + 1); k += 3) {
+			double x = coords[k] - reference[k];
+			double y = coords[k + 1] - reference[k + 1];
+			double z = coords[k + 2] - reference[k + 2];
+			max = Math.max(max, x * x + y * y + z * z);
+		}
+		return max;
+	}
+
+	private boolean sameResidues(SecStrucGroup[] groups) {
+		if (residues == null || residues.length != groups.length)
+			return false;
+		for (int r = 0; r < groups.length; r++) {
+			if (!residues[r].equals(groups[r].getResidueNumber()))
+				return false;
+		}
+		return true;
+	}
+
+	private static void copy(Atom atom, double[] coords, int offset) {
+		coords[offset] = atom.getX();
+		coords[offset + 1] = atom.getY();
+		coords[offset + 2] = atom.getZ();
+	}
+}
@@ -20,9 +20,11 @@
  */
 package org.biojava.nbio.structure.secstruc;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.structure.*;
 import org.biojava.nbio.structure.contact.AtomContact;
 import org.biojava.nbio.structure.contact.AtomContactSet;
+import org.biojava.nbio.structure.contact.CellList;
 import org.biojava.nbio.structure.contact.Grid;
 import org.biojava.nbio.structure.contact.Pair;
 import org.slf4j.Logger;
@@ -103,11 +105,65 @@ public class SecStrucCalc {
 	// Added by Anthony - to speed up intergroup calculations
 	private AtomContactSet contactSet;
 	private Map<ResidueNumber, Integer> indResMap;
+	// the packed H-bond calculation, null for the contact set one
+	private BackboneHBonds hbonds;
+	private BioJavaExecutor executor;
+	private double movementThreshold = -1;
+
 	public SecStrucCalc(){
 		ladders = new ArrayList<>();
 		bridges = new ArrayList<>();
 	}
 
+	/**
+	 * Create a calculator that finds the backbone H-bonds over packed
+	 * coordinates and a {@link CellList} of the C-alpha atoms, with the
+	 * energies of blocks of residues computed in parallel on the executor.
+	 * The assignment is the same as with the default constructor.
+	 *
+	 * @param executor
+	 *            runs the H-bond energy calculation
+	 * @since 7.2.3
+	 */
+	public SecStrucCalc(BioJavaExecutor executor){
+		this();
+		this.executor = executor;
+		hbonds = new BackboneHBonds();
+	}
+
+	/**
+	 * Reuse the H-bond energies of residues that barely moved since the
+	 * previous model or call, e.g. for every frame of a trajectory. When the
+	 * backbone groups are the same residues as in the previous calculation,
+	 * only the energies involving residues with a backbone atom that moved
+	 * more than the threshold since its energies were computed are computed
+	 * again. The rest of the assignment is always recalculated.
+	 * <p>
+	 * A threshold of 0 only reuses the energies of residues that did not
+	 * move at all and gives exactly the same result as a full calculation.
+	 * Larger thresholds are faster but approximate. This uses the packed
+	 * H-bond calculation, in the calling thread unless an executor was given.
+	 *
+	 * @param threshold
+	 *            the distance in &Aring;, or a negative value to always
+	 *            compute all energies (the default)
+	 * @since 7.2.3
+	 */
+	public void setMovementThreshold(double threshold){
+		movementThreshold = threshold;
+		if (hbonds == null)
+			hbonds = new BackboneHBonds();
+	}
+
+	/**
+	 * @return the movement threshold of the incremental calculation, negative
+	 *         if disabled
+	 * @since 7.2.3
+	 */
+	public double getMovementThreshold(){
+		return movementThreshold;
+	}
+
 
 	/**
 	 * Predicts the secondary structure of this Structure object,
@@ -126,17 +182,33 @@ public class SecStrucCalc {
 			ladders = new ArrayList<>();
 			bridges = new ArrayList<>();
 			groups = initGroupArray(s, i);
-			// Initialise the contact set for this structure
-			initContactSet();
-			if (groups.length < 5) {
-				// not enough groups to do anything
-				throw new StructureException("Not enough backbone groups in the"
-						+ " Structure to calculate the secondary structure ("
-						+ groups.length+" given, minimum 5)" );
-			}
+			if (hbonds != null) {
+				if (groups.length < 5) {
+					// not enough groups to do anything
+					throw new StructureException("Not enough backbone groups in the"
+							+ " Structure to calculate the secondary structure ("
+							+ groups.length+" given, minimum 5)" );
+				}
+				atoms = new Atom[groups.length];
+				for (int j = 0; j < groups.length; j++)
+					atoms[j] = groups[j].getCA();
 
-			calculateHAtoms();
-			calculateHBonds();
+				calculateHAtoms();
+				hbonds.calculate(groups, movementThreshold, executor);
+				trackHBondEnergies();
+			} else {
+				// Initialise the contact set for this structure
+				initContactSet();
+				if (groups.length < 5) {
+					// not enough groups to do anything
+					throw new StructureException("Not enough backbone groups in the"
+							+ " Structure to calculate the secondary structure ("
+							+ groups.length+" given, minimum 5)" );
+				}
+
+				calculateHAtoms();
+				calculateHBonds();
+			}
 			calculateDihedralAngles();
 			calculateTurns();
 			buildHelices();
@@ -154,6 +226,14 @@ public class SecStrucCalc {
 		return secstruc;
 	}
 
+	/**
+	 * @return the number of residues whose H-bond energies were computed for
+	 *         the last model by the packed calculation
+	 */
+	int getRecomputedResidues() {
+		return hbonds == null ? groups.length : hbonds.getRecomputed();
+	}
+
 	/**
 	 * Function to generate the contact sets
 	 */
@@ -422,6 +502,16 @@ public class SecStrucCalc {
 	 * Optimised to use the contact set
 	 */
 	private void findBridges() {
+		if (hbonds != null) {
+			// the rows hold all the pairs i < j of the contact set, in order
+			for (int i = 1; i < groups.length-1; i++) {
+				for (int j : hbonds.getPartners(i)) {
+					if (j >= i+3 && j < groups.length-1)
+						checkBridge(i, j);
+				}
+			}
+			return;
+		}
 		// Get the interator of contacts
 		Iterator<AtomContact> myIter = contactSet.iterator();
 		List<Pair<Integer>> outList = new ArrayList<>();
@@ -491,26 +581,28 @@ public class SecStrucCalc {
 
 
 		for(Pair<Integer> p: outList){
-			int i = p.getFirst();
-			int j = p.getSecond();
-			BridgeType btype = null;
-			// Now do the bonding
-			if ((isBonded(i-1,j) && isBonded(j,i+1)) ||
-					(isBonded(j-1,i) && isBonded(i,j+1))) {
-				btype = BridgeType.parallel;
-			}
-			else if ((isBonded(i,j) && isBonded(j,i)) ||
-					(isBonded(i-1,j+1) && (isBonded(j-1,i+1)))) {
-				btype = BridgeType.antiparallel;
-			}
-			if (btype != null){
-				registerBridge(i, j, btype);
-			}
+			checkBridge(p.getFirst(), p.getSecond());
 		}
 
 
 	}
 
+	private void checkBridge(int i, int j) {
+		BridgeType btype = null;
+		// Now do the bonding
+		if ((isBonded(i-1,j) && isBonded(j,i+1)) ||
+				(isBonded(j-1,i) && isBonded(i,j+1))) {
+			btype = BridgeType.parallel;
+		}
+		else if ((isBonded(i,j) && isBonded(j,i)) ||
+				(isBonded(i-1,j+1) && (isBonded(j-1,i+1)))) {
+			btype = BridgeType.antiparallel;
+		}
+		if (btype != null){
+			registerBridge(i, j, btype);
+		}
+	}
+
 	private void detectBends() {
 
 		for (int i = 2 ; i < groups.length-2 ;i++){
@@ -871,6 +963,66 @@ public class SecStrucCalc {
 		return HBONDLOWENERGY ;
 	}
 
+	/**
+	 * Store the Hbonds of the packed calculation in the Groups: the same as
+	 * {@link #trackHBondEnergy(int, int, double)} for every donor and
+	 * acceptor pair, in the order of the donors and then of the acceptors,
+	 * with the two best bonds of each side kept in primitive arrays.
+	 */
+	private void trackHBondEnergies() {
+		int n = groups.length;
+		double[] acc = new double[2 * n];
+		int[] accp = new int[2 * n];
+		double[] don = new double[2 * n];
+		int[] donp = new int[2 * n];
+
+		for (int i = 0; i < n; i++) {
+			int[] partners = hbonds.getPartners(i);
+			double[] energies = hbonds.getEnergies(i);
+			for (int k = 0; k < energies.length; k++) {
+				int j = partners[k];
+				double energy = energies[k];
+
+				//Acceptor: N-H-->O
+				if (energy < acc[2*i]) {
+					acc[2*i+1] = acc[2*i];
+					accp[2*i+1] = accp[2*i];
+					acc[2*i] = energy;
+					accp[2*i] = j;
+				} else if (energy < acc[2*i+1]) {
+					acc[2*i+1] = energy;
+					accp[2*i+1] = j;
+				}
+
+				//The other side of the bond: donor O-->N-H
+				if (energy < don[2*j]) {
+					don[2*j+1] = don[2*j];
+					donp[2*j+1] = donp[2*j];
+					don[2*j] = energy;
+					donp[2*j] = i;
+				} else if (energy < don[2*j+1]) {
+					don[2*j+1] = energy;
+					donp[2*j+1] = i;
+				}
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			SecStrucState state = getSecStrucState(i);
+			state.setAccept1(hbond(acc[2*i], accp[2*i]));
+			state.setAccept2(hbond(acc[2*i+1], accp[2*i+1]));
+			state.setDonor1(hbond(don[2*i], donp[2*i]));
+			state.setDonor2(hbond(don[2*i+1], donp[2*i+1]));
+		}
+	}
+
+	private static HBond hbond(double energy, int partner) {
+		HBond bond = new HBond();
+		bond.setEnergy(energy);
+		bond.setPartner(partner);
+		return bond;
+	}
+
 	/**
 	 * Store Hbonds in the Groups.
 	 * DSSP allows two HBonds per aminoacids to allow bifurcated bonds.
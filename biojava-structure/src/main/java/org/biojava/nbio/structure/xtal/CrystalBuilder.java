@@ -21,14 +21,19 @@
 package org.biojava.nbio.structure.xtal;
 
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.structure.*;
+import org.biojava.nbio.structure.contact.AtomContact;
 import org.biojava.nbio.structure.contact.AtomContactSet;
+import org.biojava.nbio.structure.contact.CellList;
+import org.biojava.nbio.structure.contact.Pair;
 import org.biojava.nbio.structure.contact.StructureInterface;
 import org.biojava.nbio.structure.contact.StructureInterfaceList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
 import javax.vecmath.Point3i;
 import javax.vecmath.Vector3d;
 import java.util.*;
@@ -95,6 +100,8 @@ public class CrystalBuilder {
 	private boolean searchBeyondAU;
 	private Matrix4d[] ops;
 
+	private BioJavaExecutor executor = BioJavaExecutor.getDefault();
+
 	/**
 	 * Special constructor for NCS-aware CrystalBuilder.
 	 * The output list of interfaces will be pre-clustered by NCS-equivalence.
@@ -183,6 +190,25 @@ public class CrystalBuilder {
 		this.numCells = numCells;
 	}
 
+	/**
+	 * Returns the executor on which the contacts of the chain pairs are calculated.
+	 * @return the executor
+	 * @since 7.2.3
+	 */
+	public BioJavaExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor on which the contacts of the chain pairs are calculated,
+	 * by default {@link BioJavaExecutor#getDefault()}. The result doesn't depend on it.
+	 * @param executor the executor
+	 * @since 7.2.3
+	 */
+	public void setExecutor(BioJavaExecutor executor) {
+		this.executor = executor;
+	}
+
 	private void initialiseVisited() {
 		visitedCrystalTransforms = new ArrayList<>();
 		if(this.hasNcsOps()) {
@@ -248,6 +274,14 @@ public class CrystalBuilder {
 	/**
 	 * Calculate interfaces between original asymmetric unit and neighboring
 	 * whole unit cells, including the original full unit cell i.e. i=0,j=0,k=0
+	 * <p>
+	 * The search runs in three steps. First the transforms and chain pairs are enumerated
+	 * serially, skipping those whose bounding boxes don't overlap and the symmetry redundant
+	 * transforms. Then the contacts of the remaining chain pairs are calculated in parallel
+	 * against cell lists of the chains of the original asymmetric unit, which are built once
+	 * and only read. Finally the interfaces are added to the set (and matched to their NCS
+	 * equivalents) in the order of enumeration, so that the result doesn't depend on the
+	 * number of threads.
 	 * @param set
 	 * @param cutoff
 	 */
@@ -290,6 +324,10 @@ public class CrystalBuilder {
 
 		List<Chain> polyChains = structure.getPolyChains();
 
+		// 1) enumeration of the transforms and chain pairs to try
+		List<TransformTrial> transforms = new ArrayList<>();
+		List<ChainPairTrial> trials = new ArrayList<>();
+
 		for (int a=-numCells;a<=numCells;a++) {
 			for (int b=-numCells;b<=numCells;b++) {
 				for (int c=-numCells;c<=numCells;c++) {
@@ -332,12 +370,24 @@ public class CrystalBuilder {
 							selfEquivalent = true;
 						}
 
-						StringBuilder builder = null;
-						if (verbose) builder = new StringBuilder(String.valueOf(tt)).append(" ");
+						boolean original = n==0 && a==0 && b==0 && c==0;
 
-						// Now that we know that boxes overlap and operator is not redundant, we have to go to the details
-						int contactsFound = 0;
+						Matrix4d mJCryst = null;
+						if (!original) {
+							mJCryst = new Matrix4d(ops[n]);
+							translate(mJCryst, transOrth);
+						}
 
+						TransformTrial transform = new TransformTrial(tt);
+						if (original)
+							transform.maxContacts = (numPolyChainsAu*(numPolyChainsAu-1))/2;
+						else if (selfEquivalent)
+							transform.maxContacts = (numPolyChainsAu*(numPolyChainsAu+1))/2;
+						else
+							transform.maxContacts = numPolyChainsAu*numPolyChainsAu;
+						transforms.add(transform);
+
+						// Now that we know that boxes overlap and operator is not redundant, we have to go to the details
 						for (int j=0;j<numPolyChainsAu;j++) {
 
 							for (int i=0;i<numPolyChainsAu;i++) { // we only have to compare the original asymmetric unit to every full cell around
@@ -348,58 +398,75 @@ public class CrystalBuilder {
 									continue;
 								}
 								// special case of original AU, we don't compare a chain to itself
-								if (n==0 && a==0 && b==0 && c==0 && i==j) continue;
+								if (original && i==j) continue;
 
-								// before calculating the AtomContactSet we check for overlap, then we save putting atoms into the grid
+								// before calculating the contacts we check for overlap
 								if (!bbGrid.getChainBoundingBox(0,i).overlaps(bbGridTrans.getChainBoundingBox(n,j),cutoff)) {
 									skippedChainsNoOverlap++;
-									if (verbose) {
-										builder.append(".");
-									}
+									transform.pairs.add(null);
 									continue;
 								}
 
 								trialCount++;
 
-								// finally we've gone through all short-cuts and the 2 chains seem to be close enough:
-								// we do the calculation of contacts
-								Chain chaini = polyChains.get(i);
-								Chain chainj = polyChains.get(j);
+								ChainPairTrial trial = new ChainPairTrial(i, j, tt, mJCryst);
+								transform.pairs.add(trial);
+								trials.add(trial);
+							}
+						}
+					}
+				}
+			}
+		}
 
-								if (n!=0 || a!=0 || b!=0 || c!=0) {
-									Matrix4d mJCryst = new Matrix4d(ops[n]);
-									translate(mJCryst, transOrth);
-									chainj = (Chain)chainj.clone();
-									Calc.transform(chainj,mJCryst);
-								}
+		// 2) the contacts of the chain pairs that passed all short-cuts, in parallel
+		Atom[][] nonHAtoms = new Atom[numPolyChainsAu][];
+		CellList[] cellLists = new CellList[numPolyChainsAu];
+		for (int i=0;i<numPolyChainsAu;i++) {
+			// note that we don't consider hydrogens when calculating contacts
+			nonHAtoms[i] = StructureTools.getAllNonHAtomArray(polyChains.get(i), INCLUDE_HETATOMS);
+			double[] coords = new double[3*nonHAtoms[i].length];
+			for (int k=0;k<nonHAtoms[i].length;k++) {
+				coords[3*k] = nonHAtoms[i][k].getX();
+				coords[3*k+1] = nonHAtoms[i][k].getY();
+				coords[3*k+2] = nonHAtoms[i][k].getZ();
+			}
+			cellLists[i] = new CellList(coords, cutoff);
+		}
 
-								StructureInterface interf = calcContacts(chaini, chainj, cutoff, tt, builder);
-								if (interf == null) {
-									continue;
-								}
+		executor.parallelFor(trials.size(), k ->
+				calcContacts(trials.get(k), polyChains, nonHAtoms, cellLists, cutoff));
 
-								contactsFound++;
-								if(this.hasNcsOps()) {
-									StructureInterface interfNcsRef = findNcsRef(interf);
-									set.addNcsEquivalent(interf,interfNcsRef);
-								} else {
-									set.add(interf);
-								}
-							}
-						}
+		// 3) merging of the interfaces, in the order of enumeration
+		for (TransformTrial transform : transforms) {
 
-						if( verbose ) {
-							if (a==0 && b==0 && c==0 && n==0)
-								builder.append(" "+contactsFound+"("+(numPolyChainsAu*(numPolyChainsAu-1))/2+")");
-							else if (selfEquivalent)
-								builder.append(" "+contactsFound+"("+(numPolyChainsAu*(numPolyChainsAu+1))/2+")");
-							else
-								builder.append(" "+contactsFound+"("+numPolyChainsAu*numPolyChainsAu+")");
+			StringBuilder builder = null;
+			if (verbose) builder = new StringBuilder(String.valueOf(transform.tt)).append(" ");
+			int contactsFound = 0;
 
-							logger.debug(builder.toString());
-						}
-					}
+			for (ChainPairTrial trial : transform.pairs) {
+				if (trial == null) {
+					if (verbose) builder.append(".");
+					continue;
+				}
+				if (trial.interf == null) {
+					if (verbose) builder.append("o");
+					continue;
 				}
+				if (verbose) builder.append("x");
+
+				contactsFound++;
+				if(this.hasNcsOps()) {
+					StructureInterface interfNcsRef = findNcsRef(trial.interf);
+					set.addNcsEquivalent(trial.interf,interfNcsRef);
+				} else {
+					set.add(trial.interf);
+				}
+			}
+
+			if( verbose ) {
+				builder.append(" "+contactsFound+"("+transform.maxContacts+")");
+				logger.debug(builder.toString());
 			}
 		}
 
@@ -412,6 +479,39 @@ public class CrystalBuilder {
 		logger.debug("Found {} interfaces.", set.size());
 	}
 
+	/**
+	 * A transform applied to the unit cell, with its chain pairs in order of enumeration
+	 * (null for pairs whose bounding boxes don't overlap).
+	 */
+	private static class TransformTrial {
+		final CrystalTransform tt;
+		final List<ChainPairTrial> pairs = new ArrayList<>();
+		int maxContacts;
+
+		TransformTrial(CrystalTransform tt) {
+			this.tt = tt;
+		}
+	}
+
+	/**
+	 * A chain i of the original AU and a chain j of the transformed unit cell whose bounding boxes overlap.
+	 */
+	private static class ChainPairTrial {
+		final int i;
+		final int j;
+		final CrystalTransform tt;
+		// the orthonormal transform of chain j, null for the original AU
+		final Matrix4d mJCryst;
+		// the result, null if the chains are not in contact
+		StructureInterface interf;
+
+		ChainPairTrial(int i, int j, CrystalTransform tt, Matrix4d mJCryst) {
+			this.i = i;
+			this.j = j;
+			this.tt = tt;
+			this.mJCryst = mJCryst;
+		}
+	}
 
 	/**
 	 * Checks whether given interface is NCS-redundant, i.e., an identical interface between NCS copies of
@@ -496,25 +596,78 @@ public class CrystalBuilder {
 		return matchInterface;
 	}
 
-	private StructureInterface calcContacts(Chain chaini, Chain chainj, double cutoff, CrystalTransform tt, StringBuilder builder) {
-		// note that we don't consider hydrogens when calculating contacts
-		AtomContactSet graph = StructureTools.getAtomsInContact(chaini, chainj, cutoff, INCLUDE_HETATOMS);
+	/**
+	 * Calculates the contacts of a chain pair, looking up the (transformed) atoms of chain j
+	 * in the cell list of chain i. Only the chain pair is written to, so that pairs can be
+	 * calculated concurrently. Chain j is cloned and transformed only if the chains are in contact.
+	 */
+	private void calcContacts(ChainPairTrial trial, List<Chain> polyChains, Atom[][] nonHAtoms, CellList[] cellLists, double cutoff) {
+		Atom[] iAtoms = nonHAtoms[trial.i];
+		Atom[] jAtoms = nonHAtoms[trial.j];
+		CellList cells = cellLists[trial.i];
+
+		ContactCollector collector = new ContactCollector(cutoff);
+		Point3d p = new Point3d();
+		for (int k=0;k<jAtoms.length;k++) {
+			// the same arithmetic as Calc.transform, so that distances are the same as to the transformed chain
+			p.set(jAtoms[k].getX(), jAtoms[k].getY(), jAtoms[k].getZ());
+			if (trial.mJCryst != null) trial.mJCryst.transform(p);
+			collector.j = k;
+			cells.forEachNeighbor(p.x, p.y, p.z, cutoff, collector);
+		}
 
-		if (graph.size()>0) {
-			if (builder != null) builder.append("x");
+		if (collector.count == 0) return;
 
-			CrystalTransform transf = new CrystalTransform(this.crystallographicInfo.getSpaceGroup());
-			StructureInterface interf = new StructureInterface(
-					StructureTools.getAllAtomArray(chaini), StructureTools.getAllAtomArray(chainj),
-					chaini.getName(), chainj.getName(),
-					graph,
-					transf, tt);
+		Chain chaini = polyChains.get(trial.i);
+		Chain chainj = polyChains.get(trial.j);
+		if (trial.mJCryst != null) {
+			chainj = (Chain)chainj.clone();
+			Calc.transform(chainj,trial.mJCryst);
+			jAtoms = StructureTools.getAllNonHAtomArray(chainj, INCLUDE_HETATOMS);
+		}
 
-			return interf;
+		AtomContactSet graph = new AtomContactSet(cutoff);
+		for (int k=0;k<collector.count;k++) {
+			graph.add(new AtomContact(
+					new Pair<>(iAtoms[collector.is[k]],jAtoms[collector.js[k]]),collector.distances[k]));
+		}
 
-		} else {
-			if (builder != null) builder.append("o");
-			return null;
+		CrystalTransform transf = new CrystalTransform(this.crystallographicInfo.getSpaceGroup());
+		trial.interf = new StructureInterface(
+				StructureTools.getAllAtomArray(chaini), StructureTools.getAllAtomArray(chainj),
+				chaini.getName(), chainj.getName(),
+				graph,
+				transf, trial.tt);
+	}
+
+	/**
+	 * Collects the atom pairs within the cutoff, with the same distance criterion as {@link org.biojava.nbio.structure.contact.Grid}.
+	 */
+	private static class ContactCollector implements CellList.NeighborVisitor {
+		final double cutoff;
+		int j;
+		int count;
+		int[] is = new int[64];
+		int[] js = new int[64];
+		double[] distances = new double[64];
+
+		ContactCollector(double cutoff) {
+			this.cutoff = cutoff;
+		}
+
+		@Override
+		public void visit(int i, double distSq) {
+			double distance = Math.sqrt(distSq);
+			if (distance>=cutoff) return;
+			if (count == is.length) {
+				is = Arrays.copyOf(is, 2*count);
+				js = Arrays.copyOf(js, 2*count);
+				distances = Arrays.copyOf(distances, 2*count);
+			}
+			is[count] = i;
+			js[count] = j;
+			distances[count] = distance;
+			count++;
 		}
 	}
 
@@ -0,0 +1,287 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.junit.Test;
+
+/**
+ * Tests for the packed atom representation {@link PackedAtomArrays}.
+ */
+public class TestPackedAtomArrays {
+
+	@Test
+	public void testPackPreservesAtoms() {
+		Structure s = createStructure();
+		Group g = s.getChainByIndex(0).getAtomGroup(0);
+
+		PackedAtomArrays packed = PackedAtomArrays.pack(s, 0);
+
+		// 3 atoms in the first group, 1 in its alt loc and 1 in the second chain
+		assertEquals(5, packed.size());
+		assertTrue(g.getAtoms() instanceof PackedAtomList);
+
+		Atom ca = g.getAtom("CA");
+		assertTrue(ca instanceof PackedAtom);
+		assertEquals(2.0, ca.getX(), 0.0);
+		assertEquals(3.0, ca.getY(), 0.0);
+		assertEquals(4.0, ca.getZ(), 0.0);
+		assertEquals(Element.C, ca.getElement());
+		assertEquals(0.5f, ca.getOccupancy(), 0.0f);
+		assertEquals(12.5f, ca.getTempFactor(), 0.0f);
+		assertEquals(2, ca.getPDBserial());
+		assertNull(ca.getAltLoc());
+		assertSame(g, ca.getGroup());
+
+		Atom alt = g.getAltLocs().get(0).getAtom(0);
+		assertEquals(Character.valueOf('B'), alt.getAltLoc());
+		assertSame(g.getAltLocs().get(0), alt.getGroup());
+	}
+
+	@Test
+	public void testViewsWriteThrough() {
+		Structure s = createStructure();
+		PackedAtomArrays packed = PackedAtomArrays.pack(s, 0);
+		Group g = s.getChainByIndex(0).getAtomGroup(0);
+
+		Atom n = g.getAtom("N");
+		n.setX(10);
+		assertEquals(10.0, packed.getCoordinates()[0], 0.0);
+		assertEquals(10.0, g.getAtom("N").getX(), 0.0);
+
+		packed.getCoordinates()[1] = 20;
+		assertEquals(20.0, n.getY(), 0.0);
+
+		// views are equal if they point to the same atom
+		assertEquals(g.getAtom(0), g.getAtom(0));
+		assertEquals(g.getAtom(0).hashCode(), g.getAtom(0).hashCode());
+
+		// clones are detached
+		Atom clone = (Atom) n.clone();
+		assertTrue(clone instanceof AtomImpl);
+		clone.setX(0);
+		assertEquals(10.0, n.getX(), 0.0);
+	}
+
+	@Test
+	public void testBondsArePacked() {
+		Structure s = createStructure();
+		Group g = s.getChainByIndex(0).getAtomGroup(0);
+		new BondImpl(g.getAtom("N"), g.getAtom("CA"), 1);
+
+		PackedAtomArrays.pack(s, 0);
+
+		Atom n = g.getAtom("N");
+		Atom ca = g.getAtom("CA");
+		assertEquals(1, n.getBonds().size());
+		assertTrue(n.hasBond(ca));
+		// bonded atoms keep their identity so that Bond.getOther works
+		assertSame(n, g.getAtom("N"));
+		assertSame(ca, n.getBonds().get(0).getOther(n));
+		assertNull(g.getAtom("C").getBonds());
+	}
+
+	/**
+	 * With the atom name lookup, getAtom(String) must return the view held by
+	 * the bonds.
+	 */
+	@Test
+	public void testBondsWithAtomNameLookup() {
+		HetatomImpl.PerformanceBehavior behavior = HetatomImpl.performanceBehavior;
+		HetatomImpl.performanceBehavior = HetatomImpl.PerformanceBehavior.BETTER_PERFORMANCE_MORE_MEMORY;
+		try {
+			Structure s = createStructure();
+			Group g = s.getChainByIndex(0).getAtomGroup(0);
+			new BondImpl(g.getAtom("N"), g.getAtom("CA"), 1);
+
+			PackedAtomArrays.pack(s, 0);
+
+			Atom n = g.getAtom("N");
+			Atom ca = g.getAtom("CA");
+			assertSame(g.getAtom(0), n);
+			assertSame(ca, n.getBonds().get(0).getOther(n));
+			assertSame(n, ca.getBonds().get(0).getOther(ca));
+
+			// atoms bonded after packing too
+			Atom c = g.getAtom("C");
+			new BondImpl(ca, g.getAtom(2), 1);
+			assertSame(c, g.getAtom("C").getBonds().get(0).getOther(ca));
+			assertSame(ca, c.getBonds().get(0).getOther(c));
+		} finally {
+			HetatomImpl.performanceBehavior = behavior;
+		}
+	}
+
+	/**
+	 * The atoms alternate location groups share with their main group are
+	 * packed once, and their bonds are not duplicated.
+	 */
+	@Test
+	public void testSharedAltLocAtoms() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setCreateAtomBonds(true);
+		Structure s;
+		try (InputStream in = getClass().getResourceAsStream("/org/biojava/nbio/structure/io/mmtf/4CUP.cif")) {
+			s = CifStructureConverter.fromInputStream(in, params);
+		}
+
+		List<Group> groups = new ArrayList<>();
+		for (Chain c : s.getChains()) {
+			for (Group g : c.getAtomGroups()) {
+				groups.add(g);
+				groups.addAll(g.getAltLocs());
+			}
+		}
+		Map<Atom, Integer> bonds = new IdentityHashMap<>();
+		Map<Atom, Group> parents = new IdentityHashMap<>();
+		boolean shared = false;
+		for (Group g : groups) {
+			for (Atom a : g.getAtoms()) {
+				shared |= bonds.containsKey(a);
+				bonds.put(a, a.getBonds() == null ? 0 : a.getBonds().size());
+				parents.put(a, a.getGroup());
+			}
+		}
+		assertTrue(shared);
+		List<List<Atom>> before = new ArrayList<>();
+		for (Group g : groups)
+			before.add(new ArrayList<>(g.getAtoms()));
+
+		PackedAtomArrays packed = PackedAtomArrays.pack(s, 0);
+
+		assertEquals(bonds.size(), packed.size());
+		Map<Atom, Atom> views = new IdentityHashMap<>();
+		for (int i = 0; i < groups.size(); i++) {
+			List<Atom> atoms = groups.get(i).getAtoms();
+			assertEquals(before.get(i).size(), atoms.size());
+			for (int k = 0; k < atoms.size(); k++) {
+				Atom original = before.get(i).get(k);
+				Atom view = atoms.get(k);
+				assertEquals(original.getName(), view.getName());
+				assertEquals(original.getX(), view.getX(), 0.0);
+				assertSame(parents.get(original), view.getGroup());
+				assertEquals((int) bonds.get(original), view.getBonds() == null ? 0 : view.getBonds().size());
+				// an atom of several groups is the same view in all of them
+				Atom previous = views.putIfAbsent(original, view);
+				if (previous != null)
+					assertSame(previous, view);
+			}
+		}
+
+		// the bonds of a shared atom are found from both groups
+		Group altLocGroup = null;
+		for (Group g : groups) {
+			if (g.getAtoms() instanceof PackedAtomList && !g.getAltLocs().isEmpty())
+				altLocGroup = g;
+		}
+		Atom ca = altLocGroup.getAtom("CA");
+		for (Group alt : altLocGroup.getAltLocs()) {
+			if (alt.hasAtom("CA") && alt.getAtom("CA").getAltLoc() == null) {
+				assertSame(ca, alt.getAtom("CA"));
+				ca.setX(1000);
+				assertEquals(1000, alt.getAtom("CA").getX(), 0.0);
+			}
+		}
+		assertFalse(ca.getBonds().isEmpty());
+	}
+
+	@Test
+	public void testCalcOnPackedArrays() {
+		Structure s = createStructure();
+		PackedAtomArrays packed = PackedAtomArrays.pack(s, 0);
+		Atom[] atoms = StructureTools.getAllAtomArray(s);
+
+		// the packed model also contains the alt loc atom
+		Point3d centroid = Calc.getCentroid(packed);
+		assertEquals(1.42, centroid.x, 1e-9);
+		assertEquals(2.02, centroid.y, 1e-9);
+		assertEquals(2.62, centroid.z, 1e-9);
+
+		Calc.translate(packed, new Vector3d(1, 1, 1));
+		assertEquals(3.0, atoms[1].getX(), 0.0);
+
+		Matrix4d m = new Matrix4d();
+		m.setIdentity();
+		m.setTranslation(new Vector3d(-1, -1, -1));
+		Calc.transform(packed, m);
+		assertEquals(2.0, atoms[1].getX(), 1e-9);
+	}
+
+	private static Structure createStructure() {
+		Group g = new AminoAcidImpl();
+		g.setPDBName("ALA");
+		g.addAtom(getAtom("N", 1, 1, 2, 3));
+		g.addAtom(getAtom("CA", 2, 2, 3, 4));
+		g.addAtom(getAtom("C", 3, 3, 4, 5));
+
+		Group altLocG = new AminoAcidImpl();
+		Atom alt = getAtom("CA", 4, 2.1, 3.1, 4.1);
+		alt.setAltLoc('B');
+		altLocG.addAtom(alt);
+		g.addAltLoc(altLocG);
+
+		Chain c1 = new ChainImpl();
+		c1.setId("A");
+		c1.addGroup(g);
+
+		Group g2 = new AminoAcidImpl();
+		g2.addAtom(getAtom("CA", 5, -1, -2, -3));
+		Chain c2 = new ChainImpl();
+		c2.setId("B");
+		c2.addGroup(g2);
+
+		Structure s = new StructureImpl();
+		s.addChain(c1);
+		s.addChain(c2);
+		return s;
+	}
+
+	private static Atom getAtom(String name, int serial, double x, double y, double z) {
+		Atom a = new AtomImpl();
+		a.setName(name);
+		a.setElement(Element.valueOfIgnoreCase(name.substring(0, 1)));
+		a.setPDBserial(serial);
+		a.setOccupancy(0.5f);
+		a.setTempFactor(12.5f);
+		a.setX(x);
+		a.setY(y);
+		a.setZ(z);
+		return a;
+	}
+}
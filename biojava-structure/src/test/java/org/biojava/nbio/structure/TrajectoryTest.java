@@ -0,0 +1,325 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.asa.AsaCalculator;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.Hybrid36;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
+import org.biojava.nbio.structure.secstruc.SecStrucState;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TrajectoryTest {
+
+	private static final int MODELS = 5;
+
+	private static byte[] pdb;
+
+	/**
+	 * A multi-model file of chain A of 4hhb: rotated copies, and a last model
+	 * in which every other atom is shifted.
+	 */
+	@BeforeClass
+	public static void createModels() throws IOException {
+		List<String> atoms = new ArrayList<>();
+		try (InputStream in = new GZIPInputStream(TrajectoryTest.class.getResourceAsStream("/4hhb.pdb.gz"));
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("ATOM") && line.charAt(21) == 'A')
+					atoms.add(line);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (int m = 0; m < MODELS; m++) {
+			sb.append(String.format(Locale.US, "MODEL     %4d%n", m + 1));
+			double angle = 0.3 * m;
+			for (int i = 0; i < atoms.size(); i++) {
+				String line = atoms.get(i);
+				double x = Double.parseDouble(line.substring(30, 38).trim());
+				double y = Double.parseDouble(line.substring(38, 46).trim());
+				double z = Double.parseDouble(line.substring(46, 54).trim());
+				double rx = Math.cos(angle) * x - Math.sin(angle) * y + m;
+				double ry = Math.sin(angle) * x + Math.cos(angle) * y;
+				if (m == MODELS - 1)
+					rx += i % 2 == 0 ? 0.5 : -0.5;
+				sb.append(line, 0, 30)
+						.append(String.format(Locale.US, "%8.3f%8.3f%8.3f", rx, ry, z))
+						.append(line.substring(54))
+						.append('\n');
+			}
+			sb.append("ENDMDL\n");
+		}
+		sb.append("END\n");
+		pdb = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	@Test
+	public void testReadPdb() throws IOException {
+		Structure structure = new PDBFileParser().parsePDBFile(new ByteArrayInputStream(pdb));
+		try (Trajectory streamed = Trajectory.readPdb(new ByteArrayInputStream(pdb));
+				Trajectory loaded = Trajectory.fromStructure(structure)) {
+
+			assertEquals(MODELS, streamed.size());
+			assertEquals(MODELS, loaded.size());
+			assertEquals(1, streamed.getTopology().nrModels());
+			assertEquals(StructureTools.getAllAtomArray(structure, 0).length, streamed.getAtomCount());
+			for (int f = 0; f < MODELS; f++)
+				assertArrayEquals(loaded.getFrame(f, null), streamed.getFrame(f, null), 0f);
+
+			// frames materialise as the models of the structure
+			Structure model = streamed.getStructure(3);
+			Atom[] expected = StructureTools.getAllAtomArray(structure, 3);
+			Atom[] actual = StructureTools.getAllAtomArray(model);
+			assertEquals(expected.length, actual.length);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i].getName(), actual[i].getName());
+				assertEquals(expected[i].getX(), actual[i].getX(), 1e-4);
+				assertEquals(expected[i].getZ(), actual[i].getZ(), 1e-4);
+			}
+
+			// applying a frame changes the topology, not the materialised copies
+			double x = actual[0].getX();
+			Atom first = StructureTools.getAllAtomArray(streamed.apply(1))[0];
+			assertEquals(expected[0].getName(), first.getName());
+			assertNotEquals(x, first.getX(), 1e-3);
+			assertEquals(x, actual[0].getX(), 0);
+		}
+	}
+
+	@Test
+	public void testRmsds() throws IOException {
+		try (Trajectory trajectory = Trajectory.readPdb(new ByteArrayInputStream(pdb))) {
+			int[] ca = trajectory.indicesOf(StructureTools.getRepresentativeAtomArray(trajectory.getTopology()));
+			assertEquals(141, ca.length);
+
+			double[] rmsds = trajectory.getRmsds(trajectory.getCoordinates(0, ca, null), ca);
+			assertEquals(MODELS, rmsds.length);
+			for (int f = 0; f < MODELS - 1; f++)
+				assertEquals(0, rmsds[f], 1e-3);
+			assertTrue(rmsds[MODELS - 1] > 0.4);
+		}
+	}
+
+	@Test
+	public void testFrameCalculations() throws IOException, StructureException {
+		try (Trajectory trajectory = Trajectory.readPdb(new ByteArrayInputStream(pdb))) {
+			SecStrucCalc dssp = new SecStrucCalc();
+			dssp.setMovementThreshold(0.01);
+			for (Trajectory.Frame frame : trajectory) {
+				List<SecStrucState> states = dssp.calculate(frame.apply(), false);
+				assertEquals(new SecStrucCalc().calculate(frame.toStructure(), false), states);
+			}
+
+			double[] asas = new AsaCalculator(trajectory.apply(2), AsaCalculator.DEFAULT_PROBE_SIZE, 100, 1, false)
+					.calculateAsas();
+			double[] expected = new AsaCalculator(trajectory.getStructure(2), AsaCalculator.DEFAULT_PROBE_SIZE, 100, 1, false)
+					.calculateAsas();
+			assertArrayEquals(expected, asas, 1e-9);
+		}
+	}
+
+	@Test
+	public void testMappedFrames() throws IOException {
+		Structure structure = new PDBFileParser().parsePDBFile(new ByteArrayInputStream(pdb));
+		try (Trajectory inMemory = Trajectory.fromStructure(structure);
+				Trajectory mapped = new Trajectory(structure)) {
+			// spill to the file after two frames
+			mapped.setMemoryLimit(2L * 3 * Float.BYTES * mapped.getAtomCount());
+			for (int m = 0; m < MODELS; m++) {
+				mapped.addFrame(structure, m);
+				assertEquals(m >= 2, mapped.isMapped());
+			}
+			assertFalse(inMemory.isMapped());
+			for (int f = 0; f < MODELS; f++)
+				assertArrayEquals(inMemory.getFrame(f, null), mapped.getFrame(f, null), 0f);
+
+			double[] expected = inMemory.getCoordinates(4, null);
+			Atom[] atoms = StructureTools.getAllAtomArray(mapped.apply(4));
+			for (int i = 0; i < atoms.length; i++) {
+				assertEquals(expected[3 * i], atoms[i].getX(), 0);
+				assertEquals(expected[3 * i + 2], atoms[i].getZ(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testSerials() throws IOException {
+		// overflowed, repeated and hybrid-36 serials, as written for more than 99,999 atoms
+		String[] lines = new String(pdb, StandardCharsets.ISO_8859_1).split("\n");
+		StringBuilder sb = new StringBuilder();
+		int record = 0;
+		for (String line : lines) {
+			if (line.startsWith("MODEL"))
+				record = 0;
+			if (line.startsWith("ATOM")) {
+				sb.append(line, 0, 6).append(serial(record++)).append(line.substring(11));
+			} else {
+				sb.append(line);
+			}
+			sb.append('\n');
+		}
+
+		try (Trajectory expected = Trajectory.readPdb(new ByteArrayInputStream(pdb));
+				Trajectory actual = Trajectory.readPdb(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.ISO_8859_1)))) {
+			assertEquals(MODELS, actual.size());
+			for (int f = 0; f < MODELS; f++)
+				assertArrayEquals(expected.getFrame(f, null), actual.getFrame(f, null), 0f);
+
+			Atom[] atoms = StructureTools.getAllAtomArray(actual.getTopology());
+			assertEquals(expected.getAtomCount(), atoms.length);
+			assertEquals(0, atoms[0].getPDBserial());
+			assertEquals(99999, atoms[12].getPDBserial());
+			assertEquals(100013, atoms[13].getPDBserial());
+			assertEquals(100013, StructureTools.getAllAtomArray(actual.getStructure(1))[13].getPDBserial());
+		}
+	}
+
+	private static String serial(int record) {
+		if (record < 10)
+			return "*****";
+		if (record % 4 == 0)
+			return "99999";
+		return Hybrid36.encode(100000 + record, 5);
+	}
+
+	@Test
+	public void testConectAfterLastModel() throws IOException {
+		// two models, followed by CONECT records as in standard PDB files
+		String text = new String(pdb, StandardCharsets.ISO_8859_1);
+		text = text.substring(0, text.indexOf("MODEL        3"))
+				+ "CONECT    1    2    5\n"
+				+ "CONECT    2    1\n"
+				+ "CONECT    3    8\n"
+				+ "CONECT    499999\n"
+				+ "END\n";
+
+		try (Trajectory trajectory = Trajectory.readPdb(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)))) {
+			assertEquals(2, trajectory.size());
+			Atom[] atoms = StructureTools.getAllAtomArray(trajectory.getTopology());
+			assertEquals(2, atoms[0].getBonds().size());
+			assertTrue(atoms[0].hasBond(atoms[1]));
+			assertTrue(atoms[0].hasBond(atoms[4]));
+			assertEquals(1, atoms[1].getBonds().size());
+			assertSame(atoms[0], atoms[1].getBonds().get(0).getOther(atoms[1]));
+			// between groups
+			assertTrue(atoms[2].hasBond(atoms[7]));
+			// the serial 99999 is not that of an atom record
+			assertNull(atoms[3].getBonds());
+
+			Atom[] model = StructureTools.getAllAtomArray(trajectory.getStructure(1));
+			assertTrue(model[0].hasBond(model[4]));
+			assertTrue(model[2].hasBond(model[7]));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testShortRecord() throws IOException {
+		String text = new String(pdb, StandardCharsets.ISO_8859_1);
+		int model2 = text.indexOf("MODEL        2");
+		int atom = text.indexOf("ATOM", model2);
+		text = text.substring(0, atom + 40) + text.substring(text.indexOf('\n', atom));
+		Trajectory.readPdb(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidCoordinates() throws IOException {
+		String text = new String(pdb, StandardCharsets.ISO_8859_1);
+		int atom = text.indexOf("ATOM", text.indexOf("MODEL        3"));
+		text = text.substring(0, atom + 30) + "   x.xxx" + text.substring(atom + 38);
+		Trajectory.readPdb(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+
+	@Test
+	public void testSharedAltLocAtoms() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setCreateAtomBonds(true);
+		Structure structure;
+		try (InputStream in = getClass().getResourceAsStream("/org/biojava/nbio/structure/io/mmtf/4CUP.cif")) {
+			structure = CifStructureConverter.fromInputStream(in, params);
+		}
+		List<Integer> bonds = bondCounts(structure);
+
+		try (Trajectory trajectory = Trajectory.fromStructure(structure)) {
+			// atoms of both a group and its alternate locations are stored once
+			assertEquals(bonds.size(), trajectory.getAtomCount());
+			assertEquals(bonds, bondCounts(trajectory.getTopology()));
+			assertEquals(bonds, bondCounts(trajectory.getStructure(0)));
+			try (Trajectory copy = Trajectory.fromStructure(trajectory.getStructure(0))) {
+				assertArrayEquals(trajectory.getFrame(0, null), copy.getFrame(0, null), 0f);
+			}
+		}
+	}
+
+	/**
+	 * The number of bonds of each distinct atom of a structure, checking
+	 * that atoms belong to the group they are found in or its main group.
+	 */
+	private static List<Integer> bondCounts(Structure structure) {
+		Set<Atom> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<Integer> bonds = new ArrayList<>();
+		boolean shared = false;
+		for (Chain c : structure.getChains()) {
+			for (Group g : c.getAtomGroups()) {
+				List<Group> groups = new ArrayList<>();
+				groups.add(g);
+				groups.addAll(g.getAltLocs());
+				for (Group group : groups) {
+					for (Atom a : group.getAtoms()) {
+						assertTrue(a.getGroup() == group || a.getGroup() == g || g.getAltLocs().contains(a.getGroup()));
+						if (visited.add(a))
+							bonds.add(a.getBonds() == null ? 0 : a.getBonds().size());
+						else
+							shared = true;
+					}
+				}
+			}
+		}
+		assertTrue(shared);
+		return bonds;
+	}
+}
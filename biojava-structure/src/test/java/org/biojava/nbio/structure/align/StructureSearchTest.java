@@ -0,0 +1,117 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.ce.CeMain;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+public class StructureSearchTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSearchAndResume() throws Exception {
+
+		Map<String, Atom[]> atoms = new HashMap<>();
+		try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream("/4hhb.pdb.gz"))) {
+			add(atoms, "4hhb", new PDBFileParser().parsePDBFile(in));
+		}
+		try (InputStream in = getClass().getResourceAsStream("/3cdl.pdb")) {
+			add(atoms, "3cdl", new PDBFileParser().parsePDBFile(in));
+		}
+		StructureSearch.AtomSource source = name -> {
+			Atom[] ca = atoms.get(name);
+			if (ca == null)
+				throw new FileNotFoundException(name);
+			return ca;
+		};
+		List<String> targets = Arrays.asList("4hhb.B", "3cdl.A", "4hhb.C", "missing", "4hhb.D", "3cdl.B");
+		Path checkpoint = folder.getRoot().toPath().resolve("search.tsv");
+
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("search", 2, 16)) {
+			StructureSearch search = new StructureSearch(source, CeMain.algorithmName);
+			search.setExecutor(executor);
+			search.setMaxInFlight(3);
+			search.setPrefilter(SearchPrefilter.lengthRatio(0.9).and(SearchPrefilter.radiusOfGyration(0.3)));
+			search.setTopK(2);
+			search.setCheckpoint(checkpoint);
+
+			List<AFPChain> streamed = new ArrayList<>();
+			List<AFPChain> best = search.search("4hhb.A", targets, streamed::add);
+
+			// the alpha chain C is the most similar to A, then the beta chains
+			Assert.assertEquals(3, search.getAligned());
+			Assert.assertEquals(2, search.getFiltered());
+			Assert.assertEquals(1, search.getFailed());
+			Assert.assertEquals(3, streamed.size());
+			Assert.assertEquals(2, best.size());
+			Assert.assertEquals("4hhb.C", best.get(0).getName2());
+			Assert.assertTrue(best.get(0).getTMScore() >= best.get(1).getTMScore());
+			for (AFPChain afpChain : streamed) {
+				Assert.assertEquals("4hhb.A", afpChain.getName1());
+				Assert.assertTrue(afpChain.getTMScore() <= best.get(0).getTMScore());
+			}
+			Assert.assertEquals(5, Files.readAllLines(checkpoint).size());
+
+			// resume: only the failed target is tried again, and the best are aligned again
+			streamed.clear();
+			List<AFPChain> resumed = search.search("4hhb.A", targets, streamed::add);
+			Assert.assertEquals(5, search.getResumed());
+			Assert.assertEquals(1, search.getFailed());
+			Assert.assertEquals(0, search.getAligned());
+			Assert.assertTrue(streamed.isEmpty());
+			Assert.assertEquals(names(best), names(resumed));
+			Assert.assertEquals(best.get(0).getTMScore(), resumed.get(0).getTMScore(), 1e-9);
+		}
+	}
+
+	private static List<String> names(List<AFPChain> afpChains) {
+		return afpChains.stream().map(AFPChain::getName2).collect(Collectors.toList());
+	}
+
+	private static void add(Map<String, Atom[]> atoms, String name, Structure structure) {
+		for (Chain chain : structure.getPolyChains())
+			atoms.put(name + "." + chain.getName(), StructureTools.getRepresentativeAtomArray(chain));
+	}
+}
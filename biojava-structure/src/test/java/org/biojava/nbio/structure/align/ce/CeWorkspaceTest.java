@@ -0,0 +1,93 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.ce;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.xml.AFPChainXMLConverter;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+public class CeWorkspaceTest {
+
+	@Test
+	public void testOneQueryManyTargets() throws Exception {
+
+		Structure hemoglobin;
+		try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream("/4hhb.pdb.gz"))) {
+			hemoglobin = new PDBFileParser().parsePDBFile(in);
+		}
+		Structure other;
+		try (InputStream in = getClass().getResourceAsStream("/3cdl.pdb")) {
+			other = new PDBFileParser().parsePDBFile(in);
+		}
+
+		Atom[] query = StructureTools.getRepresentativeAtomArray(hemoglobin.getChainByIndex(0));
+		Atom[][] targets = {
+				StructureTools.getRepresentativeAtomArray(hemoglobin.getChainByIndex(1)),
+				StructureTools.getRepresentativeAtomArray(hemoglobin.getChainByIndex(2)),
+				StructureTools.getRepresentativeAtomArray(other.getChainByIndex(0)),
+				StructureTools.getRepresentativeAtomArray(hemoglobin.getChainByIndex(3)),
+		};
+
+		CeMain cached = new CeMain();
+		CeMain uncached = new CeMain();
+		uncached.setWorkspace(null);
+
+		double[][] queryDist = null;
+		for (Atom[] target : targets) {
+			AFPChain expected = uncached.align(query, target);
+			AFPChain actual = cached.align(query, target);
+			expected.setCalculationTime(0);
+			actual.setCalculationTime(0);
+			Assert.assertEquals(AFPChainXMLConverter.toXML(expected, query, target),
+					AFPChainXMLConverter.toXML(actual, query, target));
+			Assert.assertArrayEquals(expected.getDistanceMatrix().getArray(),
+					actual.getDistanceMatrix().getArray());
+
+			// the query distances are computed once
+			if (queryDist == null)
+				queryDist = cached.getCECalculator().getDist1();
+			Assert.assertSame(queryDist, cached.getCECalculator().getDist1());
+		}
+
+		// a different query is recomputed
+		cached.align(targets[0], query);
+		Assert.assertNotSame(queryDist, cached.getCECalculator().getDist1());
+
+		// float storage gives nearly the same sum of distances
+		CeMain single = new CeMain();
+		single.setWorkspace(new CeWorkspace(true));
+		AFPChain expected = uncached.align(query, targets[0]);
+		AFPChain actual = single.align(query, targets[0]);
+		double[][] m1 = expected.getDistanceMatrix().getArray();
+		double[][] m2 = actual.getDistanceMatrix().getArray();
+		for (int i = 0; i < m1.length; i++)
+			Assert.assertArrayEquals(m1[i], m2[i], 1e-4);
+		Assert.assertEquals(expected.getOptLength(), actual.getOptLength());
+	}
+}
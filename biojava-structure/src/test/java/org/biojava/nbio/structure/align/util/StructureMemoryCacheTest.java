@@ -0,0 +1,250 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StructureMemoryCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCoalescingAndEviction() throws Exception {
+		Structure small = parse("/3cdl.pdb");
+		Structure large = parse("/2gox.pdb");
+		int smallAtoms = StructureTools.getNrAtoms(small);
+		int largeAtoms = StructureTools.getNrAtoms(large);
+		StructureMemoryCache cache = new StructureMemoryCache(smallAtoms + largeAtoms);
+
+		// concurrent requests for the same structure load it once
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Structure>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(threads.submit(() -> cache.get("small", () -> {
+					loads.incrementAndGet();
+					started.countDown();
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+					return small;
+				})));
+			}
+			started.await();
+			List<Structure> copies = new ArrayList<>();
+			for (Future<Structure> future : futures)
+				copies.add(future.get());
+			assertEquals(1, loads.get());
+			assertEquals(1, cache.getMisses());
+			assertEquals(3, cache.getHits() + cache.getCoalesced());
+			for (Structure copy : copies) {
+				assertNotSame(small, copy);
+				assertEquals(smallAtoms, StructureTools.getNrAtoms(copy));
+			}
+		} finally {
+			threads.shutdown();
+		}
+
+		cache.get("large", () -> large);
+		assertEquals(2, cache.size());
+		assertEquals(smallAtoms + largeAtoms, cache.getAtoms());
+		assertEquals(0, cache.getEvictions());
+
+		// the least recently used is evicted
+		cache.get("small", () -> small);
+		cache.get("other", () -> parse("/3cdl.pdb"));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.size());
+		long misses = cache.getMisses();
+		cache.get("small", () -> small);
+		assertEquals(misses, cache.getMisses());
+		cache.get("large", () -> large);
+		assertEquals(misses + 1, cache.getMisses());
+
+		// failures are not cached
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.get("missing", () -> {
+					throw new IOException("missing");
+				});
+				fail("expected an IOException");
+			} catch (IOException e) {
+				assertEquals("missing", e.getMessage());
+			}
+		}
+		assertEquals(misses + 3, cache.getMisses());
+	}
+
+	@Test
+	public void testCopy() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setCreateAtomBonds(true);
+		PDBFileParser parser = new PDBFileParser();
+		parser.setFileParsingParameters(params);
+		Structure structure;
+		try (InputStream in = getClass().getResourceAsStream("/2gox.pdb")) {
+			structure = parser.parsePDBFile(in);
+		}
+		Structure copy = StructureMemoryCache.copy(structure);
+
+		assertNotSame(structure.getPDBHeader(), copy.getPDBHeader());
+		assertEquals(structure.getPDBHeader().getDescription(), copy.getPDBHeader().getDescription());
+		assertEquals(structure.getCrystallographicInfo().getSpaceGroup(), copy.getCrystallographicInfo().getSpaceGroup());
+		assertEquals(structure.getSSBonds().size(), copy.getSSBonds().size());
+
+		Atom[] atoms = StructureTools.getAllAtomArray(structure);
+		Atom[] copied = StructureTools.getAllAtomArray(copy);
+		assertEquals(atoms.length, copied.length);
+		int interGroup = 0;
+		for (int i = 0; i < atoms.length; i++) {
+			assertNotSame(atoms[i], copied[i]);
+			assertEquals(atoms[i].getBonds() == null, copied[i].getBonds() == null);
+			if (atoms[i].getBonds() == null)
+				continue;
+			assertEquals(atoms[i].getBonds().size(), copied[i].getBonds().size());
+			for (int b = 0; b < atoms[i].getBonds().size(); b++) {
+				Bond bond = atoms[i].getBonds().get(b);
+				Bond copiedBond = copied[i].getBonds().get(b);
+				assertEquals(bond.getAtomA().toPDB(), copiedBond.getAtomA().toPDB());
+				assertEquals(bond.getAtomB().toPDB(), copiedBond.getAtomB().toPDB());
+				assertSame(copiedBond.getAtomA().getGroup().getChain().getStructure(), copy);
+				assertSame(copiedBond.getAtomB().getGroup().getChain().getStructure(), copy);
+				if (bond.getAtomA().getGroup() != bond.getAtomB().getGroup())
+					interGroup++;
+			}
+		}
+		assertTrue(interGroup > 0);
+	}
+
+	@Test
+	public void testAtomCache() throws IOException, StructureException {
+		Path pdbDir = folder.getRoot().toPath();
+		Path file = pdbDir.resolve("data/structures/divided/mmCIF/hh/4hhb.cif.gz");
+		Files.createDirectories(file.getParent());
+		try (InputStream in = getClass().getResourceAsStream("/4hhb.cif.gz")) {
+			Files.copy(in, file);
+		}
+
+		AtomCache cache = new AtomCache(pdbDir.toString());
+		cache.setFiletype(StructureFiletype.CIF);
+		cache.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+		Structure uncached = cache.getStructure("4hhb");
+
+		StructureMemoryCache memory = new StructureMemoryCache(1_000_000);
+		cache.setMemoryCache(memory);
+		Structure whole = cache.getStructure("4hhb");
+		Atom[] chainA = cache.getAtoms("4hhb.A");
+		Atom[] chainB = cache.getRepresentativeAtoms("4hhb.B");
+		assertEquals(1, memory.getMisses());
+		assertEquals(2, memory.getHits());
+		assertEquals(StructureTools.getNrAtoms(uncached), StructureTools.getNrAtoms(whole));
+		assertEquals(141, chainA.length);
+		assertEquals(146, chainB.length);
+
+		// callers cannot change the cached structure
+		String description = whole.getPDBHeader().getDescription();
+		Atom first = StructureTools.getAllAtomArray(whole)[0];
+		double x = first.getX();
+		first.setX(x + 10);
+		whole.getPDBHeader().setDescription("changed");
+		Structure again = cache.getStructure("4hhb");
+		assertEquals(x, StructureTools.getAllAtomArray(again)[0].getX(), 0);
+		assertEquals(description, again.getPDBHeader().getDescription());
+
+		// nor through the sites and DBRefs of their copy
+		Group siteGroup = whole.getSites().get(0).getGroups().get(0);
+		assertSame(whole, siteGroup.getChain().getStructure());
+		double siteX = siteGroup.getAtom(0).getX();
+		siteGroup.getAtom(0).setX(siteX + 100);
+		String accession = whole.getDBRefs().get(0).getDbAccession();
+		whole.getDBRefs().get(0).setDbAccession("changed");
+		assertSame(whole, whole.getDBRefs().get(0).getParent());
+		again = cache.getStructure("4hhb");
+		assertNotSame(whole.getSites(), again.getSites());
+		assertEquals(siteX, again.getSites().get(0).getGroups().get(0).getAtom(0).getX(), 0);
+		assertEquals(accession, again.getDBRefs().get(0).getDbAccession());
+		assertNotEquals("changed", accession);
+		assertSame(again, again.getDBRefs().get(0).getParent());
+
+		// the parsing parameters are part of the key
+		cache.getFileParsingParams().setParseCAOnly(true);
+		assertTrue(StructureTools.getNrAtoms(cache.getStructure("4hhb")) < StructureTools.getNrAtoms(whole));
+		assertEquals(2, memory.getMisses());
+		assertEquals(2, memory.size());
+		cache.getFileParsingParams().setAcceptedAtomNames(new String[] {"CA", "CB"});
+		cache.getStructure("4hhb");
+		assertEquals(3, memory.getMisses());
+
+		// so is the mirror of an AtomCache sharing the memory cache
+		Path otherDir = folder.newFolder("other").toPath();
+		Path otherFile = otherDir.resolve("data/structures/divided/mmCIF/hh/4hhb.cif.gz");
+		Files.createDirectories(otherFile.getParent());
+		Files.copy(file, otherFile);
+		AtomCache other = new AtomCache(otherDir.toString());
+		other.setFiletype(StructureFiletype.CIF);
+		other.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+		other.setMemoryCache(memory);
+		other.getStructure("4hhb");
+		assertEquals(4, memory.getMisses());
+	}
+
+	private Structure parse(String resource) throws IOException {
+		try (InputStream in = getClass().getResourceAsStream(resource)) {
+			return new PDBFileParser().parsePDBFile(in);
+		}
+	}
+}
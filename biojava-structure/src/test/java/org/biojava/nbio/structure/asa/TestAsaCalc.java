@@ -20,6 +20,7 @@
  */
 package org.biojava.nbio.structure.asa;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.biojava.nbio.structure.AminoAcidImpl;
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.AtomImpl;
@@ -38,6 +39,8 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Testing of Accessible Surface Area calculations
@@ -259,6 +262,46 @@ public class TestAsaCalc {
 		assertEquals(0, allNbsSh[0].length);
 	}
 
+	@Test
+	public void testParallelAndExecutor() throws Exception {
+
+		// a random blob of atoms, dense enough for atoms to be partly buried
+		Random random = new Random(7);
+		Atom[] atoms = new Atom[1500];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = getAtom(random.nextDouble() * 30, random.nextDouble() * 30, random.nextDouble() * 30);
+		}
+
+		AsaCalculator asaCalc = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1);
+		asaCalc.setUseSpatialHashingForNeighbors(false);
+		double[] expected = asaCalc.calculateAsas();
+
+		asaCalc = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1);
+		assertArrayEquals(expected, asaCalc.calculateAsas(), 0.000001);
+
+		asaCalc = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 3);
+		assertArrayEquals(expected, asaCalc.calculateAsas(), 0.000001);
+
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("asa-test", 2, 2)) {
+			asaCalc.setExecutor(executor);
+			assertArrayEquals(expected, asaCalc.calculateAsas(), 0.000001);
+			assertEquals(0, executor.getMetrics().getFailed());
+		}
+
+		// called from a task of the same executor, whose only thread is busy with it
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("asa-nested", 1, 1)) {
+			AsaCalculator nested = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1);
+			nested.setExecutor(executor);
+			assertArrayEquals(expected, executor.submit(nested::calculateAsas).get(1, TimeUnit.MINUTES), 0.000001);
+		}
+
+		double total = 0;
+		for (double asa : expected) {
+			total += asa;
+		}
+		assertTrue(total > 0);
+	}
+
 	private Atom getAtom(double x, double y, double z) {
 		Atom atom = new AtomImpl();
 		AminoAcidImpl g = new AminoAcidImpl();
@@ -0,0 +1,118 @@
+package org.biojava.nbio.structure.chem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class TestMappedChemCompProvider {
+
+	private static final List<String> IDS = Arrays.asList("ALA", "ARG", "CYS", "HIS", "MSE", "SEC", "A", "DA", "U",
+			"HOH", "ZN", "SF4", "GOL", "MGD", "2EP", "6MO", "TYS", "UNX");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSameAsParsed() throws Exception {
+		Path components = folder.getRoot().toPath().resolve("components.cif.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(components))) {
+			for (String id : IDS) {
+				try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream("/chemcomp/" + id + ".cif.gz"))) {
+					in.transferTo(out);
+				}
+			}
+		}
+		Path store = folder.getRoot().toPath().resolve("components.ccd");
+		MappedChemCompProvider.writeStore(components, store);
+		assertTrue(Files.size(store) < Files.size(components) * 4);
+
+		MappedChemCompProvider provider = new MappedChemCompProvider(store);
+		assertEquals(IDS.size(), provider.size());
+		ReducedChemCompProvider parsed = new ReducedChemCompProvider();
+		for (String id : IDS) {
+			ChemComp expected = parsed.getChemComp(id);
+			ChemComp cc = provider.getChemComp(id.toLowerCase());
+			assertNotSame(cc, provider.getChemComp(id));
+			assertFalse(cc.isEmpty());
+			assertEquals(id, expected.isStandard(), cc.isStandard());
+			assertEquals(id, expected.getPolymerType(), cc.getPolymerType());
+			assertEquals(id, expected.getResidueType(), cc.getResidueType());
+			assertSameFields(id, expected, cc);
+		}
+
+		// not in the store
+		ChemComp missing = provider.getChemComp("XYZZY");
+		assertTrue(missing.isEmpty());
+		assertEquals("XYZZY", missing.getId());
+		assertTrue(provider.getChemComp("ALAX").isEmpty());
+		MappedChemCompProvider withFallback = new MappedChemCompProvider(store, new ReducedChemCompProvider());
+		assertFalse(new MappedChemCompProvider(store, id -> parsed.getChemComp("GLY")).getChemComp("GLY").isEmpty());
+		assertEquals("ALA", withFallback.getChemComp("ALA").getId());
+
+		// many threads at once
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ChemComp>> futures = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				String id = IDS.get(i % IDS.size());
+				futures.add(threads.submit(() -> provider.getChemComp(id)));
+			}
+			for (int i = 0; i < futures.size(); i++)
+				assertSameFields(IDS.get(i % IDS.size()), parsed.getChemComp(IDS.get(i % IDS.size())), futures.get(i).get());
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAStore() throws IOException {
+		Path file = folder.newFile("components.ccd").toPath();
+		Files.write(file, "data_ALA\n#\n_chem_comp.id ALA\n".getBytes(StandardCharsets.US_ASCII));
+		new MappedChemCompProvider(file);
+	}
+
+	/**
+	 * Compares all fields, and those of the elements of lists.
+	 */
+	private static void assertSameFields(String message, Object expected, Object actual) throws IllegalAccessException {
+		if (expected instanceof List) {
+			List<?> e = (List<?>) expected;
+			List<?> a = (List<?>) actual;
+			assertEquals(message, e.size(), a.size());
+			for (int i = 0; i < e.size(); i++)
+				assertSameFields(message + "[" + i + "]", e.get(i), a.get(i));
+			return;
+		}
+		if (expected == null || expected instanceof String || expected instanceof Number || expected instanceof Enum
+				|| expected instanceof Boolean) {
+			assertEquals(message, expected, actual);
+			return;
+		}
+		assertEquals(message, expected.getClass(), actual.getClass());
+		for (Field field : expected.getClass().getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()))
+				continue;
+			field.setAccessible(true);
+			assertSameFields(message + "." + field.getName(), field.get(expected), field.get(actual));
+		}
+	}
+}
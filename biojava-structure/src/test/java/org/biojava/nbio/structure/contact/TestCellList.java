@@ -0,0 +1,112 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Test;
+
+public class TestCellList {
+
+	@Test
+	public void testSameContactsAsGrid() {
+		Random random = new Random(42);
+		Point3d[] points = new Point3d[2000];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Point3d(random.nextDouble() * 60, random.nextDouble() * 40, random.nextDouble() * 50);
+		}
+		double cutoff = 4.5;
+
+		Grid grid = new Grid(cutoff);
+		grid.addCoords(points);
+		Set<Long> expected = new TreeSet<>();
+		for (Contact contact : grid.getIndicesContacts()) {
+			expected.add(key(contact.getI(), contact.getJ()));
+		}
+
+		CellList cells = new CellList(points, cutoff);
+		Set<Long> found = new TreeSet<>();
+		for (int i = 0; i < points.length; i++) {
+			int self = i;
+			cells.forEachNeighbor(i, cutoff, (j, distSq) -> {
+				assertNotEquals(self, j);
+				assertEquals(points[self].distanceSquared(points[j]), distSq, 1e-9);
+				found.add(key(Math.min(self, j), Math.max(self, j)));
+			});
+		}
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, found);
+	}
+
+	@Test
+	public void testQueriesOutsideAndLargeCutoff() {
+		Point3d[] points = {
+				new Point3d(0, 0, 0),
+				new Point3d(3, 0, 0),
+				new Point3d(0, 9, 0),
+				new Point3d(0, 0, -20) };
+		CellList cells = new CellList(points, 2.0);
+
+		// cutoff larger than the cells
+		List<Integer> nbs = new ArrayList<>();
+		cells.forEachNeighbor(0, 10.0, (j, distSq) -> nbs.add(j));
+		assertEquals(2, nbs.size());
+		assertTrue(nbs.contains(1));
+		assertTrue(nbs.contains(2));
+
+		// positions outside the bounds of the points
+		nbs.clear();
+		cells.forEachNeighbor(0, 0, -22, 2.5, (j, distSq) -> nbs.add(j));
+		assertEquals(1, nbs.size());
+		assertEquals(3, (int) nbs.get(0));
+
+		nbs.clear();
+		cells.forEachNeighbor(1e6, 1e6, 1e6, 2.5, (j, distSq) -> nbs.add(j));
+		assertTrue(nbs.isEmpty());
+	}
+
+	@Test
+	public void testSparseAndEmpty() {
+		// two points very far apart must not allocate a huge grid
+		CellList sparse = new CellList(new double[] {0, 0, 0, 1e5, 1e5, 1e5}, 1.0);
+		assertTrue(sparse.getCellSize() > 1.0);
+		List<Integer> nbs = new ArrayList<>();
+		sparse.forEachNeighbor(0, 1.0, (j, distSq) -> nbs.add(j));
+		assertTrue(nbs.isEmpty());
+
+		CellList empty = new CellList(new double[0], 1.0);
+		assertEquals(0, empty.size());
+		empty.forEachNeighbor(0, 0, 0, 1.0, (j, distSq) -> fail());
+	}
+
+	private static long key(int i, int j) {
+		return ((long) i << 32) | j;
+	}
+}
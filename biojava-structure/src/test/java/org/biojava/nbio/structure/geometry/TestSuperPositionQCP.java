@@ -20,6 +20,7 @@
  */
 package org.biojava.nbio.structure.geometry;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -29,6 +30,7 @@ import javax.vecmath.AxisAngle4d;
 import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
@@ -165,6 +167,108 @@ public class TestSuperPositionQCP {
 
 	}
 
+	/**
+	 * The packed coordinate API must give the same results as the Point3d
+	 * API, without modifying its input.
+	 */
+	@Test
+	public void testPackedCoordinates() {
+
+		AxisAngle4d rotAxis = new AxisAngle4d(0.440, 0.302, 0.845, 1.570);
+		Vector3d translation = new Vector3d(0.345, 2.453, 5.324);
+		Matrix4d transform = new Matrix4d();
+		transform.set(rotAxis);
+		transform.setTranslation(translation);
+
+		Random rnd = new Random(0);
+		Point3d[] c1 = new Point3d[100];
+		Point3d[] c2 = new Point3d[100];
+		double[] x1 = new double[300];
+		double[] x2 = new double[300];
+
+		for (int p = 0; p < 100; p++) {
+			c1[p] = new Point3d(rnd.nextInt(100), rnd.nextInt(50), rnd.nextInt(150));
+			c2[p] = new Point3d(c1[p].x + rnd.nextDouble(), c1[p].y + rnd.nextDouble(), c1[p].z + rnd.nextDouble());
+		}
+		CalcPoint.transform(transform, c1);
+
+		for (int p = 0; p < 100; p++) {
+			x1[3 * p] = c1[p].x;
+			x1[3 * p + 1] = c1[p].y;
+			x1[3 * p + 2] = c1[p].z;
+			x2[3 * p] = c2[p].x;
+			x2[3 * p + 1] = c2[p].y;
+			x2[3 * p + 2] = c2[p].z;
+		}
+		double[] x2copy = x2.clone();
+
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		double rmsd = qcp.getRmsd(c1, c2);
+		Matrix4d expected = new Matrix4d(qcp.superpose(c1, c2));
+
+		assertEquals(rmsd, qcp.getRmsd(x1, x2), 1e-9);
+		Matrix4d m = qcp.superpose(x1, x2);
+		assertTrue(expected.epsilonEquals(m, 1e-6));
+		assertTrue(Arrays.equals(x2copy, x2));
+
+		CalcPoint.transform(m, x2);
+		assertEquals(rmsd, CalcPoint.rmsd(x1, x2), 1e-6);
+	}
+
+	/**
+	 * The batch RMSDs to one reference and the all-vs-all RMSD matrix must
+	 * give the same results as the pairwise packed coordinate API.
+	 */
+	@Test
+	public void testBatchRmsd() {
+
+		Random rnd = new Random(0);
+		int points = 50;
+		int count = 20;
+		double[] models = new double[count * points * 3];
+		for (int i = 0; i < points * 3; i++)
+			models[i] = rnd.nextInt(100);
+
+		// the models are noisy copies of the first one, rotated and translated
+		for (int m = 1; m < count; m++) {
+			Matrix4d transform = new Matrix4d();
+			transform.set(new AxisAngle4d(rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), 6 * rnd.nextDouble()));
+			transform.setTranslation(new Vector3d(100 * rnd.nextDouble(), 10 * rnd.nextDouble(), -50 * rnd.nextDouble()));
+			double[] model = new double[points * 3];
+			for (int i = 0; i < model.length; i++)
+				model[i] = models[i] + m * 0.2 * rnd.nextGaussian();
+			CalcPoint.transform(transform, model);
+			System.arraycopy(model, 0, models, m * model.length, model.length);
+		}
+		double[] copy = models.clone();
+
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		double[][] expected = new double[count][count];
+		for (int i = 0; i < count; i++) {
+			for (int j = 0; j < count; j++) {
+				double[] x = Arrays.copyOfRange(models, i * points * 3, (i + 1) * points * 3);
+				double[] y = Arrays.copyOfRange(models, j * points * 3, (j + 1) * points * 3);
+				expected[i][j] = i == j ? 0 : qcp.getRmsd(x, y);
+			}
+		}
+
+		double[] rmsds = new double[count];
+		qcp.setReference(Arrays.copyOf(models, points * 3));
+		qcp.getRmsds(models, count, rmsds);
+		for (int m = 0; m < count; m++)
+			assertEquals(expected[0][m], rmsds[m], 1e-5);
+		assertTrue(rmsds[count - 1] > rmsds[1]);
+
+		double[][] matrix;
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("rmsd", 2, 16)) {
+			matrix = qcp.rmsdMatrix(models, count, executor);
+		}
+		for (int i = 0; i < count; i++)
+			for (int j = 0; j < count; j++)
+				assertEquals(expected[i][j], matrix[i][j], 1e-5);
+		assertTrue(Arrays.equals(copy, models));
+	}
+
 	@Ignore("test for https://github.com/biojava/biojava/issues/914")
 	@Test
 	public void shouldHandleTwoFoldSymmetry() {
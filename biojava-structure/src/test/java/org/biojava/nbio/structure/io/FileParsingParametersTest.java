@@ -0,0 +1,60 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.junit.Test;
+
+public class FileParsingParametersTest {
+
+	/**
+	 * Every field must be copied and compared, since the parameters are part
+	 * of the key of cached structures.
+	 */
+	@Test
+	public void testEveryFieldIsCopiedAndCompared() throws IllegalAccessException {
+		for (Field field : FileParsingParameters.class.getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()))
+				continue;
+			field.setAccessible(true);
+			FileParsingParameters params = new FileParsingParameters();
+			Class<?> type = field.getType();
+			if (type == boolean.class)
+				field.setBoolean(params, !field.getBoolean(params));
+			else if (type == int.class)
+				field.setInt(params, field.getInt(params) - 1);
+			else if (type == String[].class)
+				field.set(params, new String[] {"CA"});
+			else
+				throw new AssertionError("No test value for field " + field.getName() + " of type " + type);
+
+			assertNotEquals(field.getName(), new FileParsingParameters(), params);
+			FileParsingParameters copy = new FileParsingParameters(params);
+			assertEquals(field.getName(), params, copy);
+			assertEquals(field.getName(), params.hashCode(), copy.hashCode());
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.StructureTools;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class StructureBatchLoaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testLoadDirectory() throws IOException {
+		Path mirror = folder.getRoot().toPath();
+		Path divided = Files.createDirectories(mirror.resolve("hh"));
+		copy("/4hhb.pdb.gz", divided.resolve("4hhb.pdb.gz"));
+		copy("/4hhb.cif.gz", divided.resolve("4hhb.cif.gz"));
+		copy("/3cdl.pdb", mirror.resolve("3cdl.pdb"));
+		copy("/2gox.pdb", mirror.resolve("2gox.pdb"));
+		Files.write(mirror.resolve("broken.cif"), "data_broken\n_atom_site.".getBytes(StandardCharsets.US_ASCII));
+		Files.write(mirror.resolve("notes.txt"), "not a structure".getBytes(StandardCharsets.US_ASCII));
+
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("batch", 2, 16)) {
+			StructureBatchLoader loader = new StructureBatchLoader(new FileParsingParameters());
+			loader.setExecutor(executor);
+			loader.setMaxInFlight(3);
+
+			List<StructureBatchLoader.Result> results = new ArrayList<>();
+			StructureBatchLoader.Summary summary = loader.loadDirectory(mirror, results::add);
+			Assert.assertEquals(5, results.size());
+			Assert.assertEquals(4, summary.getLoaded());
+			Assert.assertEquals(1, summary.getFailed());
+			Assert.assertTrue(summary.getMaxNanos() > 0);
+			Assert.assertTrue(summary.getTotalNanos() >= summary.getMaxNanos());
+
+			Map<String, Integer> atoms = new HashMap<>();
+			for (StructureBatchLoader.Result result : results) {
+				String name = Path.of(result.getId()).getFileName().toString();
+				if (!result.isLoaded()) {
+					Assert.assertEquals("broken.cif", name);
+					Assert.assertNull(result.getStructure());
+					continue;
+				}
+				Assert.assertEquals(StructureTools.getNrAtoms(result.getStructure()), result.getAtoms());
+				atoms.put(name, result.getAtoms());
+			}
+			Assert.assertEquals(atoms.get("4hhb.pdb.gz"), atoms.get("4hhb.cif.gz"));
+
+			// a budget smaller than any structure loads them one at a time
+			loader.setMaxAtomsInFlight(1);
+			StructureBatchLoader.Summary streamSummary = new StructureBatchLoader.Summary();
+			try (Stream<StructureBatchLoader.Result> stream = loader.streamDirectory(mirror, streamSummary)) {
+				Map<String, Integer> streamed = stream.filter(StructureBatchLoader.Result::isLoaded)
+						.collect(Collectors.toMap(r -> Path.of(r.getId()).getFileName().toString(),
+								StructureBatchLoader.Result::getAtoms));
+				Assert.assertEquals(atoms, streamed);
+			}
+			// only one structure, estimated or loaded, was in flight at a time
+			long largest = 0;
+			try (Stream<Path> files = Files.walk(mirror)) {
+				for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator)
+					largest = Math.max(largest, StructureBatchLoader.estimateAtoms(file));
+			}
+			for (int n : atoms.values())
+				largest = Math.max(largest, n);
+			Assert.assertEquals(largest, streamSummary.getPeakAtomsInFlight());
+			Assert.assertEquals(summary.getLoadedAtoms(), streamSummary.getLoadedAtoms());
+		}
+	}
+
+	@Test
+	public void testStreamIds() throws IOException {
+		Map<String, Structure> structures = new HashMap<>();
+		try (InputStream in = getClass().getResourceAsStream("/3cdl.pdb")) {
+			structures.put("3cdl", new PDBFileParser().parsePDBFile(in));
+		}
+		try (InputStream in = getClass().getResourceAsStream("/2gox.pdb")) {
+			structures.put("2gox", new PDBFileParser().parsePDBFile(in));
+		}
+		StructureBatchLoader loader = new StructureBatchLoader(id -> {
+			Structure s = structures.get(id);
+			if (s == null)
+				throw new FileNotFoundException(id);
+			return s;
+		}, new FileParsingParameters());
+		loader.setMaxAtomsInFlight(1000);
+
+		List<String> ids = Arrays.asList("3cdl", "missing", "2gox", "3cdl");
+		StructureBatchLoader.Summary summary = new StructureBatchLoader.Summary();
+		List<Structure> loaded = loader.stream(ids, summary)
+				.filter(StructureBatchLoader.Result::isLoaded)
+				.map(StructureBatchLoader.Result::getStructure)
+				.collect(Collectors.toList());
+		Assert.assertEquals(3, loaded.size());
+		Assert.assertEquals(3, summary.getLoaded());
+		Assert.assertEquals(1, summary.getFailed());
+		for (Structure s : structures.values())
+			Assert.assertTrue(loaded.contains(s));
+	}
+
+	/**
+	 * Batches on one loader keep their own counts, even when interleaved.
+	 */
+	@Test
+	public void testInterleavedBatches() {
+		StructureBatchLoader loader = new StructureBatchLoader(id -> {
+			if (id.startsWith("missing"))
+				throw new FileNotFoundException(id);
+			return new StructureImpl();
+		}, new FileParsingParameters());
+
+		StructureBatchLoader.Summary first = new StructureBatchLoader.Summary();
+		Iterator<StructureBatchLoader.Result> lazy = loader.stream(Arrays.asList("a", "b", "c"), first).iterator();
+		lazy.next();
+		StructureBatchLoader.Summary second = loader.load(Arrays.asList("missing1", "d", "missing2"), r -> { });
+		while (lazy.hasNext())
+			lazy.next();
+
+		Assert.assertEquals(3, first.getLoaded());
+		Assert.assertEquals(0, first.getFailed());
+		Assert.assertEquals(1, second.getLoaded());
+		Assert.assertEquals(2, second.getFailed());
+	}
+
+	/**
+	 * A rejected task leaves the batch usable, instead of waiting forever for it.
+	 */
+	@Test
+	public void testRejectedTask() {
+		StructureBatchLoader loader = new StructureBatchLoader(id -> new StructureImpl(), new FileParsingParameters());
+		BioJavaExecutor executor = BioJavaExecutor.workStealing("closed", 1);
+		executor.shutdownAndAwaitTermination();
+		loader.setExecutor(executor);
+
+		StructureBatchLoader.Summary summary = new StructureBatchLoader.Summary();
+		Iterator<StructureBatchLoader.Result> results = loader.stream(Arrays.asList("a", "b"), summary).iterator();
+		try {
+			results.hasNext();
+			Assert.fail("Expected RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		Assert.assertEquals(0, summary.getPeakAtomsInFlight());
+
+		try (BioJavaExecutor open = BioJavaExecutor.fixed("open", 1, 4)) {
+			loader.setExecutor(open);
+			int count = 0;
+			while (results.hasNext()) {
+				Assert.assertTrue(results.next().isLoaded());
+				count++;
+			}
+			Assert.assertEquals(2, count);
+			Assert.assertEquals(2, summary.getLoaded());
+		}
+	}
+
+	private void copy(String resource, Path file) throws IOException {
+		try (InputStream in = getClass().getResourceAsStream(resource)) {
+			Files.copy(in, file);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rcsb.cif.CifIO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+public class StructureWriterTest {
+
+	@Test
+	public void testSameAsFileConvert() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setCreateAtomBonds(true);
+		List<Structure> structures = new ArrayList<>();
+		for (String resource : new String[] { "/2gox.pdb", "/3cdl.pdb", "/104D_v30.pdb", "/AF-A0A0R4IYF1-F1-model_v2.pdb" }) {
+			PDBFileParser parser = new PDBFileParser();
+			parser.setFileParsingParameters(params);
+			try (InputStream in = getClass().getResourceAsStream(resource)) {
+				structures.add(parser.parsePDBFile(in));
+			}
+		}
+		for (String resource : new String[] { "/4hhb.cif.gz", "/1hh0_4char.cif.gz" }) {
+			try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream(resource))) {
+				structures.add(CifStructureConverter.fromInputStream(in, params));
+			}
+		}
+
+		StructureWriter pdb = new StructureWriter(StructureFiletype.PDB);
+		StructureWriter cif = new StructureWriter(StructureFiletype.CIF);
+		for (Structure s : structures) {
+			byte[] expected = new FileConvert(s).toPDB().getBytes(StandardCharsets.UTF_8);
+			Assert.assertArrayEquals(s.getPDBCode(), expected, write(pdb, s));
+
+			FileConvert noConnections = new FileConvert(s);
+			noConnections.setPrintConnections(false);
+			pdb.setPrintConnections(false);
+			Assert.assertArrayEquals(s.getPDBCode(), noConnections.toPDB().getBytes(StandardCharsets.UTF_8), write(pdb, s));
+			pdb.setPrintConnections(true);
+
+			expected = CifIO.writeText(CifStructureConverter.toCifFile(s));
+			Assert.assertArrayEquals(s.getPDBCode(), expected, write(cif, s));
+			ByteArrayOutputStream channel = new ByteArrayOutputStream();
+			cif.write(s, Channels.newChannel(channel));
+			Assert.assertArrayEquals(s.getPDBCode(), expected, channel.toByteArray());
+		}
+
+		// the same output from many threads at once
+		Structure s = structures.get(0);
+		byte[] expected = write(pdb, s);
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> futures = new ArrayList<>();
+			for (int i = 0; i < 16; i++)
+				futures.add(threads.submit(() -> write(pdb, s)));
+			for (Future<byte[]> future : futures)
+				Assert.assertArrayEquals(expected, future.get());
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	@Test
+	public void testFixedPointFormat() {
+		DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
+		DecimalFormat f3 = new DecimalFormat("0.000", symbols);
+		DecimalFormat f2 = new DecimalFormat("0.00", symbols);
+		DecimalFormat f6 = new DecimalFormat("0.######", symbols);
+
+		List<Double> values = new ArrayList<>();
+		double[] edges = { 0, -0.0, 0.0625, 0.1875, -0.0625, 0.0015, 0.0005, 0.125, 0.005, -0.0004, 1e-7, -1e-7,
+				0.0000005, 2.5e-7, 9999.9995, 9999.9996, 10000.5, 12345.678, -12345.678, 99999.9996, 999.995,
+				1e15, 1e20, -1e20, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN,
+				Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (double v : edges)
+			values.add(v);
+		Random random = new Random(42);
+		for (int i = 0; i < 25_000; i++) {
+			double scale = Math.pow(10, random.nextInt(8) - 2);
+			values.add((random.nextDouble() - 0.5) * scale);
+			// halfway between two outputs in decimal, but rarely in binary
+			values.add((random.nextInt(2_000_000) - 1_000_000) / 1000.0 + 0.0005);
+			values.add((random.nextInt(20_000) - 10_000) / 100.0 + 0.005);
+			// exact binary ties
+			values.add((random.nextInt(1 << 20) - (1 << 19)) / 16.0 / 1000);
+		}
+
+		for (double v : values) {
+			String s = Double.toString(v);
+			Assert.assertEquals(s, FileConvert.d3.format(v), FixedPointFormat.PDB_COORDINATE.format(v));
+			Assert.assertEquals(s, FileConvert.d2.format(v), FixedPointFormat.PDB_FACTOR.format(v));
+			Assert.assertEquals(s, f3.format(v), FixedPointFormat.CIF_COORDINATE.format(v));
+			Assert.assertEquals(s, f2.format(v), FixedPointFormat.CIF_OCCUPANCY.format(v));
+			Assert.assertEquals(s, f6.format(v), FixedPointFormat.CIF_FLOAT.format(v));
+		}
+	}
+
+	private static byte[] write(StructureWriter writer, Structure s) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(s, out);
+		return out.toByteArray();
+	}
+}
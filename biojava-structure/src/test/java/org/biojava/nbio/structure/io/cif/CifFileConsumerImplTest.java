@@ -1,9 +1,13 @@
 package org.biojava.nbio.structure.io.cif;
 
+import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.EntityInfo;
 import org.biojava.nbio.structure.EntityType;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.PackedAtom;
 import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
 import org.biojava.nbio.structure.io.CifFileReader;
 import org.biojava.nbio.structure.io.FileParsingParameters;
 import org.biojava.nbio.structure.io.PDBFileParser;
@@ -267,4 +271,74 @@ public class CifFileConsumerImplTest {
         assertEquals(2, s.getPolyChain("A").getAtomGroups().size());
         assertEquals(2, s.getPolyChainByPDB("A").getAtomGroups().size());
     }
-}
\ No newline at end of file
+
+    /**
+     * Columnar ingest of BinaryCIF gives the same structure as the row-by-row path, with packed atoms.
+     * 4CUP has residues with alternate locations.
+     */
+    @Test
+    public void testColumnarIngest() throws IOException {
+        String[] files = { "/4hhb.cif.gz", "/org/biojava/nbio/structure/io/mmtf/4CUP.cif" };
+        for (String file : files) {
+            byte[] bcif;
+            try (InputStream inputStream = getClass().getResourceAsStream(file)) {
+                InputStream in = file.endsWith(".gz") ? new GZIPInputStream(inputStream) : inputStream;
+                bcif = CifIO.writeBinary(CifIO.readFromInputStream(in));
+            }
+
+            FileParsingParameters params = new FileParsingParameters();
+            Structure expected = CifStructureConverter.fromInputStream(new ByteArrayInputStream(bcif), params);
+            params.setColumnarIngest(true);
+            Structure actual = CifStructureConverter.fromInputStream(new ByteArrayInputStream(bcif), params);
+
+            assertEquals(expected.nrModels(), actual.nrModels());
+            assertEquals(expected.getEntityInfos().size(), actual.getEntityInfos().size());
+            assertEquals(expected.getChains().size(), actual.getChains().size());
+            int packed = 0;
+            for (int c = 0; c < expected.getChains().size(); c++) {
+                Chain expectedChain = expected.getChains().get(c);
+                Chain actualChain = actual.getChains().get(c);
+                assertEquals(expectedChain.getId(), actualChain.getId());
+                assertEquals(expectedChain.getName(), actualChain.getName());
+                assertEquals(expectedChain.getEntityInfo().getMolId(), actualChain.getEntityInfo().getMolId());
+                assertEquals(expectedChain.getSeqResGroups().size(), actualChain.getSeqResGroups().size());
+                assertEquals(expectedChain.getAtomGroups().size(), actualChain.getAtomGroups().size());
+                for (int g = 0; g < expectedChain.getAtomGroups().size(); g++) {
+                    Group expectedGroup = expectedChain.getAtomGroups().get(g);
+                    Group actualGroup = actualChain.getAtomGroups().get(g);
+                    assertEquals(expectedGroup.getClass(), actualGroup.getClass());
+                    assertEquals(expectedGroup.getResidueNumber(), actualGroup.getResidueNumber());
+                    assertEquals(expectedGroup.getPDBName(), actualGroup.getPDBName());
+                    assertEquals(expectedGroup.getAltLocs().size(), actualGroup.getAltLocs().size());
+                    assertAtoms(expectedGroup, actualGroup);
+                    for (int a = 0; a < expectedGroup.getAltLocs().size(); a++) {
+                        assertAtoms(expectedGroup.getAltLocs().get(a), actualGroup.getAltLocs().get(a));
+                    }
+                    for (Atom atom : actualGroup.getAtoms()) {
+                        if (atom instanceof PackedAtom) {
+                            assertSame(actualGroup, atom.getGroup());
+                            packed++;
+                        }
+                    }
+                }
+            }
+            assertTrue(packed > 0.9 * StructureTools.getNrAtoms(actual));
+        }
+    }
+
+    private static void assertAtoms(Group expected, Group actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Atom expectedAtom = expected.getAtom(i);
+            Atom actualAtom = actual.getAtom(i);
+            assertEquals(expectedAtom.getName(), actualAtom.getName());
+            assertEquals(expectedAtom.getPDBserial(), actualAtom.getPDBserial());
+            assertEquals(expectedAtom.getElement(), actualAtom.getElement());
+            assertEquals(expectedAtom.getAltLoc(), actualAtom.getAltLoc());
+            assertEquals(expectedAtom.getCharge(), actualAtom.getCharge());
+            assertEquals(expectedAtom.getOccupancy(), actualAtom.getOccupancy(), 0);
+            assertEquals(expectedAtom.getTempFactor(), actualAtom.getTempFactor(), 0);
+            assertArrayEquals(expectedAtom.getCoords(), actualAtom.getCoords(), 0);
+        }
+    }
+}
@@ -21,13 +21,18 @@
 package org.biojava.nbio.structure.secstruc;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Group;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.PDBFileParser;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -118,4 +123,71 @@ public class TestSecStrucCalc {
 					biojava.get(i), dssp.get(i));
 		}
 	}
+
+	/**
+	 * The packed, parallel H-bond calculation must give the same assignment
+	 * as the contact set one, and as DSSP.
+	 */
+	@Test
+	public void testPackedHBonds() throws StructureException, IOException {
+
+		Structure structure = read4hhb();
+		List<SecStrucState> expected = new SecStrucCalc().calculate(structure, false);
+
+		List<SecStrucState> biojava;
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("dssp", 2, 16)) {
+			biojava = new SecStrucCalc(executor).calculate(structure, false);
+		}
+		assertEquals(expected, biojava);
+
+		List<SecStrucState> dssp = DSSPParser.parseInputStream(new GZIPInputStream(
+				this.getClass().getResourceAsStream("/org/biojava/nbio/structure/secstruc/4hhb.dssp.gz")), structure, false);
+		assertEquals(dssp.size(), biojava.size());
+		for (int i=0; i<dssp.size(); i++){
+			assertEquals("SS assignment position "+(i+1)+" does not match",
+					biojava.get(i), dssp.get(i));
+		}
+	}
+
+	/**
+	 * With a movement threshold, only the H-bonds around the residues that
+	 * moved are computed again.
+	 */
+	@Test
+	public void testIncrementalHBonds() throws StructureException, IOException {
+
+		Structure structure = read4hhb();
+		SecStrucCalc sec = new SecStrucCalc();
+		sec.setMovementThreshold(0);
+
+		List<SecStrucState> first = sec.calculate(structure, false);
+		int residues = first.size();
+		assertEquals(residues, sec.getRecomputedResidues());
+
+		// nothing moved
+		assertEquals(first, sec.calculate(structure, false));
+		assertEquals(0, sec.getRecomputedResidues());
+
+		// move one residue
+		Group group = structure.getPolyChains().get(0).getAtomGroup(20);
+		for (Atom atom : group.getAtoms())
+			atom.setX(atom.getX() + 1.0);
+		List<SecStrucState> moved = sec.calculate(structure, false);
+		int recomputed = sec.getRecomputedResidues();
+		assertTrue(recomputed > 0 && recomputed < residues / 10);
+		assertEquals(new SecStrucCalc().calculate(structure, false), moved);
+
+		// small moves are ignored above the threshold
+		sec.setMovementThreshold(2.0);
+		for (Atom atom : group.getAtoms())
+			atom.setX(atom.getX() - 1.0);
+		sec.calculate(structure, false);
+		assertEquals(0, sec.getRecomputedResidues());
+	}
+
+	private static Structure read4hhb() throws IOException {
+		try (InputStream in = new GZIPInputStream(TestSecStrucCalc.class.getResourceAsStream("/4hhb.pdb.gz"))) {
+			return new PDBFileParser().parsePDBFile(in);
+		}
+	}
 }
@@ -0,0 +1,90 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.xtal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.biojava.nbio.core.util.BioJavaExecutor;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.contact.AtomContact;
+import org.biojava.nbio.structure.contact.AtomContactSet;
+import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.contact.StructureInterface;
+import org.biojava.nbio.structure.contact.StructureInterfaceList;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.junit.Test;
+
+public class TestCrystalBuilder {
+
+	/**
+	 * The contacts of each interface are the same as those of a {@link Grid} over its two molecules,
+	 * and the interfaces don't depend on the executor.
+	 */
+	@Test
+	public void testUniqueInterfaces() throws IOException {
+		Structure s;
+		try (InputStream in = getClass().getResourceAsStream("/2gox.pdb")) {
+			s = new PDBFileParser().parsePDBFile(in);
+		}
+
+		StructureInterfaceList interfaces = new CrystalBuilder(s).getUniqueInterfaces(5.5);
+		assertEquals(9, interfaces.size());
+
+		for (StructureInterface interf : interfaces) {
+			Grid grid = new Grid(5.5);
+			grid.addAtoms(nonH(interf.getMolecules().getFirst()), nonH(interf.getMolecules().getSecond()));
+			AtomContactSet expected = grid.getAtomContacts();
+
+			assertEquals(expected.size(), interf.getContacts().size());
+			for (AtomContact contact : expected) {
+				Atom first = contact.getPair().getFirst();
+				Atom second = contact.getPair().getSecond();
+				assertTrue(interf.getContacts().hasContact(first, second));
+				assertEquals(contact.getDistance(), interf.getContacts().getContact(first, second).getDistance(), 0);
+			}
+		}
+
+		StructureInterfaceList serial;
+		try (BioJavaExecutor executor = BioJavaExecutor.fixed("xtal", 1, 1)) {
+			CrystalBuilder cb = new CrystalBuilder(s);
+			cb.setExecutor(executor);
+			serial = cb.getUniqueInterfaces(5.5);
+		}
+		assertEquals(interfaces.size(), serial.size());
+		for (int i = 0; i < interfaces.size(); i++) {
+			StructureInterface interf = interfaces.get(i + 1);
+			StructureInterface other = serial.get(i + 1);
+			assertEquals(interf.getMoleculeIds(), other.getMoleculeIds());
+			assertEquals(interf.getTransforms().getSecond().toString(), other.getTransforms().getSecond().toString());
+			assertEquals(interf.getContacts().size(), other.getContacts().size());
+		}
+	}
+
+	private static Atom[] nonH(Atom[] atoms) {
+		return Arrays.stream(atoms).filter(a -> a.getElement() != Element.H).toArray(Atom[]::new);
+	}
+}